@@ -0,0 +1,59 @@
+package com.costing.api;
+
+import com.model.entities.TransaccionEntity;
+
+/**
+ * Clave tipada de un grupo de costeo (empresa, cuenta, custodio, instrumento).
+ * Reemplaza el armado y el parseo manual de la clave de texto
+ * {@code empresaId|cuenta|custodioId|instrumentoId}, que se sigue usando en la API,
+ * los DTOs y los registros de corridas. Es parte de la API del módulo para que los
+ * servicios armen la clave sin depender del motor.
+ */
+public record GrupoCosteoKey(Long empresaId, String cuenta, Long custodioId, Long instrumentoId) {
+
+    private static final String SEPARADOR = "|";
+
+    public GrupoCosteoKey {
+        if (empresaId == null || cuenta == null || custodioId == null || instrumentoId == null) {
+            throw new IllegalArgumentException("La clave de grupo requiere empresa, cuenta, custodio e instrumento.");
+        }
+    }
+
+    public static GrupoCosteoKey of(TransaccionEntity t) {
+        return new GrupoCosteoKey(t.getEmpresa().getId(), t.getCuenta(), t.getCustodio().getId(), t.getInstrumento().getId());
+    }
+
+    /**
+     * Fila de una consulta de grupos: empresa, cuenta, custodio e instrumento, en ese orden.
+     */
+    public static GrupoCosteoKey of(Object[] grupo) {
+        return new GrupoCosteoKey((Long) grupo[0], (String) grupo[1], (Long) grupo[2], (Long) grupo[3]);
+    }
+
+    /**
+     * @throws IllegalArgumentException si la clave es vacía o no tiene las cuatro partes.
+     */
+    public static GrupoCosteoKey parse(String clave) {
+        if (clave == null || clave.isBlank()) {
+            throw new IllegalArgumentException("La clave de grupo no puede ser nula o vacía.");
+        }
+        String[] partes = clave.split("\\|");
+        if (partes.length != 4) {
+            throw new IllegalArgumentException("Formato de clave de grupo inválido: " + clave);
+        }
+        try {
+            return new GrupoCosteoKey(Long.parseLong(partes[0]), partes[1], Long.parseLong(partes[2]), Long.parseLong(partes[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Formato de clave de grupo inválido: " + clave, e);
+        }
+    }
+
+    public String clave() {
+        return empresaId + SEPARADOR + cuenta + SEPARADOR + custodioId + SEPARADOR + instrumentoId;
+    }
+
+    @Override
+    public String toString() {
+        return clave();
+    }
+}
@@ -0,0 +1,222 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.entities.CorridaCosteoEntity;
+import com.model.entities.CorridaCosteoGrupoEntity;
+import com.model.enums.EstadoCorridaCosteo;
+import com.model.interfaces.KardexApi;
+import com.model.interfaces.SaldoApi;
+import com.model.interfaces.TipoMovimiento;
+import com.model.utiles.LibraryInitializer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Costeo por bloques con punto de control. Los grupos pendientes se procesan en
+ * bloques de tamaño fijo y cada bloque se confirma en su propia transacción junto
+ * con el avance de la corrida ({@link CorridaCosteoEntity}) y el registro de cada
+ * grupo procesado. Si la corrida se interrumpe solo se pierde el bloque en curso,
+ * y al reanudarla se omiten los grupos ya registrados.
+ * <p>
+ * Las transacciones cortas también mantienen acotados el log de transacciones y
+ * el segmento de undo de la base de datos.
+ */
+public class CheckpointCostingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointCostingEngine.class);
+
+    public static final int DEFAULT_GRUPOS_POR_BLOQUE = 50;
+    private static final int LARGO_MENSAJE = 1000;
+
+    private final int gruposPorBloque;
+    private final KardexApi kardexRepository;
+    private final SaldoApi saldoRepository;
+    private final TipoMovimiento tipoMovimientoRepository;
+
+    /**
+     * @param gruposPorBloque Grupos confirmados por transacción (0 o menos usa {@link #DEFAULT_GRUPOS_POR_BLOQUE}).
+     */
+    public CheckpointCostingEngine(int gruposPorBloque, KardexApi kardexRepository,
+                                   SaldoApi saldoRepository,
+                                   TipoMovimiento tipoMovimientoRepository) {
+        this.gruposPorBloque = gruposPorBloque > 0 ? gruposPorBloque : DEFAULT_GRUPOS_POR_BLOQUE;
+        this.kardexRepository = kardexRepository;
+        this.saldoRepository = saldoRepository;
+        this.tipoMovimientoRepository = tipoMovimientoRepository;
+    }
+
+    /**
+     * Registra una corrida nueva y costea todos los grupos pendientes.
+     */
+    public ResultadoCosteoDto iniciar() {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        try {
+            CorridaCosteoEntity corrida = new CorridaCosteoEntity();
+            corrida.setEstado(EstadoCorridaCosteo.EN_CURSO);
+            corrida.setInicio(LocalDateTime.now());
+            corrida.setGruposPorBloque(gruposPorBloque);
+
+            EntityTransaction tx = em.getTransaction();
+            tx.begin();
+            em.persist(corrida);
+            tx.commit();
+
+            logger.info("Iniciando corrida de costeo {} en bloques de {} grupos", corrida.getId(), gruposPorBloque);
+            return procesar(em, corrida.getId());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Reanuda una corrida omitiendo los grupos que ya confirmó.
+     * @param corridaId Corrida a reanudar; si es null, la última que no terminó.
+     */
+    public ResultadoCosteoDto reanudar(Long corridaId) {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        try {
+            Long id = corridaId != null ? corridaId : buscarUltimaNoCompletada(em);
+            if (id == null) {
+                throw new IllegalStateException("No hay corridas de costeo pendientes de reanudar.");
+            }
+            CorridaCosteoEntity corrida = em.find(CorridaCosteoEntity.class, id);
+            if (corrida == null) {
+                throw new IllegalArgumentException("No se encontró la corrida de costeo con ID: " + id);
+            }
+            if (corrida.getEstado() == EstadoCorridaCosteo.COMPLETADA) {
+                throw new IllegalStateException("La corrida de costeo " + id + " ya está completada.");
+            }
+
+            logger.info("Reanudando corrida de costeo {} ({} grupos ya confirmados)", id,
+                    corrida.getGruposCompletados() + corrida.getGruposFallidos());
+            // Mientras se reanuda vuelve a estar en curso; se limpia el mensaje de la interrupción
+            marcarEstado(em, id, EstadoCorridaCosteo.EN_CURSO, null);
+            return procesar(em, id);
+        } finally {
+            em.close();
+        }
+    }
+
+    private ResultadoCosteoDto procesar(EntityManager em, Long corridaId) {
+        long inicio = System.nanoTime();
+
+        // 1. GRUPOS PENDIENTES QUE LA CORRIDA AÚN NO REGISTRA
+        Set<String> yaProcesados = new HashSet<>(em.createQuery("""
+            SELECT g.claveAgrupacion FROM CorridaCosteoGrupoEntity g
+            WHERE g.corrida.id = :corridaId
+            """, String.class)
+                .setParameter("corridaId", corridaId)
+                .getResultList());
+
+        List<Object[]> grupos = new ArrayList<>();
+        for (Object[] grupo : FifoCostingEngine.findPendingGroups(em)) {
+            if (!yaProcesados.contains(GrupoCosteoKey.of(grupo).clave())) {
+                grupos.add(grupo);
+            }
+        }
+        em.clear();
+        logger.info("Corrida {}: {} grupos por costear, {} ya registrados", corridaId, grupos.size(), yaProcesados.size());
+
+        // 2. UN BLOQUE DE GRUPOS POR TRANSACCIÓN, JUNTO CON EL AVANCE DE LA CORRIDA
+        CostingStrategySelector engine = new CostingStrategySelector(em, kardexRepository, saldoRepository, tipoMovimientoRepository, null);
+        List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>(grupos.size());
+        for (int desde = 0; desde < grupos.size(); desde += gruposPorBloque) {
+            List<Object[]> bloque = grupos.subList(desde, Math.min(desde + gruposPorBloque, grupos.size()));
+            EntityTransaction tx = em.getTransaction();
+            try {
+                tx.begin();
+                CorridaCosteoEntity corrida = em.find(CorridaCosteoEntity.class, corridaId);
+                List<ResultadoCosteoDto.ResultadoGrupo> resultadosBloque = new ArrayList<>(bloque.size());
+                for (Object[] grupo : bloque) {
+                    ResultadoCosteoDto.ResultadoGrupo resultado = engine.procesarGrupo(GrupoCosteoKey.of(grupo));
+                    registrarGrupo(em, corrida, resultado);
+                    resultadosBloque.add(resultado);
+                }
+                em.flush();
+                tx.commit();
+                resultados.addAll(resultadosBloque);
+                logger.info("Corrida {}: bloque confirmado, {} de {} grupos", corridaId, desde + bloque.size(), grupos.size());
+            } catch (Exception e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                em.clear();
+                marcarEstado(em, corridaId, EstadoCorridaCosteo.INTERRUMPIDA, "Interrumpida en el bloque que comienza en el grupo "
+                        + (desde + 1) + ": " + e.getMessage());
+                logger.error("Corrida de costeo {} interrumpida; se puede reanudar desde el último bloque confirmado.", corridaId, e);
+                throw new IllegalStateException("La corrida de costeo " + corridaId + " se interrumpió: " + e.getMessage(), e);
+            } finally {
+                // El bloque ya quedó escrito (o revertido); se liberan sus entidades
+                em.clear();
+            }
+        }
+
+        // 3. CIERRE DE LA CORRIDA
+        marcarEstado(em, corridaId, EstadoCorridaCosteo.COMPLETADA, null);
+        ResultadoCosteoDto resultado = new ResultadoCosteoDto(resultados, 1, Duration.ofNanos(System.nanoTime() - inicio), corridaId);
+        logger.info("Corrida de costeo {} completada. {}", corridaId, resultado);
+        return resultado;
+    }
+
+    private void registrarGrupo(EntityManager em, CorridaCosteoEntity corrida, ResultadoCosteoDto.ResultadoGrupo resultado) {
+        CorridaCosteoGrupoEntity registro = new CorridaCosteoGrupoEntity();
+        registro.setCorrida(corrida);
+        registro.setClaveAgrupacion(resultado.claveAgrupacion());
+        registro.setExitoso(resultado.exitoso());
+        registro.setTransacciones(resultado.transaccionesProcesadas());
+        registro.setMensaje(recortar(resultado.mensaje()));
+        em.persist(registro);
+
+        if (resultado.exitoso()) {
+            corrida.setGruposCompletados(corrida.getGruposCompletados() + 1);
+        } else {
+            corrida.setGruposFallidos(corrida.getGruposFallidos() + 1);
+        }
+        corrida.setTransaccionesProcesadas(corrida.getTransaccionesProcesadas() + resultado.transaccionesProcesadas());
+    }
+
+    private void marcarEstado(EntityManager em, Long corridaId, EstadoCorridaCosteo estado, String mensaje) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            CorridaCosteoEntity corrida = em.find(CorridaCosteoEntity.class, corridaId);
+            corrida.setEstado(estado);
+            corrida.setMensaje(recortar(mensaje));
+            corrida.setFin(estado == EstadoCorridaCosteo.COMPLETADA ? LocalDateTime.now() : null);
+            tx.commit();
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            logger.error("No se pudo registrar el estado {} de la corrida {}", estado, corridaId, e);
+        }
+    }
+
+    private Long buscarUltimaNoCompletada(EntityManager em) {
+        return em.createQuery("""
+            SELECT c.id FROM CorridaCosteoEntity c
+            WHERE c.estado <> :completada
+              AND c.distribuida = false
+            ORDER BY c.id DESC
+            """, Long.class)
+                .setParameter("completada", EstadoCorridaCosteo.COMPLETADA)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static String recortar(String mensaje) {
+        return mensaje == null || mensaje.length() <= LARGO_MENSAJE ? mensaje : mensaje.substring(0, LARGO_MENSAJE);
+    }
+}
@@ -0,0 +1,90 @@
+package com.costing.engine;
+
+import com.model.entities.TipoMovimientoEntity;
+import com.model.entities.TransaccionEntity;
+import com.model.enums.TipoEnumsCosteo;
+import com.model.enums.TipoMovimientoEspecial;
+import com.model.interfaces.TipoMovimiento;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tabla inmutable con la clasificación de todos los tipos de movimiento, indexada por
+ * id: tipo contable, marca de saldo inicial y movimiento especial. Se carga una vez por
+ * corrida de costeo y el ciclo de costeo clasifica cada transacción con una lectura de
+ * arreglo, sin consultar la base de datos ni recorrer las entidades de referencia.
+ * <p>
+ * Es segura para compartir entre hilos.
+ */
+public final class ClasificacionMovimientos {
+
+    static final String AJUSTE_AUTO_TOLERANCIA = "AJUSTE_AUTO_TOLERANCIA";
+
+    private final TipoEnumsCosteo[] tipoContable;
+    private final boolean[] saldoInicial;
+    private final TipoMovimientoEspecial[] especial;
+    private final Long ajusteToleranciaId;
+
+    private ClasificacionMovimientos(List<TipoMovimientoEntity> tipos) {
+        int tamano = (int) tipos.stream().mapToLong(TipoMovimientoEntity::getId).max().orElse(0) + 1;
+        this.tipoContable = new TipoEnumsCosteo[tamano];
+        this.saldoInicial = new boolean[tamano];
+        this.especial = new TipoMovimientoEspecial[tamano];
+        Arrays.fill(tipoContable, TipoEnumsCosteo.NO_COSTEAR);
+        Arrays.fill(especial, TipoMovimientoEspecial.OTRO);
+
+        Long ajuste = null;
+        for (TipoMovimientoEntity tipo : tipos) {
+            int id = tipo.getId().intValue();
+            if (tipo.getMovimientoContable() != null && tipo.getMovimientoContable().getTipoContable() != null) {
+                tipoContable[id] = tipo.getMovimientoContable().getTipoContable();
+            }
+            saldoInicial[id] = tipo.isEsSaldoInicial();
+            especial[id] = TipoMovimientoEspecial.fromString(tipo.getTipoMovimiento());
+            if (AJUSTE_AUTO_TOLERANCIA.equals(tipo.getTipoMovimiento())) {
+                ajuste = tipo.getId();
+            }
+        }
+        this.ajusteToleranciaId = ajuste;
+    }
+
+    /**
+     * Lee todos los tipos de movimiento con una sola consulta.
+     */
+    public static ClasificacionMovimientos cargar(TipoMovimiento tipoMovimientoRepository) {
+        return new ClasificacionMovimientos(tipoMovimientoRepository.obtenerTodosLosTipos());
+    }
+
+    public TipoEnumsCosteo tipoContable(TransaccionEntity tx) {
+        return tipoContable[indice(tx)];
+    }
+
+    public boolean esSaldoInicial(TransaccionEntity tx) {
+        return saldoInicial[indice(tx)];
+    }
+
+    public TipoMovimientoEspecial especial(TransaccionEntity tx) {
+        return especial[indice(tx)];
+    }
+
+    /**
+     * Id del tipo de movimiento para los ajustes automáticos por tolerancia.
+     * @throws IllegalStateException si el tipo no está configurado.
+     */
+    public Long ajusteToleranciaId() {
+        if (ajusteToleranciaId == null) {
+            throw new IllegalStateException("El tipo de movimiento '" + AJUSTE_AUTO_TOLERANCIA + "' no está configurado.");
+        }
+        return ajusteToleranciaId;
+    }
+
+    private int indice(TransaccionEntity tx) {
+        long id = tx.getTipoMovimiento().getId();
+        if (id < 0 || id >= tipoContable.length) {
+            // Tipo creado después de cargar la tabla: se clasificará en la próxima corrida
+            throw new IllegalStateException("El tipo de movimiento " + id + " no está en la clasificación cargada para esta corrida.");
+        }
+        return (int) id;
+    }
+}
@@ -1,76 +1,174 @@
 package com.costing.engine;
 
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
 import com.model.entities.SaldosDiariosEntity;
 import com.model.entities.SaldoKardexEntity;
-import com.model.entities.EmpresaEntity;
+import com.model.entities.GrupoCosteoEntity;
 import com.model.entities.KardexEntity;
-import com.model.entities.CustodioEntity;
-import com.model.entities.InstrumentoEntity;
 import com.model.entities.TransaccionEntity;
+import com.model.enums.MetodoCosteo;
 import com.model.enums.TipoEnumsCosteo;
 import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import com.model.interfaces.KardexApi;
 import com.model.interfaces.SaldoApi;
-import com.model.interfaces.TipoMovimiento;
 
-// Esta clase maneja el estado y el flujo de un solo grupo
+// Esta clase maneja el estado y el flujo de un solo grupo.
+// Durante el grupo, el disponible de los lotes, las marcas de las transacciones y el saldo
+// vigente viven solo en memoria; el sink escribe su estado final una vez al cerrar el grupo.
 public class CostingGroupProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(CostingGroupProcessor.class);
 
+    private static final String LOTES_ABIERTOS_QUERY = """
+        SELECT la.kardex_id, la.transaccion_id, la.cantidad_disponible, la.costo_unitario
+        FROM lotes_abiertos la
+        WHERE la.grupo_id = ?1
+          AND la.fecha_transaccion < ?2
+        ORDER BY la.fecha_transaccion, la.kardex_id
+        """;
+
+    private static final String ULTIMO_CIERRE_QUERY = """
+        SELECT c.fecha_cierre, c.cantidad_cierre, c.valor_cierre
+        FROM cierres_contables c
+        WHERE c.clave_agrupacion = ?1
+        ORDER BY c.ejercicio DESC
+        LIMIT 1
+        """;
+
+    /** Saldo congelado del grupo al cierre de su último ejercicio cerrado. */
+    private record Cierre(LocalDate fecha, BigDecimal cantidad, BigDecimal valor) {
+    }
+
     // Dependencias
     private final EntityManager em;
     private final KardexApi kardexRepository;
     private final SaldoApi saldoRepository;
+    private final ClasificacionMovimientos clasificacion;
+    private final MetodoCosteo metodo;
 
-    // Handlers especialistas
+    // Escritura en lote y handlers especialistas
+    private final CostingOutputSink sink;
     private final IngresoHandler ingresoHandler;
     private final EgresoHandler egresoHandler;
+    private final PromedioPonderadoHandler promedioHandler;
 
     // Estado del grupo
     private final String claveAgrupacion;
+    private final GrupoCosteoKey key;
+    private GrupoCosteoEntity grupo;
     private final List<TransaccionEntity> transactions;
     private BigDecimal saldoCantidad;
     private BigDecimal saldoValor;
-    private final Queue<IngresoDisponible> ingresosQueue = new LinkedList<>();
-    private final Map<String, SaldoKardexEntity> cacheSaldos = new HashMap<>();
+    private Cierre cierre;
+    private FifoKernel kernel; // solo en FIFO
+    private final List<KardexEntity> lotes = new ArrayList<>(); // kardex de cada lote, indexado por id de lote del kernel
+    private final TreeMap<LocalDate, BigDecimal[]> cierresDiarios = new TreeMap<>(); // saldo al cierre de cada día con movimientos
+
+    // Tiempos por fase (ver ResultadoCosteoDto.MetricasGrupo); la carga la mide quien lee las transacciones
+    private long nanosCarga;
+    private long nanosInicializacion;
+    private long nanosCalculo;
+    private long nanosSaldosDiarios;
+
+    public CostingGroupProcessor(GrupoCosteoKey key, List<TransaccionEntity> transactions, EntityManager em,
+            KardexApi kardexRepository, SaldoApi saldoRepository,
+            ClasificacionMovimientos clasificacion, MetodoCosteo metodo) {
+        this(key, transactions, em, kardexRepository, saldoRepository, clasificacion, metodo,
+                CostingOutputSink.DEFAULT_BATCH_SIZE);
+    }
 
-    public CostingGroupProcessor(String claveAgrupacion, List<TransaccionEntity> transactions, EntityManager em,
+    public CostingGroupProcessor(GrupoCosteoKey key, List<TransaccionEntity> transactions, EntityManager em,
             KardexApi kardexRepository, SaldoApi saldoRepository,
-            TipoMovimiento tipoMovimientoRepository) {
-        this.claveAgrupacion = claveAgrupacion;
+            ClasificacionMovimientos clasificacion, MetodoCosteo metodo, int batchSize) {
+        this.key = key;
+        this.claveAgrupacion = key.clave();
         this.transactions = transactions;
         this.em = em;
         this.kardexRepository = kardexRepository;
         this.saldoRepository = saldoRepository;
+        this.clasificacion = clasificacion;
+        this.metodo = metodo != null ? metodo : MetodoCosteo.FIFO;
 
         // Inicializamos los especialistas
-        this.ingresoHandler = new IngresoHandler(em);
-        this.egresoHandler = new EgresoHandler(em, tipoMovimientoRepository);
+        this.sink = new CostingOutputSink(em, batchSize);
+        this.ingresoHandler = new IngresoHandler(sink);
+        this.egresoHandler = new EgresoHandler(em, sink, clasificacion);
+        this.promedioHandler = new PromedioPonderadoHandler(em, sink, clasificacion);
     }
 
-    public void process() {
+    /**
+     * Contadores de escritura del grupo (filas por tabla, flushes y tiempo de escritura).
+     */
+    public CostingOutputSink.Estadisticas getEstadisticasEscritura() {
+        return sink.getEstadisticas();
+    }
+
+    /**
+     * Tiempo que tomó leer las transacciones del grupo, para incluirlo en sus métricas.
+     */
+    public void setNanosCarga(long nanosCarga) {
+        this.nanosCarga = nanosCarga;
+    }
+
+    public ResultadoCosteoDto.ResultadoGrupo process() {
         if (transactions == null || transactions.isEmpty()) {
             logger.warn("No hay transacciones para procesar en el grupo: {}", claveAgrupacion);
-            return;
+            return ResultadoCosteoDto.ResultadoGrupo.exitoso(claveAgrupacion, 0);
+        }
+
+        logger.info("Iniciando procesamiento del grupo: {} con {} transacciones ({})",
+                claveAgrupacion, transactions.size(), metodo);
+
+        // Las marcas se escriben en bloque al final: JPA no debe revisar ni actualizar cada transacción
+        marcarSoloLectura(true);
+        try {
+            return procesarTransacciones();
+        } finally {
+            marcarSoloLectura(false);
+        }
+    }
+
+    private ResultadoCosteoDto.ResultadoGrupo procesarTransacciones() {
+        long inicioInicializacion = System.nanoTime();
+        this.cierre = findUltimoCierre();
+        TransaccionEntity primera = transactions.get(0);
+        if (cierre != null && !primera.getFecha().isAfter(cierre.fecha())) {
+            // Un ejercicio cerrado no se vuelve a costear: sus transacciones quedan para revisión
+            transactions.forEach(this::markTransactionForRevision);
+            nanosInicializacion = System.nanoTime() - inicioInicializacion;
+            sink.flush();
+            String motivo = "Tx ID " + primera.getId() + " con fecha " + primera.getFecha()
+                    + " pertenece a un ejercicio cerrado (cierre al " + cierre.fecha() + ")";
+            logger.warn("Grupo {} no costeado: {}", claveAgrupacion, motivo);
+            return ResultadoCosteoDto.ResultadoGrupo.fallido(claveAgrupacion, 0, motivo).conMetricas(metricas());
         }
 
-        logger.info("Iniciando procesamiento del grupo: {} con {} transacciones",
-                claveAgrupacion, transactions.size());
+        // Las filas de costeo referencian el grupo por su id numérico
+        this.grupo = em.getReference(GrupoCosteoEntity.class, GrupoCosteoResolver.obtenerOCrear(em, key));
 
         initializeBalances();
-        initializeFifoQueue();
+        if (metodo == MetodoCosteo.FIFO) {
+            this.kernel = new FifoKernel(FixedPoint.of(saldoCantidad), FixedPoint.of(saldoValor),
+                    new FifoKernelOutput(16));
+            initializeFifoQueue();
+        }
+        nanosInicializacion = System.nanoTime() - inicioInicializacion;
 
+        // Los flushes intermedios del kardex ocurren dentro del recorrido: se descuentan del cálculo
+        long inicioCalculo = System.nanoTime();
+        long escrituraPrevia = sink.getEstadisticas().nanosEscritura();
         boolean hasFailed = false;
         int processedCount = 0;
+        TransaccionEntity ultimaCosteada = null;
+        String motivoFallo = null;
 
         for (TransaccionEntity tx : transactions) {
             if (hasFailed) {
@@ -79,131 +177,184 @@ public class CostingGroupProcessor {
             }
 
             try {
-                if (tx.getTipoMovimiento().getMovimientoContable().getTipoContable() == TipoEnumsCosteo.INGRESO) {
+                TipoEnumsCosteo tipoContable = clasificacion.tipoContable(tx);
+                if (metodo == MetodoCosteo.PROMEDIO_PONDERADO) {
+
+                    // Promedio móvil: el estado del grupo es solo su saldo, sin cola de lotes
+                    PromedioPonderadoHandler.PromedioResult result = promedioHandler.handle(tx, tipoContable, saldoCantidad, saldoValor, grupo);
+                    saldoCantidad = result.nuevoSaldoCantidad();
+                    saldoValor = result.nuevoSaldoValor();
+
+                } else if (tipoContable == TipoEnumsCosteo.INGRESO) {
 
+                    kernel.output().clear();
                     // Usar el resultado completo del IngresoHandler
-                    IngresoHandler.IngresoResult result = ingresoHandler.handle(tx, ingresosQueue, saldoCantidad, saldoValor, claveAgrupacion);
+                    IngresoHandler.IngresoResult result = ingresoHandler.handle(tx, kernel, lotes, grupo);
                     saldoCantidad = result.nuevoSaldoCantidad();
                     saldoValor = result.nuevoSaldoValor();
 
-                } else if (tx.getTipoMovimiento().getMovimientoContable().getTipoContable() == TipoEnumsCosteo.EGRESO) {
+                } else if (tipoContable == TipoEnumsCosteo.EGRESO) {
 
-                    EgresoHandler.EgresoResult result = egresoHandler.handle(tx, ingresosQueue, saldoCantidad, saldoValor, claveAgrupacion);
+                    kernel.output().clear();
+                    EgresoHandler.EgresoResult result = egresoHandler.handle(tx, kernel, lotes, grupo);
                     saldoCantidad = result.nuevoSaldoCantidad();
                     saldoValor = result.nuevoSaldoValor();
                 }
 
                 markTransactionAsCosted(tx);
-                updateSaldoKardex(tx, saldoCantidad, saldoValor);
+                ultimaCosteada = tx;
+                cierresDiarios.put(tx.getFecha(), new BigDecimal[]{saldoCantidad, saldoValor});
                 processedCount++;
 
                 logger.debug("Transacción procesada exitosamente - ID: {}, Tipo: {}",
-                        tx.getId(), tx.getTipoMovimiento().getMovimientoContable().getTipoContable());
+                        tx.getId(), tipoContable);
 
             } catch (InsufficientBalanceException e) {
                 logger.error("Error de saldo insuficiente para Tx ID: {}. Marcando para revisión.", tx.getId(), e);
                 markTransactionForRevision(tx);
                 hasFailed = true;
+                motivoFallo = "Tx ID " + tx.getId() + ": " + e.getMessage();
             } catch (Exception e) {
                 logger.error("Error inesperado procesando Tx ID: {}. Marcando para revisión.", tx.getId(), e);
                 markTransactionForRevision(tx);
                 hasFailed = true;
+                motivoFallo = "Tx ID " + tx.getId() + ": " + e.getMessage();
             }
         }
 
+        if (ultimaCosteada != null) {
+            updateSaldoKardex(ultimaCosteada, saldoCantidad, saldoValor);
+        }
+        nanosCalculo = System.nanoTime() - inicioCalculo - (sink.getEstadisticas().nanosEscritura() - escrituraPrevia);
+
         if (!hasFailed) {
+            long inicioSaldosDiarios = System.nanoTime();
             updateSaldosDiarios();
-            logger.info("Grupo procesado exitosamente: {} - {} transacciones procesadas",
-                    claveAgrupacion, processedCount);
+            nanosSaldosDiarios = System.nanoTime() - inicioSaldosDiarios;
+        }
+        sink.flush();
+        ResultadoCosteoDto.MetricasGrupo metricas = metricas();
+        logger.debug("Escritura del grupo {}: {}", claveAgrupacion, sink.getEstadisticas());
+
+        if (!hasFailed) {
+            ResultadoCosteoDto.ResultadoGrupo resultado = ResultadoCosteoDto.ResultadoGrupo.exitoso(claveAgrupacion, processedCount).conMetricas(metricas);
+            logger.info("Grupo procesado exitosamente: {} - {} transacciones procesadas en {} ms ({} tx/s)",
+                    claveAgrupacion, processedCount, metricas.nanosTotal() / 1_000_000,
+                    String.format("%.1f", resultado.transaccionesPorSegundo()));
+            return resultado;
         } else {
             logger.warn("Grupo procesado con errores: {} - {} transacciones procesadas, resto marcado para revisión",
                     claveAgrupacion, processedCount);
+            return ResultadoCosteoDto.ResultadoGrupo.fallido(claveAgrupacion, processedCount, motivoFallo).conMetricas(metricas);
         }
     }
 
+    /**
+     * Tiempos por fase y volumen del grupo. La escritura del sink se reparte entre
+     * escritura y saldos diarios; este último suma además el arrastre día a día.
+     */
+    private ResultadoCosteoDto.MetricasGrupo metricas() {
+        CostingOutputSink.Estadisticas escritura = sink.getEstadisticas();
+        return new ResultadoCosteoDto.MetricasGrupo(
+                nanosCarga,
+                nanosInicializacion,
+                nanosCalculo,
+                escritura.nanosEscritura() - escritura.nanosSaldosDiarios(),
+                nanosSaldosDiarios + escritura.nanosSaldosDiarios(),
+                escritura.detalles(),
+                escritura.totalFilas());
+    }
+
     // --- Métodos de inicialización y actualización (extraídos de la clase original) ---
     private void initializeBalances() {
         TransaccionEntity firstTx = transactions.get(0);
-        if (firstTx.getTipoMovimiento().isEsSaldoInicial()) {
+        if (clasificacion.esSaldoInicial(firstTx)) {
             logger.info("Detectado inicio de historial para el grupo {}. Se parte de saldos CERO.", claveAgrupacion);
             this.saldoCantidad = BigDecimal.ZERO;
             this.saldoValor = BigDecimal.ZERO;
         } else {
             Optional<KardexEntity> ultimoKardex = kardexRepository.findLastByGroupBeforeDate(
                     firstTx.getEmpresa().getId(), firstTx.getCuenta(), firstTx.getCustodio().getId(), firstTx.getInstrumento().getId(), firstTx.getFecha());
+            boolean posteriorAlCierre = ultimoKardex.map(k -> cierre == null || k.getFechaTransaccion().isAfter(cierre.fecha())).orElse(false);
+            if (cierre != null && !posteriorAlCierre) {
+                // Sin movimientos desde el cierre: se parte del saldo congelado (el kardex anterior puede estar archivado)
+                this.saldoCantidad = cierre.cantidad();
+                this.saldoValor = cierre.valor();
+                logger.info("Continuando desde el cierre al {} para el grupo {}. Saldo inicial: Cantidad={}, Valor={}", cierre.fecha(), claveAgrupacion, saldoCantidad, saldoValor);
+                return;
+            }
             this.saldoCantidad = ultimoKardex.map(KardexEntity::getSaldoCantidad).orElse(BigDecimal.ZERO);
             this.saldoValor = ultimoKardex.map(KardexEntity::getSaldoValor).orElse(BigDecimal.ZERO);
             logger.info("Continuando historial para el grupo {}. Saldo inicial: Cantidad={}, Valor={}", claveAgrupacion, saldoCantidad, saldoValor);
         }
     }
 
+    private Cierre findUltimoCierre() {
+        @SuppressWarnings("unchecked")
+        List<Object[]> filas = em.createNativeQuery(ULTIMO_CIERRE_QUERY)
+                .setParameter(1, this.claveAgrupacion)
+                .getResultList();
+        if (filas.isEmpty()) {
+            return null;
+        }
+        Object[] fila = filas.get(0);
+        LocalDate fecha = fila[0] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) fila[0];
+        return new Cierre(fecha, (BigDecimal) fila[1], (BigDecimal) fila[2]);
+    }
+
     private void initializeFifoQueue() {
         TransaccionEntity firstTx = transactions.get(0);
 
-        List<KardexEntity> ingresosHistoricos = em.createQuery("""
-            SELECT k FROM KardexEntity k
-            WHERE k.claveAgrupacion = :clave
-              AND k.tipoContable = :tipoIngreso
-              AND k.cantidadDisponible > 0
-              AND k.fechaTransaccion < :hastaFecha
-            """, KardexEntity.class)
-                .setParameter("clave", this.claveAgrupacion)
-                .setParameter("tipoIngreso", TipoEnumsCosteo.INGRESO)
-                .setParameter("hastaFecha", firstTx.getFecha())
+        // Lectura por rango del índice (grupo, fecha, kardex): solo lotes con disponible, ya en orden FIFO
+        @SuppressWarnings("unchecked")
+        List<Object[]> lotesAbiertos = em.createNativeQuery(LOTES_ABIERTOS_QUERY)
+                .setParameter(1, this.grupo.getId())
+                .setParameter(2, firstTx.getFecha())
                 .getResultList();
 
-        ingresosHistoricos.stream()
-                .sorted(Comparator.comparing(KardexEntity::getFechaTransaccion).thenComparing(KardexEntity::getId))
-                .forEach(k -> this.ingresosQueue.add(new IngresoDisponible(k)));
+        for (Object[] fila : lotesAbiertos) {
+            // Referencia liviana al lote: basta con el id, el disponible, el costo y la transacción de origen
+            KardexEntity lote = new KardexEntity();
+            lote.setId(((Number) fila[0]).longValue());
+            lote.setTransaccion(em.getReference(TransaccionEntity.class, ((Number) fila[1]).longValue()));
+            lote.setCantidadDisponible((BigDecimal) fila[2]);
+            lote.setCostoUnitario((BigDecimal) fila[3]);
 
-        logger.debug("Cola FIFO inicializada con {} ingresos históricos disponibles.", this.ingresosQueue.size());
+            this.kernel.abrirLote(FixedPoint.of(lote.getCantidadDisponible()), FixedPoint.of(lote.getCostoUnitario()));
+            this.lotes.add(lote);
+        }
+
+        logger.debug("Cola FIFO inicializada con {} ingresos históricos disponibles.", this.kernel.lotesAbiertos());
     }
 
+    /**
+     * Saldo vigente del grupo tras su última transacción costeada. El upsert solo usa los ids
+     * de empresa, custodio e instrumento, por lo que basta con las referencias de la transacción.
+     */
     private void updateSaldoKardex(TransaccionEntity tx, BigDecimal nuevoSaldoCantidad, BigDecimal nuevoCostoTotal) {
-        SaldoKardexEntity saldo = cacheSaldos.get(claveAgrupacion);
-        if (saldo == null) {
-            saldo = this.saldoRepository.findByGrupo(
-                    tx.getEmpresa().getId(), tx.getCustodio().getId(), tx.getInstrumento().getId(), tx.getCuenta()
-            ).orElseGet(() -> {
-                SaldoKardexEntity nuevoSaldo = new SaldoKardexEntity();
-                nuevoSaldo.setEmpresa(this.em.find(EmpresaEntity.class, tx.getEmpresa().getId()));
-                nuevoSaldo.setCustodio(this.em.find(CustodioEntity.class, tx.getCustodio().getId()));
-                nuevoSaldo.setInstrumento(this.em.find(InstrumentoEntity.class, tx.getInstrumento().getId()));
-                nuevoSaldo.setCuenta(tx.getCuenta());
-                return nuevoSaldo;
-            });
-            cacheSaldos.put(claveAgrupacion, saldo);
-        }
-
+        SaldoKardexEntity saldo = new SaldoKardexEntity();
+        saldo.setEmpresa(tx.getEmpresa());
+        saldo.setCustodio(tx.getCustodio());
+        saldo.setInstrumento(tx.getInstrumento());
+        saldo.setCuenta(tx.getCuenta());
         saldo.setSaldoCantidad(nuevoSaldoCantidad);
         saldo.setCostoTotal(nuevoCostoTotal);
         saldo.recalcularCostoPromedio();
         saldo.setFechaUltimaActualizacion(tx.getFecha());
 
-        if (saldo.getId() == null) {
-            this.em.persist(saldo);
-        } else {
-            this.em.merge(saldo);
-        }
+        sink.agregarSaldoKardex(claveAgrupacion, saldo);
     }
 
     private void updateSaldosDiarios() {
-        if (transactions == null || transactions.isEmpty()) {
+        if (cierresDiarios.isEmpty()) {
             return;
         }
 
         TransaccionEntity primeraTx = transactions.get(0);
 
         // Determinar el rango de fechas afectado por las transacciones procesadas
-        LocalDate fechaInicioRango = transactions.stream()
-                .map(TransaccionEntity::getFecha)
-                .min(LocalDate::compareTo)
-                .orElse(LocalDate.now());
-
-        LocalDate fechaFinRango = transactions.stream()
-                .map(TransaccionEntity::getFecha)
-                .max(LocalDate::compareTo)
-                .orElse(LocalDate.now());
+        LocalDate fechaInicioRango = cierresDiarios.firstKey();
+        LocalDate fechaFinRango = cierresDiarios.lastKey();
 
         logger.debug("Actualizando saldos diarios para el grupo {} desde {} hasta {}", claveAgrupacion, fechaInicioRango, fechaFinRango);
 
@@ -214,62 +365,50 @@ public class CostingGroupProcessor {
         BigDecimal saldoCantidadAnterior = ultimoSaldoPrevio.map(SaldosDiariosEntity::getSaldoCantidad).orElse(BigDecimal.ZERO);
         BigDecimal saldoValorAnterior = ultimoSaldoPrevio.map(SaldosDiariosEntity::getSaldoValor).orElse(BigDecimal.ZERO);
 
-        // 2. Obtener todos los movimientos del KARDEX dentro del rango, agrupados por día
-        Map<LocalDate, List<KardexEntity>> kardexPorDia = kardexRepository.findByGroupAndDateRange(
-                primeraTx.getEmpresa().getId(), primeraTx.getCustodio().getId(), primeraTx.getInstrumento().getId(), primeraTx.getCuenta(),
-                fechaInicioRango, fechaFinRango
-        ).stream().collect(Collectors.groupingBy(KardexEntity::getFechaTransaccion));
-
-        // 3. Obtener los registros de SaldosDiarios que YA EXISTEN en la BD para nuestro rango
-        Map<LocalDate, SaldosDiariosEntity> saldosDiariosExistentes = saldoRepository.findAllByGroupAndDateRange(
-                primeraTx.getEmpresa(), primeraTx.getCustodio(), primeraTx.getInstrumento(), primeraTx.getCuenta(),
-                fechaInicioRango, fechaFinRango
-        ).stream().collect(Collectors.toMap(SaldosDiariosEntity::getFecha, Function.identity()));
-
-        // 4. Iterar día por día y calcular/actualizar el saldo de cierre
+        // 2. Iterar día por día: el cierre es el del último movimiento costeado del día (ya en memoria),
+        //    o el del día anterior si no hubo movimientos. El sink hace upsert sobre (fecha, grupo).
         for (LocalDate dia = fechaInicioRango; !dia.isAfter(fechaFinRango); dia = dia.plusDays(1)) {
-            List<KardexEntity> movimientosDelDia = kardexPorDia.get(dia);
-
-            // Si hubo movimientos en este día, el saldo de cierre es el del último movimiento
-            if (movimientosDelDia != null && !movimientosDelDia.isEmpty()) {
-                KardexEntity ultimoMovimientoDelDia = movimientosDelDia.stream()
-                        .max(Comparator.comparing(KardexEntity::getId))
-                        .get(); // .get() es seguro aquí porque la lista no está vacía
-
-                saldoCantidadAnterior = ultimoMovimientoDelDia.getSaldoCantidad();
-                saldoValorAnterior = ultimoMovimientoDelDia.getSaldoValor();
-            }
-            // Si no hubo movimientos, simplemente arrastramos el saldo del día anterior
-
-            SaldosDiariosEntity saldoDelDia = saldosDiariosExistentes.get(dia);
-
-            if (saldoDelDia != null) { // Si ya existía un registro para este día, lo actualizamos
-                saldoDelDia.setSaldoCantidad(saldoCantidadAnterior);
-                saldoDelDia.setSaldoValor(saldoValorAnterior);
-                em.merge(saldoDelDia);
-            } else { // Si no existía, creamos uno nuevo
-                saldoDelDia = new SaldosDiariosEntity();
-                saldoDelDia.setFecha(dia);
-                saldoDelDia.setEmpresa(primeraTx.getEmpresa());
-                saldoDelDia.setCustodio(primeraTx.getCustodio());
-                saldoDelDia.setInstrumento(primeraTx.getInstrumento());
-                saldoDelDia.setCuenta(primeraTx.getCuenta());
-                saldoDelDia.setSaldoCantidad(saldoCantidadAnterior);
-                saldoDelDia.setSaldoValor(saldoValorAnterior);
-                em.persist(saldoDelDia);
+            BigDecimal[] cierre = cierresDiarios.get(dia);
+            if (cierre != null) {
+                saldoCantidadAnterior = cierre[0];
+                saldoValorAnterior = cierre[1];
             }
+
+            SaldosDiariosEntity saldoDelDia = new SaldosDiariosEntity();
+            saldoDelDia.setFecha(dia);
+            saldoDelDia.setEmpresa(primeraTx.getEmpresa());
+            saldoDelDia.setCustodio(primeraTx.getCustodio());
+            saldoDelDia.setInstrumento(primeraTx.getInstrumento());
+            saldoDelDia.setCuenta(primeraTx.getCuenta());
+            saldoDelDia.setSaldoCantidad(saldoCantidadAnterior);
+            saldoDelDia.setSaldoValor(saldoValorAnterior);
+            sink.agregarSaldoDiario(saldoDelDia);
         }
     }
 
     private void markTransactionForRevision(TransaccionEntity tx) {
         tx.setCosteado(false);
         tx.setParaRevision(true);
-        em.merge(tx);
+        sink.marcarParaRevision(tx);
     }
 
     private void markTransactionAsCosted(TransaccionEntity tx) {
         tx.setCosteado(true);
         tx.setParaRevision(false);
-        em.merge(tx);
+        sink.marcarCosteada(tx);
+    }
+
+    /**
+     * Con las transacciones en solo lectura Hibernate no las revisa ni las escribe en cada
+     * flush. Al volver a modificables toma su estado actual (el ya escrito por el sink) como
+     * referencia, así que tampoco genera un UPDATE por transacción.
+     */
+    private void marcarSoloLectura(boolean soloLectura) {
+        Session session = em.unwrap(Session.class);
+        for (TransaccionEntity tx : transactions) {
+            if (session.contains(tx)) {
+                session.setReadOnly(tx, soloLectura);
+            }
+        }
     }
 }
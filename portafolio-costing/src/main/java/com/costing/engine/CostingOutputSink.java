@@ -0,0 +1,657 @@
+package com.costing.engine;
+
+import com.model.entities.DetalleCosteoEntity;
+import com.model.entities.KardexEntity;
+import com.model.entities.ResultadoRealizadoEntity;
+import com.model.entities.SaldoKardexEntity;
+import com.model.entities.SaldosDiariosEntity;
+import com.model.entities.TransaccionEntity;
+import com.model.enums.TipoEnumsCosteo;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffer de escritura para la salida del costeo. Acumula filas de kardex,
+ * detalle_costeos, saldos_kardex y saldos_diarios y las escribe con sentencias
+ * JDBC en lote sobre la conexión del EntityManager (misma transacción).
+ * <p>
+ * Como las entidades usan {@code GenerationType.IDENTITY}, Hibernate no puede
+ * agrupar sus INSERT; aquí se usa {@code executeBatch} (con
+ * {@code rewriteBatchedStatements=true} el driver de MySQL lo convierte en
+ * INSERT multi-fila) y se recuperan los ids generados del kardex, que se
+ * asignan a las entidades para que los lotes puedan actualizarse después.
+ * <p>
+ * También mantiene {@code lotes_abiertos}: los ingresos entran con su disponible
+ * al escribirse y salen cuando un egreso los agota.
+ * <p>
+ * Los cambios de estado de filas existentes (disponible de los lotes y marcas
+ * {@code costeado}/{@code para_revision} de las transacciones) se acumulan en memoria
+ * y se escriben una sola vez al cerrar el grupo: un lote consumido por muchos egresos
+ * se actualiza una vez con su disponible final, y los lotes agotados y las marcas se
+ * escriben con {@code UPDATE ... WHERE id IN (...)}.
+ * <p>
+ * Cada consumo de lote se anota además en el libro {@code resultados_realizados},
+ * y sus montos se suman a los totales del grupo en {@code resultados_realizados_grupo}.
+ * <p>
+ * Todas las tablas referencian el grupo por su id numérico en {@code grupos_costeo}.
+ * <p>
+ * Las filas nuevas se escriben cuando el kardex pendiente alcanza el tamaño de
+ * lote; todo lo demás, al final de cada grupo ({@link #flush()}). No es
+ * thread-safe: una instancia por grupo.
+ */
+public class CostingOutputSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostingOutputSink.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int MAX_IDS_POR_SENTENCIA = 1000;
+    private static final String USUARIO_SISTEMA = "sistema";
+
+    private static final String INSERT_KARDEX = """
+        INSERT INTO kardex
+            (fecha_creacion, creado_por, fecha_transaccion, grupo_id, fecha_costeo, folio,
+             costo_unitario, costo_total, saldo_cantidad, saldo_valor, cuenta, cantidad, cantidad_disponible,
+             tipo_contable, transaccion_id, custodio_id, empresa_id, instrumento_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_DETALLE = """
+        INSERT INTO detalle_costeos
+            (fecha_creacion, creado_por, grupo_id, cantidad_usada, costo_parcial, ingreso_id, egreso_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String UPDATE_DISPONIBLE = """
+        UPDATE kardex SET cantidad_disponible = ?, fecha_modificacion = ?, modificado_por = ? WHERE id = ?
+        """;
+
+    private static final String UPSERT_LOTE_ABIERTO = """
+        INSERT INTO lotes_abiertos
+            (kardex_id, grupo_id, fecha_transaccion, transaccion_id, cantidad_disponible, costo_unitario)
+        VALUES (?, ?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE cantidad_disponible = VALUES(cantidad_disponible)
+        """;
+
+    private static final String UPDATE_LOTE_ABIERTO = """
+        UPDATE lotes_abiertos SET cantidad_disponible = ? WHERE kardex_id = ?
+        """;
+
+    // Lotes agotados y marcas de transacciones: una sentencia por bloque de ids ("IN (?, ?, ...)" se completa al preparar)
+    private static final String UPDATE_LOTES_AGOTADOS = """
+        UPDATE kardex SET cantidad_disponible = 0, fecha_modificacion = ?, modificado_por = ? WHERE id IN""";
+
+    private static final String DELETE_LOTES_AGOTADOS = """
+        DELETE FROM lotes_abiertos WHERE kardex_id IN""";
+
+    private static final String UPDATE_MARCAS_TRANSACCION = """
+        UPDATE transacciones SET costeado = ?, para_revision = ?, fecha_modificacion = ?, modificado_por = ? WHERE id IN""";
+
+    private static final String INSERT_RESULTADO = """
+        INSERT INTO resultados_realizados
+            (fecha_creacion, creado_por, grupo_id, fecha, egreso_id, ingreso_id,
+             empresa_id, custodio_id, instrumento_id, cuenta, cantidad, venta, costo, utilidad)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String UPSERT_RESULTADO_GRUPO = """
+        INSERT INTO resultados_realizados_grupo
+            (fecha_creacion, creado_por, grupo_id, empresa_id, custodio_id, instrumento_id, cuenta,
+             cantidad_vendida, venta_total, costo_total, utilidad_total, fecha_ultima_venta)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            cantidad_vendida = cantidad_vendida + VALUES(cantidad_vendida),
+            venta_total = venta_total + VALUES(venta_total),
+            costo_total = costo_total + VALUES(costo_total),
+            utilidad_total = utilidad_total + VALUES(utilidad_total),
+            fecha_ultima_venta = GREATEST(COALESCE(fecha_ultima_venta, VALUES(fecha_ultima_venta)), VALUES(fecha_ultima_venta)),
+            fecha_modificacion = VALUES(fecha_creacion),
+            modificado_por = VALUES(creado_por)
+        """;
+
+    private static final String UPSERT_SALDO_KARDEX = """
+        INSERT INTO saldos_kardex
+            (fecha_creacion, creado_por, empresa_id, custodio_id, instrumento_id, cuenta,
+             saldo_cantidad, costo_total, costo_promedio, fecha_ultima_actualizacion)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            saldo_cantidad = VALUES(saldo_cantidad),
+            costo_total = VALUES(costo_total),
+            costo_promedio = VALUES(costo_promedio),
+            fecha_ultima_actualizacion = VALUES(fecha_ultima_actualizacion),
+            fecha_modificacion = VALUES(fecha_creacion),
+            modificado_por = VALUES(creado_por)
+        """;
+
+    private static final String UPSERT_SALDO_DIARIO = """
+        INSERT INTO saldos_diarios
+            (fecha_creacion, creado_por, fecha, cuenta, saldo_cantidad, saldo_valor, empresa_id, custodio_id, instrumento_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            saldo_cantidad = VALUES(saldo_cantidad),
+            saldo_valor = VALUES(saldo_valor),
+            fecha_modificacion = VALUES(fecha_creacion),
+            modificado_por = VALUES(creado_por)
+        """;
+
+    /**
+     * Contadores acumulados de escritura. {@code nanosEscritura} incluye a {@code nanosSaldosDiarios}.
+     */
+    public record Estadisticas(long kardex, long detalles, long lotesActualizados,
+                               long saldosKardex, long saldosDiarios, long resultados,
+                               long transaccionesMarcadas, int flushes, long nanosEscritura,
+                               long nanosSaldosDiarios) {
+
+        public long totalFilas() {
+            return kardex + detalles + lotesActualizados + saldosKardex + saldosDiarios + resultados + transaccionesMarcadas;
+        }
+
+        public double filasPorSegundo() {
+            return nanosEscritura == 0 ? 0 : totalFilas() / (nanosEscritura / 1_000_000_000.0);
+        }
+    }
+
+    private final EntityManager em;
+    private final int batchSize;
+
+    private final List<KardexEntity> kardexPendientes = new ArrayList<>();
+    private final List<DetalleCosteoEntity> detallesPendientes = new ArrayList<>();
+    private final Map<Long, KardexEntity> lotesPendientes = new LinkedHashMap<>(); // último estado de cada lote tocado
+    private final List<TransaccionEntity> transaccionesCosteadas = new ArrayList<>();
+    private final List<TransaccionEntity> transaccionesEnRevision = new ArrayList<>();
+    private final Map<String, SaldoKardexEntity> saldosKardexPendientes = new LinkedHashMap<>();
+    private final List<SaldosDiariosEntity> saldosDiariosPendientes = new ArrayList<>();
+    private final List<ResultadoRealizadoEntity> resultadosPendientes = new ArrayList<>();
+
+    private long totalKardex;
+    private long totalDetalles;
+    private long totalLotes;
+    private long totalSaldosKardex;
+    private long totalSaldosDiarios;
+    private long totalResultados;
+    private long totalTransacciones;
+    private int flushes;
+    private long nanosEscritura;
+    private long nanosSaldosDiarios;
+
+    public CostingOutputSink(EntityManager em) {
+        this(em, DEFAULT_BATCH_SIZE);
+    }
+
+    public CostingOutputSink(EntityManager em, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a cero");
+        }
+        this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    public void agregarKardex(KardexEntity kardex) {
+        kardexPendientes.add(kardex);
+        if (kardexPendientes.size() >= batchSize) {
+            escribir(false);
+        }
+    }
+
+    public void agregarDetalle(DetalleCosteoEntity detalle) {
+        detallesPendientes.add(detalle);
+    }
+
+    /**
+     * Registra que cambió el disponible de un lote; al cerrar el grupo se escribe su
+     * valor final una sola vez. Si el kardex del lote todavía no se ha escrito, basta
+     * con el valor ya asignado en la entidad.
+     */
+    public void actualizarDisponible(KardexEntity lote) {
+        if (lote.getId() != null) {
+            lotesPendientes.put(lote.getId(), lote);
+        }
+    }
+
+    /**
+     * Registra una transacción costeada; la marca se escribe al cerrar el grupo.
+     */
+    public void marcarCosteada(TransaccionEntity tx) {
+        transaccionesCosteadas.add(tx);
+    }
+
+    /**
+     * Registra una transacción para revisión; la marca se escribe al cerrar el grupo.
+     */
+    public void marcarParaRevision(TransaccionEntity tx) {
+        transaccionesEnRevision.add(tx);
+    }
+
+    /**
+     * Registra el saldo vigente del grupo; solo se escribe el último estado recibido.
+     */
+    public void agregarSaldoKardex(String claveAgrupacion, SaldoKardexEntity saldo) {
+        saldosKardexPendientes.put(claveAgrupacion, saldo);
+    }
+
+    public void agregarSaldoDiario(SaldosDiariosEntity saldo) {
+        saldosDiariosPendientes.add(saldo);
+    }
+
+    /**
+     * Anota el resultado de un lote consumido por un egreso. Los totales del grupo
+     * se suman al escribir.
+     */
+    public void agregarResultado(ResultadoRealizadoEntity resultado) {
+        resultadosPendientes.add(resultado);
+    }
+
+    /**
+     * Escribe todo lo pendiente en la transacción actual del EntityManager. Se llama
+     * al cerrar el grupo.
+     */
+    public void flush() {
+        escribir(true);
+    }
+
+    /**
+     * @param cierre Si es false (kardex pendiente lleno) solo se escriben las filas nuevas;
+     *               los cambios de estado esperan al cierre del grupo.
+     */
+    private void escribir(boolean cierre) {
+        boolean hayFilasNuevas = !kardexPendientes.isEmpty() || !detallesPendientes.isEmpty() || !resultadosPendientes.isEmpty();
+        boolean hayEstado = !lotesPendientes.isEmpty() || !transaccionesCosteadas.isEmpty() || !transaccionesEnRevision.isEmpty()
+                || !saldosKardexPendientes.isEmpty() || !saldosDiariosPendientes.isEmpty();
+        if (!hayFilasNuevas && !(cierre && hayEstado)) {
+            return;
+        }
+        long inicio = System.nanoTime();
+
+        // Las entidades aún gestionadas por JPA (p.ej. transacciones de ajuste) deben existir antes
+        em.flush();
+        em.unwrap(Session.class).doWork(connection -> {
+            insertarKardex(connection);
+            insertarDetalles(connection);
+            insertarResultados(connection);
+            if (cierre) {
+                actualizarLotes(connection);
+                marcarTransacciones(connection);
+                upsertSaldosKardex(connection);
+                long inicioSaldosDiarios = System.nanoTime();
+                upsertSaldosDiarios(connection);
+                nanosSaldosDiarios += System.nanoTime() - inicioSaldosDiarios;
+            }
+        });
+
+        nanosEscritura += System.nanoTime() - inicio;
+        flushes++;
+        logger.debug("Flush de costeo #{}: {} filas acumuladas", flushes, getEstadisticas().totalFilas());
+    }
+
+    public Estadisticas getEstadisticas() {
+        return new Estadisticas(totalKardex, totalDetalles, totalLotes, totalSaldosKardex, totalSaldosDiarios,
+                totalResultados, totalTransacciones, flushes, nanosEscritura, nanosSaldosDiarios);
+    }
+
+    // --- Escritura JDBC ---
+
+    private void insertarKardex(Connection connection) throws SQLException {
+        if (kardexPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_KARDEX, Statement.RETURN_GENERATED_KEYS)) {
+            int desde = 0;
+            for (int i = 0; i < kardexPendientes.size(); i++) {
+                KardexEntity k = kardexPendientes.get(i);
+                k.setFechaCreacion(hoy);
+                k.setCreadoPor(USUARIO_SISTEMA);
+                k.setFechaCosteo(hoy);
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setObject(3, k.getFechaTransaccion());
+                ps.setLong(4, k.getGrupo().getId());
+                ps.setObject(5, hoy);
+                ps.setString(6, k.getFolio());
+                ps.setBigDecimal(7, k.getCostoUnitario());
+                ps.setBigDecimal(8, k.getCostoTotal());
+                ps.setBigDecimal(9, k.getSaldoCantidad());
+                ps.setBigDecimal(10, k.getSaldoValor());
+                ps.setString(11, k.getCuenta());
+                ps.setBigDecimal(12, k.getCantidad());
+                ps.setBigDecimal(13, k.getCantidadDisponible());
+                ps.setString(14, k.getTipoContable().name());
+                ps.setLong(15, k.getTransaccion().getId());
+                ps.setLong(16, k.getCustodio().getId());
+                ps.setLong(17, k.getEmpresa().getId());
+                ps.setLong(18, k.getInstrumento().getId());
+                ps.addBatch();
+
+                if (i - desde + 1 == batchSize || i == kardexPendientes.size() - 1) {
+                    ps.executeBatch();
+                    asignarIds(ps, desde, i);
+                    desde = i + 1;
+                }
+            }
+        }
+        registrarLotesAbiertos(connection);
+        totalKardex += kardexPendientes.size();
+        kardexPendientes.clear();
+    }
+
+    private void registrarLotesAbiertos(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_LOTE_ABIERTO)) {
+            int enLote = 0;
+            for (KardexEntity k : kardexPendientes) {
+                if (k.getTipoContable() != TipoEnumsCosteo.INGRESO || !tieneDisponible(k.getCantidadDisponible())) {
+                    continue;
+                }
+                ps.setLong(1, k.getId());
+                ps.setLong(2, k.getGrupo().getId());
+                ps.setObject(3, k.getFechaTransaccion());
+                ps.setLong(4, k.getTransaccion().getId());
+                ps.setBigDecimal(5, k.getCantidadDisponible());
+                ps.setBigDecimal(6, k.getCostoUnitario());
+                ps.addBatch();
+                if (++enLote == batchSize) {
+                    ps.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static boolean tieneDisponible(BigDecimal disponible) {
+        return disponible != null && disponible.signum() > 0;
+    }
+
+    private void asignarIds(PreparedStatement ps, int desde, int hasta) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (int i = desde; i <= hasta && keys.next(); i++) {
+                kardexPendientes.get(i).setId(keys.getLong(1));
+            }
+        }
+    }
+
+    private void insertarDetalles(Connection connection) throws SQLException {
+        if (detallesPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_DETALLE)) {
+            int enLote = 0;
+            for (DetalleCosteoEntity d : detallesPendientes) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setLong(3, d.getGrupo().getId());
+                ps.setBigDecimal(4, d.getCantidadUsada());
+                ps.setBigDecimal(5, d.getCostoParcial());
+                ps.setLong(6, d.getIngreso().getId());
+                ps.setLong(7, d.getEgreso().getId());
+                ps.addBatch();
+                if (++enLote == batchSize) {
+                    ps.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                ps.executeBatch();
+            }
+        }
+        totalDetalles += detallesPendientes.size();
+        detallesPendientes.clear();
+    }
+
+    private void actualizarLotes(Connection connection) throws SQLException {
+        if (lotesPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+
+        // Un lote agotado sale de lotes_abiertos y no se vuelve a leer; en FIFO son casi todos los tocados
+        List<Long> agotados = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE_DISPONIBLE);
+             PreparedStatement psAbierto = connection.prepareStatement(UPDATE_LOTE_ABIERTO)) {
+            int enLote = 0;
+            for (KardexEntity lote : lotesPendientes.values()) {
+                BigDecimal disponible = lote.getCantidadDisponible();
+                if (!tieneDisponible(disponible)) {
+                    agotados.add(lote.getId());
+                    continue;
+                }
+                ps.setBigDecimal(1, disponible);
+                ps.setObject(2, hoy);
+                ps.setString(3, USUARIO_SISTEMA);
+                ps.setLong(4, lote.getId());
+                ps.addBatch();
+                psAbierto.setBigDecimal(1, disponible);
+                psAbierto.setLong(2, lote.getId());
+                psAbierto.addBatch();
+                if (++enLote == batchSize) {
+                    ps.executeBatch();
+                    psAbierto.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                ps.executeBatch();
+                psAbierto.executeBatch();
+            }
+        }
+
+        for (int desde = 0; desde < agotados.size(); desde += MAX_IDS_POR_SENTENCIA) {
+            List<Long> bloque = agotados.subList(desde, Math.min(desde + MAX_IDS_POR_SENTENCIA, agotados.size()));
+            try (PreparedStatement ps = connection.prepareStatement(UPDATE_LOTES_AGOTADOS + enLista(bloque.size()))) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                setIds(ps, 3, bloque);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(DELETE_LOTES_AGOTADOS + enLista(bloque.size()))) {
+                setIds(ps, 1, bloque);
+                ps.executeUpdate();
+            }
+        }
+        totalLotes += lotesPendientes.size();
+        lotesPendientes.clear();
+    }
+
+    private void marcarTransacciones(Connection connection) throws SQLException {
+        marcarTransacciones(connection, transaccionesCosteadas, true, false);
+        marcarTransacciones(connection, transaccionesEnRevision, false, true);
+        totalTransacciones += transaccionesCosteadas.size() + transaccionesEnRevision.size();
+        transaccionesCosteadas.clear();
+        transaccionesEnRevision.clear();
+    }
+
+    private void marcarTransacciones(Connection connection, List<TransaccionEntity> transacciones,
+                                     boolean costeado, boolean paraRevision) throws SQLException {
+        LocalDate hoy = LocalDate.now();
+        for (int desde = 0; desde < transacciones.size(); desde += MAX_IDS_POR_SENTENCIA) {
+            List<TransaccionEntity> bloque = transacciones.subList(desde, Math.min(desde + MAX_IDS_POR_SENTENCIA, transacciones.size()));
+            try (PreparedStatement ps = connection.prepareStatement(UPDATE_MARCAS_TRANSACCION + enLista(bloque.size()))) {
+                ps.setBoolean(1, costeado);
+                ps.setBoolean(2, paraRevision);
+                ps.setObject(3, hoy);
+                ps.setString(4, USUARIO_SISTEMA);
+                int i = 5;
+                for (TransaccionEntity tx : bloque) {
+                    ps.setLong(i++, tx.getId());
+                    // La entidad queda igual a la fila, para que JPA no la vuelva a escribir
+                    tx.setFechaModificacion(hoy);
+                    tx.setModificadoPor(USUARIO_SISTEMA);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static String enLista(int n) {
+        StringBuilder sb = new StringBuilder(" (");
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+
+    private static void setIds(PreparedStatement ps, int primerParametro, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            ps.setLong(primerParametro + i, ids.get(i));
+        }
+    }
+
+    private void upsertSaldosKardex(Connection connection) throws SQLException {
+        if (saldosKardexPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_SALDO_KARDEX)) {
+            for (SaldoKardexEntity s : saldosKardexPendientes.values()) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setLong(3, s.getEmpresa().getId());
+                ps.setLong(4, s.getCustodio().getId());
+                ps.setLong(5, s.getInstrumento().getId());
+                ps.setString(6, s.getCuenta());
+                ps.setBigDecimal(7, s.getSaldoCantidad());
+                ps.setBigDecimal(8, s.getCostoTotal());
+                ps.setBigDecimal(9, s.getCostoPromedio());
+                ps.setObject(10, s.getFechaUltimaActualizacion());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        totalSaldosKardex += saldosKardexPendientes.size();
+        saldosKardexPendientes.clear();
+    }
+
+    private void upsertSaldosDiarios(Connection connection) throws SQLException {
+        if (saldosDiariosPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_SALDO_DIARIO)) {
+            int enLote = 0;
+            for (SaldosDiariosEntity s : saldosDiariosPendientes) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setObject(3, s.getFecha());
+                ps.setString(4, s.getCuenta());
+                ps.setBigDecimal(5, s.getSaldoCantidad());
+                ps.setBigDecimal(6, s.getSaldoValor());
+                ps.setLong(7, s.getEmpresa().getId());
+                ps.setLong(8, s.getCustodio().getId());
+                ps.setLong(9, s.getInstrumento().getId());
+                ps.addBatch();
+                if (++enLote == batchSize) {
+                    ps.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                ps.executeBatch();
+            }
+        }
+        totalSaldosDiarios += saldosDiariosPendientes.size();
+        saldosDiariosPendientes.clear();
+    }
+
+    private void insertarResultados(Connection connection) throws SQLException {
+        if (resultadosPendientes.isEmpty()) {
+            return;
+        }
+        LocalDate hoy = LocalDate.now();
+        // Totales del bloque por grupo: una fila de incremento por grupo y no por venta
+        Map<Long, ResultadoRealizadoEntity> totales = new LinkedHashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_RESULTADO)) {
+            int enLote = 0;
+            for (ResultadoRealizadoEntity r : resultadosPendientes) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setLong(3, r.getGrupo().getId());
+                ps.setObject(4, r.getFecha());
+                ps.setLong(5, r.getEgreso().getId());
+                if (r.getIngreso() != null) {
+                    ps.setLong(6, r.getIngreso().getId());
+                } else {
+                    // Costo promedio: la venta no se asocia a un lote
+                    ps.setNull(6, Types.BIGINT);
+                }
+                ps.setLong(7, r.getEmpresa().getId());
+                ps.setLong(8, r.getCustodio().getId());
+                ps.setLong(9, r.getInstrumento().getId());
+                ps.setString(10, r.getCuenta());
+                ps.setBigDecimal(11, r.getCantidad());
+                ps.setBigDecimal(12, r.getVenta());
+                ps.setBigDecimal(13, r.getCosto());
+                ps.setBigDecimal(14, r.getUtilidad());
+                ps.addBatch();
+                if (++enLote == batchSize) {
+                    ps.executeBatch();
+                    enLote = 0;
+                }
+                acumular(totales, r);
+            }
+            if (enLote > 0) {
+                ps.executeBatch();
+            }
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_RESULTADO_GRUPO)) {
+            for (ResultadoRealizadoEntity t : totales.values()) {
+                ps.setObject(1, hoy);
+                ps.setString(2, USUARIO_SISTEMA);
+                ps.setLong(3, t.getGrupo().getId());
+                ps.setLong(4, t.getEmpresa().getId());
+                ps.setLong(5, t.getCustodio().getId());
+                ps.setLong(6, t.getInstrumento().getId());
+                ps.setString(7, t.getCuenta());
+                ps.setBigDecimal(8, t.getCantidad());
+                ps.setBigDecimal(9, t.getVenta());
+                ps.setBigDecimal(10, t.getCosto());
+                ps.setBigDecimal(11, t.getUtilidad());
+                ps.setObject(12, t.getFecha());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        totalResultados += resultadosPendientes.size();
+        resultadosPendientes.clear();
+    }
+
+    private static void acumular(Map<Long, ResultadoRealizadoEntity> totales, ResultadoRealizadoEntity r) {
+        ResultadoRealizadoEntity total = totales.get(r.getGrupo().getId());
+        if (total == null) {
+            total = new ResultadoRealizadoEntity();
+            total.setGrupo(r.getGrupo());
+            total.setEmpresa(r.getEmpresa());
+            total.setCustodio(r.getCustodio());
+            total.setInstrumento(r.getInstrumento());
+            total.setCuenta(r.getCuenta());
+            total.setCantidad(BigDecimal.ZERO);
+            total.setVenta(BigDecimal.ZERO);
+            total.setCosto(BigDecimal.ZERO);
+            total.setUtilidad(BigDecimal.ZERO);
+            totales.put(r.getGrupo().getId(), total);
+        }
+        total.setCantidad(total.getCantidad().add(r.getCantidad()));
+        total.setVenta(total.getVenta().add(r.getVenta()));
+        total.setCosto(total.getCosto().add(r.getCosto()));
+        total.setUtilidad(total.getUtilidad().add(r.getUtilidad()));
+        if (total.getFecha() == null || r.getFecha().isAfter(total.getFecha())) {
+            total.setFecha(r.getFecha());
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.SimulacionCosteoDto;
+import com.model.entities.EmpresaEntity;
+import com.model.enums.MetodoCosteo;
+import com.model.enums.TipoAjuste;
+import com.model.enums.TipoEnumsCosteo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Simulación de costeo sin efectos. {@link #cargar} lee una sola vez las transacciones
+ * del grupo desde su último cierre y los lotes congelados en ese cierre, y las guarda en
+ * arreglos; {@link #simular} recostea en memoria esa historia junto con movimientos
+ * hipotéticos, con el mismo orden y la misma aritmética que el costeo real, sin escribir
+ * nada. Una instancia puede simular muchas variantes seguidas mientras su carga siga vigente.
+ * <p>
+ * La historia incluye las transacciones ya costeadas, las pendientes y las marcadas para
+ * revisión (el caso típico es probar el ajuste que las destrabaría). Los ajustes automáticos
+ * por tolerancia ya guardados se omiten: la simulación los vuelve a generar si corresponde.
+ */
+public final class CostingSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostingSimulator.class);
+    private static final int ROUNDING_SCALE = 6;
+    private static final BigDecimal TOLERANCIA_AJUSTE = FixedPoint.toBigDecimal(FifoKernel.TOLERANCIA_AJUSTE);
+    private static final LocalDate SIN_CIERRE = LocalDate.of(1000, 1, 1);
+
+    private static final String ULTIMO_CIERRE_QUERY = """
+        SELECT c.id, c.fecha_cierre, c.cantidad_cierre, c.valor_cierre
+        FROM cierres_contables c
+        WHERE c.clave_agrupacion = ?1
+        ORDER BY c.ejercicio DESC
+        LIMIT 1
+        """;
+
+    private static final String LOTES_CIERRE_QUERY = """
+        SELECT l.cantidad_disponible, l.costo_unitario
+        FROM cierres_contables_lotes l
+        WHERE l.cierre_id = ?1
+        ORDER BY l.fecha_transaccion, l.transaccion_id
+        """;
+
+    private final GrupoCosteoKey key;
+    private final MetodoCosteo metodo;
+    private final long cargadoEn = System.nanoTime();
+
+    // Apertura: saldo y lotes del último cierre (o cero)
+    private final long aperturaCantidad;
+    private final long aperturaValor;
+    private final long[] lotesCantidad;
+    private final long[] lotesCosto;
+
+    // Historia del grupo en orden de costeo, en columnas y punto fijo
+    private final int n;
+    private final long[] ids;
+    private final LocalDate[] fechas;
+    private final boolean[] ingresos;
+    private final boolean[] saldosIniciales;
+    private final long[] cantidades;
+    private final long[] precios;
+
+    private CostingSimulator(GrupoCosteoKey key, MetodoCosteo metodo, long aperturaCantidad, long aperturaValor,
+                             long[] lotesCantidad, long[] lotesCosto, List<Object[]> filas) {
+        this.key = key;
+        this.metodo = metodo;
+        this.aperturaCantidad = aperturaCantidad;
+        this.aperturaValor = aperturaValor;
+        this.lotesCantidad = lotesCantidad;
+        this.lotesCosto = lotesCosto;
+        this.n = filas.size();
+        this.ids = new long[n];
+        this.fechas = new LocalDate[n];
+        this.ingresos = new boolean[n];
+        this.saldosIniciales = new boolean[n];
+        this.cantidades = new long[n];
+        this.precios = new long[n];
+        for (int i = 0; i < n; i++) {
+            Object[] fila = filas.get(i);
+            ids[i] = (Long) fila[0];
+            fechas[i] = (LocalDate) fila[1];
+            cantidades[i] = FixedPoint.of((BigDecimal) fila[2]);
+            precios[i] = FixedPoint.of((BigDecimal) fila[3]);
+            ingresos[i] = fila[4] == TipoEnumsCosteo.INGRESO;
+            saldosIniciales[i] = Boolean.TRUE.equals(fila[5]);
+        }
+    }
+
+    /**
+     * Lee la historia del grupo. Solo consulta, sin cargar las transacciones como entidades.
+     * @param metodo Método a simular; si es null, el configurado en la empresa del grupo.
+     */
+    public static CostingSimulator cargar(EntityManager em, GrupoCosteoKey key, MetodoCosteo metodo) {
+        if (metodo == null) {
+            EmpresaEntity empresa = em.find(EmpresaEntity.class, key.empresaId());
+            metodo = empresa != null && empresa.getMetodoCosteo() != null ? empresa.getMetodoCosteo() : MetodoCosteo.FIFO;
+        }
+
+        // 1. Apertura desde el último cierre
+        long aperturaCantidad = 0;
+        long aperturaValor = 0;
+        long[] lotesCantidad = new long[0];
+        long[] lotesCosto = new long[0];
+        LocalDate desde = null;
+        @SuppressWarnings("unchecked")
+        List<Object[]> cierres = em.createNativeQuery(ULTIMO_CIERRE_QUERY)
+                .setParameter(1, key.clave())
+                .getResultList();
+        if (!cierres.isEmpty()) {
+            Object[] cierre = cierres.get(0);
+            desde = cierre[1] instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) cierre[1];
+            aperturaCantidad = FixedPoint.of((BigDecimal) cierre[2]);
+            aperturaValor = FixedPoint.of((BigDecimal) cierre[3]);
+            if (metodo == MetodoCosteo.FIFO) {
+                @SuppressWarnings("unchecked")
+                List<Object[]> lotes = em.createNativeQuery(LOTES_CIERRE_QUERY)
+                        .setParameter(1, ((Number) cierre[0]).longValue())
+                        .getResultList();
+                lotesCantidad = new long[lotes.size()];
+                lotesCosto = new long[lotes.size()];
+                for (int i = 0; i < lotes.size(); i++) {
+                    lotesCantidad[i] = FixedPoint.of((BigDecimal) lotes.get(i)[0]);
+                    lotesCosto[i] = FixedPoint.of((BigDecimal) lotes.get(i)[1]);
+                }
+            }
+        }
+
+        // 2. Transacciones del grupo posteriores al cierre, en orden de costeo y sin cargar entidades
+        List<Object[]> filas = em.createQuery("""
+            SELECT t.id, t.fecha, t.cantidad, t.precio,
+                   t.tipoMovimiento.movimientoContable.tipoContable, t.tipoMovimiento.esSaldoInicial
+            FROM TransaccionEntity t
+            WHERE t.tipoMovimiento.movimientoContable.tipoContable <> :noCostear
+              AND t.ignorarEnCosteo = false
+              AND t.tipoMovimiento.tipoMovimiento <> :ajusteTolerancia
+              AND t.empresa.id = :empresaId
+              AND t.cuenta = :cuenta
+              AND t.custodio.id = :custodioId
+              AND t.instrumento.id = :instrumentoId
+              AND t.fecha > :desde
+            """ + FifoCostingEngine.ORDEN_COSTEO, Object[].class)
+                .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
+                .setParameter("ajusteTolerancia", ClasificacionMovimientos.AJUSTE_AUTO_TOLERANCIA)
+                .setParameter("empresaId", key.empresaId())
+                .setParameter("cuenta", key.cuenta())
+                .setParameter("custodioId", key.custodioId())
+                .setParameter("instrumentoId", key.instrumentoId())
+                .setParameter("desde", desde != null ? desde : SIN_CIERRE)
+                .getResultList();
+
+        logger.debug("Simulación de {} ({}): {} transacciones y {} lotes de apertura cargados",
+                key, metodo, filas.size(), lotesCantidad.length);
+        return new CostingSimulator(key, metodo, aperturaCantidad, aperturaValor, lotesCantidad, lotesCosto, filas);
+    }
+
+    public GrupoCosteoKey key() {
+        return key;
+    }
+
+    public MetodoCosteo metodo() {
+        return metodo;
+    }
+
+    /** Antigüedad de la carga, para decidir si sigue vigente. */
+    public Duration antiguedad() {
+        return Duration.ofNanos(System.nanoTime() - cargadoEn);
+    }
+
+    /**
+     * Recostea en memoria la historia cargada más los movimientos hipotéticos.
+     * Como el costeo real, se detiene en el primer movimiento que no puede costearse.
+     */
+    public SimulacionCosteoDto simular(List<SimulacionCosteoDto.MovimientoHipotetico> movimientos) {
+        long inicio = System.nanoTime();
+        List<SimulacionCosteoDto.MovimientoHipotetico> hipoteticos = movimientos != null ? movimientos : List.of();
+        int[] orden = ordenar(hipoteticos);
+        Simulacion sim = metodo == MetodoCosteo.PROMEDIO_PONDERADO
+                ? new SimulacionPromedio()
+                : new SimulacionFifo(orden.length);
+
+        // La historia arranca de cero si parte con un saldo inicial, igual que CostingGroupProcessor
+        boolean desdeCero = orden.length > 0 && orden[0] >= 0 && saldosIniciales[orden[0]];
+        sim.abrir(desdeCero);
+
+        String error = null;
+        for (int pos = 0; pos < orden.length && error == null; pos++) {
+            int ref = orden[pos];
+            try {
+                if (ref >= 0) {
+                    sim.movimiento(pos, ids[ref], null, fechas[ref], ingresos[ref], cantidades[ref], precios[ref]);
+                } else {
+                    int h = -ref - 1;
+                    SimulacionCosteoDto.MovimientoHipotetico mov = hipoteticos.get(h);
+                    sim.movimiento(pos, null, h, mov.fecha(), mov.tipo() == TipoAjuste.INGRESO,
+                            FixedPoint.of(mov.cantidad()), FixedPoint.of(mov.precio()));
+                }
+            } catch (InsufficientBalanceException | IllegalArgumentException e) {
+                error = (ref >= 0 ? "Tx ID " + ids[ref] : "Movimiento hipotético " + (-ref - 1)) + ": " + e.getMessage();
+            }
+        }
+
+        SimulacionCosteoDto resultado = sim.resultado(error, Duration.ofNanos(System.nanoTime() - inicio));
+        logger.debug("{} en {} µs", resultado, resultado.getDuracion().toNanos() / 1_000);
+        return resultado;
+    }
+
+    /**
+     * Intercala los movimientos hipotéticos con la historia. Cada posición es el índice de
+     * una transacción existente o {@code -(h + 1)} para el hipotético {@code h}. Un hipotético
+     * va después de las transacciones del mismo día y tipo, y los ingresos antes que los egresos.
+     */
+    private int[] ordenar(List<SimulacionCosteoDto.MovimientoHipotetico> hipoteticos) {
+        Integer[] h = new Integer[hipoteticos.size()];
+        for (int i = 0; i < h.length; i++) {
+            SimulacionCosteoDto.MovimientoHipotetico mov = hipoteticos.get(i);
+            if (mov == null || mov.fecha() == null || mov.tipo() == null) {
+                throw new IllegalArgumentException("El movimiento hipotético " + i + " debe indicar fecha y tipo.");
+            }
+            h[i] = i;
+        }
+        Arrays.sort(h, Comparator.<Integer, LocalDate>comparing(i -> hipoteticos.get(i).fecha())
+                .thenComparing(i -> hipoteticos.get(i).tipo() == TipoAjuste.INGRESO ? 0 : 1)
+                .thenComparing(i -> i));
+
+        int[] orden = new int[n + h.length];
+        int b = 0;
+        int k = 0;
+        for (int pos = 0; pos < orden.length; pos++) {
+            boolean tomarBase;
+            if (k == h.length) {
+                tomarBase = true;
+            } else if (b == n) {
+                tomarBase = false;
+            } else {
+                SimulacionCosteoDto.MovimientoHipotetico mov = hipoteticos.get(h[k]);
+                int cmp = fechas[b].compareTo(mov.fecha());
+                boolean hipoteticoEsIngreso = mov.tipo() == TipoAjuste.INGRESO;
+                tomarBase = cmp < 0 || (cmp == 0 && (saldosIniciales[b] || ingresos[b] || !hipoteticoEsIngreso));
+            }
+            orden[pos] = tomarBase ? b++ : -(h[k++] + 1);
+        }
+        return orden;
+    }
+
+    // --- Métodos de costeo simulados ---
+
+    private abstract class Simulacion {
+        final List<SimulacionCosteoDto.FilaKardex> kardex = new ArrayList<>();
+        final List<SimulacionCosteoDto.ResultadoEgreso> resultados = new ArrayList<>();
+        BigDecimal utilidadTotal = BigDecimal.ZERO;
+
+        abstract void abrir(boolean desdeCero);
+
+        abstract void movimiento(int pos, Long id, Integer hipotetico, LocalDate fecha, boolean ingreso,
+                                 long cantidad, long precio) throws InsufficientBalanceException;
+
+        abstract BigDecimal saldoCantidad();
+
+        abstract BigDecimal saldoValor();
+
+        void agregarResultado(Long id, Integer hipotetico, LocalDate fecha, BigDecimal cantidad, BigDecimal precio, BigDecimal costo) {
+            BigDecimal venta = cantidad.multiply(precio);
+            BigDecimal utilidad = venta.subtract(costo);
+            resultados.add(new SimulacionCosteoDto.ResultadoEgreso(id, hipotetico, fecha, cantidad, venta, costo, utilidad));
+            utilidadTotal = utilidadTotal.add(utilidad);
+        }
+
+        SimulacionCosteoDto resultado(String error, Duration duracion) {
+            return new SimulacionCosteoDto(key.clave(), metodo, kardex, resultados, saldoCantidad(), saldoValor(),
+                    utilidadTotal, error, duracion);
+        }
+    }
+
+    /** FIFO sobre el mismo {@link FifoKernel} que usa el costeo real. */
+    private final class SimulacionFifo extends Simulacion {
+        private final FifoKernelOutput out;
+        private final Long[] idPorPos;
+        private final Integer[] hipoteticoPorPos;
+        private final LocalDate[] fechaPorPos;
+        private FifoKernel kernel;
+
+        SimulacionFifo(int movimientos) {
+            this.out = new FifoKernelOutput(movimientos * 2);
+            this.idPorPos = new Long[movimientos];
+            this.hipoteticoPorPos = new Integer[movimientos];
+            this.fechaPorPos = new LocalDate[movimientos];
+        }
+
+        @Override
+        void abrir(boolean desdeCero) {
+            kernel = desdeCero
+                    ? new FifoKernel(0, 0, out)
+                    : new FifoKernel(aperturaCantidad, aperturaValor, out);
+            if (!desdeCero) {
+                for (int i = 0; i < lotesCantidad.length; i++) {
+                    kernel.abrirLote(lotesCantidad[i], lotesCosto[i]);
+                }
+            }
+        }
+
+        @Override
+        void movimiento(int pos, Long id, Integer hipotetico, LocalDate fecha, boolean ingreso,
+                        long cantidad, long precio) throws InsufficientBalanceException {
+            idPorPos[pos] = id;
+            hipoteticoPorPos[pos] = hipotetico;
+            fechaPorPos[pos] = fecha;
+            if (ingreso) {
+                kernel.ingreso(pos, cantidad, precio);
+                return;
+            }
+            int desde = out.size();
+            kernel.egreso(pos, cantidad, precio);
+            long costo = 0;
+            for (int i = desde; i < out.size(); i++) {
+                if (out.tipo(i) == FifoKernelOutput.EGRESO) {
+                    costo += out.costoTotal(i);
+                }
+            }
+            agregarResultado(id, hipotetico, fecha, FixedPoint.toBigDecimal(cantidad), FixedPoint.toBigDecimal(precio),
+                    FixedPoint.toBigDecimal(costo));
+        }
+
+        @Override
+        BigDecimal saldoCantidad() {
+            return FixedPoint.toBigDecimal(kernel.saldoCantidad());
+        }
+
+        @Override
+        BigDecimal saldoValor() {
+            return FixedPoint.toBigDecimal(kernel.saldoValor());
+        }
+
+        @Override
+        SimulacionCosteoDto resultado(String error, Duration duracion) {
+            // El kernel ya dejó el kardex en columnas; se materializa una sola vez al final
+            for (int i = 0; i < out.size(); i++) {
+                int pos = (int) out.txRef(i);
+                byte tipo = out.tipo(i);
+                boolean ajuste = tipo == FifoKernelOutput.AJUSTE_TOLERANCIA;
+                kardex.add(new SimulacionCosteoDto.FilaKardex(
+                        ajuste ? null : idPorPos[pos], ajuste ? null : hipoteticoPorPos[pos], ajuste, fechaPorPos[pos],
+                        tipo == FifoKernelOutput.EGRESO ? TipoEnumsCosteo.EGRESO : TipoEnumsCosteo.INGRESO,
+                        FixedPoint.toBigDecimal(out.cantidad(i)), FixedPoint.toBigDecimal(out.costoUnitario(i)),
+                        FixedPoint.toBigDecimal(out.costoTotal(i)), FixedPoint.toBigDecimal(out.saldoCantidad(i)),
+                        FixedPoint.toBigDecimal(out.saldoValor(i))));
+            }
+            return super.resultado(error, duracion);
+        }
+    }
+
+    /** Promedio móvil con la misma aritmética que {@link PromedioPonderadoHandler}. */
+    private final class SimulacionPromedio extends Simulacion {
+        private BigDecimal saldoCantidad;
+        private BigDecimal saldoValor;
+
+        @Override
+        void abrir(boolean desdeCero) {
+            saldoCantidad = desdeCero ? BigDecimal.ZERO : FixedPoint.toBigDecimal(aperturaCantidad);
+            saldoValor = desdeCero ? BigDecimal.ZERO : FixedPoint.toBigDecimal(aperturaValor);
+        }
+
+        @Override
+        void movimiento(int pos, Long id, Integer hipotetico, LocalDate fecha, boolean ingreso,
+                        long cantidadFija, long precioFijo) throws InsufficientBalanceException {
+            BigDecimal cantidad = FixedPoint.toBigDecimal(cantidadFija);
+            BigDecimal precio = FixedPoint.toBigDecimal(precioFijo);
+            if (ingreso) {
+                if (cantidad.signum() <= 0) {
+                    throw new IllegalArgumentException("La cantidad del ingreso debe ser mayor a cero");
+                }
+                fila(id, hipotetico, false, fecha, TipoEnumsCosteo.INGRESO, cantidad, precio, cantidad.multiply(precio));
+                return;
+            }
+
+            BigDecimal faltante = cantidad.subtract(saldoCantidad);
+            if (faltante.signum() > 0) {
+                if (faltante.compareTo(TOLERANCIA_AJUSTE) > 0) {
+                    throw new InsufficientBalanceException("Saldo insuficiente. Cantidad requerida: "
+                            + cantidad + ", disponible: " + saldoCantidad);
+                }
+                fila(null, null, true, fecha, TipoEnumsCosteo.INGRESO, faltante, precio, faltante.multiply(precio));
+            }
+
+            BigDecimal costo = cantidad.compareTo(saldoCantidad) == 0
+                    ? saldoValor
+                    : saldoValor.multiply(cantidad).divide(saldoCantidad, ROUNDING_SCALE, RoundingMode.HALF_UP);
+            BigDecimal costoUnitario = cantidad.signum() != 0
+                    ? costo.divide(cantidad, ROUNDING_SCALE, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+            fila(id, hipotetico, false, fecha, TipoEnumsCosteo.EGRESO, cantidad, costoUnitario, costo);
+            agregarResultado(id, hipotetico, fecha, cantidad, precio, costo);
+        }
+
+        private void fila(Long id, Integer hipotetico, boolean ajuste, LocalDate fecha, TipoEnumsCosteo tipo,
+                          BigDecimal cantidad, BigDecimal costoUnitario, BigDecimal costoTotal) {
+            if (tipo == TipoEnumsCosteo.INGRESO) {
+                saldoCantidad = saldoCantidad.add(cantidad);
+                saldoValor = saldoValor.add(costoTotal);
+            } else {
+                saldoCantidad = saldoCantidad.subtract(cantidad);
+                saldoValor = saldoValor.subtract(costoTotal);
+            }
+            kardex.add(new SimulacionCosteoDto.FilaKardex(id, hipotetico, ajuste, fecha, tipo, cantidad,
+                    costoUnitario, costoTotal, saldoCantidad, saldoValor));
+        }
+
+        @Override
+        BigDecimal saldoCantidad() {
+            return saldoCantidad;
+        }
+
+        @Override
+        BigDecimal saldoValor() {
+            return saldoValor;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.enums.MetodoCosteo;
+
+/**
+ * Método de costeo de un grupo. Cada implementación costea las transacciones
+ * pendientes de un grupo en el EntityManager con que fue creada; la transacción
+ * la maneja quien la invoca.
+ */
+public interface CostingStrategy {
+
+    MetodoCosteo metodo();
+
+    /**
+     * Costea las transacciones pendientes de un grupo.
+     */
+    ResultadoCosteoDto.ResultadoGrupo procesarGrupo(GrupoCosteoKey key);
+}
@@ -0,0 +1,103 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.enums.MetodoCosteo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import com.model.interfaces.KardexApi;
+import com.model.interfaces.SaldoApi;
+import com.model.interfaces.TipoMovimiento;
+
+/**
+ * Elige el método de costeo de cada grupo: el forzado para la corrida o, si no hay,
+ * el configurado en su empresa ({@code empresas.metodo_costeo}, FIFO si es null).
+ * Los métodos de las empresas se leen una sola vez por instancia.
+ */
+public class CostingStrategySelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostingStrategySelector.class);
+    private final EntityManager em;
+    private final MetodoCosteo forzado;
+    private final FifoCostingEngine fifo;
+    private final WeightedAverageCostingEngine promedio;
+    private Map<Long, MetodoCosteo> metodosPorEmpresa;
+
+    /**
+     * @param forzado Método para todos los grupos de la corrida; si es null, el de cada empresa.
+     */
+    public CostingStrategySelector(EntityManager em, KardexApi kardexRepository,
+                                   SaldoApi saldoRepository,
+                                   TipoMovimiento tipoMovimientoRepository,
+                                   MetodoCosteo forzado) {
+        this.em = em;
+        this.forzado = forzado;
+        this.fifo = new FifoCostingEngine(em, kardexRepository, saldoRepository, tipoMovimientoRepository);
+        this.promedio = new WeightedAverageCostingEngine(em, kardexRepository, saldoRepository, tipoMovimientoRepository);
+    }
+
+    public CostingStrategy estrategia(GrupoCosteoKey key) {
+        return metodo(key) == MetodoCosteo.PROMEDIO_PONDERADO ? promedio : fifo;
+    }
+
+    public MetodoCosteo metodo(GrupoCosteoKey key) {
+        if (forzado != null) {
+            return forzado;
+        }
+        if (metodosPorEmpresa == null) {
+            metodosPorEmpresa = cargarMetodos(em);
+        }
+        return metodosPorEmpresa.getOrDefault(key.empresaId(), MetodoCosteo.FIFO);
+    }
+
+    public ResultadoCosteoDto.ResultadoGrupo procesarGrupo(GrupoCosteoKey key) {
+        return estrategia(key).procesarGrupo(key);
+    }
+
+    /**
+     * Costea todos los grupos pendientes, uno a la vez, cada uno con su método.
+     * Si el hilo se interrumpe (un trabajo cancelado en la cola de costeo), se detiene
+     * antes del siguiente grupo lanzando {@link CancellationException}, lo que revierte la transacción.
+     * @return el resultado y las métricas de cada grupo.
+     */
+    public ResultadoCosteoDto procesarCosteo() {
+        long inicio = System.nanoTime();
+        List<Object[]> grupos = FifoCostingEngine.findPendingGroups(em);
+        logger.info("Grupos pendientes de costeo: {}", grupos.size());
+
+        List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>(grupos.size());
+        for (Object[] grupo : grupos) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Costeo cancelado tras " + resultados.size() + " de " + grupos.size() + " grupos.");
+            }
+            resultados.add(procesarGrupo(GrupoCosteoKey.of(grupo)));
+            // El grupo ya quedó escrito; se liberan sus entidades del contexto de persistencia
+            em.clear();
+        }
+        ResultadoCosteoDto resultado = new ResultadoCosteoDto(resultados, 1, Duration.ofNanos(System.nanoTime() - inicio));
+        logger.info("Costeo finalizado. {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Empresas con un método distinto de FIFO; el resto usa FIFO.
+     */
+    static Map<Long, MetodoCosteo> cargarMetodos(EntityManager em) {
+        Map<Long, MetodoCosteo> metodos = new HashMap<>();
+        for (Object[] fila : em.createQuery("""
+            SELECT e.id, e.metodoCosteo FROM EmpresaEntity e
+            WHERE e.metodoCosteo IS NOT NULL
+            """, Object[].class).getResultList()) {
+            metodos.put((Long) fila[0], (MetodoCosteo) fila[1]);
+        }
+        return metodos;
+    }
+}
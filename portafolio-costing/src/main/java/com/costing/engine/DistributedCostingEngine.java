@@ -0,0 +1,439 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.entities.ArriendoCosteoEntity;
+import com.model.entities.CorridaCosteoEntity;
+import com.model.enums.EstadoArriendoCosteo;
+import com.model.enums.EstadoCorridaCosteo;
+import com.model.interfaces.KardexApi;
+import com.model.interfaces.SaldoApi;
+import com.model.interfaces.TipoMovimiento;
+import com.model.utiles.LibraryInitializer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costeo repartido entre varios procesos (en una o varias máquinas) que comparten la
+ * misma base de datos. Una corrida publica sus grupos pendientes en
+ * {@code arriendos_costeo}; cada trabajador toma un grupo a la vez con
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, lo costea en su propia transacción y
+ * renueva periódicamente el arriendo de lo que tiene asignado.
+ * <p>
+ * Si un trabajador cae, su transacción en curso se revierte y su arriendo vence; el
+ * grupo vuelve a estar disponible y otro trabajador lo toma. El arriendo se cierra en
+ * la misma transacción que el costeo del grupo y solo si sigue perteneciendo al
+ * trabajador, de modo que un grupo nunca se confirma dos veces.
+ * <p>
+ * Para probarlo en local basta con publicar una corrida y levantar varias JVM con
+ * {@code com.costing.main.TrabajadorCosteo} apuntando a la misma base.
+ */
+public class DistributedCostingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedCostingEngine.class);
+
+    public static final int DEFAULT_SEGUNDOS_ARRIENDO = 60;
+    private static final int MAX_INTENTOS = 3;
+    private static final long ESPERA_MS = 1_000;
+    private static final int LARGO_MENSAJE = 1000;
+
+    private static final String TOMAR_ARRIENDO = """
+        SELECT a.id, a.clave_agrupacion, a.empresa_id, a.cuenta, a.custodio_id, a.instrumento_id, a.propietario
+        FROM arriendos_costeo a
+        WHERE a.corrida_id = ?1
+          AND (a.estado = 'PENDIENTE' OR (a.estado = 'ASIGNADO' AND a.expira < NOW()))
+        ORDER BY a.id
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    private static final String ASIGNAR_ARRIENDO = """
+        UPDATE arriendos_costeo
+        SET estado = 'ASIGNADO', propietario = ?2, latido = NOW(), expira = NOW() + INTERVAL ?3 SECOND,
+            intentos = intentos + 1
+        WHERE id = ?1
+        """;
+
+    private static final String RENOVAR_ARRIENDOS = """
+        UPDATE arriendos_costeo
+        SET latido = NOW(), expira = NOW() + INTERVAL ?2 SECOND
+        WHERE propietario = ?1
+          AND estado = 'ASIGNADO'
+        """;
+
+    // Solo cierra el arriendo si sigue siendo del trabajador: si venció y otro lo tomó, no se confirma
+    private static final String CERRAR_ARRIENDO = """
+        UPDATE arriendos_costeo
+        SET estado = ?3, transacciones = ?4, mensaje = ?5
+        WHERE id = ?1
+          AND propietario = ?2
+          AND estado = 'ASIGNADO'
+        """;
+
+    private static final String LIBERAR_ARRIENDO = """
+        UPDATE arriendos_costeo
+        SET estado = CASE WHEN intentos >= ?3 THEN 'FALLIDO' ELSE 'PENDIENTE' END,
+            propietario = CASE WHEN intentos >= ?3 THEN propietario ELSE NULL END,
+            expira = NULL, mensaje = ?4
+        WHERE id = ?1
+          AND propietario = ?2
+          AND estado = 'ASIGNADO'
+        """;
+
+    private static final String CONTAR_ABIERTOS = """
+        SELECT COUNT(*) FROM arriendos_costeo
+        WHERE corrida_id = ?1
+          AND estado IN ('PENDIENTE', 'ASIGNADO')
+        """;
+
+    private static final String CERRAR_CORRIDA = """
+        UPDATE corridas_costeo c
+        SET c.estado = 'COMPLETADA',
+            c.fin = NOW(),
+            c.grupos_completados = (SELECT COUNT(*) FROM arriendos_costeo a WHERE a.corrida_id = c.id AND a.estado = 'COMPLETADO'),
+            c.grupos_fallidos = (SELECT COUNT(*) FROM arriendos_costeo a WHERE a.corrida_id = c.id AND a.estado = 'FALLIDO'),
+            c.transacciones_procesadas = (SELECT COALESCE(SUM(a.transacciones), 0) FROM arriendos_costeo a WHERE a.corrida_id = c.id)
+        WHERE c.id = ?1
+          AND c.estado = 'EN_CURSO'
+        """;
+
+    private static final String RESUMEN_POR_TRABAJADOR = """
+        SELECT a.propietario, COUNT(*), SUM(a.transacciones)
+        FROM arriendos_costeo a
+        WHERE a.corrida_id = ?1
+        GROUP BY a.propietario
+        ORDER BY a.propietario
+        """;
+
+    private record Arriendo(Long id, String clave, Long empresaId, String cuenta, Long custodioId,
+                            Long instrumentoId, String propietarioAnterior) {
+    }
+
+    private final String trabajador;
+    private final int segundosArriendo;
+    private final KardexApi kardexRepository;
+    private final SaldoApi saldoRepository;
+    private final TipoMovimiento tipoMovimientoRepository;
+
+    /**
+     * @param segundosArriendo Duración de cada arriendo; se renueva cada tercio de ese tiempo
+     *                         (0 o menos usa {@link #DEFAULT_SEGUNDOS_ARRIENDO}).
+     */
+    public DistributedCostingEngine(int segundosArriendo, KardexApi kardexRepository,
+                                    SaldoApi saldoRepository,
+                                    TipoMovimiento tipoMovimientoRepository) {
+        this.trabajador = identificarTrabajador();
+        this.segundosArriendo = segundosArriendo > 0 ? segundosArriendo : DEFAULT_SEGUNDOS_ARRIENDO;
+        this.kardexRepository = kardexRepository;
+        this.saldoRepository = saldoRepository;
+        this.tipoMovimientoRepository = tipoMovimientoRepository;
+    }
+
+    public String getTrabajador() {
+        return trabajador;
+    }
+
+    /**
+     * Registra una corrida distribuida con un arriendo pendiente por cada grupo por costear.
+     * @return el ID de la corrida, que se entrega a los trabajadores.
+     */
+    public Long publicar() {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            CorridaCosteoEntity corrida = new CorridaCosteoEntity();
+            corrida.setEstado(EstadoCorridaCosteo.EN_CURSO);
+            corrida.setInicio(LocalDateTime.now());
+            corrida.setDistribuida(true);
+            corrida.setGruposPorBloque(1);
+            em.persist(corrida);
+
+            List<Object[]> grupos = FifoCostingEngine.findPendingGroups(em);
+            int publicados = 0;
+            for (Object[] grupo : grupos) {
+                ArriendoCosteoEntity arriendo = new ArriendoCosteoEntity();
+                arriendo.setCorrida(corrida);
+                arriendo.setEmpresaId((Long) grupo[0]);
+                arriendo.setCuenta((String) grupo[1]);
+                arriendo.setCustodioId((Long) grupo[2]);
+                arriendo.setInstrumentoId((Long) grupo[3]);
+                arriendo.setClaveAgrupacion(GrupoCosteoKey.of(grupo).clave());
+                arriendo.setEstado(EstadoArriendoCosteo.PENDIENTE);
+                em.persist(arriendo);
+                if (++publicados % CostingOutputSink.DEFAULT_BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                    corrida = em.getReference(CorridaCosteoEntity.class, corrida.getId());
+                }
+            }
+            tx.commit();
+            logger.info("Corrida distribuida {} publicada con {} grupos.", corrida.getId(), publicados);
+            return corrida.getId();
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw new IllegalStateException("No se pudo publicar la corrida distribuida: " + e.getMessage(), e);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Toma y costea grupos de la corrida hasta que no quede ninguno pendiente ni asignado.
+     * Mientras otros trabajadores tengan grupos asignados se espera, por si alguno de sus
+     * arriendos vence y hay que tomarlo.
+     * @param corridaId Corrida distribuida; si es null, la última en curso.
+     * @return el resumen consolidado de la corrida (todos los trabajadores).
+     */
+    public ResultadoCosteoDto trabajar(Long corridaId) {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        ScheduledExecutorService latidos = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "costeo-latido");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Long id = corridaId != null ? corridaId : buscarUltimaEnCurso(em);
+            if (id == null) {
+                throw new IllegalStateException("No hay corridas de costeo distribuidas en curso.");
+            }
+            long periodo = Math.max(1, segundosArriendo / 3);
+            latidos.scheduleAtFixedRate(this::renovarArriendos, periodo, periodo, TimeUnit.SECONDS);
+            logger.info("Trabajador {} se une a la corrida {} (arriendos de {} s).", trabajador, id, segundosArriendo);
+
+            CostingStrategySelector engine = new CostingStrategySelector(em, kardexRepository, saldoRepository, tipoMovimientoRepository, null);
+            int propios = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                Arriendo arriendo = tomarArriendo(em, id);
+                if (arriendo != null) {
+                    costear(em, engine, arriendo);
+                    propios++;
+                    continue;
+                }
+                if (contarAbiertos(em, id) == 0) {
+                    break;
+                }
+                esperar();
+            }
+            logger.info("Trabajador {} terminó su parte de la corrida {}: {} grupos.", trabajador, id, propios);
+            return cerrarCorrida(em, id);
+        } finally {
+            latidos.shutdownNow();
+            em.close();
+        }
+    }
+
+    private Arriendo tomarArriendo(EntityManager em, Long corridaId) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            @SuppressWarnings("unchecked")
+            List<Object[]> filas = em.createNativeQuery(TOMAR_ARRIENDO)
+                    .setParameter(1, corridaId)
+                    .getResultList();
+            if (filas.isEmpty()) {
+                tx.commit();
+                return null;
+            }
+            Object[] f = filas.get(0);
+            Arriendo arriendo = new Arriendo(((Number) f[0]).longValue(), (String) f[1], ((Number) f[2]).longValue(),
+                    (String) f[3], ((Number) f[4]).longValue(), ((Number) f[5]).longValue(), (String) f[6]);
+            em.createNativeQuery(ASIGNAR_ARRIENDO)
+                    .setParameter(1, arriendo.id())
+                    .setParameter(2, trabajador)
+                    .setParameter(3, segundosArriendo)
+                    .executeUpdate();
+            tx.commit();
+            if (arriendo.propietarioAnterior() != null) {
+                logger.warn("Trabajador {} toma el grupo {}: venció el arriendo de {}.", trabajador, arriendo.clave(), arriendo.propietarioAnterior());
+            }
+            return arriendo;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        }
+    }
+
+    private void costear(EntityManager em, CostingStrategySelector engine, Arriendo arriendo) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            ResultadoCosteoDto.ResultadoGrupo resultado = engine.procesarGrupo(new GrupoCosteoKey(arriendo.empresaId(), arriendo.cuenta(),
+                    arriendo.custodioId(), arriendo.instrumentoId()));
+            int cerrados = em.createNativeQuery(CERRAR_ARRIENDO)
+                    .setParameter(1, arriendo.id())
+                    .setParameter(2, trabajador)
+                    .setParameter(3, (resultado.exitoso() ? EstadoArriendoCosteo.COMPLETADO : EstadoArriendoCosteo.FALLIDO).name())
+                    .setParameter(4, resultado.transaccionesProcesadas())
+                    .setParameter(5, recortar(resultado.mensaje()))
+                    .executeUpdate();
+            if (cerrados == 0) {
+                // El arriendo venció y otro trabajador tomó el grupo: se descarta este costeo
+                tx.rollback();
+                logger.warn("Trabajador {} perdió el arriendo del grupo {}; se descarta su costeo.", trabajador, arriendo.clave());
+                return;
+            }
+            tx.commit();
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            logger.error("Trabajador {}: error costeando el grupo {}; se libera el arriendo.", trabajador, arriendo.clave(), e);
+            liberarArriendo(em, arriendo, e.getMessage());
+        } finally {
+            // El grupo ya quedó escrito (o revertido); se liberan sus entidades
+            em.clear();
+        }
+    }
+
+    private void liberarArriendo(EntityManager em, Arriendo arriendo, String mensaje) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            em.createNativeQuery(LIBERAR_ARRIENDO)
+                    .setParameter(1, arriendo.id())
+                    .setParameter(2, trabajador)
+                    .setParameter(3, MAX_INTENTOS)
+                    .setParameter(4, recortar(mensaje))
+                    .executeUpdate();
+            tx.commit();
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            // Si tampoco se puede liberar, el arriendo vencerá solo
+            logger.error("Trabajador {}: no se pudo liberar el arriendo del grupo {}.", trabajador, arriendo.clave(), e);
+        }
+    }
+
+    private void renovarArriendos() {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            em.createNativeQuery(RENOVAR_ARRIENDOS)
+                    .setParameter(1, trabajador)
+                    .setParameter(2, segundosArriendo)
+                    .executeUpdate();
+            tx.commit();
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            logger.warn("Trabajador {}: no se pudo renovar el arriendo: {}", trabajador, e.getMessage());
+        } finally {
+            em.close();
+        }
+    }
+
+    private long contarAbiertos(EntityManager em, Long corridaId) {
+        return ((Number) em.createNativeQuery(CONTAR_ABIERTOS)
+                .setParameter(1, corridaId)
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Consolida los contadores de la corrida (una sola vez, lo hace el primer trabajador que
+     * termina sin grupos abiertos) y arma el resumen con el resultado de cada grupo.
+     */
+    private ResultadoCosteoDto cerrarCorrida(EntityManager em, Long corridaId) {
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            int cerradas = em.createNativeQuery(CERRAR_CORRIDA)
+                    .setParameter(1, corridaId)
+                    .executeUpdate();
+            tx.commit();
+            if (cerradas > 0) {
+                logger.info("Corrida distribuida {} completada por {}.", corridaId, trabajador);
+            }
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            logger.error("No se pudo cerrar la corrida distribuida {}", corridaId, e);
+        }
+        em.clear();
+
+        List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>();
+        for (ArriendoCosteoEntity a : em.createQuery("""
+                SELECT a FROM ArriendoCosteoEntity a
+                WHERE a.corrida.id = :corridaId
+                ORDER BY a.id
+                """, ArriendoCosteoEntity.class)
+                .setParameter("corridaId", corridaId)
+                .getResultList()) {
+            resultados.add(a.getEstado() == EstadoArriendoCosteo.COMPLETADO
+                    ? ResultadoCosteoDto.ResultadoGrupo.exitoso(a.getClaveAgrupacion(), a.getTransacciones())
+                    : ResultadoCosteoDto.ResultadoGrupo.fallido(a.getClaveAgrupacion(), a.getTransacciones(),
+                            a.getMensaje() != null ? a.getMensaje() : a.getEstado().name()));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> porTrabajador = em.createNativeQuery(RESUMEN_POR_TRABAJADOR)
+                .setParameter(1, corridaId)
+                .getResultList();
+        for (Object[] fila : porTrabajador) {
+            logger.info("Corrida {} - trabajador {}: {} grupos, {} transacciones", corridaId, fila[0], fila[1], fila[2]);
+        }
+
+        CorridaCosteoEntity corrida = em.find(CorridaCosteoEntity.class, corridaId);
+        LocalDateTime fin = corrida.getFin() != null ? corrida.getFin() : LocalDateTime.now();
+        ResultadoCosteoDto resumen = new ResultadoCosteoDto(resultados, porTrabajador.size(),
+                Duration.between(corrida.getInicio(), fin), corridaId);
+        logger.info("Resumen de la corrida distribuida {}: {}", corridaId, resumen);
+        return resumen;
+    }
+
+    private Long buscarUltimaEnCurso(EntityManager em) {
+        return em.createQuery("""
+            SELECT c.id FROM CorridaCosteoEntity c
+            WHERE c.estado = :enCurso
+              AND c.distribuida = true
+            ORDER BY c.id DESC
+            """, Long.class)
+                .setParameter("enCurso", EstadoCorridaCosteo.EN_CURSO)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void esperar() {
+        try {
+            Thread.sleep(ESPERA_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String identificarTrabajador() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "desconocido";
+        }
+        return host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static String recortar(String mensaje) {
+        return mensaje == null || mensaje.length() <= LARGO_MENSAJE ? mensaje : mensaje.substring(0, LARGO_MENSAJE);
+    }
+}
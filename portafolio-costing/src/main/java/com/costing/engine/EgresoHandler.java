@@ -1,15 +1,17 @@
 package com.costing.engine;
 
 import com.model.entities.DetalleCosteoEntity;
+import com.model.entities.GrupoCosteoEntity;
 import com.model.entities.KardexEntity;
+import com.model.entities.ResultadoRealizadoEntity;
 import com.model.entities.TipoMovimientoEntity;
 import com.model.entities.TransaccionEntity;
 import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
-import java.util.Queue;
-import com.model.interfaces.TipoMovimiento;
+import java.math.RoundingMode;
+import java.util.List;
 
 public class EgresoHandler {
 
@@ -18,94 +20,127 @@ public class EgresoHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(EgresoHandler.class);
     private final EntityManager em;
-    private final TipoMovimiento tipoMovimientoRepository;
+    private final CostingOutputSink sink;
+    private final ClasificacionMovimientos clasificacion;
     private final KardexFactory kardexFactory = new KardexFactory();
-    private static final BigDecimal TOLERANCIA_AJUSTE = new BigDecimal("0.5");
 
-    public EgresoHandler(EntityManager em, TipoMovimiento repo) {
+    public EgresoHandler(EntityManager em, CostingOutputSink sink, ClasificacionMovimientos clasificacion) {
         this.em = em;
-        this.tipoMovimientoRepository = repo;
+        this.sink = sink;
+        this.clasificacion = clasificacion;
     }
 
-    public EgresoResult handle(TransaccionEntity egreso, Queue<IngresoDisponible> ingresosQueue, BigDecimal currentQty, BigDecimal currentVal, String clave) throws InsufficientBalanceException {
-        BigDecimal cantidadEgreso = egreso.getCantidad();
-
-        // 1. Verificar si hay saldo suficiente
-        if (currentQty.compareTo(cantidadEgreso) < 0) {
-            BigDecimal diferencia = cantidadEgreso.subtract(currentQty);
-            // Aplicar ajuste por tolerancia si es necesario
-            if (diferencia.abs().compareTo(TOLERANCIA_AJUSTE) <= 0) {
-                logger.warn("Saldo casi suficiente para Tx ID: {}. Creando ajuste automático por tolerancia de {}", egreso.getId(), diferencia);
-                KardexEntity kardexAjuste = crearAjusteAutomatico(egreso, diferencia, currentVal, currentQty);
-                currentQty = currentQty.add(kardexAjuste.getCantidad());
-                currentVal = currentVal.add(kardexAjuste.getCostoTotal());
-                ingresosQueue.add(new IngresoDisponible(kardexAjuste));
-            } else {
-                throw new InsufficientBalanceException("Saldo insuficiente. Cantidad requerida: " + cantidadEgreso + ", disponible: " + currentQty);
+    /**
+     * Procesa un egreso en el kernel FIFO y encola sus filas: el ajuste por tolerancia
+     * (si lo hubo), un kardex, un detalle de costeo y un resultado realizado por cada
+     * lote consumido, y el nuevo disponible de esos lotes.
+     */
+    public EgresoResult handle(TransaccionEntity egreso, FifoKernel kernel, List<KardexEntity> lotes, GrupoCosteoEntity grupo) throws InsufficientBalanceException {
+        // 1. Cálculo FIFO (si no hay saldo suficiente el kernel lanza sin modificar su estado)
+        kernel.egreso(egreso.getId(), FixedPoint.of(egreso.getCantidad()), FixedPoint.of(egreso.getPrecio()));
+
+        // 2. Escritura de las filas producidas por el kernel
+        FifoKernelOutput out = kernel.output();
+        for (int i = 0; i < out.size(); i++) {
+            BigDecimal cantidad = FixedPoint.toBigDecimal(out.cantidad(i));
+            BigDecimal saldoQty = FixedPoint.toBigDecimal(out.saldoCantidad(i));
+            BigDecimal saldoVal = FixedPoint.toBigDecimal(out.saldoValor(i));
+
+            if (out.tipo(i) == FifoKernelOutput.AJUSTE_TOLERANCIA) {
+                logger.warn("Saldo casi suficiente para Tx ID: {}. Creando ajuste automático por tolerancia de {}", egreso.getId(), cantidad);
+                KardexEntity kardexAjuste = crearAjusteAutomatico(egreso, cantidad, FixedPoint.toBigDecimal(out.costoUnitario(i)), saldoQty, saldoVal, grupo);
+                sink.agregarKardex(kardexAjuste);
+                lotes.add(kardexAjuste); // posición == id de lote asignado por el kernel
+                continue;
             }
-        }
-
-        // 2. Lógica FIFO para consumir de la cola
-        BigDecimal cantidadPendiente = cantidadEgreso;
-        BigDecimal costoTotalCalculado = BigDecimal.ZERO;
-
-        while (cantidadPendiente.compareTo(BigDecimal.ZERO) > 0) {
-            IngresoDisponible ingresoFIFO = ingresosQueue.peek();
-            if (ingresoFIFO == null) {
-                throw new InsufficientBalanceException("Cola de ingresos vacía pero se intenta procesar egreso. Cantidad pendiente: " + cantidadPendiente);
-            }
-
-            BigDecimal cantidadUsada = cantidadPendiente.min(ingresoFIFO.cantidadDisponible);
-            BigDecimal costoUnitario = ingresoFIFO.kardexIngreso.getCostoUnitario();
-            BigDecimal costoParcial = cantidadUsada.multiply(costoUnitario);
 
-            costoTotalCalculado = costoTotalCalculado.add(costoParcial);
+            BigDecimal costoParcial = FixedPoint.toBigDecimal(out.costoTotal(i));
+            int lote = out.lote(i);
+            KardexEntity kardexIngreso = lotes.get(lote);
 
             // Actualizar la cantidad disponible del ingreso consumido
-            ingresoFIFO.cantidadDisponible = ingresoFIFO.cantidadDisponible.subtract(cantidadUsada);
-            ingresoFIFO.kardexIngreso.setCantidadDisponible(ingresoFIFO.cantidadDisponible);
-            em.merge(ingresoFIFO.kardexIngreso);
-
-            cantidadPendiente = cantidadPendiente.subtract(cantidadUsada);
+            kardexIngreso.setCantidadDisponible(FixedPoint.toBigDecimal(kernel.restanteLote(lote)));
+            sink.actualizarDisponible(kardexIngreso);
 
             // Crear el registro de Kardex para este consumo parcial del egreso
-            BigDecimal saldoQtyParcial = currentQty.subtract(cantidadEgreso).add(cantidadPendiente);
-            BigDecimal saldoValParcial = currentVal.subtract(costoTotalCalculado);
-            KardexEntity kardexParcial = kardexFactory.createFromEgreso(egreso, cantidadUsada, costoParcial, saldoQtyParcial, saldoValParcial, clave);
-            em.persist(kardexParcial);
+            KardexEntity kardexParcial = kardexFactory.createFromEgreso(egreso, cantidad, costoParcial, saldoQty, saldoVal, grupo);
+            sink.agregarKardex(kardexParcial);
 
             // Crear el detalle para trazabilidad
-            crearDetalleCosteo(ingresoFIFO.kardexIngreso.getTransaccion(), egreso, cantidadUsada, costoParcial, clave);
+            crearDetalleCosteo(kardexIngreso.getTransaccion(), egreso, cantidad, costoParcial, grupo);
 
-            // Si el ingreso se consumió por completo, se retira de la cola
-            if (ingresoFIFO.cantidadDisponible.compareTo(BigDecimal.ZERO) <= 0) {
-                ingresosQueue.poll();
-            }
+            // Resultado realizado de la porción vendida
+            crearResultadoRealizado(sink, kardexIngreso.getTransaccion(), egreso, cantidad, costoParcial, grupo);
         }
 
-        BigDecimal nuevoSaldoCantidad = currentQty.subtract(cantidadEgreso);
-        BigDecimal nuevoSaldoValor = currentVal.subtract(costoTotalCalculado);
-
-        return new EgresoResult(nuevoSaldoCantidad, nuevoSaldoValor);
+        return new EgresoResult(FixedPoint.toBigDecimal(kernel.saldoCantidad()), FixedPoint.toBigDecimal(kernel.saldoValor()));
     }
 
-    private void crearDetalleCosteo(TransaccionEntity ingreso, TransaccionEntity egreso, BigDecimal cantidad, BigDecimal costo, String clave) {
+    private void crearDetalleCosteo(TransaccionEntity ingreso, TransaccionEntity egreso, BigDecimal cantidad, BigDecimal costo, GrupoCosteoEntity grupo) {
         DetalleCosteoEntity detalle = new DetalleCosteoEntity();
         detalle.setIngreso(ingreso);
         detalle.setEgreso(egreso);
         detalle.setCantidadUsada(cantidad);
         detalle.setCostoParcial(costo);
-        detalle.setClaveAgrupacion(clave);
-        em.persist(detalle);
+        detalle.setGrupo(grupo);
+        sink.agregarDetalle(detalle);
     }
 
-    private KardexEntity crearAjusteAutomatico(TransaccionEntity txOriginal, BigDecimal cantidadAjuste, BigDecimal saldoValor, BigDecimal saldoCantidad) {
-        BigDecimal costoUnitarioAjuste = txOriginal.getPrecio() != null ? txOriginal.getPrecio() : BigDecimal.ZERO;
+    /**
+     * Anota el resultado realizado de una porción vendida. {@code ingreso} es el lote consumido,
+     * o null cuando el método de costeo no lleva lotes.
+     */
+    static void crearResultadoRealizado(CostingOutputSink sink, TransaccionEntity ingreso, TransaccionEntity egreso,
+                                        BigDecimal cantidad, BigDecimal costo, GrupoCosteoEntity grupo) {
+        BigDecimal venta = cantidad.multiply(precioVenta(egreso));
+        ResultadoRealizadoEntity resultado = new ResultadoRealizadoEntity();
+        resultado.setGrupo(grupo);
+        resultado.setFecha(egreso.getFecha());
+        resultado.setEgreso(egreso);
+        resultado.setIngreso(ingreso);
+        resultado.setEmpresa(egreso.getEmpresa());
+        resultado.setCustodio(egreso.getCustodio());
+        resultado.setInstrumento(egreso.getInstrumento());
+        resultado.setCuenta(egreso.getCuenta());
+        resultado.setCantidad(cantidad);
+        resultado.setVenta(venta);
+        resultado.setCosto(costo);
+        resultado.setUtilidad(venta.subtract(costo));
+        sink.agregarResultado(resultado);
+    }
+
+    /**
+     * Precio unitario de la venta. Si la cartola no trae precio se deduce del total de la
+     * operación; sin total ni cantidad la venta se valoriza en cero.
+     */
+    static BigDecimal precioVenta(TransaccionEntity egreso) {
+        if (egreso.getPrecio() != null) {
+            return egreso.getPrecio();
+        }
+        if (egreso.getTotal() != null && egreso.getCantidad() != null && egreso.getCantidad().signum() != 0) {
+            return egreso.getTotal().divide(egreso.getCantidad(), FixedPoint.SCALE, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private KardexEntity crearAjusteAutomatico(TransaccionEntity txOriginal, BigDecimal cantidadAjuste, BigDecimal costoUnitarioAjuste,
+                                               BigDecimal nuevoSaldoCantidad, BigDecimal nuevoSaldoValor, GrupoCosteoEntity grupo) {
+        TransaccionEntity ajusteTx = crearTransaccionAjuste(em, clasificacion, txOriginal, cantidadAjuste, costoUnitarioAjuste);
+
+        // Crea el registro de Kardex para este nuevo ingreso por ajuste
+        return kardexFactory.createFromIngreso(ajusteTx, nuevoSaldoCantidad, nuevoSaldoValor, grupo);
+    }
+
+    /**
+     * Persiste la transacción de ingreso que cubre un faltante dentro de la tolerancia.
+     * La transacción queda costeada desde su creación.
+     */
+    static TransaccionEntity crearTransaccionAjuste(EntityManager em, ClasificacionMovimientos clasificacion, TransaccionEntity txOriginal,
+                                                    BigDecimal cantidadAjuste, BigDecimal costoUnitarioAjuste) {
         BigDecimal montoAjuste = cantidadAjuste.multiply(costoUnitarioAjuste);
 
-        // Busca o lanza error si no encuentra el tipo de movimiento para el ajuste
-        TipoMovimientoEntity tipoMovimientoAjuste = tipoMovimientoRepository.buscarPorNombre("AJUSTE_AUTO_TOLERANCIA")
-                .orElseThrow(() -> new IllegalStateException("El tipo de movimiento 'AJUSTE_AUTO_TOLERANCIA' no está configurado."));
+        // Tipo de movimiento del ajuste desde la clasificación precargada (lanza error si no está configurado)
+        TipoMovimientoEntity tipoMovimientoAjuste = em.getReference(TipoMovimientoEntity.class, clasificacion.ajusteToleranciaId());
 
         // Crea una nueva entidad de transacción para el ajuste
         TransaccionEntity ajusteTx = new TransaccionEntity();
@@ -122,12 +157,6 @@ public class EgresoHandler {
         ajusteTx.setCosteado(true); // El ajuste se considera costeado inmediatamente
         ajusteTx.setParaRevision(false);
         em.persist(ajusteTx);
-
-        // Crea el registro de Kardex para este nuevo ingreso por ajuste
-        BigDecimal nuevoSaldoCantidad = saldoCantidad.add(cantidadAjuste);
-        BigDecimal nuevoSaldoValor = saldoValor.add(montoAjuste);
-        String claveAgrupacion = txOriginal.getEmpresa().getId() + "|" + txOriginal.getCuenta() + "|" + txOriginal.getCustodio().getId() + "|" + txOriginal.getInstrumento().getId();
-
-        return kardexFactory.createFromIngreso(ajusteTx, nuevoSaldoCantidad, nuevoSaldoValor, claveAgrupacion);
+        return ajusteTx;
     }
 }
@@ -1,25 +1,44 @@
 package com.costing.engine;
 
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
 import com.model.entities.TransaccionEntity;
+import com.model.enums.MetodoCosteo;
 import com.model.enums.TipoEnumsCosteo;
 import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 import com.model.interfaces.KardexApi;
 import com.model.interfaces.SaldoApi;
 import com.model.interfaces.TipoMovimiento;
 
-public class FifoCostingEngine {
+public class FifoCostingEngine implements CostingStrategy {
 
     private static final Logger logger = LoggerFactory.getLogger(FifoCostingEngine.class);
     private final EntityManager em;
     private final KardexApi kardexRepository;
     private final SaldoApi saldoRepository;
     private final TipoMovimiento tipoMovimientoRepository;
+    private ClasificacionMovimientos clasificacion;
+
+    // Filtro y orden de costeo compartidos con ParallelCostingEngine; el filtro también lo usan
+    // el cierre de ejercicio y el recosteo desde la primera fecha pendiente
+    public static final String FILTRO_PENDIENTES = """
+             WHERE t.tipoMovimiento.movimientoContable.tipoContable <> :noCostear
+              AND t.costeado = false
+              AND t.paraRevision = false
+              AND t.ignorarEnCosteo = false
+            """;
+    static final String ORDEN_COSTEO = """
+             ORDER BY t.fecha ASC,
+                     CASE WHEN t.tipoMovimiento.esSaldoInicial = true THEN 0 ELSE 1 END,
+                     CASE WHEN t.tipoMovimiento.movimientoContable.tipoContable = 'INGRESO' THEN 2 ELSE 3 END,
+                     t.id ASC
+            """;
 
     public FifoCostingEngine(EntityManager em, KardexApi kardexRepository,
                            SaldoApi saldoRepository,
@@ -30,51 +49,95 @@ public class FifoCostingEngine {
         this.tipoMovimientoRepository = tipoMovimientoRepository;
     }
 
-    public void procesarCosteo() {
-        // 1. OBTENER TRANSACCIONES
-        List<TransaccionEntity> transacciones = findUncostedTransactions();
-        logger.info("Transacciones encontradas para procesar: {}", transacciones.size());
+    @Override
+    public MetodoCosteo metodo() {
+        return MetodoCosteo.FIFO;
+    }
+
+    public ResultadoCosteoDto procesarCosteo() {
+        long inicio = System.nanoTime();
 
-        // 2. AGRUPAR
-        Map<String, List<TransaccionEntity>> grupos = transacciones.stream()
-                .collect(Collectors.groupingBy(this::claveAgrupacion));
+        // 1. DESCUBRIR GRUPOS PENDIENTES (solo las claves, en orden de grupo)
+        List<Object[]> grupos = findPendingGroups(em);
+        logger.info("Grupos pendientes de costeo: {}", grupos.size());
+
+        // 2. CARGAR Y PROCESAR UN GRUPO A LA VEZ: en memoria solo queda el grupo en curso
+        List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>(grupos.size());
+        for (Object[] grupo : grupos) {
+            resultados.add(procesarGrupo(GrupoCosteoKey.of(grupo)));
+            // El grupo ya quedó escrito; se liberan sus entidades del contexto de persistencia
+            em.clear();
+        }
+        ResultadoCosteoDto resultado = new ResultadoCosteoDto(resultados, 1, Duration.ofNanos(System.nanoTime() - inicio));
+        logger.info("Costeo finalizado. {}", resultado);
+        return resultado;
+    }
 
-        // 3. DELEGAR PROCESAMIENTO POR GRUPO
-        for (Map.Entry<String, List<TransaccionEntity>> entry : grupos.entrySet()) {
-            logger.info("Procesando grupo de costeo: {}", entry.getKey());
-            
-            // Creamos un procesador específico para este grupo
-            CostingGroupProcessor groupProcessor = new CostingGroupProcessor(
-                entry.getKey(),
-                entry.getValue(),
-                em,
-                kardexRepository,
-                saldoRepository,
-                tipoMovimientoRepository
-            );
-            
-            groupProcessor.process(); // ¡Y a procesar!
+    /**
+     * Costea solo las transacciones pendientes de un grupo, por ejemplo tras revertir
+     * su costeo desde una fecha. El resto de los grupos pendientes no se toca.
+     */
+    @Override
+    public ResultadoCosteoDto.ResultadoGrupo procesarGrupo(GrupoCosteoKey key) {
+        long inicioCarga = System.nanoTime();
+        List<TransaccionEntity> transacciones = findUncostedTransactionsByGroup(em, key);
+        long nanosCarga = System.nanoTime() - inicioCarga;
+        logger.info("Procesando grupo de costeo: {} ({} transacciones)", key, transacciones.size());
+        if (transacciones.isEmpty()) {
+            return ResultadoCosteoDto.ResultadoGrupo.exitoso(key.clave(), 0);
         }
+
+        CostingGroupProcessor groupProcessor = new CostingGroupProcessor(
+            key,
+            transacciones,
+            em,
+            kardexRepository,
+            saldoRepository,
+            clasificacion(),
+            MetodoCosteo.FIFO
+        );
+        groupProcessor.setNanosCarga(nanosCarga);
+        ResultadoCosteoDto.ResultadoGrupo resultado = groupProcessor.process();
         em.flush();
+        return resultado;
+    }
+
+    /**
+     * Clasificación de los tipos de movimiento, cargada una sola vez por instancia (una corrida).
+     */
+    private ClasificacionMovimientos clasificacion() {
+        if (clasificacion == null) {
+            clasificacion = ClasificacionMovimientos.cargar(tipoMovimientoRepository);
+        }
+        return clasificacion;
     }
 
-    private List<TransaccionEntity> findUncostedTransactions() {
+    static List<Object[]> findPendingGroups(EntityManager em) {
         return em.createQuery("""
-            SELECT t FROM TransaccionEntity t
-            WHERE t.tipoMovimiento.movimientoContable.tipoContable <> :noCostear
-              AND t.costeado = false
-              AND t.paraRevision = false
-              AND t.ignorarEnCosteo = false
-            ORDER BY t.fecha ASC,
-                     CASE WHEN t.tipoMovimiento.esSaldoInicial = true THEN 0 ELSE 1 END,
-                     CASE WHEN t.tipoMovimiento.movimientoContable.tipoContable = 'INGRESO' THEN 2 ELSE 3 END,
-                     t.id ASC
-            """, TransaccionEntity.class)
-            .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
-            .getResultList();
+            SELECT DISTINCT t.empresa.id, t.cuenta, t.custodio.id, t.instrumento.id
+            FROM TransaccionEntity t
+            """ + FILTRO_PENDIENTES + """
+             ORDER BY t.empresa.id, t.cuenta, t.custodio.id, t.instrumento.id
+            """, Object[].class)
+                .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
+                .getResultList();
     }
 
-    private String claveAgrupacion(TransaccionEntity t) {
-        return t.getEmpresa().getId() + "|" + t.getCuenta() + "|" + t.getCustodio().getId() + "|" + t.getInstrumento().getId();
+    static List<TransaccionEntity> findUncostedTransactionsByGroup(EntityManager em, GrupoCosteoKey key) {
+        return em.createQuery("SELECT t FROM TransaccionEntity t"
+                        + FILTRO_PENDIENTES
+                        + """
+                          AND t.empresa.id = :empresaId
+                          AND t.cuenta = :cuenta
+                          AND t.custodio.id = :custodioId
+                          AND t.instrumento.id = :instrumentoId
+                        """
+                        + ORDEN_COSTEO, TransaccionEntity.class)
+                .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
+                .setParameter("empresaId", key.empresaId())
+                .setParameter("cuenta", key.cuenta())
+                .setParameter("custodioId", key.custodioId())
+                .setParameter("instrumentoId", key.instrumentoId())
+                .getResultList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.costing.engine;
+
+import java.util.Arrays;
+
+/**
+ * Núcleo de cálculo FIFO sin persistencia. Recibe los movimientos de un grupo en
+ * orden de costeo y los lotes abiertos de apertura, y produce las filas de kardex
+ * (con el lote consumido por cada egreso), el saldo remanente de cada lote y los
+ * saldos de cierre.
+ * <p>
+ * Cantidades y montos son {@code long} en punto fijo ({@link FixedPoint}) y la cola
+ * de lotes es un buffer circular sobre arreglos primitivos, de modo que el bucle
+ * no asigna objetos por movimiento. No es thread-safe: una instancia por grupo.
+ */
+public final class FifoKernel {
+
+    /** Tolerancia por defecto para el ajuste automático de egresos (0,5 unidades). */
+    public static final long TOLERANCIA_AJUSTE = FixedPoint.ONE / 2;
+
+    private final FifoKernelOutput out;
+    private final long tolerancia;
+
+    private long saldoCantidad;
+    private long saldoValor;
+
+    // Cola FIFO: buffer circular de lotes abiertos (capacidad potencia de 2)
+    private int[] colaLote;
+    private long[] colaRestante;
+    private long[] colaCosto;
+    private int head;
+    private int count;
+    private long totalEnLotes;
+
+    // Remanente por id de lote (incluye lotes ya agotados)
+    private long[] restantePorLote = new long[64];
+    private int lotes;
+
+    public FifoKernel(long saldoCantidadInicial, long saldoValorInicial, FifoKernelOutput out) {
+        this(saldoCantidadInicial, saldoValorInicial, TOLERANCIA_AJUSTE, out);
+    }
+
+    public FifoKernel(long saldoCantidadInicial, long saldoValorInicial, long tolerancia, FifoKernelOutput out) {
+        this.saldoCantidad = saldoCantidadInicial;
+        this.saldoValor = saldoValorInicial;
+        this.tolerancia = tolerancia;
+        this.out = out;
+        this.colaLote = new int[64];
+        this.colaRestante = new long[64];
+        this.colaCosto = new long[64];
+    }
+
+    /**
+     * Registra un lote de apertura (ingreso histórico con saldo disponible).
+     * Debe llamarse en orden FIFO y antes del primer movimiento.
+     * @return el id asignado al lote.
+     */
+    public int abrirLote(long cantidadDisponible, long costoUnitario) {
+        return push(cantidadDisponible, costoUnitario);
+    }
+
+    /**
+     * Procesa un ingreso: abre un lote nuevo y emite su fila de kardex.
+     * @return el índice de la fila emitida.
+     */
+    public int ingreso(long txRef, long cantidad, long precio) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad del ingreso debe ser mayor a cero");
+        }
+        if (precio < 0) {
+            throw new IllegalArgumentException("El precio del ingreso no puede ser negativo");
+        }
+        if (saldoCantidad < 0) {
+            throw new IllegalArgumentException("La cantidad actual debe ser mayor o igual a cero");
+        }
+        long valor = FixedPoint.mul(cantidad, precio);
+        saldoCantidad += cantidad;
+        saldoValor += valor;
+        int lote = push(cantidad, precio);
+        return out.add(txRef, FifoKernelOutput.INGRESO, cantidad, precio, valor, saldoCantidad, saldoValor, lote);
+    }
+
+    /**
+     * Procesa un egreso consumiendo lotes en orden FIFO. Emite una fila por lote consumido
+     * y, si falta saldo dentro de la tolerancia, una fila de ajuste previa.
+     * Si el egreso no puede cubrirse, no modifica ningún estado.
+     * @throws InsufficientBalanceException si el saldo o los lotes no alcanzan.
+     */
+    public void egreso(long txRef, long cantidad, long precio) throws InsufficientBalanceException {
+        long ajuste = 0;
+        if (saldoCantidad < cantidad) {
+            long diferencia = cantidad - saldoCantidad;
+            if (diferencia > tolerancia) {
+                throw new InsufficientBalanceException("Saldo insuficiente. Cantidad requerida: "
+                        + FixedPoint.toBigDecimal(cantidad) + ", disponible: " + FixedPoint.toBigDecimal(saldoCantidad));
+            }
+            ajuste = diferencia;
+        }
+        if (totalEnLotes + ajuste < cantidad) {
+            throw new InsufficientBalanceException("Cola de ingresos insuficiente para el egreso. Cantidad requerida: "
+                    + FixedPoint.toBigDecimal(cantidad) + ", en lotes: " + FixedPoint.toBigDecimal(totalEnLotes + ajuste));
+        }
+
+        // 1. Ajuste automático por tolerancia
+        if (ajuste > 0) {
+            long monto = FixedPoint.mul(ajuste, precio);
+            saldoCantidad += ajuste;
+            saldoValor += monto;
+            int lote = push(ajuste, precio);
+            out.add(txRef, FifoKernelOutput.AJUSTE_TOLERANCIA, ajuste, precio, monto, saldoCantidad, saldoValor, lote);
+        }
+
+        // 2. Consumo FIFO
+        long pendiente = cantidad;
+        long costoAcumulado = 0;
+        long saldoCantidadFinal = saldoCantidad - cantidad;
+        while (pendiente > 0) {
+            int slot = head;
+            long disponible = colaRestante[slot];
+            if (disponible <= 0) {
+                poll();
+                continue;
+            }
+            long usado = Math.min(pendiente, disponible);
+            long costoParcial = FixedPoint.mul(usado, colaCosto[slot]);
+            costoAcumulado += costoParcial;
+            pendiente -= usado;
+
+            colaRestante[slot] = disponible - usado;
+            restantePorLote[colaLote[slot]] = disponible - usado;
+            totalEnLotes -= usado;
+
+            out.add(txRef, FifoKernelOutput.EGRESO, usado, FixedPoint.div(costoParcial, usado), costoParcial,
+                    saldoCantidadFinal + pendiente, saldoValor - costoAcumulado, colaLote[slot]);
+
+            if (colaRestante[slot] <= 0) {
+                poll();
+            }
+        }
+
+        saldoCantidad = saldoCantidadFinal;
+        saldoValor -= costoAcumulado;
+    }
+
+    /**
+     * Procesa un flujo de movimientos ya ordenado. Se detiene en el primer egreso sin saldo.
+     * @return el número de movimientos procesados; si es menor que {@code n}, el siguiente falló.
+     */
+    public int procesar(long[] txRefs, boolean[] esIngreso, long[] cantidades, long[] precios, int n) {
+        for (int i = 0; i < n; i++) {
+            if (esIngreso[i]) {
+                ingreso(txRefs[i], cantidades[i], precios[i]);
+            } else {
+                try {
+                    egreso(txRefs[i], cantidades[i], precios[i]);
+                } catch (InsufficientBalanceException e) {
+                    return i;
+                }
+            }
+        }
+        return n;
+    }
+
+    public long saldoCantidad() {
+        return saldoCantidad;
+    }
+
+    public long saldoValor() {
+        return saldoValor;
+    }
+
+    /** Número de lotes con saldo pendiente en la cola. */
+    public int lotesAbiertos() {
+        return count;
+    }
+
+    /** Número total de lotes registrados (abiertos y agotados). */
+    public int lotesRegistrados() {
+        return lotes;
+    }
+
+    /** Cantidad remanente del lote indicado. */
+    public long restanteLote(int lote) {
+        return restantePorLote[lote];
+    }
+
+    public FifoKernelOutput output() {
+        return out;
+    }
+
+    // --- Buffer circular ---
+
+    private int push(long cantidad, long costoUnitario) {
+        if (count == colaLote.length) {
+            growCola();
+        }
+        if (lotes == restantePorLote.length) {
+            restantePorLote = Arrays.copyOf(restantePorLote, lotes << 1);
+        }
+        int id = lotes++;
+        restantePorLote[id] = cantidad;
+
+        int slot = (head + count) & (colaLote.length - 1);
+        colaLote[slot] = id;
+        colaRestante[slot] = cantidad;
+        colaCosto[slot] = costoUnitario;
+        count++;
+        totalEnLotes += cantidad;
+        return id;
+    }
+
+    private void poll() {
+        totalEnLotes -= colaRestante[head];
+        head = (head + 1) & (colaLote.length - 1);
+        count--;
+    }
+
+    private void growCola() {
+        int cap = colaLote.length << 1;
+        int[] lote = new int[cap];
+        long[] restante = new long[cap];
+        long[] costo = new long[cap];
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) & (colaLote.length - 1);
+            lote[i] = colaLote[slot];
+            restante[i] = colaRestante[slot];
+            costo[i] = colaCosto[slot];
+        }
+        colaLote = lote;
+        colaRestante = restante;
+        colaCosto = costo;
+        head = 0;
+    }
+}
@@ -0,0 +1,114 @@
+package com.costing.engine;
+
+import java.util.Arrays;
+
+/**
+ * Salida del {@link FifoKernel} en formato columnar (un arreglo primitivo por campo).
+ * Cada fila equivale a un registro de kardex; las filas de egreso llevan además el
+ * lote consumido, por lo que también describen el detalle de costeo.
+ * Todos los montos y cantidades están en punto fijo ({@link FixedPoint}).
+ */
+public final class FifoKernelOutput {
+
+    public static final byte INGRESO = 0;
+    public static final byte EGRESO = 1;
+    public static final byte AJUSTE_TOLERANCIA = 2;
+
+    private int size;
+    private long[] txRef;
+    private byte[] tipo;
+    private long[] cantidad;
+    private long[] costoUnitario;
+    private long[] costoTotal;
+    private long[] saldoCantidad;
+    private long[] saldoValor;
+    private int[] lote;
+
+    public FifoKernelOutput(int capacidadInicial) {
+        int cap = Math.max(16, capacidadInicial);
+        txRef = new long[cap];
+        tipo = new byte[cap];
+        cantidad = new long[cap];
+        costoUnitario = new long[cap];
+        costoTotal = new long[cap];
+        saldoCantidad = new long[cap];
+        saldoValor = new long[cap];
+        lote = new int[cap];
+    }
+
+    int add(long ref, byte t, long qty, long unitario, long total, long sQty, long sVal, int loteId) {
+        if (size == txRef.length) {
+            grow();
+        }
+        int i = size++;
+        txRef[i] = ref;
+        tipo[i] = t;
+        cantidad[i] = qty;
+        costoUnitario[i] = unitario;
+        costoTotal[i] = total;
+        saldoCantidad[i] = sQty;
+        saldoValor[i] = sVal;
+        lote[i] = loteId;
+        return i;
+    }
+
+    private void grow() {
+        int cap = txRef.length << 1;
+        txRef = Arrays.copyOf(txRef, cap);
+        tipo = Arrays.copyOf(tipo, cap);
+        cantidad = Arrays.copyOf(cantidad, cap);
+        costoUnitario = Arrays.copyOf(costoUnitario, cap);
+        costoTotal = Arrays.copyOf(costoTotal, cap);
+        saldoCantidad = Arrays.copyOf(saldoCantidad, cap);
+        saldoValor = Arrays.copyOf(saldoValor, cap);
+        lote = Arrays.copyOf(lote, cap);
+    }
+
+    /**
+     * Descarta todas las filas conservando la capacidad reservada.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Referencia opaca de la transacción que generó la fila (normalmente su id). */
+    public long txRef(int i) {
+        return txRef[i];
+    }
+
+    public byte tipo(int i) {
+        return tipo[i];
+    }
+
+    public long cantidad(int i) {
+        return cantidad[i];
+    }
+
+    public long costoUnitario(int i) {
+        return costoUnitario[i];
+    }
+
+    public long costoTotal(int i) {
+        return costoTotal[i];
+    }
+
+    public long saldoCantidad(int i) {
+        return saldoCantidad[i];
+    }
+
+    public long saldoValor(int i) {
+        return saldoValor[i];
+    }
+
+    /**
+     * Para filas de ingreso y de ajuste, el id del lote que abren;
+     * para filas de egreso, el id del lote que consumen.
+     */
+    public int lote(int i) {
+        return lote[i];
+    }
+}
@@ -0,0 +1,75 @@
+package com.costing.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de punto fijo sobre {@code long} con 6 decimales, la misma escala
+ * que usan las columnas de saldos. Evita crear un BigDecimal en cada paso del
+ * bucle FIFO; solo se recurre a BigDecimal cuando un producto desborda 64 bits.
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+
+    private static final BigDecimal ONE_BD = BigDecimal.valueOf(ONE);
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Convierte un BigDecimal a su representación escalada (HALF_UP). Un valor nulo se trata como cero.
+     */
+    public static long of(BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return BigDecimal.valueOf(value, SCALE);
+    }
+
+    /**
+     * Producto de dos valores escalados, redondeado HALF_UP a la misma escala.
+     */
+    public static long mul(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return divideHalfUp(lo, ONE);
+        }
+        // Desborde de 64 bits: camino lento, poco frecuente
+        return BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(b))
+                .divide(ONE_BD, 0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    /**
+     * Cociente de dos valores escalados, redondeado HALF_UP a la misma escala.
+     */
+    public static long div(long a, long b) {
+        if (b == 0) {
+            throw new ArithmeticException("División por cero en punto fijo");
+        }
+        long hi = Math.multiplyHigh(a, ONE);
+        long lo = a * ONE;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return divideHalfUp(lo, b);
+        }
+        return BigDecimal.valueOf(a).multiply(ONE_BD)
+                .divide(BigDecimal.valueOf(b), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    private static long divideHalfUp(long n, long d) {
+        long q = n / d;
+        long r = n % d;
+        if (r != 0 && Math.abs(r) >= Math.abs(d) - Math.abs(r)) {
+            q += ((n ^ d) < 0) ? -1 : 1;
+        }
+        return q;
+    }
+}
@@ -0,0 +1,70 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+
+/**
+ * Traduce una {@link GrupoCosteoKey} al id numérico de {@code grupos_costeo}.
+ * El alta usa {@code INSERT IGNORE} sobre la clave única del grupo, por lo que dos
+ * procesos que costean el mismo grupo nuevo obtienen el mismo id.
+ * <p>
+ * Tras el alta el id se relee con una lectura bloqueante: en REPEATABLE READ una lectura
+ * normal usa la instantánea de la transacción y no ve la fila que otra transacción
+ * confirmó mientras el {@code INSERT IGNORE} esperaba.
+ */
+public final class GrupoCosteoResolver {
+
+    private static final String CREAR_GRUPO = """
+        INSERT IGNORE INTO grupos_costeo
+            (fecha_creacion, creado_por, empresa_id, cuenta, custodio_id, instrumento_id, clave_agrupacion)
+        VALUES (CURRENT_DATE, 'sistema', ?1, ?2, ?3, ?4, ?5)
+        """;
+
+    private static final String BUSCAR_GRUPO = """
+        SELECT g.id FROM grupos_costeo g
+        WHERE g.empresa_id = ?1 AND g.cuenta = ?2 AND g.custodio_id = ?3 AND g.instrumento_id = ?4
+        """;
+
+    private static final String BUSCAR_GRUPO_BLOQUEANDO = BUSCAR_GRUPO + " FOR UPDATE";
+
+    private GrupoCosteoResolver() {
+    }
+
+    /**
+     * Id del grupo, registrándolo si aún no existe. Requiere una transacción activa.
+     */
+    public static Long obtenerOCrear(EntityManager em, GrupoCosteoKey key) {
+        Long id = buscar(em, key);
+        if (id != null) {
+            return id;
+        }
+        em.createNativeQuery(CREAR_GRUPO)
+                .setParameter(1, key.empresaId())
+                .setParameter(2, key.cuenta())
+                .setParameter(3, key.custodioId())
+                .setParameter(4, key.instrumentoId())
+                .setParameter(5, key.clave())
+                .executeUpdate();
+        return buscar(em, key, BUSCAR_GRUPO_BLOQUEANDO);
+    }
+
+    /**
+     * Id del grupo, o null si el grupo nunca se ha costeado.
+     */
+    public static Long buscar(EntityManager em, GrupoCosteoKey key) {
+        return buscar(em, key, BUSCAR_GRUPO);
+    }
+
+    private static Long buscar(EntityManager em, GrupoCosteoKey key, String sql) {
+        @SuppressWarnings("unchecked")
+        List<Number> ids = em.createNativeQuery(sql)
+                .setParameter(1, key.empresaId())
+                .setParameter(2, key.cuenta())
+                .setParameter(3, key.custodioId())
+                .setParameter(4, key.instrumentoId())
+                .getResultList();
+        return ids.isEmpty() ? null : ids.get(0).longValue();
+    }
+}
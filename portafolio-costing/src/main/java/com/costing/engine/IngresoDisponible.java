@@ -1,17 +0,0 @@
-package com.costing.engine;
-
-import com.model.entities.KardexEntity;
-import java.math.BigDecimal;
-
-/**
- * Representa un lote de ingreso en la cola FIFO con su cantidad restante.
- */
-public class IngresoDisponible {
-    KardexEntity kardexIngreso;
-    BigDecimal cantidadDisponible;
-
-    public IngresoDisponible(KardexEntity kardexIngreso) {
-        this.kardexIngreso = kardexIngreso;
-        this.cantidadDisponible = kardexIngreso.getCantidadDisponible();
-    }
-}
\ No newline at end of file
@@ -1,21 +1,21 @@
 package com.costing.engine;
 
+import com.model.entities.GrupoCosteoEntity;
 import com.model.entities.KardexEntity;
 import com.model.entities.TransaccionEntity;
-import jakarta.persistence.EntityManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
-import java.util.Queue;
+import java.util.List;
 
 public class IngresoHandler {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(IngresoHandler.class);
-    private final EntityManager em;
+    private final CostingOutputSink sink;
     private final KardexFactory kardexFactory = new KardexFactory();
 
-    public IngresoHandler(EntityManager em) { 
-        this.em = em; 
+    public IngresoHandler(CostingOutputSink sink) {
+        this.sink = sink;
     }
 
     /**
@@ -24,53 +24,47 @@ public class IngresoHandler {
     public record IngresoResult(BigDecimal nuevoSaldoCantidad, BigDecimal nuevoSaldoValor) {}
 
     /**
-     * Procesa un ingreso y retorna los nuevos saldos
+     * Procesa un ingreso en el kernel FIFO, encola su fila de kardex y retorna los nuevos saldos.
+     * El kardex creado se agrega a {@code lotes} en la posición de su id de lote.
      */
-    public IngresoResult handle(TransaccionEntity tx, Queue<IngresoDisponible> queue, 
-                               BigDecimal currentQty, BigDecimal currentVal, String clave) {
-        
-        // Validaciones de entrada
-        validateInputs(tx, queue, currentQty, currentVal, clave);
-        
-        BigDecimal newQty = currentQty.add(tx.getCantidad());
-        BigDecimal valorIngreso = tx.getCantidad().multiply(tx.getPrecio());
-        BigDecimal newVal = currentVal.add(valorIngreso);
+    public IngresoResult handle(TransaccionEntity tx, FifoKernel kernel, List<KardexEntity> lotes, GrupoCosteoEntity grupo) {
 
-        logger.debug("Procesando ingreso - Tx ID: {}, Cantidad: {}, Precio: {}, Valor: {}", 
-                    tx.getId(), tx.getCantidad(), tx.getPrecio(), valorIngreso);
+        // Validaciones de entrada
+        validateInputs(tx, kernel, lotes, grupo);
 
         try {
-            KardexEntity kardex = kardexFactory.createFromIngreso(tx, newQty, newVal, clave);
-            em.persist(kardex);
-            queue.add(new IngresoDisponible(kardex));
-            
-            logger.info("Ingreso procesado exitosamente - Tx ID: {}, Nuevo saldo: qty={}, val={}", 
+            int fila = kernel.ingreso(tx.getId(), FixedPoint.of(tx.getCantidad()), FixedPoint.of(tx.getPrecio()));
+            FifoKernelOutput out = kernel.output();
+            BigDecimal newQty = FixedPoint.toBigDecimal(out.saldoCantidad(fila));
+            BigDecimal newVal = FixedPoint.toBigDecimal(out.saldoValor(fila));
+
+            logger.debug("Procesando ingreso - Tx ID: {}, Cantidad: {}, Precio: {}, Valor: {}",
+                        tx.getId(), tx.getCantidad(), tx.getPrecio(), FixedPoint.toBigDecimal(out.costoTotal(fila)));
+
+            KardexEntity kardex = kardexFactory.createFromIngreso(tx, newQty, newVal, grupo);
+            sink.agregarKardex(kardex);
+            lotes.add(kardex); // posición == id de lote asignado por el kernel
+
+            logger.info("Ingreso procesado exitosamente - Tx ID: {}, Nuevo saldo: qty={}, val={}",
                        tx.getId(), newQty, newVal);
-            
+
             return new IngresoResult(newQty, newVal);
-            
+
         } catch (Exception e) {
             logger.error("Error al procesar ingreso - Tx ID: {}", tx.getId(), e);
             throw new RuntimeException("Error en el procesamiento del ingreso: " + e.getMessage(), e);
         }
     }
-    
-    private void validateInputs(TransaccionEntity tx, Queue<IngresoDisponible> queue, 
-                               BigDecimal currentQty, BigDecimal currentVal, String clave) {
+
+    private void validateInputs(TransaccionEntity tx, FifoKernel kernel, List<KardexEntity> lotes, GrupoCosteoEntity grupo) {
         if (tx == null) {
             throw new IllegalArgumentException("La transacción no puede ser nula");
         }
-        if (queue == null) {
+        if (kernel == null || lotes == null) {
             throw new IllegalArgumentException("La cola de ingresos no puede ser nula");
         }
-        if (currentQty == null || currentQty.compareTo(BigDecimal.ZERO) < 0) {
-            throw new IllegalArgumentException("La cantidad actual debe ser mayor o igual a cero");
-        }
-        if (currentVal == null) {
-            throw new IllegalArgumentException("El valor actual no puede ser nulo");
-        }
-        if (clave == null || clave.trim().isEmpty()) {
-            throw new IllegalArgumentException("La clave de agrupación no puede ser nula o vacía");
+        if (grupo == null) {
+            throw new IllegalArgumentException("El grupo de costeo no puede ser nulo");
         }
         if (tx.getCantidad() == null || tx.getCantidad().compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("La cantidad del ingreso debe ser mayor a cero");
@@ -79,4 +73,4 @@ public class IngresoHandler {
             throw new IllegalArgumentException("El precio del ingreso no puede ser negativo");
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.costing.engine;
 
+import com.model.entities.GrupoCosteoEntity;
 import com.model.entities.KardexEntity;
 import com.model.entities.TransaccionEntity;
 import com.model.enums.TipoEnumsCosteo;
@@ -10,12 +11,12 @@ public class KardexFactory {
     
     private static final int ROUNDING_SCALE = 6;
 
-    public KardexEntity createFromIngreso(TransaccionEntity tx, BigDecimal saldoQty, BigDecimal saldoVal, String clave) {
+    public KardexEntity createFromIngreso(TransaccionEntity tx, BigDecimal saldoQty, BigDecimal saldoVal, GrupoCosteoEntity grupo) {
         KardexEntity k = new KardexEntity();
         BigDecimal costoUnitario = tx.getPrecio();
         
         k.setTransaccion(tx);
-        k.setClaveAgrupacion(clave);
+        k.setGrupo(grupo);
         k.setFechaTransaccion(tx.getFecha());
         k.setFolio(tx.getFolio());
         k.setTipoContable(TipoEnumsCosteo.INGRESO);
@@ -32,7 +33,7 @@ public class KardexFactory {
         return k;
     }
 
-    public KardexEntity createFromEgreso(TransaccionEntity tx, BigDecimal cantidadUsada, BigDecimal costoParcial, BigDecimal saldoQty, BigDecimal saldoVal, String clave) {
+    public KardexEntity createFromEgreso(TransaccionEntity tx, BigDecimal cantidadUsada, BigDecimal costoParcial, BigDecimal saldoQty, BigDecimal saldoVal, GrupoCosteoEntity grupo) {
         BigDecimal costoUnitario = BigDecimal.ZERO;
         if (cantidadUsada != null && cantidadUsada.compareTo(BigDecimal.ZERO) != 0) {
             costoUnitario = costoParcial.divide(cantidadUsada, ROUNDING_SCALE, RoundingMode.HALF_UP);
@@ -40,7 +41,7 @@ public class KardexFactory {
 
         KardexEntity k = new KardexEntity();
         k.setTransaccion(tx);
-        k.setClaveAgrupacion(clave);
+        k.setGrupo(grupo);
         k.setFechaTransaccion(tx.getFecha());
         k.setFolio(tx.getFolio());
         k.setTipoContable(TipoEnumsCosteo.EGRESO);
@@ -0,0 +1,172 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.entities.TransaccionEntity;
+import com.model.enums.MetodoCosteo;
+import com.model.interfaces.KardexApi;
+import com.model.interfaces.SaldoApi;
+import com.model.interfaces.TipoMovimiento;
+import com.model.utiles.LibraryInitializer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Variante paralela de {@link FifoCostingEngine}. Los grupos de costeo son
+ * independientes entre sí, por lo que cada uno se procesa en un hilo de un
+ * pool acotado, con su propio EntityManager, sus propios repositorios y su
+ * propia transacción. Dentro de un grupo el orden de las transacciones es el
+ * mismo que en el costeo secuencial, por lo que el kardex y los saldos
+ * resultantes son idénticos.
+ */
+public class ParallelCostingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelCostingEngine.class);
+
+    private final EntityManager em;
+    private final int paralelismo;
+    private final Supplier<KardexApi> kardexRepositoryFactory;
+    private final Supplier<SaldoApi> saldoRepositoryFactory;
+    private final Supplier<TipoMovimiento> tipoMovimientoRepositoryFactory;
+
+    /**
+     * @param em                              EntityManager usado solo para descubrir los grupos pendientes.
+     * @param paralelismo                     Número máximo de grupos en proceso simultáneo (0 o menos usa el número de núcleos).
+     * @param kardexRepositoryFactory         Crea un repositorio de kardex por hilo (no son thread-safe).
+     * @param saldoRepositoryFactory          Crea un repositorio de saldos por hilo.
+     * @param tipoMovimientoRepositoryFactory Crea el repositorio con el que se carga la clasificación de movimientos.
+     */
+    public ParallelCostingEngine(EntityManager em, int paralelismo,
+                                 Supplier<KardexApi> kardexRepositoryFactory,
+                                 Supplier<SaldoApi> saldoRepositoryFactory,
+                                 Supplier<TipoMovimiento> tipoMovimientoRepositoryFactory) {
+        this.em = em;
+        this.paralelismo = paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors();
+        this.kardexRepositoryFactory = kardexRepositoryFactory;
+        this.saldoRepositoryFactory = saldoRepositoryFactory;
+        this.tipoMovimientoRepositoryFactory = tipoMovimientoRepositoryFactory;
+    }
+
+    public ResultadoCosteoDto procesarCosteo() {
+        // 1. DESCUBRIR GRUPOS PENDIENTES (solo las claves, sin cargar las transacciones)
+        List<GrupoCosteoKey> grupos = FifoCostingEngine.findPendingGroups(em).stream()
+                .map(GrupoCosteoKey::of)
+                .toList();
+        logger.info("Grupos pendientes de costeo: {}. Paralelismo: {}", grupos.size(), paralelismo);
+        return procesarGrupos(grupos, null);
+    }
+
+    /**
+     * Costea en paralelo solo los grupos indicados, sin consultar el resto de los pendientes.
+     * @param grupos Los grupos a costear; cada uno costea sus transacciones no costeadas.
+     * @param avance Recibe (grupos terminados, total) cada vez que termina un grupo, desde el hilo
+     *               que lo costeó; puede ser null.
+     */
+    public ResultadoCosteoDto procesarGrupos(List<GrupoCosteoKey> grupos, BiConsumer<Integer, Integer> avance) {
+        long inicio = System.nanoTime();
+        ClasificacionMovimientos clasificacion = ClasificacionMovimientos.cargar(tipoMovimientoRepositoryFactory.get());
+        Map<Long, MetodoCosteo> metodos = CostingStrategySelector.cargarMetodos(em);
+
+        // 2. REPARTIR LOS GRUPOS ENTRE LOS HILOS
+        AtomicInteger contadorHilos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(paralelismo, r -> {
+            Thread t = new Thread(r, "costeo-worker-" + contadorHilos.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicInteger terminados = new AtomicInteger();
+        List<Future<ResultadoCosteoDto.ResultadoGrupo>> futuros = new ArrayList<>(grupos.size());
+        try {
+            for (GrupoCosteoKey key : grupos) {
+                MetodoCosteo metodo = metodos.getOrDefault(key.empresaId(), MetodoCosteo.FIFO);
+                futuros.add(executor.submit(() -> {
+                    ResultadoCosteoDto.ResultadoGrupo resultado = procesarGrupo(key, clasificacion, metodo);
+                    if (avance != null) {
+                        avance.accept(terminados.incrementAndGet(), grupos.size());
+                    }
+                    return resultado;
+                }));
+            }
+
+            // 3. RECOLECTAR RESULTADOS (en el mismo orden de envío)
+            List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>(futuros.size());
+            for (int i = 0; i < futuros.size(); i++) {
+                String clave = grupos.get(i).clave();
+                try {
+                    resultados.add(futuros.get(i).get());
+                } catch (ExecutionException e) {
+                    logger.error("Fallo inesperado costeando el grupo {}", clave, e.getCause());
+                    resultados.add(ResultadoCosteoDto.ResultadoGrupo.fallido(clave, 0, e.getCause().getMessage()));
+                }
+            }
+
+            ResultadoCosteoDto resultado = new ResultadoCosteoDto(resultados, paralelismo, Duration.ofNanos(System.nanoTime() - inicio));
+            logger.info("Costeo paralelo finalizado. {}", resultado);
+            return resultado;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuros.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("El costeo paralelo fue interrumpido.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Costea un grupo completo en su propio EntityManager y transacción.
+     * Si algo falla se revierte solo este grupo; el resto sigue su curso.
+     */
+    private ResultadoCosteoDto.ResultadoGrupo procesarGrupo(GrupoCosteoKey key, ClasificacionMovimientos clasificacion, MetodoCosteo metodo) {
+        String clave = key.clave();
+        EntityManager workerEm = LibraryInitializer.getEntityManager();
+        EntityTransaction tx = workerEm.getTransaction();
+        try {
+            tx.begin();
+            long inicioCarga = System.nanoTime();
+            List<TransaccionEntity> transacciones = FifoCostingEngine.findUncostedTransactionsByGroup(workerEm, key);
+            long nanosCarga = System.nanoTime() - inicioCarga;
+            logger.info("Procesando grupo de costeo: {} ({} transacciones)", clave, transacciones.size());
+
+            CostingGroupProcessor groupProcessor = new CostingGroupProcessor(
+                    key,
+                    transacciones,
+                    workerEm,
+                    kardexRepositoryFactory.get(),
+                    saldoRepositoryFactory.get(),
+                    clasificacion,
+                    metodo
+            );
+            groupProcessor.setNanosCarga(nanosCarga);
+            ResultadoCosteoDto.ResultadoGrupo resultado = groupProcessor.process();
+
+            workerEm.flush();
+            tx.commit();
+            return resultado;
+
+        } catch (Exception e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            logger.error("Error costeando el grupo {}. Se revierte solo este grupo.", clave, e);
+            return ResultadoCosteoDto.ResultadoGrupo.fallido(clave, 0, e.getMessage());
+        } finally {
+            workerEm.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.costing.engine;
+
+import com.model.entities.GrupoCosteoEntity;
+import com.model.entities.KardexEntity;
+import com.model.entities.TransaccionEntity;
+import com.model.enums.TipoEnumsCosteo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Costeo por promedio ponderado móvil. El estado del grupo son solo su saldo de
+ * cantidad y de valor: cada ingreso los aumenta y cada egreso sale al costo promedio
+ * vigente. Cada movimiento produce una única fila de kardex, sin lotes abiertos ni
+ * detalle de consumos; el resultado realizado de una venta no referencia un ingreso.
+ */
+public class PromedioPonderadoHandler {
+
+    public record PromedioResult(BigDecimal nuevoSaldoCantidad, BigDecimal nuevoSaldoValor) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PromedioPonderadoHandler.class);
+    private static final int ROUNDING_SCALE = 6;
+    private static final BigDecimal TOLERANCIA_AJUSTE = FixedPoint.toBigDecimal(FifoKernel.TOLERANCIA_AJUSTE);
+
+    private final EntityManager em;
+    private final CostingOutputSink sink;
+    private final ClasificacionMovimientos clasificacion;
+    private final KardexFactory kardexFactory = new KardexFactory();
+
+    public PromedioPonderadoHandler(EntityManager em, CostingOutputSink sink, ClasificacionMovimientos clasificacion) {
+        this.em = em;
+        this.sink = sink;
+        this.clasificacion = clasificacion;
+    }
+
+    /**
+     * Aplica un movimiento al saldo del grupo y encola su fila de kardex.
+     * @throws InsufficientBalanceException si un egreso excede el saldo más allá de la tolerancia.
+     */
+    public PromedioResult handle(TransaccionEntity tx, TipoEnumsCosteo tipoContable, BigDecimal saldoCantidad,
+                                 BigDecimal saldoValor, GrupoCosteoEntity grupo) throws InsufficientBalanceException {
+        if (tipoContable == TipoEnumsCosteo.INGRESO) {
+            return ingreso(tx, saldoCantidad, saldoValor, grupo);
+        }
+        if (tipoContable == TipoEnumsCosteo.EGRESO) {
+            return egreso(tx, saldoCantidad, saldoValor, grupo);
+        }
+        return new PromedioResult(saldoCantidad, saldoValor);
+    }
+
+    private PromedioResult ingreso(TransaccionEntity tx, BigDecimal saldoCantidad, BigDecimal saldoValor, GrupoCosteoEntity grupo) {
+        validateIngreso(tx, grupo);
+        BigDecimal nuevaCantidad = saldoCantidad.add(tx.getCantidad());
+        BigDecimal nuevoValor = saldoValor.add(tx.getCantidad().multiply(tx.getPrecio()));
+        sink.agregarKardex(sinLote(kardexFactory.createFromIngreso(tx, nuevaCantidad, nuevoValor, grupo)));
+        return new PromedioResult(nuevaCantidad, nuevoValor);
+    }
+
+    // Mismas reglas que IngresoHandler: un ingreso sin cantidad o con precio negativo no entra al saldo
+    private void validateIngreso(TransaccionEntity tx, GrupoCosteoEntity grupo) {
+        if (tx == null) {
+            throw new IllegalArgumentException("La transacción no puede ser nula");
+        }
+        if (grupo == null) {
+            throw new IllegalArgumentException("El grupo de costeo no puede ser nulo");
+        }
+        if (tx.getCantidad() == null || tx.getCantidad().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("La cantidad del ingreso debe ser mayor a cero");
+        }
+        if (tx.getPrecio() == null || tx.getPrecio().compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("El precio del ingreso no puede ser negativo");
+        }
+    }
+
+    private PromedioResult egreso(TransaccionEntity egreso, BigDecimal saldoCantidad, BigDecimal saldoValor,
+                                  GrupoCosteoEntity grupo) throws InsufficientBalanceException {
+        BigDecimal cantidad = egreso.getCantidad();
+
+        // 1. Faltante dentro de la tolerancia: se cubre con un ingreso de ajuste al precio del egreso, como en FIFO
+        BigDecimal faltante = cantidad.subtract(saldoCantidad);
+        if (faltante.signum() > 0) {
+            if (faltante.compareTo(TOLERANCIA_AJUSTE) > 0) {
+                throw new InsufficientBalanceException("Saldo insuficiente. Cantidad requerida: "
+                        + cantidad + ", disponible: " + saldoCantidad);
+            }
+            logger.warn("Saldo casi suficiente para Tx ID: {}. Creando ajuste automático por tolerancia de {}", egreso.getId(), faltante);
+            TransaccionEntity ajusteTx = EgresoHandler.crearTransaccionAjuste(em, clasificacion, egreso, faltante, egreso.getPrecio());
+            saldoCantidad = saldoCantidad.add(faltante);
+            saldoValor = saldoValor.add(ajusteTx.getTotal());
+            sink.agregarKardex(sinLote(kardexFactory.createFromIngreso(ajusteTx, saldoCantidad, saldoValor, grupo)));
+        }
+
+        // 2. Salida al costo promedio; si se vende todo el saldo sale el valor completo, sin residuo de redondeo
+        BigDecimal costo = cantidad.compareTo(saldoCantidad) == 0
+                ? saldoValor
+                : saldoValor.multiply(cantidad).divide(saldoCantidad, ROUNDING_SCALE, RoundingMode.HALF_UP);
+        BigDecimal nuevaCantidad = saldoCantidad.subtract(cantidad);
+        BigDecimal nuevoValor = saldoValor.subtract(costo);
+
+        sink.agregarKardex(kardexFactory.createFromEgreso(egreso, cantidad, costo, nuevaCantidad, nuevoValor, grupo));
+        EgresoHandler.crearResultadoRealizado(sink, null, egreso, cantidad, costo, grupo);
+
+        return new PromedioResult(nuevaCantidad, nuevoValor);
+    }
+
+    /** Un ingreso promediado no abre lote: sin disponible no entra a lotes_abiertos. */
+    private static KardexEntity sinLote(KardexEntity kardex) {
+        kardex.setCantidadDisponible(null);
+        return kardex;
+    }
+}
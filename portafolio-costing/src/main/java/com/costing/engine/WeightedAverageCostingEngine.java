@@ -0,0 +1,76 @@
+package com.costing.engine;
+
+import com.costing.api.GrupoCosteoKey;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.entities.TransaccionEntity;
+import com.model.enums.MetodoCosteo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import com.model.interfaces.KardexApi;
+import com.model.interfaces.SaldoApi;
+import com.model.interfaces.TipoMovimiento;
+
+/**
+ * Costeo por promedio ponderado móvil. Recorre las transacciones del grupo en el mismo
+ * orden que {@link FifoCostingEngine}, pero su estado por grupo es solo el saldo de
+ * cantidad y valor: no lee ni escribe lotes abiertos, no genera detalle de costeo y
+ * escribe una sola fila de kardex por movimiento.
+ */
+public class WeightedAverageCostingEngine implements CostingStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeightedAverageCostingEngine.class);
+    private final EntityManager em;
+    private final KardexApi kardexRepository;
+    private final SaldoApi saldoRepository;
+    private final TipoMovimiento tipoMovimientoRepository;
+    private ClasificacionMovimientos clasificacion;
+
+    public WeightedAverageCostingEngine(EntityManager em, KardexApi kardexRepository,
+                                        SaldoApi saldoRepository,
+                                        TipoMovimiento tipoMovimientoRepository) {
+        this.em = em;
+        this.kardexRepository = kardexRepository;
+        this.saldoRepository = saldoRepository;
+        this.tipoMovimientoRepository = tipoMovimientoRepository;
+    }
+
+    @Override
+    public MetodoCosteo metodo() {
+        return MetodoCosteo.PROMEDIO_PONDERADO;
+    }
+
+    @Override
+    public ResultadoCosteoDto.ResultadoGrupo procesarGrupo(GrupoCosteoKey key) {
+        long inicioCarga = System.nanoTime();
+        List<TransaccionEntity> transacciones = FifoCostingEngine.findUncostedTransactionsByGroup(em, key);
+        long nanosCarga = System.nanoTime() - inicioCarga;
+        logger.info("Procesando grupo de costeo a costo promedio: {} ({} transacciones)", key, transacciones.size());
+        if (transacciones.isEmpty()) {
+            return ResultadoCosteoDto.ResultadoGrupo.exitoso(key.clave(), 0);
+        }
+
+        CostingGroupProcessor groupProcessor = new CostingGroupProcessor(
+            key,
+            transacciones,
+            em,
+            kardexRepository,
+            saldoRepository,
+            clasificacion(),
+            MetodoCosteo.PROMEDIO_PONDERADO
+        );
+        groupProcessor.setNanosCarga(nanosCarga);
+        ResultadoCosteoDto.ResultadoGrupo resultado = groupProcessor.process();
+        em.flush();
+        return resultado;
+    }
+
+    private ClasificacionMovimientos clasificacion() {
+        if (clasificacion == null) {
+            clasificacion = ClasificacionMovimientos.cargar(tipoMovimientoRepository);
+        }
+        return clasificacion;
+    }
+}
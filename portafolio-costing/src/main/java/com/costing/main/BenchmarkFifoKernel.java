@@ -0,0 +1,59 @@
+package com.costing.main;
+
+import com.costing.engine.FifoKernel;
+import com.costing.engine.FifoKernelOutput;
+import com.costing.engine.FixedPoint;
+import java.util.SplittableRandom;
+
+/**
+ * Cliente de prueba que mide el rendimiento del kernel FIFO sin base de datos.
+ * Genera un flujo sintético de compras y ventas y reporta movimientos por segundo.
+ * Uso: BenchmarkFifoKernel [movimientos] [rondas]
+ */
+public class BenchmarkFifoKernel {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("--- BENCHMARK KERNEL FIFO: " + n + " movimientos, " + rondas + " rondas ---");
+
+        long[] refs = new long[n];
+        boolean[] esIngreso = new boolean[n];
+        long[] cantidades = new long[n];
+        long[] precios = new long[n];
+        generarFlujo(refs, esIngreso, cantidades, precios);
+
+        FifoKernelOutput out = new FifoKernelOutput(n * 2);
+        for (int r = 1; r <= rondas; r++) {
+            out.clear();
+            FifoKernel kernel = new FifoKernel(0L, 0L, out);
+
+            long inicio = System.nanoTime();
+            int procesados = kernel.procesar(refs, esIngreso, cantidades, precios, n);
+            long nanos = System.nanoTime() - inicio;
+
+            System.out.printf("Ronda %d: %d movimientos, %d filas, %.1f ms, %.2f M mov/s, saldo=%s / %s%n",
+                    r, procesados, out.size(), nanos / 1e6, procesados / (nanos / 1e9) / 1e6,
+                    FixedPoint.toBigDecimal(kernel.saldoCantidad()), FixedPoint.toBigDecimal(kernel.saldoValor()));
+        }
+    }
+
+    /**
+     * Flujo con ~60% de compras; las ventas nunca superan el saldo acumulado.
+     */
+    private static void generarFlujo(long[] refs, boolean[] esIngreso, long[] cantidades, long[] precios) {
+        SplittableRandom random = new SplittableRandom(42);
+        long saldo = 0;
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = i + 1;
+            long precio = FixedPoint.ONE * (1_000 + random.nextInt(500));
+            long cantidad = FixedPoint.ONE * (1 + random.nextInt(100));
+            boolean ingreso = saldo < cantidad || random.nextInt(10) < 6;
+            esIngreso[i] = ingreso;
+            cantidades[i] = cantidad;
+            precios[i] = precio;
+            saldo += ingreso ? cantidad : -cantidad;
+        }
+    }
+}
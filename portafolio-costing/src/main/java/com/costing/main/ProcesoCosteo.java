@@ -1,6 +1,7 @@
 package com.costing.main;
 
 import com.model.dto.CostingGroupDTO;
+import com.model.dto.ResultadoCosteoDto;
 import com.model.exception.CostingException;
 import com.model.interfaces.CostingApi;
 import com.model.utiles.LibraryInitializer;
@@ -30,8 +31,12 @@ public class ProcesoCosteo {
 
             System.out.println("\n[TAREA 2] Ejecutando el costeo completo...");
             // Se reutiliza la misma instancia del servicio.
-            costingService.ejecutarCosteoCompleto();
-            System.out.println("=> Proceso de costeo completo finalizado con éxito.");
+            ResultadoCosteoDto resultado = costingService.ejecutarCosteoCompleto();
+            System.out.println("=> Proceso de costeo completo finalizado con éxito. " + resultado);
+            for (ResultadoCosteoDto.ResultadoGrupo lento : resultado.getGruposMasLentos(5)) {
+                System.out.println("   - " + lento.claveAgrupacion() + ": " + lento.nanosTotal() / 1_000_000 + " ms, "
+                        + lento.transaccionesProcesadas() + " transacciones");
+            }
 
             if (!grupos.isEmpty()) {
                 String claveEjemplo = grupos.get(0).getClaveAgrupacion();
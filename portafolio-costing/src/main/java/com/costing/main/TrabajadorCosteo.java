@@ -0,0 +1,62 @@
+package com.costing.main;
+
+import com.costing.api.CostingApiFactory;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.exception.CostingException;
+import com.model.interfaces.CostingApi;
+import com.model.utiles.LibraryInitializer;
+
+/**
+ * Proceso trabajador del costeo distribuido. Se pueden levantar varias JVM (en la misma
+ * máquina o en otras) contra la misma base de datos; se reparten los grupos por arriendo
+ * y cada una imprime al final el resumen consolidado de la corrida.
+ * Uso:
+ *   TrabajadorCosteo publicar                     publica una corrida y termina
+ *   TrabajadorCosteo trabajar [corrida] [segundos] se une a la corrida (por defecto, la última en curso)
+ *   TrabajadorCosteo publicar-y-trabajar [segundos]
+ */
+public class TrabajadorCosteo {
+
+    public static void main(String[] args) {
+        String modo = args.length > 0 ? args[0] : "trabajar";
+        System.out.println("--- TRABAJADOR DE COSTEO DISTRIBUIDO: " + modo + " ---");
+
+        LibraryInitializer.init();
+        try {
+            CostingApi costingService = CostingApiFactory.createService();
+            switch (modo) {
+                case "publicar" -> {
+                    Long corridaId = costingService.publicarCosteoDistribuido();
+                    System.out.println("=> Corrida publicada: " + corridaId);
+                }
+                case "trabajar" -> {
+                    Long corridaId = args.length > 1 && !"ultima".equals(args[1]) ? Long.valueOf(args[1]) : null;
+                    int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+                    imprimir(costingService.trabajarEnCosteoDistribuido(corridaId, segundos));
+                }
+                case "publicar-y-trabajar" -> {
+                    int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+                    Long corridaId = costingService.publicarCosteoDistribuido();
+                    System.out.println("=> Corrida publicada: " + corridaId);
+                    imprimir(costingService.trabajarEnCosteoDistribuido(corridaId, segundos));
+                }
+                default -> System.err.println("Modo desconocido: " + modo + ". Use publicar, trabajar o publicar-y-trabajar.");
+            }
+        } catch (CostingException e) {
+            System.err.println("\n!!! ERROR EN EL TRABAJADOR DE COSTEO !!!");
+            System.err.println("Mensaje: " + e.getMessage());
+            if (e.getCause() != null) {
+                e.getCause().printStackTrace();
+            }
+        } finally {
+            LibraryInitializer.shutdown();
+            System.out.println("\n--- TRABAJADOR FINALIZADO (Recursos liberados) ---");
+        }
+    }
+
+    private static void imprimir(ResultadoCosteoDto resumen) {
+        System.out.println("=> " + resumen);
+        resumen.getGruposFallidos()
+                .forEach(g -> System.out.println("   - Fallido: " + g.claveAgrupacion() + " | " + g.mensaje()));
+    }
+}
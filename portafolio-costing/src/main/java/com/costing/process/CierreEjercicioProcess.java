@@ -0,0 +1,211 @@
+package com.costing.process;
+
+import com.costing.engine.FifoCostingEngine;
+import com.model.enums.TipoEnumsCosteo;
+import com.model.interfaces.AbstractRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+
+/**
+ * Cierre de ejercicio: congela por grupo la cantidad, el valor y los lotes abiertos al
+ * 31 de diciembre en {@code cierres_contables} y {@code cierres_contables_lotes}. El
+ * costeo posterior parte del último cierre en vez de recorrer los años anteriores, y
+ * los movimientos de un ejercicio cerrado ya no se pueden revertir.
+ * <p>
+ * Opcionalmente mueve el kardex del ejercicio cerrado a {@code kardex_archivo}, salvo
+ * los ingresos que siguen siendo lotes abiertos, para mantener acotadas las tablas activas.
+ */
+public class CierreEjercicioProcess extends AbstractRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CierreEjercicioProcess.class);
+
+    // DDL: en MySQL confirma implícitamente, así que se ejecuta antes y fuera de la transacción del cierre
+    private static final String CREAR_KARDEX_ARCHIVO = "CREATE TABLE IF NOT EXISTS kardex_archivo LIKE kardex";
+
+    // Columnas explícitas: una columna nueva en kardex no rompe el archivo ni desalinea los valores
+    private static final String COLUMNAS_KARDEX = """
+        id, fecha_creacion, fecha_modificacion, creado_por, modificado_por, fecha_transaccion,
+        grupo_id, fecha_costeo, folio, costo_unitario, costo_total, saldo_cantidad, saldo_valor,
+        cuenta, cantidad, cantidad_disponible, tipo_contable, transaccion_id, custodio_id,
+        empresa_id, instrumento_id""";
+
+    // Mismo criterio que el motor: los movimientos NO_COSTEAR nunca se costean y no bloquean el cierre
+    private static final String PENDIENTES_HASTA = "SELECT COUNT(t) FROM TransaccionEntity t"
+            + FifoCostingEngine.FILTRO_PENDIENTES
+            + " AND t.fecha <= :fecha";
+
+    // Transacciones que el motor dejó para revisión (p. ej. egresos sin saldo suficiente)
+    private static final String EN_REVISION_HASTA = """
+        SELECT COUNT(t) FROM TransaccionEntity t
+        WHERE t.tipoMovimiento.movimientoContable.tipoContable <> :noCostear
+          AND t.paraRevision = true
+          AND t.ignorarEnCosteo = false
+          AND t.fecha <= :fecha
+        """;
+
+    // Último movimiento de cada grupo en el ejercicio (posterior al cierre anterior del grupo)
+    private static final String CERRAR_GRUPOS_CON_MOVIMIENTOS = """
+        INSERT INTO cierres_contables
+            (fecha_creacion, creado_por, ejercicio, fecha_cierre, clave_agrupacion,
+             empresa_id, cuenta, custodio_id, instrumento_id, cantidad_cierre, valor_cierre)
+        SELECT CURRENT_DATE, 'sistema', ?1, ?2, u.clave_agrupacion,
+               u.empresa_id, u.cuenta, u.custodio_id, u.instrumento_id, u.saldo_cantidad, u.saldo_valor
+        FROM (
+            SELECT g.clave_agrupacion, k.empresa_id, k.cuenta, k.custodio_id, k.instrumento_id,
+                   k.saldo_cantidad, k.saldo_valor,
+                   ROW_NUMBER() OVER (PARTITION BY k.grupo_id ORDER BY k.fecha_transaccion DESC, k.id DESC) AS rn
+            FROM kardex k
+            JOIN grupos_costeo g ON g.id = k.grupo_id
+            WHERE k.fecha_transaccion <= ?2
+              AND k.fecha_transaccion > COALESCE(
+                  (SELECT MAX(c.fecha_cierre) FROM cierres_contables c WHERE c.clave_agrupacion = g.clave_agrupacion),
+                  DATE '1000-01-01')
+        ) u
+        WHERE u.rn = 1
+        """;
+
+    // Los grupos sin movimientos en el ejercicio arrastran el cierre anterior
+    private static final String ARRASTRAR_CIERRE_ANTERIOR = """
+        INSERT INTO cierres_contables
+            (fecha_creacion, creado_por, ejercicio, fecha_cierre, clave_agrupacion,
+             empresa_id, cuenta, custodio_id, instrumento_id, cantidad_cierre, valor_cierre)
+        SELECT CURRENT_DATE, 'sistema', ?1, ?2, c.clave_agrupacion,
+               c.empresa_id, c.cuenta, c.custodio_id, c.instrumento_id, c.cantidad_cierre, c.valor_cierre
+        FROM cierres_contables c
+        WHERE c.ejercicio = ?1 - 1
+          AND NOT EXISTS (
+              SELECT 1 FROM cierres_contables n
+              WHERE n.ejercicio = ?1 AND n.clave_agrupacion = c.clave_agrupacion
+          )
+        """;
+
+    // Disponible de cada ingreso a la fecha de cierre: lo ingresado menos lo consumido hasta esa fecha.
+    // Solo empresas FIFO: a costo promedio no hay lotes y basta el saldo congelado.
+    private static final String CONGELAR_LOTES = """
+        INSERT INTO cierres_contables_lotes
+            (fecha_creacion, creado_por, cierre_id, transaccion_id, fecha_transaccion, cantidad_disponible, costo_unitario)
+        SELECT CURRENT_DATE, 'sistema', c.id, k.transaccion_id, k.fecha_transaccion,
+               k.cantidad - COALESCE(u.usada, 0), k.costo_unitario
+        FROM cierres_contables c
+        JOIN empresas e ON e.id = c.empresa_id
+        JOIN grupos_costeo g ON g.clave_agrupacion = c.clave_agrupacion
+        JOIN (
+            SELECT grupo_id, transaccion_id, fecha_transaccion, cantidad, costo_unitario
+            FROM kardex WHERE tipo_contable = 'INGRESO'
+            UNION ALL
+            SELECT grupo_id, transaccion_id, fecha_transaccion, cantidad, costo_unitario
+            FROM kardex_archivo WHERE tipo_contable = 'INGRESO'
+        ) k ON k.grupo_id = g.id
+           AND k.fecha_transaccion <= c.fecha_cierre
+        LEFT JOIN (
+            SELECT d.ingreso_id, SUM(d.cantidad_usada) AS usada
+            FROM detalle_costeos d
+            JOIN transacciones te ON te.id = d.egreso_id
+            WHERE te.fecha <= ?2
+            GROUP BY d.ingreso_id
+        ) u ON u.ingreso_id = k.transaccion_id
+        WHERE c.ejercicio = ?1
+          AND COALESCE(e.metodo_costeo, 'FIFO') = 'FIFO'
+          AND k.cantidad - COALESCE(u.usada, 0) > 0
+        """;
+
+    private static final String ARCHIVAR_KARDEX = """
+        INSERT INTO kardex_archivo (%1$s)
+        SELECT %1$s FROM kardex k
+        WHERE k.fecha_transaccion <= ?1
+          AND NOT EXISTS (SELECT 1 FROM lotes_abiertos la WHERE la.kardex_id = k.id)
+        """.formatted(COLUMNAS_KARDEX);
+
+    private static final String ELIMINAR_KARDEX_ARCHIVADO = """
+        DELETE k FROM kardex k
+        WHERE k.fecha_transaccion <= ?1
+          AND NOT EXISTS (SELECT 1 FROM lotes_abiertos la WHERE la.kardex_id = k.id)
+        """;
+
+    public CierreEjercicioProcess() {
+        super();
+    }
+
+    /**
+     * Cierra un ejercicio para todos los grupos con historia.
+     * @param ejercicio Año a cerrar; los ejercicios se cierran en orden.
+     * @param archivarKardex Si es true, mueve el kardex del ejercicio a {@code kardex_archivo}.
+     * @return el número de grupos cerrados.
+     * @throws IllegalStateException si el ejercicio ya está cerrado, hay uno posterior cerrado,
+     *         falta cerrar el anterior o quedan transacciones sin costear o para revisión hasta
+     *         la fecha de cierre.
+     */
+    public int cerrarEjercicio(int ejercicio, boolean archivarKardex) {
+        LocalDate fechaCierre = LocalDate.of(ejercicio, 12, 31);
+        executeInTransaction(em -> {
+            em.createNativeQuery(CREAR_KARDEX_ARCHIVO).executeUpdate();
+        });
+
+        return executeInTransaction(em -> {
+            validarCierre(em, ejercicio, fechaCierre);
+
+            // 1. Cantidad y valor al cierre de cada grupo
+            int grupos = em.createNativeQuery(CERRAR_GRUPOS_CON_MOVIMIENTOS)
+                    .setParameter(1, ejercicio)
+                    .setParameter(2, fechaCierre)
+                    .executeUpdate();
+            grupos += em.createNativeQuery(ARRASTRAR_CIERRE_ANTERIOR)
+                    .setParameter(1, ejercicio)
+                    .setParameter(2, fechaCierre)
+                    .executeUpdate();
+
+            // 2. Lotes abiertos a la fecha de cierre
+            int lotes = em.createNativeQuery(CONGELAR_LOTES)
+                    .setParameter(1, ejercicio)
+                    .setParameter(2, fechaCierre)
+                    .executeUpdate();
+
+            // 3. Archivo opcional del kardex cerrado (los lotes aún abiertos se quedan en kardex)
+            int archivados = 0;
+            if (archivarKardex) {
+                em.createNativeQuery(ARCHIVAR_KARDEX)
+                        .setParameter(1, fechaCierre)
+                        .executeUpdate();
+                archivados = em.createNativeQuery(ELIMINAR_KARDEX_ARCHIVADO)
+                        .setParameter(1, fechaCierre)
+                        .executeUpdate();
+            }
+
+            logger.info("Ejercicio {} cerrado: {} grupos, {} lotes abiertos congelados, {} filas de kardex archivadas.",
+                    ejercicio, grupos, lotes, archivados);
+            return grupos;
+        });
+    }
+
+    private void validarCierre(EntityManager em, int ejercicio, LocalDate fechaCierre) {
+        Integer ultimo = em.createQuery("SELECT MAX(c.ejercicio) FROM CierreContableEntity c", Integer.class)
+                .getSingleResult();
+        if (ultimo != null && ultimo >= ejercicio) {
+            throw new IllegalStateException("El ejercicio " + ejercicio + " ya está cerrado o hay un ejercicio posterior cerrado (" + ultimo + ").");
+        }
+        if (ultimo != null && ultimo != ejercicio - 1) {
+            throw new IllegalStateException("Los ejercicios se cierran en orden: falta cerrar " + (ultimo + 1) + ".");
+        }
+        long pendientes = contarHasta(em, PENDIENTES_HASTA, fechaCierre);
+        if (pendientes > 0) {
+            throw new IllegalStateException("No se puede cerrar el ejercicio " + ejercicio + ": hay "
+                    + pendientes + " transacciones sin costear hasta el " + fechaCierre + ".");
+        }
+        long enRevision = contarHasta(em, EN_REVISION_HASTA, fechaCierre);
+        if (enRevision > 0) {
+            throw new IllegalStateException("No se puede cerrar el ejercicio " + ejercicio + ": hay "
+                    + enRevision + " transacciones para revisión hasta el " + fechaCierre
+                    + "; corríjalas con un ajuste antes de cerrar.");
+        }
+    }
+
+    private static long contarHasta(EntityManager em, String jpql, LocalDate fechaCierre) {
+        return em.createQuery(jpql, Long.class)
+                .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
+                .setParameter("fecha", fechaCierre)
+                .getSingleResult();
+    }
+}
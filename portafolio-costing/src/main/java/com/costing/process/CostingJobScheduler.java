@@ -0,0 +1,476 @@
+package com.costing.process;
+
+import com.model.dto.ResultadoCosteoDto;
+import com.model.dto.TrabajoCosteoDto;
+import com.model.enums.EstadoTrabajoCosteo;
+import com.model.enums.PrioridadCosteo;
+import com.model.interfaces.CostingApi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cola de trabajos de costeo compartida por la interfaz y los procesos por lotes del mismo
+ * proceso Java. Los trabajos se toman por prioridad (INTERACTIVA, NORMAL, MASIVA) y luego
+ * por orden de llegada, con un número fijo de trabajadores.
+ * <p>
+ * Reglas de la cola:
+ * <ul>
+ *   <li>Dos trabajos sobre el mismo grupo nunca corren a la vez, ni un trabajo de grupo junto a un costeo completo.</li>
+ *   <li>Un costeo completo espera a que no haya nada en curso; mientras espera, los trabajos NORMAL y MASIVA
+ *       posteriores no lo adelantan (sí los INTERACTIVA, que van antes en la cola).</li>
+ *   <li>Un pedido repetido de un trabajo que sigue pendiente se suma a él en vez de encolar otro.</li>
+ * </ul>
+ * Cada trabajador usa su propio {@link CostingApi}, porque cada instancia mantiene su EntityManager.
+ */
+public class CostingJobScheduler implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostingJobScheduler.class);
+    public static final int DEFAULT_WORKERS = 2;
+    private static final int TERMINADOS_EN_HISTORIAL = 50;
+
+    /**
+     * Lo que hace un trabajo con el servicio de costeo del trabajador que lo toma.
+     * Devuelve el resumen del costeo, si lo hay, o null.
+     */
+    @FunctionalInterface
+    public interface AccionCosteo {
+        Object ejecutar(CostingApi api) throws Exception;
+    }
+
+    private enum Tipo { COMPLETO, GRUPO, GRUPOS, AFECTADOS, AJUSTE }
+
+    private static final class Trabajo {
+        final long id;
+        final Tipo tipo;
+        final String descripcion;
+        final String claveGrupo;
+        final LocalDateTime encolado = LocalDateTime.now();
+        final Map<String, LocalDate> gruposAfectados;
+        final Set<String> claves;
+        AccionCosteo accion;
+        PrioridadCosteo prioridad;
+        EstadoTrabajoCosteo estado = EstadoTrabajoCosteo.PENDIENTE;
+        int solicitudes = 1;
+        LocalDateTime inicio;
+        LocalDateTime fin;
+        String mensaje;
+        ResultadoCosteoDto resultado;
+        Thread hilo;
+
+        Trabajo(long id, Tipo tipo, String descripcion, String claveGrupo, PrioridadCosteo prioridad,
+                Map<String, LocalDate> gruposAfectados, AccionCosteo accion) {
+            this(id, tipo, descripcion, claveGrupo, prioridad, gruposAfectados, null, accion);
+        }
+
+        Trabajo(long id, Tipo tipo, String descripcion, String claveGrupo, PrioridadCosteo prioridad,
+                Map<String, LocalDate> gruposAfectados, Set<String> claves, AccionCosteo accion) {
+            this.id = id;
+            this.tipo = tipo;
+            this.descripcion = descripcion;
+            this.claveGrupo = claveGrupo;
+            this.prioridad = prioridad;
+            this.gruposAfectados = gruposAfectados;
+            this.claves = claves;
+            this.accion = accion;
+        }
+
+        /** Grupos que el trabajo bloquea mientras corre; null si los bloquea todos. */
+        Set<String> grupos() {
+            return switch (tipo) {
+                case COMPLETO -> null;
+                case AFECTADOS -> gruposAfectados.keySet();
+                case GRUPOS -> claves;
+                default -> Set.of(claveGrupo);
+            };
+        }
+
+        boolean terminado() {
+            return estado != EstadoTrabajoCosteo.PENDIENTE && estado != EstadoTrabajoCosteo.EN_CURSO;
+        }
+
+        TrabajoCosteoDto toDto() {
+            return new TrabajoCosteoDto(id, descripcion, claveGrupo, prioridad, estado, solicitudes,
+                    encolado, inicio, fin, mensaje, resultado);
+        }
+    }
+
+    // El ID es correlativo, así que también da el orden de llegada
+    private static final Comparator<Trabajo> ORDEN = Comparator
+            .comparing((Trabajo t) -> t.prioridad)
+            .thenComparingLong(t -> t.id);
+
+    private final Supplier<CostingApi> serviciosTrabajador;
+    private final Runnable alTerminar;
+    private final List<Thread> trabajadores = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition cambio = lock.newCondition();
+    private final List<Trabajo> pendientes = new ArrayList<>();
+    private final List<Trabajo> enCurso = new ArrayList<>();
+    private final Map<Long, Trabajo> porId = new HashMap<>();
+    private final Deque<Trabajo> terminados = new ArrayDeque<>();
+    private long ultimoId;
+    private boolean cerrado;
+
+    /**
+     * @param workers Número de trabajos en simultáneo (0 o menos usa {@link #DEFAULT_WORKERS}).
+     * @param serviciosTrabajador Crea el servicio de costeo de cada trabajador.
+     * @param alTerminar Se ejecuta tras cada trabajo, fuera del lock; puede ser null.
+     */
+    public CostingJobScheduler(int workers, Supplier<CostingApi> serviciosTrabajador, Runnable alTerminar) {
+        this.serviciosTrabajador = serviciosTrabajador;
+        this.alTerminar = alTerminar;
+        int n = workers > 0 ? workers : DEFAULT_WORKERS;
+        for (int i = 1; i <= n; i++) {
+            Thread t = new Thread(this::trabajar, "costeo-cola-" + i);
+            t.setDaemon(true);
+            trabajadores.add(t);
+            t.start();
+        }
+        logger.info("Cola de costeo iniciada con {} trabajadores.", n);
+    }
+
+    // --- Encolar ---
+
+    public long encolarCosteoCompleto(AccionCosteo accion) {
+        lock.lock();
+        try {
+            for (Trabajo t : pendientes) {
+                if (t.tipo == Tipo.COMPLETO) {
+                    t.solicitudes++;
+                    return t.id;
+                }
+            }
+            return agregar(new Trabajo(++ultimoId, Tipo.COMPLETO, "Costeo completo", null,
+                    PrioridadCosteo.MASIVA, null, accion));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long encolarRecosteoGrupo(String claveGrupo, PrioridadCosteo prioridad, AccionCosteo accion) {
+        PrioridadCosteo p = prioridad != null ? prioridad : PrioridadCosteo.NORMAL;
+        lock.lock();
+        try {
+            for (Trabajo t : pendientes) {
+                if (t.tipo == Tipo.GRUPO && t.claveGrupo.equals(claveGrupo)) {
+                    t.solicitudes++;
+                    if (p.compareTo(t.prioridad) < 0) {
+                        t.prioridad = p;
+                        cambio.signalAll();
+                    }
+                    return t.id;
+                }
+            }
+            return agregar(new Trabajo(++ultimoId, Tipo.GRUPO, "Recosteo del grupo " + claveGrupo,
+                    claveGrupo, p, null, accion));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encola un ajuste manual sobre un grupo. No se combina con otros pedidos.
+     */
+    public long encolarAjuste(String descripcion, String claveGrupo, AccionCosteo accion) {
+        lock.lock();
+        try {
+            return agregar(new Trabajo(++ultimoId, Tipo.AJUSTE, descripcion, claveGrupo,
+                    PrioridadCosteo.INTERACTIVA, null, accion));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encola un trabajo sobre un conjunto fijo de grupos, que bloquea mientras corre.
+     * No se combina con otros pedidos.
+     */
+    public long encolarGrupos(String descripcion, Set<String> claves, PrioridadCosteo prioridad, AccionCosteo accion) {
+        lock.lock();
+        try {
+            return agregar(new Trabajo(++ultimoId, Tipo.GRUPOS, descripcion, null,
+                    prioridad != null ? prioridad : PrioridadCosteo.NORMAL, null, Set.copyOf(claves), accion));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encola el costeo de grupos afectados por una carga. Si hay uno pendiente, se le suman
+     * los grupos (con la fecha más antigua de ambos) y su acción pasa a costear la unión.
+     * @param crearAccion Construye la acción a partir de los grupos finales del trabajo.
+     */
+    public long encolarGruposAfectados(Map<String, LocalDate> gruposAfectados,
+                                       Function<Map<String, LocalDate>, AccionCosteo> crearAccion) {
+        lock.lock();
+        try {
+            for (Trabajo t : pendientes) {
+                if (t.tipo == Tipo.AFECTADOS) {
+                    gruposAfectados.forEach((clave, fecha) -> t.gruposAfectados.merge(clave, fecha,
+                            (a, b) -> a.isBefore(b) ? a : b));
+                    t.accion = crearAccion.apply(t.gruposAfectados);
+                    t.solicitudes++;
+                    return t.id;
+                }
+            }
+            Map<String, LocalDate> grupos = new LinkedHashMap<>(gruposAfectados);
+            return agregar(new Trabajo(++ultimoId, Tipo.AFECTADOS,
+                    "Costeo de grupos afectados por la carga", null, PrioridadCosteo.NORMAL, grupos, crearAccion.apply(grupos)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long agregar(Trabajo trabajo) {
+        if (cerrado) {
+            throw new IllegalStateException("La cola de costeo está cerrada.");
+        }
+        pendientes.add(trabajo);
+        porId.put(trabajo.id, trabajo);
+        cambio.signalAll();
+        logger.info("Trabajo de costeo #{} encolado: {} ({}).", trabajo.id, trabajo.descripcion, trabajo.prioridad);
+        return trabajo.id;
+    }
+
+    // --- Consultar y cancelar ---
+
+    public TrabajoCosteoDto consultar(long id) {
+        lock.lock();
+        try {
+            Trabajo t = porId.get(id);
+            return t != null ? t.toDto() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<TrabajoCosteoDto> listar() {
+        lock.lock();
+        try {
+            return porId.values().stream()
+                    .sorted(Comparator.comparingLong(t -> t.id))
+                    .map(Trabajo::toDto)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera a que el trabajo termine.
+     * @return su estado final, o null si no existe.
+     */
+    public TrabajoCosteoDto esperar(long id) throws InterruptedException {
+        lock.lock();
+        try {
+            Trabajo t = porId.get(id);
+            if (t == null) {
+                return null;
+            }
+            while (!t.terminado()) {
+                cambio.await();
+            }
+            return t.toDto();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean cancelar(long id) {
+        lock.lock();
+        try {
+            Trabajo t = porId.get(id);
+            if (t == null) {
+                return false;
+            }
+            if (t.estado == EstadoTrabajoCosteo.PENDIENTE) {
+                pendientes.remove(t);
+                terminar(t, EstadoTrabajoCosteo.CANCELADO, "Cancelado antes de empezar.");
+                return true;
+            }
+            if (t.estado == EstadoTrabajoCosteo.EN_CURSO && t.tipo == Tipo.COMPLETO) {
+                // El costeo completo revisa la interrupción entre grupos y revierte el grupo en curso
+                t.hilo.interrupt();
+                return true;
+            }
+            // Los demás trabajos en curso no se interrumpen: un recosteo ya borró el costeo de sus
+            // grupos y detenerlo a medias los dejaría sin costear
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Trabajadores ---
+
+    private void trabajar() {
+        CostingApi api = null;
+        while (true) {
+            Trabajo trabajo;
+            lock.lock();
+            try {
+                while ((trabajo = siguiente()) == null) {
+                    if (cerrado) {
+                        return;
+                    }
+                    cambio.await();
+                }
+                pendientes.remove(trabajo);
+                enCurso.add(trabajo);
+                trabajo.estado = EstadoTrabajoCosteo.EN_CURSO;
+                trabajo.inicio = LocalDateTime.now();
+                trabajo.hilo = Thread.currentThread();
+                cambio.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (api == null) {
+                api = serviciosTrabajador.get();
+            }
+            logger.info("Trabajo de costeo #{} iniciado: {}.", trabajo.id, trabajo.descripcion);
+            EstadoTrabajoCosteo estado;
+            String mensaje = null;
+            Object salida = null;
+            try {
+                salida = trabajo.accion.ejecutar(api);
+                estado = EstadoTrabajoCosteo.COMPLETADO;
+            } catch (Exception e) {
+                if (esCancelacion(e)) {
+                    estado = EstadoTrabajoCosteo.CANCELADO;
+                    mensaje = "Cancelado durante la ejecución; el costeo en curso se revirtió.";
+                } else {
+                    estado = EstadoTrabajoCosteo.FALLIDO;
+                    mensaje = e.getMessage();
+                    logger.error("Falló el trabajo de costeo #{}: {}", trabajo.id, trabajo.descripcion, e);
+                }
+            }
+
+            lock.lock();
+            try {
+                trabajo.hilo = null;
+                enCurso.remove(trabajo);
+                if (salida instanceof ResultadoCosteoDto resultado) {
+                    trabajo.resultado = resultado;
+                }
+                terminar(trabajo, estado, mensaje);
+            } finally {
+                lock.unlock();
+            }
+            // Una cancelación que llegó cuando el trabajo ya terminaba no debe afectar al siguiente
+            Thread.interrupted();
+            if (alTerminar != null) {
+                alTerminar.run();
+            }
+        }
+    }
+
+    /**
+     * El primer trabajo pendiente, en orden de la cola, que no choca con los que están en curso.
+     * Debe llamarse con el lock tomado.
+     */
+    private Trabajo siguiente() {
+        if (cerrado || pendientes.isEmpty()) {
+            return null;
+        }
+        boolean completoEnCurso = false;
+        Set<String> gruposOcupados = new HashSet<>();
+        for (Trabajo t : enCurso) {
+            Set<String> grupos = t.grupos();
+            if (grupos == null) {
+                completoEnCurso = true;
+            } else {
+                gruposOcupados.addAll(grupos);
+            }
+        }
+        if (completoEnCurso) {
+            return null;
+        }
+
+        List<Trabajo> orden = new ArrayList<>(pendientes);
+        orden.sort(ORDEN);
+        for (Trabajo t : orden) {
+            Set<String> grupos = t.grupos();
+            if (grupos == null) {
+                if (enCurso.isEmpty()) {
+                    return t;
+                }
+                // Un costeo completo bloqueado no se deja adelantar por trabajos de menor prioridad
+                return null;
+            }
+            if (grupos.stream().noneMatch(gruposOcupados::contains)) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private void terminar(Trabajo trabajo, EstadoTrabajoCosteo estado, String mensaje) {
+        trabajo.estado = estado;
+        trabajo.mensaje = mensaje;
+        trabajo.fin = LocalDateTime.now();
+        terminados.addLast(trabajo);
+        while (terminados.size() > TERMINADOS_EN_HISTORIAL) {
+            porId.remove(terminados.removeFirst().id);
+        }
+        cambio.signalAll();
+        logger.info("Trabajo de costeo #{} {}: {}.", trabajo.id, estado, trabajo.descripcion);
+    }
+
+    private static boolean esCancelacion(Throwable e) {
+        for (Throwable c = e; c != null; c = c.getCause()) {
+            if (c instanceof CancellationException || c instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancela los trabajos pendientes y espera a que terminen los que están en curso.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            cerrado = true;
+            for (Trabajo t : new ArrayList<>(pendientes)) {
+                pendientes.remove(t);
+                terminar(t, EstadoTrabajoCosteo.CANCELADO, "La cola de costeo se cerró.");
+            }
+            cambio.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread t : trabajadores) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        logger.info("Cola de costeo cerrada.");
+    }
+}
@@ -4,16 +4,38 @@ import com.model.interfaces.AbstractRepository;
 import com.model.interfaces.CostingApi;
 import com.model.dto.AjustePropuestoDto;
 import com.model.dto.CostingGroupDTO;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.dto.SimulacionCosteoDto;
+import com.model.dto.TiempoGrupoCosteoDto;
+import com.model.dto.TrabajoCosteoDto;
+import com.costing.engine.CheckpointCostingEngine;
+import com.costing.engine.DistributedCostingEngine;
 import com.costing.engine.FifoCostingEngine;
+import com.costing.engine.CostingSimulator;
+import com.costing.engine.CostingStrategySelector;
+import com.costing.api.GrupoCosteoKey;
+import com.costing.engine.ParallelCostingEngine;
+import com.model.entities.EmpresaEntity;
 import com.model.entities.KardexEntity;
 import com.model.entities.TransaccionEntity;
+import com.model.enums.MetodoCosteo;
+import com.model.enums.PrioridadCosteo;
 import com.model.enums.TipoAjuste;
+import com.model.enums.TipoEnumsCosteo;
 import com.model.exception.CostingException;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.model.interfaces.KardexApi;
@@ -24,7 +46,7 @@ import jakarta.persistence.EntityManager;
 /**
  * Implementación central corregida de la lógica de negocio para el módulo de costeo.
  */
-public class CostingServiceImpl extends AbstractRepository implements CostingApi {
+public class CostingServiceImpl extends AbstractRepository implements CostingApi, AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(CostingServiceImpl.class);
 
@@ -34,6 +56,20 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
     private final ResetCosteoServiceImpl resetCosteoRepository;
     private final AjustesProcess ajustesProcess;
     private final TipoMovimiento tipoMovimientoRepository; 
+    private final HistorialCosteoProcess historialCosteo = new HistorialCosteoProcess();
+
+    // Cola de trabajos; se crea con el primer trabajo encolado
+    private CostingJobScheduler colaCosteo;
+
+    // Historias cargadas para simular, por grupo: se reutilizan mientras el usuario edita los movimientos
+    private static final int SIMULACIONES_EN_CACHE = 16;
+    private static final Duration VIGENCIA_SIMULACION = Duration.ofSeconds(30);
+    private final Map<String, CostingSimulator> simulaciones = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CostingSimulator> eldest) {
+            return size() > SIMULACIONES_EN_CACHE;
+        }
+    };
 
     // --- ÚNICO CONSTRUCTOR ---
     public CostingServiceImpl(KardexApi kardexRepo,
@@ -50,22 +86,92 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
     }
 
     @Override
-    public void ejecutarCosteoCompleto() throws CostingException {
+    public ResultadoCosteoDto ejecutarCosteoCompleto() throws CostingException {
+        return ejecutarCosteoCompleto(null);
+    }
+
+    @Override
+    public ResultadoCosteoDto ejecutarCosteoCompleto(MetodoCosteo metodo) throws CostingException {
         try {
-            executeInTransaction(entityManager -> {
+            resetCosteoRepository.inicializarTablasDerivadas();
+            ResultadoCosteoDto resultado = executeInTransaction(entityManager -> {
                 // Crear engine con el EntityManager actual
-                FifoCostingEngine engine = new FifoCostingEngine(entityManager, 
-                    new KardexServiceImpl(), 
-                    new SaldosServiceImpl(), 
-                    new TipoMovimientoServiceImpl());
-                engine.procesarCosteo();
-                return null;
+                CostingStrategySelector engine = new CostingStrategySelector(entityManager,
+                    new KardexServiceImpl(),
+                    new SaldosServiceImpl(),
+                    new TipoMovimientoServiceImpl(),
+                    metodo);
+                return engine.procesarCosteo();
             });
+            historialCosteo.registrar("COMPLETO", resultado);
+            return resultado;
         } catch (Exception e) {
             throw new CostingException("Falló el proceso de costeo completo.", e);
         }
     }
 
+    @Override
+    public void asignarMetodoCosteo(Long empresaId, MetodoCosteo metodo) throws CostingException {
+        invalidarSimulaciones();
+        try {
+            executeInTransaction(entityManager -> {
+                EmpresaEntity empresa = entityManager.find(EmpresaEntity.class, empresaId);
+                if (empresa == null) {
+                    throw new IllegalArgumentException("No se encontró la empresa con ID: " + empresaId);
+                }
+                empresa.setMetodoCosteo(metodo);
+                return null;
+            });
+            logger.warn("Empresa {} pasa a costeo {}. Sus grupos ya costeados deben recostearse completos.",
+                    empresaId, metodo != null ? metodo : MetodoCosteo.FIFO);
+        } catch (Exception e) {
+            throw new CostingException("No se pudo asignar el método de costeo a la empresa " + empresaId, e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto ejecutarCosteoPorBloques(int gruposPorBloque) throws CostingException {
+        try {
+            resetCosteoRepository.inicializarTablasDerivadas();
+            ResultadoCosteoDto resultado = crearCheckpointEngine(gruposPorBloque).iniciar();
+            historialCosteo.registrar("BLOQUES", resultado);
+            return resultado;
+        } catch (Exception e) {
+            throw new CostingException("Falló el proceso de costeo por bloques.", e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto reanudarCosteo(Long corridaId, int gruposPorBloque) throws CostingException {
+        try {
+            resetCosteoRepository.inicializarTablasDerivadas();
+            ResultadoCosteoDto resultado = crearCheckpointEngine(gruposPorBloque).reanudar(corridaId);
+            historialCosteo.registrar("BLOQUES", resultado);
+            return resultado;
+        } catch (Exception e) {
+            throw new CostingException("Falló la reanudación del costeo" + (corridaId != null ? " de la corrida " + corridaId : "") + ".", e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto ejecutarCosteoParalelo(int paralelismo) throws CostingException {
+        try {
+            resetCosteoRepository.inicializarTablasDerivadas();
+            // Cada grupo abre y confirma su propia transacción; aquí solo se descubren los grupos.
+            ResultadoCosteoDto resultado = executeReadOnly(entityManager -> {
+                ParallelCostingEngine engine = new ParallelCostingEngine(entityManager, paralelismo,
+                    KardexServiceImpl::new,
+                    SaldosServiceImpl::new,
+                    TipoMovimientoServiceImpl::new);
+                return engine.procesarCosteo();
+            });
+            historialCosteo.registrar("PARALELO", resultado);
+            return resultado;
+        } catch (Exception e) {
+            throw new CostingException("Falló el proceso de costeo paralelo.", e);
+        }
+    }
+
     @Override
     public List<CostingGroupDTO> obtenerGruposCosteo() throws CostingException {
         try {
@@ -75,35 +181,166 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
         }
     }
 
+    @Override
+    public Long publicarCosteoDistribuido() throws CostingException {
+        try {
+            resetCosteoRepository.inicializarTablasDerivadas();
+            return crearDistributedEngine(0).publicar();
+        } catch (Exception e) {
+            throw new CostingException("Falló la publicación de la corrida de costeo distribuida.", e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto trabajarEnCosteoDistribuido(Long corridaId, int segundosArriendo) throws CostingException {
+        try {
+            return crearDistributedEngine(segundosArriendo).trabajar(corridaId);
+        } catch (Exception e) {
+            throw new CostingException("Falló el trabajador de costeo distribuido" + (corridaId != null ? " en la corrida " + corridaId : "") + ".", e);
+        }
+    }
+
     @Override
     public void recostearGrupo(String groupKey) throws CostingException {
+        invalidarSimulaciones();
+        LocalDate cierre = resetCosteoRepository.fechaUltimoCierre(groupKey);
+        if (cierre != null) {
+            // Lo cerrado no se recostea: se parte del saldo y los lotes congelados al cierre
+            recostearGrupoDesde(groupKey, cierre.plusDays(1));
+            return;
+        }
         try {
+            GrupoCosteoKey key = GrupoCosteoKey.parse(groupKey);
+            resetCosteoRepository.inicializarTablasDerivadas();
             executeInTransaction(entityManager -> {
-                String[] parts = parseGroupKey(groupKey);
-                Long empresaId = Long.parseLong(parts[0]);
-                String cuenta = parts[1];
-                Long custodioId = Long.parseLong(parts[2]);
-                Long instrumentoId = Long.parseLong(parts[3]);
-
-                // Usar las implementaciones de servicio para las operaciones
-                new KardexServiceImpl().deleteDetalleCosteoByClaveAgrupacion(groupKey);
-                new KardexServiceImpl().deleteKardexByClaveAgrupacion(groupKey);
-                new KardexServiceImpl().deleteSaldoKardexByGrupo(empresaId, custodioId, instrumentoId, cuenta);
-                new ResetCosteoServiceImpl().resetCosteoFlagsByGrupo(empresaId, cuenta, custodioId, instrumentoId);
-
-                // Crear nuevo engine con el EntityManager actual
-                FifoCostingEngine engine = new FifoCostingEngine(em, 
-                    new KardexServiceImpl(), 
-                    new SaldosServiceImpl(), 
-                    new TipoMovimientoServiceImpl());
-                engine.procesarCosteo();
-                return null;
+                eliminarCosteoDelGrupo(key);
+
+                // Solo el grupo pedido: el trabajo de la cola tiene tomado únicamente su bloqueo
+                CostingStrategySelector engine = new CostingStrategySelector(entityManager,
+                    new KardexServiceImpl(),
+                    new SaldosServiceImpl(),
+                    new TipoMovimientoServiceImpl(),
+                    null);
+                return engine.procesarGrupo(key);
             });
         } catch (Exception e) {
             throw new CostingException("Falló el recosteo del grupo: " + groupKey, e);
         }
     }
 
+    @Override
+    public ResultadoCosteoDto.ResultadoGrupo recostearGrupoDesde(String groupKey, LocalDate fechaDesde) throws CostingException {
+        invalidarSimulaciones();
+        try {
+            GrupoCosteoKey key = GrupoCosteoKey.parse(groupKey);
+            Long empresaId = key.empresaId();
+            String cuenta = key.cuenta();
+            Long custodioId = key.custodioId();
+            Long instrumentoId = key.instrumentoId();
+
+            LocalDate desde = fechaDesde != null
+                    ? fechaDesde
+                    : executeReadOnly(entityManager -> primeraFechaPendiente(entityManager, empresaId, cuenta, custodioId, instrumentoId));
+            if (desde == null) {
+                logger.info("El grupo {} no tiene transacciones pendientes; no hay nada que recostear.", groupKey);
+                return ResultadoCosteoDto.ResultadoGrupo.exitoso(groupKey, 0);
+            }
+
+            resetCosteoRepository.inicializarTablasDerivadas();
+            // La reversión se confirma antes de re-costear: el procesador lee los saldos previos a través de los repositorios.
+            resetCosteoRepository.revertirCosteoDesde(empresaId, cuenta, custodioId, instrumentoId, desde);
+
+            return executeInTransaction(entityManager -> {
+                CostingStrategySelector engine = new CostingStrategySelector(entityManager,
+                    new KardexServiceImpl(),
+                    new SaldosServiceImpl(),
+                    new TipoMovimientoServiceImpl(),
+                    null);
+                return engine.procesarGrupo(key);
+            });
+        } catch (Exception e) {
+            throw new CostingException("Falló el recosteo del grupo " + groupKey + " desde " + fechaDesde, e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto costearGruposAfectados(Map<String, LocalDate> gruposAfectados) throws CostingException {
+        invalidarSimulaciones();
+        long inicio = System.nanoTime();
+        try {
+            resetCosteoRepository.inicializarTablasDerivadas();
+
+            // Por fecha más antigua y luego por clave, para un orden de proceso estable
+            List<Map.Entry<String, LocalDate>> grupos = gruposAfectados.entrySet().stream()
+                    .sorted(Map.Entry.<String, LocalDate>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .toList();
+            logger.info("Costeo incremental de {} grupos afectados por la carga.", grupos.size());
+
+            List<ResultadoCosteoDto.ResultadoGrupo> resultados = new ArrayList<>(grupos.size());
+            for (Map.Entry<String, LocalDate> grupo : grupos) {
+                resultados.add(costearGrupoAfectado(grupo.getKey(), grupo.getValue()));
+            }
+
+            ResultadoCosteoDto resultado = new ResultadoCosteoDto(resultados, 1, Duration.ofNanos(System.nanoTime() - inicio));
+            logger.info("Costeo incremental finalizado. {}", resultado);
+            historialCosteo.registrar("AFECTADOS", resultado);
+            return resultado;
+        } catch (Exception e) {
+            throw new CostingException("Falló el costeo de los grupos afectados por la carga.", e);
+        }
+    }
+
+    @Override
+    public ResultadoCosteoDto recostearGrupos(Collection<String> clavesGrupo, int paralelismo, BiConsumer<Integer, Integer> avance) throws CostingException {
+        invalidarSimulaciones();
+        try {
+            List<GrupoCosteoKey> grupos = clavesGrupo.stream()
+                    .distinct()
+                    .sorted()
+                    .map(GrupoCosteoKey::parse)
+                    .toList();
+            if (grupos.isEmpty()) {
+                return new ResultadoCosteoDto(List.of(), 1, Duration.ZERO);
+            }
+            resetCosteoRepository.inicializarTablasDerivadas();
+            logger.info("Recosteo de {} grupos indicados.", grupos.size());
+
+            // La reversión de cada grupo se confirma antes de costear: los hilos leen con su propio EntityManager
+            for (GrupoCosteoKey key : grupos) {
+                LocalDate cierre = resetCosteoRepository.fechaUltimoCierre(key.clave());
+                if (cierre != null) {
+                    // Lo cerrado no se recostea: se parte del saldo y los lotes congelados al cierre
+                    resetCosteoRepository.revertirCosteoDesde(key.empresaId(), key.cuenta(), key.custodioId(), key.instrumentoId(), cierre.plusDays(1));
+                } else {
+                    eliminarCosteoDelGrupo(key);
+                }
+            }
+
+            ResultadoCosteoDto resultado = executeReadOnly(entityManager -> {
+                ParallelCostingEngine engine = new ParallelCostingEngine(entityManager, paralelismo,
+                    KardexServiceImpl::new,
+                    SaldosServiceImpl::new,
+                    TipoMovimientoServiceImpl::new);
+                return engine.procesarGrupos(grupos, avance);
+            });
+            historialCosteo.registrar("GRUPOS", resultado);
+            return resultado;
+        } catch (Exception e) {
+            throw new CostingException("Falló el recosteo de los grupos indicados: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int cerrarEjercicio(int ejercicio, boolean archivarKardex) throws CostingException {
+        invalidarSimulaciones();
+        try {
+            return new CierreEjercicioProcess().cerrarEjercicio(ejercicio, archivarKardex);
+        } catch (Exception e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            throw new CostingException("Falló el cierre del ejercicio " + ejercicio + ": " + causa.getMessage(), e);
+        }
+    }
+
     @Override
     public AjustePropuestoDto proponerAjuste(Long txReferenciaId, TipoAjuste tipo) throws CostingException {
         try {
@@ -119,6 +356,7 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
 
     @Override
     public void crearAjuste(Long txReferenciaId, TipoAjuste tipo, BigDecimal cantidad, BigDecimal precio) throws CostingException {
+        invalidarSimulaciones();
         try {
             executeInTransaction(entityManager -> {
                 TransaccionEntity tx = findTransaction(entityManager, txReferenciaId);
@@ -133,6 +371,7 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
 
     @Override
     public void eliminarAjuste(Long idAjuste) throws CostingException {
+        invalidarSimulaciones();
         try {
             executeInTransaction(entityManager -> {
                 createAjustesProcess().eliminarAjusteManual(idAjuste);
@@ -143,6 +382,190 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
         }
     }
 
+    @Override
+    public SimulacionCosteoDto simularCosteo(String claveGrupo, List<SimulacionCosteoDto.MovimientoHipotetico> movimientos) throws CostingException {
+        try {
+            CostingSimulator simulador;
+            synchronized (simulaciones) {
+                simulador = simulaciones.get(claveGrupo);
+                if (simulador == null || simulador.antiguedad().compareTo(VIGENCIA_SIMULACION) > 0) {
+                    GrupoCosteoKey key = GrupoCosteoKey.parse(claveGrupo);
+                    simulador = executeReadOnly(entityManager -> CostingSimulator.cargar(entityManager, key, null));
+                    simulaciones.put(claveGrupo, simulador);
+                }
+            }
+            return simulador.simular(movimientos);
+        } catch (Exception e) {
+            logger.error("Error al simular el costeo del grupo {}", claveGrupo, e);
+            throw new CostingException("Falló la simulación del grupo " + claveGrupo + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<TiempoGrupoCosteoDto> obtenerGruposMasLentos(Long historialId, int limite) throws CostingException {
+        try {
+            return historialCosteo.gruposMasLentos(historialId, limite);
+        } catch (Exception e) {
+            throw new CostingException("No se pudo obtener el informe de grupos más lentos.", e);
+        }
+    }
+
+    @Override
+    public Long encolarCosteoCompleto() throws CostingException {
+        try {
+            return colaCosteo().encolarCosteoCompleto(api -> api.ejecutarCosteoCompleto());
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar el costeo completo.", e);
+        }
+    }
+
+    @Override
+    public Long encolarRecosteoGrupo(String claveGrupo, PrioridadCosteo prioridad) throws CostingException {
+        try {
+            GrupoCosteoKey.parse(claveGrupo);
+            return colaCosteo().encolarRecosteoGrupo(claveGrupo, prioridad, api -> {
+                api.recostearGrupo(claveGrupo);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar el recosteo del grupo " + claveGrupo + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Long encolarRecosteoGrupos(Collection<String> clavesGrupo, BiConsumer<Integer, Integer> avance) throws CostingException {
+        try {
+            Set<String> claves = Set.copyOf(clavesGrupo);
+            claves.forEach(GrupoCosteoKey::parse);
+            return colaCosteo().encolarGrupos("Recosteo de " + claves.size() + " grupos", claves, PrioridadCosteo.INTERACTIVA,
+                    api -> api.recostearGrupos(claves, 0, avance));
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar el recosteo de los grupos: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Long encolarCrearAjuste(Long txReferenciaId, TipoAjuste tipo, BigDecimal cantidad, BigDecimal precio) throws CostingException {
+        try {
+            String claveGrupo = claveGrupoDeTransaccion(txReferenciaId);
+            return colaCosteo().encolarAjuste("Ajuste " + tipo + " sobre la transacción " + txReferenciaId, claveGrupo, api -> {
+                api.crearAjuste(txReferenciaId, tipo, cantidad, precio);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar el ajuste: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Long encolarEliminarAjuste(Long idAjuste) throws CostingException {
+        try {
+            String claveGrupo = claveGrupoDeTransaccion(idAjuste);
+            return colaCosteo().encolarAjuste("Eliminación del ajuste " + idAjuste, claveGrupo, api -> {
+                api.eliminarAjuste(idAjuste);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar la eliminación del ajuste: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Long encolarCosteoGruposAfectados(Map<String, LocalDate> gruposAfectados) throws CostingException {
+        try {
+            // La acción recibe una copia: los grupos del trabajo pueden seguir creciendo mientras está pendiente
+            return colaCosteo().encolarGruposAfectados(gruposAfectados, grupos -> {
+                Map<String, LocalDate> copia = new LinkedHashMap<>(grupos);
+                return api -> api.costearGruposAfectados(copia);
+            });
+        } catch (Exception e) {
+            throw new CostingException("No se pudo encolar el costeo de los grupos afectados.", e);
+        }
+    }
+
+    @Override
+    public TrabajoCosteoDto consultarTrabajo(Long trabajoId) {
+        CostingJobScheduler cola = colaSiExiste();
+        return cola != null && trabajoId != null ? cola.consultar(trabajoId) : null;
+    }
+
+    @Override
+    public List<TrabajoCosteoDto> listarTrabajos() {
+        CostingJobScheduler cola = colaSiExiste();
+        return cola != null ? cola.listar() : List.of();
+    }
+
+    @Override
+    public TrabajoCosteoDto esperarTrabajo(Long trabajoId) throws CostingException {
+        CostingJobScheduler cola = colaSiExiste();
+        TrabajoCosteoDto trabajo;
+        try {
+            trabajo = cola != null && trabajoId != null ? cola.esperar(trabajoId) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CostingException("Se interrumpió la espera del trabajo de costeo " + trabajoId, e);
+        }
+        if (trabajo == null) {
+            throw new CostingException("No existe el trabajo de costeo " + trabajoId, null);
+        }
+        return trabajo;
+    }
+
+    @Override
+    public boolean cancelarTrabajo(Long trabajoId) {
+        CostingJobScheduler cola = colaSiExiste();
+        return cola != null && trabajoId != null && cola.cancelar(trabajoId);
+    }
+
+    /**
+     * Cierra la cola de costeo, si se llegó a crear: cancela lo pendiente y espera lo que está en curso.
+     */
+    @Override
+    public void close() {
+        CostingJobScheduler cola;
+        synchronized (this) {
+            cola = colaCosteo;
+            colaCosteo = null;
+        }
+        if (cola != null) {
+            cola.close();
+        }
+    }
+
+    /**
+     * Cola de trabajos de esta instancia. Cada trabajador costea con su propio servicio, y
+     * al terminar cada trabajo se descartan las simulaciones de esta instancia.
+     */
+    private synchronized CostingJobScheduler colaCosteo() {
+        if (colaCosteo == null) {
+            colaCosteo = new CostingJobScheduler(CostingJobScheduler.DEFAULT_WORKERS,
+                () -> new CostingServiceImpl(new KardexServiceImpl(),
+                    new SaldosServiceImpl(),
+                    new ResetCosteoServiceImpl(),
+                    createAjustesProcess(),
+                    new TipoMovimientoServiceImpl()),
+                this::invalidarSimulaciones);
+        }
+        return colaCosteo;
+    }
+
+    private synchronized CostingJobScheduler colaSiExiste() {
+        return colaCosteo;
+    }
+
+    private String claveGrupoDeTransaccion(Long txId) {
+        return executeReadOnly(entityManager -> GrupoCosteoKey.of(findTransaction(entityManager, txId)).clave());
+    }
+
+    /**
+     * Descarta las historias cargadas para simular; se llama antes de cada cambio en las transacciones o cierres.
+     */
+    private void invalidarSimulaciones() {
+        synchronized (simulaciones) {
+            simulaciones.clear();
+        }
+    }
+
     public List<CostingGroupDTO> obtenerGruposDeCosteo() {
         return executeReadOnly(entityManager -> {
             CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -151,7 +574,7 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
             Root<KardexEntity> k = cq.from(KardexEntity.class);
             cq.select(cb.construct(
                     CostingGroupDTO.class,
-                    k.get("claveAgrupacion"),
+                    k.get("grupo").get("claveAgrupacion"),
                     cb.min(k.get("fechaCreacion")),
                     k.get("instrumento").get("instrumentoNemo"),
                     k.get("empresa").get("razonSocial"),
@@ -159,7 +582,7 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
             ));
 
             cq.groupBy(
-                    k.get("claveAgrupacion"),
+                    k.get("grupo").get("claveAgrupacion"),
                     k.get("instrumento").get("instrumentoNemo"),
                     k.get("empresa").get("razonSocial"),
                     k.get("cuenta")
@@ -174,6 +597,33 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
     }
 
     // Métodos auxiliares privados
+    private CheckpointCostingEngine crearCheckpointEngine(int gruposPorBloque) {
+        return new CheckpointCostingEngine(gruposPorBloque,
+            new KardexServiceImpl(),
+            new SaldosServiceImpl(),
+            new TipoMovimientoServiceImpl());
+    }
+
+    private DistributedCostingEngine crearDistributedEngine(int segundosArriendo) {
+        return new DistributedCostingEngine(segundosArriendo,
+            new KardexServiceImpl(),
+            new SaldosServiceImpl(),
+            new TipoMovimientoServiceImpl());
+    }
+
+    /**
+     * Borra el costeo completo de un grupo (detalle, resultados, kardex y saldo) y lo deja
+     * pendiente. Cada borrado se confirma en su propia transacción.
+     */
+    private void eliminarCosteoDelGrupo(GrupoCosteoKey key) {
+        String groupKey = key.clave();
+        new KardexServiceImpl().deleteDetalleCosteoByClaveAgrupacion(groupKey);
+        new ResetCosteoServiceImpl().eliminarResultadosRealizados(groupKey);
+        new KardexServiceImpl().deleteKardexByClaveAgrupacion(groupKey);
+        new KardexServiceImpl().deleteSaldoKardexByGrupo(key.empresaId(), key.custodioId(), key.instrumentoId(), key.cuenta());
+        new ResetCosteoServiceImpl().resetCosteoFlagsByGrupo(key.empresaId(), key.cuenta(), key.custodioId(), key.instrumentoId());
+    }
+
     private AjustesProcess createAjustesProcess() {
         return new AjustesProcess(new SaldosServiceImpl(), new TipoMovimientoServiceImpl(), new KardexServiceImpl());
     }
@@ -186,14 +636,58 @@ public class CostingServiceImpl extends AbstractRepository implements CostingApi
         return tx;
     }
 
-    private String[] parseGroupKey(String groupKey) {
-        if (groupKey == null || groupKey.isBlank()) {
-            throw new IllegalArgumentException("La clave de grupo no puede ser nula o vacía.");
-        }
-        String[] parts = groupKey.split("\\|");
-        if (parts.length != 4) {
-            throw new IllegalArgumentException("Formato de clave de grupo inválido: " + groupKey);
+    /**
+     * Costea un grupo tocado por la carga en su propia transacción; un fallo no afecta a los demás.
+     */
+    private ResultadoCosteoDto.ResultadoGrupo costearGrupoAfectado(String groupKey, LocalDate fechaMasAntigua) {
+        try {
+            GrupoCosteoKey key = GrupoCosteoKey.parse(groupKey);
+            Long empresaId = key.empresaId();
+            String cuenta = key.cuenta();
+            Long custodioId = key.custodioId();
+            Long instrumentoId = key.instrumentoId();
+
+            // Una transacción que cae en o antes de lo ya costeado obliga a rehacer la cola desde su fecha
+            LocalDate ultimaCosteada = executeReadOnly(entityManager -> entityManager.createQuery(
+                    "SELECT MAX(k.fechaTransaccion) FROM KardexEntity k WHERE k.grupo.claveAgrupacion = :clave", LocalDate.class)
+                    .setParameter("clave", groupKey)
+                    .getSingleResult());
+            if (ultimaCosteada != null && !fechaMasAntigua.isAfter(ultimaCosteada)) {
+                logger.info("Grupo {}: transacciones desde {} y costeo hasta {}. Se revierte desde {}.",
+                        groupKey, fechaMasAntigua, ultimaCosteada, fechaMasAntigua);
+                resetCosteoRepository.revertirCosteoDesde(empresaId, cuenta, custodioId, instrumentoId, fechaMasAntigua);
+            }
+
+            return executeInTransaction(entityManager -> {
+                CostingStrategySelector engine = new CostingStrategySelector(entityManager,
+                    new KardexServiceImpl(),
+                    new SaldosServiceImpl(),
+                    new TipoMovimientoServiceImpl(),
+                    null);
+                return engine.procesarGrupo(key);
+            });
+        } catch (Exception e) {
+            logger.error("Error costeando el grupo afectado {}", groupKey, e);
+            return ResultadoCosteoDto.ResultadoGrupo.fallido(groupKey, 0, e.getMessage());
         }
-        return parts;
     }
+
+    private LocalDate primeraFechaPendiente(EntityManager entityManager, Long empresaId, String cuenta, Long custodioId, Long instrumentoId) {
+        // Mismo criterio de pendiente que el motor: los movimientos NO_COSTEAR no cuentan
+        return entityManager.createQuery("SELECT MIN(t.fecha) FROM TransaccionEntity t"
+                        + FifoCostingEngine.FILTRO_PENDIENTES
+                        + """
+                          AND t.empresa.id = :empresaId
+                          AND t.cuenta = :cuenta
+                          AND t.custodio.id = :custodioId
+                          AND t.instrumento.id = :instrumentoId
+                        """, LocalDate.class)
+                .setParameter("noCostear", TipoEnumsCosteo.NO_COSTEAR)
+                .setParameter("empresaId", empresaId)
+                .setParameter("cuenta", cuenta)
+                .setParameter("custodioId", custodioId)
+                .setParameter("instrumentoId", instrumentoId)
+                .getSingleResult();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.costing.process;
+
+import com.model.dto.ResultadoCosteoDto;
+import com.model.dto.TiempoGrupoCosteoDto;
+import com.model.entities.HistorialCosteoEntity;
+import com.model.entities.HistorialCosteoGrupoEntity;
+import com.model.interfaces.AbstractRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Historial de ejecuciones de costeo: al terminar cada corrida guarda su resumen en
+ * {@code historial_costeos} y los tiempos por fase de cada grupo en
+ * {@code historial_costeos_grupo}, para ver qué grupos y fases explican una corrida lenta.
+ * <p>
+ * Es solo informativo: si falla la escritura se registra en el log y el costeo, ya
+ * confirmado, no se ve afectado.
+ */
+public class HistorialCosteoProcess extends AbstractRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistorialCosteoProcess.class);
+    private static final int FILAS_POR_FLUSH = 500;
+    private static final long NANOS_POR_MS = 1_000_000L;
+
+    private static final String GRUPOS_MAS_LENTOS = """
+        SELECT new com.app.dto.TiempoGrupoCosteoDto(
+            h.id, h.inicio, h.modalidad, g.claveAgrupacion, g.exitoso, g.transacciones,
+            g.lotesConsumidos, g.filasEscritas, g.msCarga, g.msInicializacion, g.msCalculo,
+            g.msEscritura, g.msSaldosDiarios, g.msTotal)
+        FROM HistorialCosteoGrupoEntity g
+        JOIN g.historial h
+        WHERE h.id = :historialId
+        ORDER BY g.msTotal DESC, g.id
+        """;
+
+    public HistorialCosteoProcess() {
+        super();
+    }
+
+    /**
+     * Registra una ejecución terminada. Solo se guardan los grupos con métricas.
+     * @param modalidad Forma de ejecución (COMPLETO, BLOQUES, PARALELO, AFECTADOS).
+     * @param resultado El resumen devuelto por el motor.
+     * @return el ID del registro, o null si no se pudo guardar.
+     */
+    public Long registrar(String modalidad, ResultadoCosteoDto resultado) {
+        if (resultado == null) {
+            return null;
+        }
+        try {
+            Long id = executeInTransaction(em -> {
+                HistorialCosteoEntity historial = new HistorialCosteoEntity();
+                historial.setModalidad(modalidad);
+                historial.setCorridaId(resultado.getCorridaId());
+                historial.setInicio(LocalDateTime.now().minus(resultado.getDuracion()));
+                historial.setDuracionMs(resultado.getDuracion().toMillis());
+                historial.setParalelismo(resultado.getParalelismo());
+                historial.setGrupos(resultado.getGrupos().size());
+                historial.setGruposFallidos(resultado.getGruposFallidos().size());
+                historial.setTransacciones(resultado.getTransaccionesProcesadas());
+                historial.setTransaccionesPorSegundo(resultado.getTransaccionesPorSegundo());
+                historial.setFilasEscritas(resultado.getFilasEscritas());
+                em.persist(historial);
+                em.flush();
+                Long historialId = historial.getId();
+
+                int pendientes = 0;
+                for (ResultadoCosteoDto.ResultadoGrupo grupo : resultado.getGrupos()) {
+                    if (grupo.metricas() == null) {
+                        continue;
+                    }
+                    em.persist(crearFilaGrupo(em.getReference(HistorialCosteoEntity.class, historialId), grupo));
+                    if (++pendientes % FILAS_POR_FLUSH == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+                em.flush();
+                em.clear();
+                return historialId;
+            });
+            logger.info("Ejecución de costeo {} registrada en el historial con ID {}.", modalidad, id);
+            return id;
+        } catch (Exception e) {
+            logger.warn("No se pudo registrar la ejecución de costeo {} en el historial.", modalidad, e);
+            return null;
+        }
+    }
+
+    /**
+     * Grupos de una ejecución ordenados del más lento al más rápido.
+     * @param historialId La ejecución; si es null, la última registrada.
+     * @param limite Número máximo de filas.
+     */
+    public List<TiempoGrupoCosteoDto> gruposMasLentos(Long historialId, int limite) {
+        return executeReadOnly(em -> {
+            Long id = historialId != null
+                    ? historialId
+                    : em.createQuery("SELECT MAX(h.id) FROM HistorialCosteoEntity h", Long.class).getSingleResult();
+            if (id == null) {
+                return List.of();
+            }
+            return em.createQuery(GRUPOS_MAS_LENTOS, TiempoGrupoCosteoDto.class)
+                    .setParameter("historialId", id)
+                    .setMaxResults(Math.max(limite, 1))
+                    .getResultList();
+        });
+    }
+
+    private static HistorialCosteoGrupoEntity crearFilaGrupo(HistorialCosteoEntity historial, ResultadoCosteoDto.ResultadoGrupo grupo) {
+        ResultadoCosteoDto.MetricasGrupo m = grupo.metricas();
+        HistorialCosteoGrupoEntity fila = new HistorialCosteoGrupoEntity();
+        fila.setHistorial(historial);
+        fila.setClaveAgrupacion(grupo.claveAgrupacion());
+        fila.setExitoso(grupo.exitoso());
+        fila.setTransacciones(grupo.transaccionesProcesadas());
+        fila.setLotesConsumidos(m.lotesConsumidos());
+        fila.setFilasEscritas(m.filasEscritas());
+        fila.setMsCarga(m.nanosCarga() / NANOS_POR_MS);
+        fila.setMsInicializacion(m.nanosInicializacion() / NANOS_POR_MS);
+        fila.setMsCalculo(m.nanosCalculo() / NANOS_POR_MS);
+        fila.setMsEscritura(m.nanosEscritura() / NANOS_POR_MS);
+        fila.setMsSaldosDiarios(m.nanosSaldosDiarios() / NANOS_POR_MS);
+        fila.setMsTotal(m.nanosTotal() / NANOS_POR_MS);
+        if (!grupo.exitoso()) {
+            fila.setMensaje(grupo.mensaje() != null && grupo.mensaje().length() > 1000
+                    ? grupo.mensaje().substring(0, 1000)
+                    : grupo.mensaje());
+        }
+        return fila;
+    }
+}
@@ -1,10 +1,187 @@
 package com.costing.process;
 
+import com.costing.api.GrupoCosteoKey;
+import com.costing.engine.GrupoCosteoResolver;
 import com.model.interfaces.AbstractRepository;
 import com.model.interfaces.ResetCosteoFlag;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
 
 public class ResetCosteoServiceImpl extends AbstractRepository implements ResetCosteoFlag {
 
+    private static final Logger logger = LoggerFactory.getLogger(ResetCosteoServiceImpl.class);
+
+    // Devuelve a los lotes anteriores a la fecha lo que consumieron los egresos desde la fecha
+    private static final String RESTAURAR_LOTES = """
+        UPDATE kardex ki
+        JOIN (
+            SELECT d.ingreso_id, SUM(d.cantidad_usada) AS usada
+            FROM detalle_costeos d
+            JOIN transacciones te ON te.id = d.egreso_id
+            WHERE d.grupo_id = ?1
+              AND te.fecha >= ?2
+            GROUP BY d.ingreso_id
+        ) c ON c.ingreso_id = ki.transaccion_id
+        SET ki.cantidad_disponible = ki.cantidad_disponible + c.usada
+        WHERE ki.grupo_id = ?1
+          AND ki.tipo_contable = 'INGRESO'
+          AND ki.fecha_transaccion < ?2
+        """;
+
+    private static final String ELIMINAR_DETALLES_DESDE = """
+        DELETE d FROM detalle_costeos d
+        JOIN transacciones te ON te.id = d.egreso_id
+        WHERE d.grupo_id = ?1
+          AND te.fecha >= ?2
+        """;
+
+    private static final String ELIMINAR_KARDEX_DESDE = """
+        DELETE FROM kardex
+        WHERE grupo_id = ?1
+          AND fecha_transaccion >= ?2
+        """;
+
+    // Los ajustes por tolerancia los vuelve a generar el costeo si siguen siendo necesarios
+    private static final String ELIMINAR_AJUSTES_AUTOMATICOS_DESDE = """
+        DELETE t FROM transacciones t
+        JOIN tipo_movimientos tm ON tm.id = t.movimiento_id
+        WHERE t.empresa_id = ?1
+          AND t.cuenta = ?2
+          AND t.custodio_id = ?3
+          AND t.instrumento_id = ?4
+          AND t.fecha >= ?5
+          AND tm.tipo_movimiento = 'AJUSTE_AUTO_TOLERANCIA'
+        """;
+
+    private static final String ELIMINAR_SALDOS_DIARIOS_DESDE = """
+        DELETE FROM saldos_diarios
+        WHERE empresa_id = ?1
+          AND cuenta = ?2
+          AND custodio_id = ?3
+          AND instrumento_id = ?4
+          AND fecha >= ?5
+        """;
+
+    // Deja saldos_kardex en el último movimiento anterior a la fecha, o en el último cierre
+    // si no hay movimientos posteriores a él (el kardex anterior al cierre puede estar archivado)
+    private static final String RESTAURAR_SALDO_KARDEX = """
+        UPDATE saldos_kardex sk
+        JOIN (
+            SELECT u.saldo_cantidad, u.saldo_valor, u.fecha
+            FROM (
+                SELECT k.saldo_cantidad, k.saldo_valor, k.fecha_transaccion AS fecha, k.id AS orden
+                FROM kardex k
+                WHERE k.grupo_id = ?7
+                  AND k.fecha_transaccion < ?6
+                  AND k.fecha_transaccion > COALESCE(
+                      (SELECT MAX(c.fecha_cierre) FROM cierres_contables c WHERE c.clave_agrupacion = ?5),
+                      DATE '1000-01-01')
+                UNION ALL
+                SELECT c.cantidad_cierre, c.valor_cierre, c.fecha_cierre, 0
+                FROM cierres_contables c
+                WHERE c.clave_agrupacion = ?5
+                  AND c.fecha_cierre < ?6
+            ) u
+            ORDER BY u.fecha DESC, u.orden DESC
+            LIMIT 1
+        ) u
+        SET sk.saldo_cantidad = u.saldo_cantidad,
+            sk.costo_total = u.saldo_valor,
+            sk.costo_promedio = CASE WHEN u.saldo_cantidad <> 0 THEN u.saldo_valor / u.saldo_cantidad ELSE 0 END,
+            sk.fecha_ultima_actualizacion = u.fecha
+        WHERE sk.empresa_id = ?1
+          AND sk.cuenta = ?2
+          AND sk.custodio_id = ?3
+          AND sk.instrumento_id = ?4
+        """;
+
+    private static final String ELIMINAR_SALDO_KARDEX_SIN_HISTORIA = """
+        DELETE FROM saldos_kardex
+        WHERE empresa_id = ?1
+          AND cuenta = ?2
+          AND custodio_id = ?3
+          AND instrumento_id = ?4
+          AND NOT EXISTS (
+              SELECT 1 FROM kardex k
+              WHERE k.grupo_id = ?7
+                AND k.fecha_transaccion < ?6
+          )
+          AND NOT EXISTS (
+              SELECT 1 FROM cierres_contables c
+              WHERE c.clave_agrupacion = ?5
+                AND c.fecha_cierre < ?6
+          )
+        """;
+
+    private static final String FECHA_ULTIMO_CIERRE = """
+        SELECT MAX(c.fecha_cierre) FROM cierres_contables c
+        WHERE c.clave_agrupacion = ?1
+        """;
+
+    // Reconstruye lotes_abiertos desde el kardex: completo o de un grupo
+    private static final String POBLAR_LOTES_ABIERTOS = """
+        INSERT INTO lotes_abiertos
+            (kardex_id, grupo_id, fecha_transaccion, transaccion_id, cantidad_disponible, costo_unitario)
+        SELECT k.id, k.grupo_id, k.fecha_transaccion, k.transaccion_id, k.cantidad_disponible, k.costo_unitario
+        FROM kardex k
+        WHERE k.tipo_contable = 'INGRESO'
+          AND k.cantidad_disponible > 0
+        """;
+    private static final String SINCRONIZAR_LOTES_ABIERTOS_GRUPO = POBLAR_LOTES_ABIERTOS + """
+          AND k.grupo_id = ?1
+        ON DUPLICATE KEY UPDATE cantidad_disponible = VALUES(cantidad_disponible)
+        """;
+
+    private static final String ELIMINAR_RESULTADOS_DESDE = """
+        DELETE FROM resultados_realizados
+        WHERE grupo_id = ?1
+          AND fecha >= ?2
+        """;
+
+    private static final String ELIMINAR_RESULTADOS_GRUPO = """
+        DELETE FROM resultados_realizados
+        WHERE grupo_id = ?1
+        """;
+
+    private static final String ELIMINAR_TOTAL_RESULTADOS_GRUPO = """
+        DELETE FROM resultados_realizados_grupo
+        WHERE grupo_id = ?1
+        """;
+
+    // Mismo criterio que EgresoHandler.precioVenta: sin precio se deduce del total, y si no, cero
+    private static final String PRECIO_VENTA = "COALESCE(te.precio, ROUND(te.total / NULLIF(te.cantidad, 0), 6), 0)";
+
+    // Libro de resultados de lo ya costeado, reconstruido desde detalle_costeos
+    private static final String POBLAR_RESULTADOS_REALIZADOS = """
+        INSERT INTO resultados_realizados
+            (fecha_creacion, creado_por, grupo_id, fecha, egreso_id, ingreso_id,
+             empresa_id, custodio_id, instrumento_id, cuenta, cantidad, venta, costo, utilidad)
+        SELECT CURRENT_DATE, 'sistema', d.grupo_id, te.fecha, d.egreso_id, d.ingreso_id,
+               te.empresa_id, te.custodio_id, te.instrumento_id, te.cuenta, d.cantidad_usada,
+               d.cantidad_usada * %1$s, d.costo_parcial, d.cantidad_usada * %1$s - d.costo_parcial
+        FROM detalle_costeos d
+        JOIN transacciones te ON te.id = d.egreso_id
+        """.formatted(PRECIO_VENTA);
+
+    // Totales por grupo a partir del libro: completo o de un grupo
+    private static final String POBLAR_TOTALES_RESULTADOS = """
+        INSERT INTO resultados_realizados_grupo
+            (fecha_creacion, creado_por, grupo_id, empresa_id, custodio_id, instrumento_id, cuenta,
+             cantidad_vendida, venta_total, costo_total, utilidad_total, fecha_ultima_venta)
+        SELECT CURRENT_DATE, 'sistema', r.grupo_id, r.empresa_id, r.custodio_id, r.instrumento_id, r.cuenta,
+               SUM(r.cantidad), SUM(r.venta), SUM(r.costo), SUM(r.utilidad), MAX(r.fecha)
+        FROM resultados_realizados r
+        """;
+    private static final String AGRUPAR_TOTALES_RESULTADOS = """
+        GROUP BY r.grupo_id, r.empresa_id, r.custodio_id, r.instrumento_id, r.cuenta
+        """;
+    private static final String RECALCULAR_TOTAL_RESULTADOS_GRUPO = POBLAR_TOTALES_RESULTADOS + """
+        WHERE r.grupo_id = ?1
+        """ + AGRUPAR_TOTALES_RESULTADOS;
+
     /**
      * Resetea los datos para que se puedan recostear.
      */
@@ -30,4 +207,157 @@ public class ResetCosteoServiceImpl extends AbstractRepository implements ResetC
                 .executeUpdate();
         });
     }
-}
\ No newline at end of file
+
+    @Override
+    public int revertirCosteoDesde(Long empresaId, String cuenta, Long custodioId, Long instrumentoId, LocalDate fechaDesde) {
+        if (fechaDesde == null) {
+            throw new IllegalArgumentException("La fecha desde la que se revierte el costeo no puede ser nula");
+        }
+        GrupoCosteoKey key = new GrupoCosteoKey(empresaId, cuenta, custodioId, instrumentoId);
+        String clave = key.clave();
+        LocalDate cierre = fechaUltimoCierre(clave);
+        if (cierre != null && !fechaDesde.isAfter(cierre)) {
+            throw new IllegalStateException("No se puede revertir el costeo del grupo " + clave + " desde " + fechaDesde
+                    + ": el ejercicio está cerrado hasta el " + cierre + ".");
+        }
+
+        return executeInTransaction(em -> {
+            // Un grupo que nunca se costeó no tiene kardex, detalles ni resultados que revertir
+            Long id = GrupoCosteoResolver.buscar(em, key);
+            long grupoId = id != null ? id : -1L;
+
+            // 1. Los lotes anteriores a la fecha recuperan lo consumido por los egresos revertidos
+            int lotes = em.createNativeQuery(RESTAURAR_LOTES)
+                    .setParameter(1, grupoId)
+                    .setParameter(2, fechaDesde)
+                    .executeUpdate();
+
+            // 2. Trazabilidad y kardex desde la fecha (sus lotes salen de lotes_abiertos en cascada)
+            int detalles = em.createNativeQuery(ELIMINAR_DETALLES_DESDE)
+                    .setParameter(1, grupoId)
+                    .setParameter(2, fechaDesde)
+                    .executeUpdate();
+            int kardex = em.createNativeQuery(ELIMINAR_KARDEX_DESDE)
+                    .setParameter(1, grupoId)
+                    .setParameter(2, fechaDesde)
+                    .executeUpdate();
+
+            // 3. Resultados realizados desde la fecha; el total del grupo se recalcula con lo que queda
+            em.createNativeQuery(ELIMINAR_RESULTADOS_DESDE)
+                    .setParameter(1, grupoId)
+                    .setParameter(2, fechaDesde)
+                    .executeUpdate();
+            em.createNativeQuery(ELIMINAR_TOTAL_RESULTADOS_GRUPO)
+                    .setParameter(1, grupoId)
+                    .executeUpdate();
+            em.createNativeQuery(RECALCULAR_TOTAL_RESULTADOS_GRUPO)
+                    .setParameter(1, grupoId)
+                    .executeUpdate();
+
+            // 4. Ajustes automáticos y saldos derivados desde la fecha
+            int ajustes = em.createNativeQuery(ELIMINAR_AJUSTES_AUTOMATICOS_DESDE)
+                    .setParameter(1, empresaId)
+                    .setParameter(2, cuenta)
+                    .setParameter(3, custodioId)
+                    .setParameter(4, instrumentoId)
+                    .setParameter(5, fechaDesde)
+                    .executeUpdate();
+            em.createNativeQuery(ELIMINAR_SALDOS_DIARIOS_DESDE)
+                    .setParameter(1, empresaId)
+                    .setParameter(2, cuenta)
+                    .setParameter(3, custodioId)
+                    .setParameter(4, instrumentoId)
+                    .setParameter(5, fechaDesde)
+                    .executeUpdate();
+            for (String sql : new String[]{RESTAURAR_SALDO_KARDEX, ELIMINAR_SALDO_KARDEX_SIN_HISTORIA}) {
+                em.createNativeQuery(sql)
+                        .setParameter(1, empresaId)
+                        .setParameter(2, cuenta)
+                        .setParameter(3, custodioId)
+                        .setParameter(4, instrumentoId)
+                        .setParameter(5, clave)
+                        .setParameter(6, fechaDesde)
+                        .setParameter(7, grupoId)
+                        .executeUpdate();
+            }
+
+            // 5. Los lotes restaurados vuelven a lotes_abiertos con su disponible
+            em.createNativeQuery(SINCRONIZAR_LOTES_ABIERTOS_GRUPO)
+                    .setParameter(1, grupoId)
+                    .executeUpdate();
+
+            // 6. Solo la cola desde la fecha vuelve a quedar pendiente
+            int transacciones = em.createQuery("""
+                UPDATE TransaccionEntity t SET t.costeado = false, t.paraRevision = false
+                WHERE t.empresa.id = :empresaId
+                  AND t.cuenta = :cuenta
+                  AND t.custodio.id = :custodioId
+                  AND t.instrumento.id = :instrumentoId
+                  AND t.fecha >= :fechaDesde
+                """)
+                .setParameter("empresaId", empresaId)
+                .setParameter("cuenta", cuenta)
+                .setParameter("custodioId", custodioId)
+                .setParameter("instrumentoId", instrumentoId)
+                .setParameter("fechaDesde", fechaDesde)
+                .executeUpdate();
+
+            logger.info("Costeo del grupo {} revertido desde {}: {} lotes restaurados, {} detalles, {} kardex y {} ajustes eliminados, {} transacciones pendientes",
+                    clave, fechaDesde, lotes, detalles, kardex, ajustes, transacciones);
+            return transacciones;
+        });
+    }
+
+    @Override
+    public LocalDate fechaUltimoCierre(String claveAgrupacion) {
+        return executeReadOnly(em -> {
+            Object fecha = em.createNativeQuery(FECHA_ULTIMO_CIERRE)
+                    .setParameter(1, claveAgrupacion)
+                    .getSingleResult();
+            return fecha instanceof java.sql.Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) fecha;
+        });
+    }
+
+    @Override
+    public int eliminarResultadosRealizados(String claveAgrupacion) {
+        return executeInTransaction(em -> {
+            Long grupoId = GrupoCosteoResolver.buscar(em, GrupoCosteoKey.parse(claveAgrupacion));
+            if (grupoId == null) {
+                return 0;
+            }
+            int eliminados = em.createNativeQuery(ELIMINAR_RESULTADOS_GRUPO)
+                    .setParameter(1, grupoId)
+                    .executeUpdate();
+            em.createNativeQuery(ELIMINAR_TOTAL_RESULTADOS_GRUPO)
+                    .setParameter(1, grupoId)
+                    .executeUpdate();
+            return eliminados;
+        });
+    }
+
+    @Override
+    public int inicializarTablasDerivadas() {
+        return executeInTransaction(em -> {
+            int filas = 0;
+            if (!existenFilas(em, "lotes_abiertos")) {
+                int lotes = em.createNativeQuery(POBLAR_LOTES_ABIERTOS).executeUpdate();
+                logger.info("Tabla lotes_abiertos poblada desde el kardex con {} lotes.", lotes);
+                filas += lotes;
+            }
+            if (!existenFilas(em, "resultados_realizados")) {
+                int resultados = em.createNativeQuery(POBLAR_RESULTADOS_REALIZADOS).executeUpdate();
+                if (resultados > 0) {
+                    em.createNativeQuery(POBLAR_TOTALES_RESULTADOS + AGRUPAR_TOTALES_RESULTADOS).executeUpdate();
+                    logger.info("Tabla resultados_realizados poblada desde detalle_costeos con {} filas.", resultados);
+                }
+                filas += resultados;
+            }
+            return filas;
+        });
+    }
+
+    private static boolean existenFilas(EntityManager em, String tabla) {
+        Number existe = (Number) em.createNativeQuery("SELECT EXISTS(SELECT 1 FROM " + tabla + ")").getSingleResult();
+        return existe.intValue() == 1;
+    }
+}
@@ -0,0 +1,303 @@
+package com.costing.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class FifoKernelTest {
+
+    private final FifoKernelOutput out = new FifoKernelOutput(16);
+
+    @Test
+    void ingresoAbreUnLoteYActualizaElSaldo() {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+
+        int fila = kernel.ingreso(1, fp("10"), fp("100.5"));
+
+        assertEquals(0, fila);
+        assertEquals(FifoKernelOutput.INGRESO, out.tipo(0));
+        assertEquals(fp("10"), out.cantidad(0));
+        assertEquals(fp("1005"), out.costoTotal(0));
+        assertEquals(fp("10"), out.saldoCantidad(0));
+        assertEquals(fp("1005"), out.saldoValor(0));
+        assertEquals(0, out.lote(0));
+        assertEquals(fp("10"), kernel.saldoCantidad());
+        assertEquals(fp("1005"), kernel.saldoValor());
+        assertEquals(1, kernel.lotesAbiertos());
+        assertEquals(fp("10"), kernel.restanteLote(0));
+    }
+
+    @Test
+    void ingresoRechazaCantidadYPrecioInvalidos() {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+
+        assertThrows(IllegalArgumentException.class, () -> kernel.ingreso(1, 0L, fp("1")));
+        assertThrows(IllegalArgumentException.class, () -> kernel.ingreso(1, fp("1"), fp("-1")));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void egresoParcialConsumeElPrimerLote() throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        kernel.ingreso(1, fp("10"), fp("100"));
+        kernel.ingreso(2, fp("5"), fp("120"));
+
+        kernel.egreso(3, fp("4"), fp("130"));
+
+        assertEquals(3, out.size());
+        assertEquals(FifoKernelOutput.EGRESO, out.tipo(2));
+        assertEquals(0, out.lote(2));
+        assertEquals(fp("4"), out.cantidad(2));
+        assertEquals(fp("100"), out.costoUnitario(2));
+        assertEquals(fp("400"), out.costoTotal(2));
+        assertEquals(fp("11"), out.saldoCantidad(2));
+        assertEquals(fp("1200"), out.saldoValor(2));
+        assertEquals(fp("6"), kernel.restanteLote(0));
+        assertEquals(fp("5"), kernel.restanteLote(1));
+        assertEquals(2, kernel.lotesAbiertos());
+    }
+
+    @Test
+    void egresoQueCruzaLotesEmiteUnaFilaPorLote() throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        kernel.ingreso(1, fp("10"), fp("100"));
+        kernel.ingreso(2, fp("5"), fp("120"));
+
+        kernel.egreso(3, fp("12"), fp("130"));
+
+        assertEquals(4, out.size());
+        assertEquals(0, out.lote(2));
+        assertEquals(fp("10"), out.cantidad(2));
+        assertEquals(fp("1000"), out.costoTotal(2));
+        assertEquals(fp("5"), out.saldoCantidad(2));
+        assertEquals(fp("600"), out.saldoValor(2));
+        assertEquals(1, out.lote(3));
+        assertEquals(fp("2"), out.cantidad(3));
+        assertEquals(fp("240"), out.costoTotal(3));
+        assertEquals(fp("3"), out.saldoCantidad(3));
+        assertEquals(fp("360"), out.saldoValor(3));
+        assertEquals(0L, kernel.restanteLote(0));
+        assertEquals(fp("3"), kernel.restanteLote(1));
+        assertEquals(1, kernel.lotesAbiertos());
+    }
+
+    @Test
+    void egresoTotalDejaSaldoYColaEnCero() throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        kernel.ingreso(1, fp("10"), fp("100"));
+        kernel.ingreso(2, fp("5"), fp("120"));
+
+        kernel.egreso(3, fp("15"), fp("130"));
+
+        assertEquals(0L, kernel.saldoCantidad());
+        assertEquals(0L, kernel.saldoValor());
+        assertEquals(0, kernel.lotesAbiertos());
+        assertEquals(2, kernel.lotesRegistrados());
+    }
+
+    @Test
+    void egresoUsaLosLotesDeApertura() throws Exception {
+        FifoKernel kernel = new FifoKernel(fp("8"), fp("840"), out);
+        int lote = kernel.abrirLote(fp("8"), fp("105"));
+
+        kernel.egreso(1, fp("3"), fp("110"));
+
+        assertEquals(1, out.size());
+        assertEquals(lote, out.lote(0));
+        assertEquals(fp("315"), out.costoTotal(0));
+        assertEquals(fp("5"), kernel.saldoCantidad());
+        assertEquals(fp("525"), kernel.saldoValor());
+    }
+
+    @Test
+    void sobreventaFueraDeToleranciaNoModificaElEstado() {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        kernel.ingreso(1, fp("10"), fp("100"));
+
+        assertThrows(InsufficientBalanceException.class, () -> kernel.egreso(2, fp("11"), fp("100")));
+
+        assertEquals(1, out.size());
+        assertEquals(fp("10"), kernel.saldoCantidad());
+        assertEquals(fp("1000"), kernel.saldoValor());
+        assertEquals(fp("10"), kernel.restanteLote(0));
+        assertEquals(1, kernel.lotesAbiertos());
+    }
+
+    @Test
+    void sobreventaDentroDeToleranciaCreaUnAjustePrevio() throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        kernel.ingreso(1, fp("10"), fp("100"));
+
+        kernel.egreso(2, fp("10.4"), fp("90"));
+
+        assertEquals(FifoKernelOutput.AJUSTE_TOLERANCIA, out.tipo(1));
+        assertEquals(fp("0.4"), out.cantidad(1));
+        assertEquals(fp("36"), out.costoTotal(1));
+        assertEquals(fp("10.4"), out.saldoCantidad(1));
+        // Se consume primero el lote original y luego el del ajuste
+        assertEquals(0, out.lote(2));
+        assertEquals(out.lote(1), out.lote(3));
+        assertEquals(fp("0.4"), out.cantidad(3));
+        assertEquals(0L, kernel.saldoCantidad());
+        assertEquals(0L, kernel.saldoValor());
+    }
+
+    @Test
+    void egresoSinLotesSuficientesFallaAunqueHayaSaldo() {
+        // Saldo de apertura sin lotes que lo respalden
+        FifoKernel kernel = new FifoKernel(fp("10"), fp("1000"), out);
+
+        assertThrows(InsufficientBalanceException.class, () -> kernel.egreso(1, fp("5"), fp("100")));
+        assertEquals(0, out.size());
+        assertEquals(fp("10"), kernel.saldoCantidad());
+    }
+
+    @Test
+    void procesarSeDetieneEnElPrimerEgresoSinSaldo() {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        long[] refs = {1, 2, 3, 4};
+        boolean[] esIngreso = {true, false, false, true};
+        long[] cantidades = {fp("5"), fp("3"), fp("3"), fp("1")};
+        long[] precios = {fp("10"), fp("11"), fp("11"), fp("12")};
+
+        int procesados = kernel.procesar(refs, esIngreso, cantidades, precios, 4);
+
+        assertEquals(2, procesados);
+        assertEquals(fp("2"), kernel.saldoCantidad());
+        assertEquals(2, out.size());
+    }
+
+    @Test
+    void colaCreceSobreSuCapacidadInicial() throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        for (int i = 0; i < 200; i++) {
+            kernel.ingreso(i, fp("1"), fp(Integer.toString(100 + i)));
+        }
+        kernel.egreso(999, fp("150"), fp("1"));
+
+        assertEquals(50, kernel.lotesAbiertos());
+        assertEquals(fp("50"), kernel.saldoCantidad());
+        // Quedan los lotes 150..199, a precios 250..299
+        long esperado = 0;
+        for (int i = 150; i < 200; i++) {
+            esperado += fp(Integer.toString(100 + i));
+        }
+        assertEquals(esperado, kernel.saldoValor());
+    }
+
+    /**
+     * Con cantidades enteras y precios de hasta 4 decimales los productos son exactos a escala 6,
+     * así que el kernel debe dar exactamente lo mismo que el cálculo anterior en BigDecimal.
+     */
+    @Test
+    void coincideConElCalculoBigDecimalEnProductosExactos() throws Exception {
+        compararConReferencia(new SplittableRandom(42), 20_000, 0, 4, true);
+    }
+
+    /**
+     * Con 6 decimales en cantidad y precio el kernel redondea cada costo parcial a escala 6:
+     * cada fila coincide con el costo anterior redondeado, y los saldos de valor difieren a lo más
+     * medio micro por fila de egreso.
+     */
+    @Test
+    void coincideConElCalculoBigDecimalRedondeadoAEscala6() throws Exception {
+        compararConReferencia(new SplittableRandom(7), 20_000, 6, 6, false);
+    }
+
+    private void compararConReferencia(SplittableRandom random, int movimientos, int decimalesCantidad,
+                                       int decimalesPrecio, boolean exacto) throws Exception {
+        FifoKernel kernel = new FifoKernel(0L, 0L, out);
+        ReferenciaBigDecimal referencia = new ReferenciaBigDecimal();
+        int filasEgreso = 0;
+
+        for (int i = 0; i < movimientos; i++) {
+            BigDecimal cantidad = aleatorio(random, 1, 100, decimalesCantidad);
+            BigDecimal precio = aleatorio(random, 1, 5_000, decimalesPrecio);
+            boolean ingreso = referencia.saldoCantidad.compareTo(cantidad) < 0 || random.nextInt(10) < 6;
+            int desde = out.size();
+            List<BigDecimal> costos;
+            if (ingreso) {
+                kernel.ingreso(i, FixedPoint.of(cantidad), FixedPoint.of(precio));
+                costos = List.of(referencia.ingreso(cantidad, precio));
+            } else {
+                kernel.egreso(i, FixedPoint.of(cantidad), FixedPoint.of(precio));
+                costos = referencia.egreso(cantidad);
+                filasEgreso += costos.size();
+            }
+
+            assertEquals(costos.size(), out.size() - desde, "filas del movimiento " + i);
+            for (int f = 0; f < costos.size(); f++) {
+                assertEquals(FixedPoint.of(costos.get(f)), out.costoTotal(desde + f), "costo de la fila " + (desde + f));
+            }
+            assertEquals(FixedPoint.of(referencia.saldoCantidad), kernel.saldoCantidad(), "saldo de cantidad en " + i);
+            long diferencia = Math.abs(FixedPoint.of(referencia.saldoValor) - kernel.saldoValor());
+            if (exacto) {
+                assertEquals(0L, diferencia, "saldo de valor en " + i);
+            } else {
+                assertTrue(diferencia <= (long) out.size(), "saldo de valor en " + i + " difiere en " + diferencia);
+            }
+        }
+        assertTrue(filasEgreso > 0);
+    }
+
+    private static BigDecimal aleatorio(SplittableRandom random, int minimo, int maximo, int decimales) {
+        BigDecimal entero = BigDecimal.valueOf(random.nextInt(minimo, maximo));
+        if (decimales == 0) {
+            return entero;
+        }
+        long fraccion = random.nextLong((long) Math.pow(10, decimales));
+        return entero.add(BigDecimal.valueOf(fraccion, decimales));
+    }
+
+    private static long fp(String valor) {
+        return FixedPoint.of(new BigDecimal(valor));
+    }
+
+    /**
+     * El FIFO tal como lo calculaban IngresoHandler y EgresoHandler antes del kernel:
+     * BigDecimal sin redondeo intermedio y una cola de lotes.
+     */
+    private static final class ReferenciaBigDecimal {
+
+        private final Deque<BigDecimal[]> cola = new ArrayDeque<>(); // {disponible, costoUnitario}
+        private BigDecimal saldoCantidad = BigDecimal.ZERO;
+        private BigDecimal saldoValor = BigDecimal.ZERO;
+
+        BigDecimal ingreso(BigDecimal cantidad, BigDecimal precio) {
+            BigDecimal valor = cantidad.multiply(precio);
+            saldoCantidad = saldoCantidad.add(cantidad);
+            saldoValor = saldoValor.add(valor);
+            cola.addLast(new BigDecimal[]{cantidad, precio});
+            return valor;
+        }
+
+        List<BigDecimal> egreso(BigDecimal cantidad) {
+            List<BigDecimal> costos = new ArrayList<>();
+            BigDecimal pendiente = cantidad;
+            BigDecimal costoTotal = BigDecimal.ZERO;
+            while (pendiente.signum() > 0) {
+                BigDecimal[] lote = cola.peekFirst();
+                BigDecimal usada = pendiente.min(lote[0]);
+                BigDecimal costoParcial = usada.multiply(lote[1]);
+                costos.add(costoParcial);
+                costoTotal = costoTotal.add(costoParcial);
+                lote[0] = lote[0].subtract(usada);
+                pendiente = pendiente.subtract(usada);
+                if (lote[0].signum() <= 0) {
+                    cola.pollFirst();
+                }
+            }
+            saldoCantidad = saldoCantidad.subtract(cantidad);
+            saldoValor = saldoValor.subtract(costoTotal);
+            return costos;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.costing.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class FixedPointTest {
+
+    @Test
+    void ofRedondeaHalfUpAEscala6() {
+        assertEquals(1_234_568L, FixedPoint.of(new BigDecimal("1.2345675")));
+        assertEquals(1_234_567L, FixedPoint.of(new BigDecimal("1.2345674999")));
+        assertEquals(-1_234_568L, FixedPoint.of(new BigDecimal("-1.2345675")));
+        assertEquals(5_000_000L, FixedPoint.of(new BigDecimal("5")));
+        assertEquals(0L, FixedPoint.of(null));
+    }
+
+    @Test
+    void toBigDecimalConservaLaEscala() {
+        assertEquals(new BigDecimal("1.500000"), FixedPoint.toBigDecimal(1_500_000L));
+        assertEquals(new BigDecimal("-0.000001"), FixedPoint.toBigDecimal(-1L));
+    }
+
+    @Test
+    void mulRedondeaHalfUpEnAmbosSignos() {
+        // 0,000001 * 0,5 = 0,0000005 -> 0,000001
+        assertEquals(1L, FixedPoint.mul(1L, 500_000L));
+        assertEquals(-1L, FixedPoint.mul(-1L, 500_000L));
+        // 0,000001 * 0,499999 -> 0
+        assertEquals(0L, FixedPoint.mul(1L, 499_999L));
+        assertEquals(6_000_000L, FixedPoint.mul(2_000_000L, 3_000_000L));
+    }
+
+    @Test
+    void mulConDesbordeUsaElCaminoLento() {
+        long grande = FixedPoint.of(new BigDecimal("9000000000.123456"));
+        long factor = FixedPoint.of(new BigDecimal("1000.5"));
+        assertEquals(referenciaMul(grande, factor), FixedPoint.mul(grande, factor));
+    }
+
+    @Test
+    void divRedondeaHalfUp() {
+        // 1 / 3 = 0,333333
+        assertEquals(333_333L, FixedPoint.div(FixedPoint.ONE, 3 * FixedPoint.ONE));
+        // 2 / 3 = 0,666667
+        assertEquals(666_667L, FixedPoint.div(2 * FixedPoint.ONE, 3 * FixedPoint.ONE));
+        assertEquals(-666_667L, FixedPoint.div(-2 * FixedPoint.ONE, 3 * FixedPoint.ONE));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.div(FixedPoint.ONE, 0L));
+    }
+
+    @Test
+    void mulYDivCoincidenConBigDecimal() {
+        SplittableRandom random = new SplittableRandom(7);
+        // Resultados de hasta 10^12 unidades, dentro del rango de long a escala 6
+        for (int i = 0; i < 100_000; i++) {
+            long a = random.nextLong(-1_000_000_000_000_000L, 1_000_000_000_000_000L);
+            long b = random.nextLong(-1_000_000_000L, 1_000_000_000L);
+            long d = random.nextLong(FixedPoint.ONE, 10_000 * FixedPoint.ONE) * (random.nextBoolean() ? 1 : -1);
+            assertEquals(referenciaMul(a, b), FixedPoint.mul(a, b), () -> "mul " + a + " * " + b);
+            assertEquals(referenciaDiv(a, d), FixedPoint.div(a, d), () -> "div " + a + " / " + d);
+        }
+    }
+
+    private static long referenciaMul(long a, long b) {
+        return FixedPoint.toBigDecimal(a).multiply(FixedPoint.toBigDecimal(b))
+                .setScale(FixedPoint.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long referenciaDiv(long a, long b) {
+        return FixedPoint.toBigDecimal(a).divide(FixedPoint.toBigDecimal(b), FixedPoint.SCALE, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+    }
+}
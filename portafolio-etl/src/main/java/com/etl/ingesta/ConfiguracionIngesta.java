@@ -0,0 +1,57 @@
+package com.etl.ingesta;
+
+import com.app.enums.ListaEnumsCustodios;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Parámetros de {@link IngestaCartolasService}.
+ *
+ * @param entrada Directorio vigilado donde se dejan las cartolas.
+ * @param diario Archivo del diario de archivos procesados.
+ * @param estabilidad Tiempo que un archivo debe quedar sin cambiar de tamaño ni de fecha antes de cargarlo.
+ * @param intervalo Cada cuánto se revisan los archivos pendientes.
+ * @param capacidadCola Archivos estables que pueden esperar su carga; el resto espera en el directorio.
+ * @param custodioPorDefecto Custodio de los archivos que no se reconocen, o null para rechazarlos.
+ * @param moverProcesados Si se mueven los archivos a {@code procesados/} o {@code errores/} al terminar.
+ */
+public record ConfiguracionIngesta(Path entrada, Path diario, Duration estabilidad, Duration intervalo,
+                                   int capacidadCola, ListaEnumsCustodios custodioPorDefecto,
+                                   boolean moverProcesados) {
+
+    public ConfiguracionIngesta {
+        Objects.requireNonNull(entrada, "El directorio de entrada es obligatorio");
+        Objects.requireNonNull(diario, "El archivo del diario es obligatorio");
+        if (estabilidad.isNegative() || intervalo.isNegative() || intervalo.isZero()) {
+            throw new IllegalArgumentException("Los tiempos de estabilidad e intervalo no son válidos");
+        }
+        if (capacidadCola <= 0) {
+            throw new IllegalArgumentException("La capacidad de la cola debe ser mayor a cero");
+        }
+    }
+
+    /**
+     * Vigila {@code entrada} y guarda el diario en {@code entrada/.ingesta/diario.tsv}.
+     */
+    public static ConfiguracionIngesta porDefecto(Path entrada) {
+        return new ConfiguracionIngesta(entrada, entrada.resolve(".ingesta").resolve("diario.tsv"),
+                Duration.ofSeconds(2), Duration.ofMillis(500), 16, null, true);
+    }
+
+    public ConfiguracionIngesta conCustodioPorDefecto(ListaEnumsCustodios custodio) {
+        return new ConfiguracionIngesta(entrada, diario, estabilidad, intervalo, capacidadCola, custodio, moverProcesados);
+    }
+
+    public ConfiguracionIngesta conEstabilidad(Duration estabilidad) {
+        return new ConfiguracionIngesta(entrada, diario, estabilidad, intervalo, capacidadCola, custodioPorDefecto, moverProcesados);
+    }
+
+    public Path procesados() {
+        return entrada.resolve("procesados");
+    }
+
+    public Path errores() {
+        return entrada.resolve("errores");
+    }
+}
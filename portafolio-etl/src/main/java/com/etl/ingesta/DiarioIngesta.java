@@ -0,0 +1,126 @@
+package com.etl.ingesta;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Diario persistente de los archivos que pasaron por la ingesta: un archivo de texto (UTF-8,
+ * separado por tabuladores) al que solo se agregan líneas. Cada archivo se identifica por el
+ * SHA-256 de su contenido, así que una cartola que se vuelve a dejar, aunque tenga otro
+ * nombre, no se carga dos veces; y tras un reinicio se sabe qué quedó cargado.
+ * <p>
+ * Columnas: instante, sha256, estado, custodio, filas, duplicados, nombre, mensaje.
+ */
+public class DiarioIngesta implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioIngesta.class);
+
+    public enum Estado {
+        CARGADO,
+        FALLIDO,
+        OMITIDO,
+        SIN_CUSTODIO
+    }
+
+    private final Path archivo;
+    private final Set<String> cargados = new HashSet<>();
+    private final BufferedWriter escritor;
+
+    public DiarioIngesta(Path archivo) throws IOException {
+        this.archivo = archivo;
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        if (Files.exists(archivo)) {
+            leer(Files.readAllLines(archivo, StandardCharsets.UTF_8));
+        }
+        this.escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @return true si un archivo con este contenido ya se cargó correctamente.
+     */
+    public synchronized boolean yaCargado(String sha256) {
+        return cargados.contains(sha256);
+    }
+
+    /**
+     * Agrega una línea al diario y la lleva al disco antes de volver.
+     */
+    public synchronized void registrar(String sha256, Estado estado, String custodio, int filas,
+                                       int duplicados, String nombre, String mensaje) throws IOException {
+        escritor.write(String.join("\t", Instant.now().toString(), sha256, estado.name(),
+                campo(custodio), Integer.toString(filas), Integer.toString(duplicados), campo(nombre), campo(mensaje)));
+        escritor.newLine();
+        escritor.flush();
+        if (estado == Estado.CARGADO) {
+            cargados.add(sha256);
+        }
+    }
+
+    public synchronized int getCargados() {
+        return cargados.size();
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * SHA-256 del contenido del archivo, en hexadecimal.
+     */
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int leidos;
+            while ((leidos = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, leidos);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        escritor.close();
+    }
+
+    private void leer(List<String> lineas) {
+        for (String linea : lineas) {
+            String[] campos = linea.split("\t", -1);
+            if (campos.length < 3) {
+                continue;
+            }
+            if (Estado.CARGADO.name().equals(campos[2])) {
+                cargados.add(campos[1]);
+            }
+        }
+        logger.info("Diario de ingesta {}: {} archivos ya cargados.", archivo, cargados.size());
+    }
+
+    // Los tabuladores y saltos de línea romperían el formato de la línea
+    private static String campo(String valor) {
+        return valor == null ? "" : valor.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,378 @@
+package com.etl.ingesta;
+
+import com.app.dto.ResultadoCargaDto;
+import com.app.enums.ListaEnumsCustodios;
+import com.etl.service.LectorCartolasService;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Ingesta automática de cartolas: vigila un directorio con {@link WatchService} y carga cada
+ * planilla que aparece, sin que nadie tenga que elegir el archivo ni el custodio.
+ * <p>
+ * Por cada archivo:
+ * <ol>
+ *   <li>Se espera a que quede estable: mismo tamaño y fecha de modificación durante
+ *       {@link ConfiguracionIngesta#estabilidad()} y que se pueda abrir (la descarga o la copia terminó).</li>
+ *   <li>Se calcula su SHA-256; si el {@link DiarioIngesta} ya lo tiene como cargado, se omite.</li>
+ *   <li>Se reconoce el custodio por el nombre o la forma de la planilla
+ *       ({@link LectorCartolasService#detectarCustodio}).</li>
+ *   <li>Se entrega al {@link ProcesadorIngesta}, que carga, normaliza y costea.</li>
+ *   <li>Se registra el resultado en el diario y el archivo pasa a {@code procesados/} o {@code errores/}.</li>
+ * </ol>
+ * Un hilo vigila el directorio y otro carga los archivos de a uno, así que las cargas nunca se
+ * superponen. Entre ambos hay una cola acotada: si se llena, los archivos estables siguen
+ * esperando en el directorio y se encolan cuando hay espacio.
+ */
+public class IngestaCartolasService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaCartolasService.class);
+
+    private final ConfiguracionIngesta configuracion;
+    private final ProcesadorIngesta procesador;
+
+    // Archivos vistos que todavía no se encolan, con su última observación
+    private final Map<Path, Observacion> candidatos = new ConcurrentHashMap<>();
+    // Archivos encolados o cargándose
+    private final Set<Path> enCurso = ConcurrentHashMap.newKeySet();
+    // Archivos ya procesados que quedaron en el directorio (si no se mueven)
+    private final Map<Path, Observacion> terminados = new ConcurrentHashMap<>();
+    private final BlockingQueue<Path> cola;
+
+    private final AtomicInteger cargados = new AtomicInteger();
+    private final AtomicInteger fallidos = new AtomicInteger();
+    private final AtomicInteger omitidos = new AtomicInteger();
+
+    private DiarioIngesta diario;
+    private WatchService watchService;
+    private Thread vigilante;
+    private Thread cargador;
+    private volatile boolean activo;
+
+    /**
+     * Tamaño y fecha de un archivo, y desde cuándo no cambian.
+     */
+    private record Observacion(long tamano, long modificado, long desdeNanos) {
+
+        boolean mismoArchivo(long tamano, long modificado) {
+            return this.tamano == tamano && this.modificado == modificado;
+        }
+    }
+
+    public IngestaCartolasService(ConfiguracionIngesta configuracion, ProcesadorIngesta procesador) {
+        this.configuracion = configuracion;
+        this.procesador = procesador;
+        this.cola = new ArrayBlockingQueue<>(configuracion.capacidadCola());
+    }
+
+    /**
+     * Abre el diario, registra el directorio en el WatchService, agrega los archivos que ya
+     * estaban y arranca los hilos de vigilancia y de carga.
+     */
+    public synchronized void iniciar() throws IOException {
+        if (activo) {
+            throw new IllegalStateException("La ingesta ya está iniciada.");
+        }
+        Files.createDirectories(configuracion.entrada());
+        if (configuracion.moverProcesados()) {
+            Files.createDirectories(configuracion.procesados());
+            Files.createDirectories(configuracion.errores());
+        }
+        diario = new DiarioIngesta(configuracion.diario());
+        watchService = FileSystems.getDefault().newWatchService();
+        configuracion.entrada().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        escanear();
+
+        activo = true;
+        vigilante = new Thread(this::vigilar, "ingesta-vigilante");
+        vigilante.setDaemon(true);
+        cargador = new Thread(this::cargar, "ingesta-carga");
+        cargador.setDaemon(true);
+        vigilante.start();
+        cargador.start();
+        logger.info("Ingesta de cartolas iniciada en {} (diario: {}).", configuracion.entrada(), configuracion.diario());
+    }
+
+    /**
+     * Espera a que no queden archivos pendientes, encolados ni cargándose. Antes vuelve a mirar
+     * el directorio, por si hay archivos cuyo evento todavía no llega.
+     * @return false si se cumplió el plazo antes.
+     */
+    public boolean esperarInactividad(Duration plazo) throws IOException, InterruptedException {
+        escanear();
+        long limite = System.nanoTime() + plazo.toNanos();
+        while (!candidatos.isEmpty() || !enCurso.isEmpty()) {
+            if (System.nanoTime() >= limite) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    public int getCargados() {
+        return cargados.get();
+    }
+
+    public int getFallidos() {
+        return fallidos.get();
+    }
+
+    public int getOmitidos() {
+        return omitidos.get();
+    }
+
+    /**
+     * Detiene la vigilancia y espera a que termine la carga en curso, sin plazo.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        watchService.close();
+        vigilante.interrupt();
+        // El archivo que se está cargando termina y registra su resultado; los encolados esperan
+        // al próximo inicio. El diario se cierra recién cuando ningún hilo puede escribir en él.
+        esperarTermino(vigilante);
+        esperarTermino(cargador);
+        diario.close();
+        logger.info("Ingesta de cartolas detenida: {} cargados, {} fallidos, {} omitidos.",
+                cargados.get(), fallidos.get(), omitidos.get());
+    }
+
+    /**
+     * Espera sin plazo a que el hilo termine, aunque interrumpan al que cierra; la interrupción
+     * se restablece al final.
+     */
+    private static void esperarTermino(Thread hilo) {
+        boolean interrumpido = false;
+        while (hilo.isAlive()) {
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Vigilancia ---
+
+    private void vigilar() {
+        long intervalo = configuracion.intervalo().toMillis();
+        while (activo) {
+            try {
+                WatchKey key = watchService.poll(intervalo, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> evento : key.pollEvents()) {
+                        if (evento.kind() == OVERFLOW) {
+                            // Se perdieron eventos: se vuelve a mirar el directorio completo
+                            escanear();
+                        } else {
+                            agregarCandidato(configuracion.entrada().resolve((Path) evento.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                revisarCandidatos();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("Error en la vigilancia del directorio {}.", configuracion.entrada(), e);
+            }
+        }
+    }
+
+    private void escanear() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(configuracion.entrada())) {
+            for (Path archivo : archivos) {
+                agregarCandidato(archivo);
+            }
+        }
+    }
+
+    private void agregarCandidato(Path archivo) {
+        if (esPlanilla(archivo) && !enCurso.contains(archivo)) {
+            candidatos.putIfAbsent(archivo, new Observacion(-1, -1, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Encola los candidatos que ya están estables, mientras haya espacio en la cola.
+     */
+    private void revisarCandidatos() {
+        long ahora = System.nanoTime();
+        long estabilidad = configuracion.estabilidad().toNanos();
+        for (Map.Entry<Path, Observacion> candidato : candidatos.entrySet()) {
+            Path archivo = candidato.getKey();
+            Observacion anterior = candidato.getValue();
+            long tamano;
+            long modificado;
+            try {
+                tamano = Files.size(archivo);
+                modificado = Files.getLastModifiedTime(archivo).toMillis();
+            } catch (IOException e) {
+                // Se borró o se renombró (p. ej. el .crdownload al terminar)
+                candidatos.remove(archivo);
+                continue;
+            }
+            if (!anterior.mismoArchivo(tamano, modificado)) {
+                candidatos.put(archivo, new Observacion(tamano, modificado, ahora));
+                continue;
+            }
+            Observacion terminado = terminados.get(archivo);
+            if (terminado != null && terminado.mismoArchivo(tamano, modificado)) {
+                candidatos.remove(archivo);
+                continue;
+            }
+            if (ahora - anterior.desdeNanos() < estabilidad || !sePuedeAbrir(archivo)) {
+                continue;
+            }
+            enCurso.add(archivo);
+            if (!cola.offer(archivo)) {
+                // Cola llena: el archivo sigue esperando en el directorio
+                enCurso.remove(archivo);
+                return;
+            }
+            candidatos.remove(archivo);
+        }
+    }
+
+    // --- Carga ---
+
+    private void cargar() {
+        long intervalo = configuracion.intervalo().toMillis();
+        while (activo) {
+            Path archivo;
+            try {
+                archivo = cola.poll(intervalo, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (archivo == null) {
+                continue;
+            }
+            try {
+                procesarArchivo(archivo);
+            } catch (Exception e) {
+                logger.error("Error inesperado al ingerir el archivo {}.", archivo.getFileName(), e);
+            } finally {
+                enCurso.remove(archivo);
+            }
+        }
+    }
+
+    private void procesarArchivo(Path archivo) throws IOException {
+        String nombre = archivo.getFileName().toString();
+        long tamano = Files.size(archivo);
+        long modificado = Files.getLastModifiedTime(archivo).toMillis();
+        String sha256 = DiarioIngesta.sha256(archivo);
+
+        if (diario.yaCargado(sha256)) {
+            logger.info("El archivo {} ya se había cargado; se omite.", nombre);
+            diario.registrar(sha256, DiarioIngesta.Estado.OMITIDO, null, 0, 0, nombre, "Contenido ya cargado");
+            omitidos.incrementAndGet();
+            terminar(archivo, tamano, modificado, configuracion.procesados());
+            return;
+        }
+
+        ListaEnumsCustodios custodio = LectorCartolasService.detectarCustodio(archivo.toFile());
+        if (custodio == null) {
+            custodio = configuracion.custodioPorDefecto();
+        }
+        if (custodio == null) {
+            logger.warn("No se reconoce el custodio del archivo {}.", nombre);
+            diario.registrar(sha256, DiarioIngesta.Estado.SIN_CUSTODIO, null, 0, 0, nombre, "Custodio no reconocido");
+            fallidos.incrementAndGet();
+            terminar(archivo, tamano, modificado, configuracion.errores());
+            return;
+        }
+
+        logger.info("Ingiriendo el archivo {} ({}).", nombre, custodio);
+        ResultadoCargaDto resultado;
+        try {
+            resultado = procesador.procesar(archivo.toFile(), custodio);
+        } catch (Exception e) {
+            logger.error("Falló la ingesta del archivo {}.", nombre, e);
+            diario.registrar(sha256, DiarioIngesta.Estado.FALLIDO, custodio.name(), 0, 0, nombre, e.getMessage());
+            fallidos.incrementAndGet();
+            terminar(archivo, tamano, modificado, configuracion.errores());
+            return;
+        }
+
+        // Fuera del try de la carga: si falla el traslado, la carga ya quedó en el diario y el
+        // archivo sigue en la entrada; el siguiente escaneo lo omite por contenido y lo vuelve a mover.
+        diario.registrar(sha256, DiarioIngesta.Estado.CARGADO, custodio.name(),
+                resultado.getTransaccionesCreadas(), resultado.getDuplicadosOmitidos(), nombre, resultado.getMensaje());
+        cargados.incrementAndGet();
+        terminar(archivo, tamano, modificado, configuracion.procesados());
+    }
+
+    /**
+     * Mueve el archivo a su destino o, si no se mueven, lo recuerda para no volver a encolarlo
+     * mientras no cambie.
+     */
+    private void terminar(Path archivo, long tamano, long modificado, Path destino) throws IOException {
+        if (!configuracion.moverProcesados()) {
+            terminados.put(archivo, new Observacion(tamano, modificado, System.nanoTime()));
+            return;
+        }
+        Path objetivo = destino.resolve(archivo.getFileName());
+        if (Files.exists(objetivo)) {
+            objetivo = destino.resolve(System.currentTimeMillis() + "-" + archivo.getFileName());
+        }
+        Files.move(archivo, objetivo, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // --- Utilidades ---
+
+    /**
+     * Solo planillas; se ignoran los temporales de Excel ({@code ~$}) y las descargas a medias.
+     */
+    private static boolean esPlanilla(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase();
+        if (nombre.startsWith("~$") || nombre.startsWith(".")) {
+            return false;
+        }
+        return (nombre.endsWith(".xlsx") || nombre.endsWith(".xls")) && Files.isRegularFile(archivo);
+    }
+
+    /**
+     * En Windows un archivo que otro proceso sigue escribiendo no se deja abrir.
+     */
+    private static boolean sePuedeAbrir(Path archivo) {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return canal.size() >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.etl.ingesta;
+
+import com.app.dto.ResultadoCargaDto;
+import com.app.enums.ListaEnumsCustodios;
+import com.etl.service.LectorCartolasService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import java.io.File;
+import java.util.function.Supplier;
+
+/**
+ * Lo que la ingesta automática hace con cada archivo ya estable y con su custodio reconocido.
+ * <p>
+ * El módulo ETL solo sabe cargar las cartolas ({@link #soloCarga}); la normalización y el
+ * costeo se encadenan desde el módulo de servicios, que implementa esta interfaz con el
+ * proceso de carga diaria completo.
+ */
+@FunctionalInterface
+public interface ProcesadorIngesta {
+
+    /**
+     * @return el resultado de la carga.
+     * @throws Exception si el archivo no se pudo cargar; queda registrado como fallido.
+     */
+    ResultadoCargaDto procesar(File archivo, ListaEnumsCustodios custodio) throws Exception;
+
+    /**
+     * Carga el archivo con {@link LectorCartolasService} en su propia transacción, sin
+     * normalizar ni costear.
+     * @param entityManagers Entrega un EntityManager nuevo por archivo; se cierra al terminar.
+     */
+    static ProcesadorIngesta soloCarga(Supplier<EntityManager> entityManagers) {
+        return (archivo, custodio) -> {
+            EntityManager em = entityManagers.get();
+            EntityTransaction tx = em.getTransaction();
+            try {
+                tx.begin();
+                ResultadoCargaDto resultado = new LectorCartolasService(em).cargar(custodio, archivo);
+                if (resultado.isFallido()) {
+                    tx.rollback();
+                    throw new IllegalStateException(resultado.getMensaje());
+                }
+                tx.commit();
+                return resultado;
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            } finally {
+                em.close();
+            }
+        };
+    }
+}
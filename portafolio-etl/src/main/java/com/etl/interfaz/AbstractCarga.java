@@ -2,12 +2,19 @@ package com.etl.interfaz;
 
 import com.app.dto.ResultadoCargaDto; 
 import com.app.exception.MappingException;
+import com.etl.util.ClavesCargaExistentes;
+import com.etl.util.EscritorCargaTransacciones;
+import com.etl.util.LectorXlsxStreaming;
 import jakarta.persistence.EntityManager;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.time.Duration; 
 import java.time.Instant; 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -19,11 +26,51 @@ public abstract class AbstractCarga<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractCarga.class);
     protected final EntityManager entityManager;
+    private ModoLectura modoLectura = ModoLectura.AUTOMATICO;
+    private int tamanoLoteEscritura = EscritorCargaTransacciones.DEFAULT_BATCH_SIZE;
+    private int filasPorCommit = 0;
 
     public AbstractCarga(EntityManager entityManager) {
         this.entityManager = entityManager;
     }
 
+    public ModoLectura getModoLectura() {
+        return modoLectura;
+    }
+
+    public void setModoLectura(ModoLectura modoLectura) {
+        this.modoLectura = modoLectura != null ? modoLectura : ModoLectura.AUTOMATICO;
+    }
+
+    public int getTamanoLoteEscritura() {
+        return tamanoLoteEscritura;
+    }
+
+    /**
+     * Filas por INSERT en lote hacia {@code carga_transacciones}.
+     */
+    public void setTamanoLoteEscritura(int tamanoLoteEscritura) {
+        if (tamanoLoteEscritura <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a cero");
+        }
+        this.tamanoLoteEscritura = tamanoLoteEscritura;
+    }
+
+    public int getFilasPorCommit() {
+        return filasPorCommit;
+    }
+
+    /**
+     * Filas entre commits parciales durante la escritura; 0 (por defecto) deja toda la carga
+     * en la transacción del llamador.
+     */
+    public void setFilasPorCommit(int filasPorCommit) {
+        if (filasPorCommit < 0) {
+            throw new IllegalArgumentException("Las filas por commit no pueden ser negativas");
+        }
+        this.filasPorCommit = filasPorCommit;
+    }
+
     // --- Métodos Abstractos (no cambian) ---
     protected abstract String getSheetType(File file, int sheetIndex);
     protected abstract CargaMapperInterfaz<T> getMapper(String sheetType);
@@ -45,10 +92,143 @@ public abstract class AbstractCarga<T> {
 
         // --- Inicializar contadores y cronómetro ---
         Instant inicio = Instant.now();
-        int filasProcesadas = 0;
-        int erroresDeMapeo = 0;
+        Conteo conteo = new Conteo();
+        ClavesCargaExistentes claves = new ClavesCargaExistentes(entityManager);
+        EscritorCargaTransacciones escritor = crearEscritor();
+        List<AbstractCargaProcessor<T>> procesadores = new ArrayList<>();
+
+        try {
+            // Cada DTO va directo al procesador de su hoja, sin acumular el archivo en memoria
+            recorrer(file, sheetType -> {
+                AbstractCargaProcessor<T> processor = crearProcessor(sheetType, claves, escritor);
+                procesadores.add(processor);
+                return processor::procesar;
+            }, conteo);
+        } catch (IOException e) {
+            logger.error("Error crítico al leer el archivo: {}", file.getName(), e);
+            return ResultadoCargaDto.fallido("Error de I/O al leer el archivo: " + e.getMessage());
+        }
+        int omitidos = finalizar(procesadores);
+
+        // --- Devolver el resultado final exitoso ---
+        Duration duracion = Duration.between(inicio, Instant.now());
+        double filasPorSegundo = escritor.getEstadisticas().filasPorSegundo();
+        String mensaje = String.format("Proceso completado. Filas procesadas: %d, Duplicados omitidos: %d, Errores: %d, Escritura: %,.0f filas/s.",
+                conteo.filas, omitidos, conteo.errores, filasPorSegundo);
+        return new ResultadoCargaDto(conteo.filas, conteo.errores, duracion, mensaje, omitidos, filasPorSegundo);
+    }
+
+    /**
+     * Primera etapa de una carga por lotes: lee y mapea el archivo sin escribir nada, dejando
+     * los DTOs de cada hoja en memoria. No usa el EntityManager, así que varios archivos pueden
+     * leerse en paralelo con la misma instancia.
+     * @return la lectura; si el archivo no se pudo leer, indica el error.
+     */
+    public LecturaCarga<T> leer(File file) {
+        if (file == null || !file.exists() || file.getName().startsWith("~$")) {
+            return LecturaCarga.fallida(file, "El archivo proporcionado es inválido o no existe.");
+        }
+        Instant inicio = Instant.now();
+        Conteo conteo = new Conteo();
+        List<LecturaCarga.Hoja<T>> hojas = new ArrayList<>();
+        try {
+            recorrer(file, sheetType -> {
+                LecturaCarga.Hoja<T> hoja = new LecturaCarga.Hoja<>(sheetType, new ArrayList<>());
+                hojas.add(hoja);
+                return hoja.filas()::add;
+            }, conteo);
+        } catch (IOException e) {
+            logger.error("Error crítico al leer el archivo: {}", file.getName(), e);
+            return LecturaCarga.fallida(file, "Error de I/O al leer el archivo: " + e.getMessage());
+        }
+        return new LecturaCarga<>(file, hojas, conteo.errores, Duration.between(inicio, Instant.now()), null);
+    }
+
+    /**
+     * Segunda etapa de una carga por lotes: entrega los DTOs leídos a los procesadores de cada
+     * hoja, en el orden del archivo. Usa el EntityManager, así que debe llamarse desde un solo hilo.
+     * @return el resumen del archivo; la duración suma la lectura y la escritura.
+     */
+    public ResultadoCargaDto escribir(LecturaCarga<T> lectura) {
+        if (!lectura.isExitosa()) {
+            return ResultadoCargaDto.fallido(lectura.getError());
+        }
+        Instant inicio = Instant.now();
+        ClavesCargaExistentes claves = new ClavesCargaExistentes(entityManager);
+        EscritorCargaTransacciones escritor = crearEscritor();
+        List<AbstractCargaProcessor<T>> procesadores = new ArrayList<>();
+        int filas = 0;
+        for (LecturaCarga.Hoja<T> hoja : lectura.getHojas()) {
+            AbstractCargaProcessor<T> processor = crearProcessor(hoja.tipo(), claves, escritor);
+            procesadores.add(processor);
+            // Ya se conocen todas las filas: las claves del rango de fechas se traen de una vez
+            processor.prepararLote(hoja.filas());
+            for (T dto : hoja.filas()) {
+                processor.procesar(dto);
+                filas++;
+            }
+        }
+        int omitidos = finalizar(procesadores);
+        Duration duracion = lectura.getDuracionLectura().plus(Duration.between(inicio, Instant.now()));
+        double filasPorSegundo = escritor.getEstadisticas().filasPorSegundo();
+        String mensaje = String.format("Proceso completado. Filas procesadas: %d, Duplicados omitidos: %d, Errores: %d, Escritura: %,.0f filas/s.",
+                filas, omitidos, lectura.getErroresDeMapeo(), filasPorSegundo);
+        return new ResultadoCargaDto(filas, lectura.getErroresDeMapeo(), duracion, mensaje, omitidos, filasPorSegundo);
+    }
+
+    /**
+     * Procesador de una hoja que comparte con las demás hojas del archivo el índice de claves
+     * existentes y el escritor en lote.
+     */
+    private AbstractCargaProcessor<T> crearProcessor(String sheetType, ClavesCargaExistentes claves, EscritorCargaTransacciones escritor) {
+        AbstractCargaProcessor<T> processor = getProcessor(sheetType);
+        processor.setClavesExistentes(claves);
+        processor.setEscritor(escritor);
+        return processor;
+    }
+
+    private EscritorCargaTransacciones crearEscritor() {
+        return new EscritorCargaTransacciones(entityManager, tamanoLoteEscritura, filasPorCommit);
+    }
+
+    /**
+     * Envía los últimos lotes de cada procesador.
+     * @return el total de duplicados omitidos.
+     */
+    private int finalizar(List<AbstractCargaProcessor<T>> procesadores) {
+        int omitidos = 0;
+        for (AbstractCargaProcessor<T> processor : procesadores) {
+            processor.finalizar();
+            omitidos += processor.getOmitidos();
+        }
+        return omitidos;
+    }
 
-        logger.info("Procesando archivo: {}", file.getName());
+    /**
+     * Mapea las filas de cada hoja reconocida y las entrega al destino que {@code destinos} da para su tipo.
+     */
+    private void recorrer(File file, Function<String, Consumer<T>> destinos, Conteo conteo) throws IOException {
+        boolean streaming = usarStreaming(file);
+        logger.info("Procesando archivo: {} (lectura {})", file.getName(), streaming ? "por eventos" : "completa");
+        if (streaming) {
+            leerPorEventos(file, destinos, conteo);
+        } else {
+            leerLibroCompleto(file, destinos, conteo);
+        }
+    }
+
+    private boolean usarStreaming(File file) {
+        return switch (modoLectura) {
+            case STREAMING -> true;
+            case COMPLETO -> false;
+            case AUTOMATICO -> file.getName().toLowerCase().endsWith(".xlsx");
+        };
+    }
+
+    /**
+     * Lee el libro completo en memoria con {@link WorkbookFactory}.
+     */
+    private void leerLibroCompleto(File file, Function<String, Consumer<T>> destinos, Conteo conteo) throws IOException {
         try (FileInputStream fis = new FileInputStream(file); Workbook workbook = WorkbookFactory.create(fis)) {
             for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
                 Sheet sheet = workbook.getSheetAt(i);
@@ -57,35 +237,59 @@ public abstract class AbstractCarga<T> {
 
                 logger.info("Procesando hoja '{}' (tipo: {})", sheet.getSheetName(), sheetType);
                 CargaMapperInterfaz<T> mapper = getMapper(sheetType);
-                AbstractCargaProcessor<T> processor = getProcessor(sheetType);
+                Consumer<T> destino = destinos.apply(sheetType);
 
                 for (int j = getHeaderRowIndex() + 1; j <= sheet.getLastRowNum(); j++) {
                     Row row = sheet.getRow(j);
                     if (row == null) continue;
-
-                    try {
-                        T dto = mapper.map(row, j + 1, file.getName());
-                        if (dto == null) {
-                            logger.info("Final de datos detectado en la fila {}. Se detiene la lectura de la hoja.", j + 1);
-                            break;
-                        }
-                        processor.procesar(dto);
-                        filasProcesadas++; 
-
-                    } catch (MappingException e) {
-                        erroresDeMapeo++; 
-                        logger.error("Error de mapeo en la fila {} del archivo {}: {}", j + 1, file.getName(), e.getMessage());
-                    }
+                    if (!procesarFila(mapper, destino, row, j + 1, file.getName(), conteo)) break;
                 }
             }
-        } catch (IOException e) {
-            logger.error("Error crítico al leer el archivo: {}", file.getName(), e);
-            return ResultadoCargaDto.fallido("Error de I/O al leer el archivo: " + e.getMessage());
         }
+    }
 
-        // --- Devolver el resultado final exitoso ---
-        Duration duracion = Duration.between(inicio, Instant.now());
-        String mensaje = String.format("Proceso completado. Filas procesadas: %d, Errores: %d.", filasProcesadas, erroresDeMapeo);
-        return ResultadoCargaDto.exitoso(filasProcesadas, duracion, mensaje);
+    /**
+     * Lee el .xlsx por eventos, una fila a la vez, con memoria constante.
+     */
+    private void leerPorEventos(File file, Function<String, Consumer<T>> destinos, Conteo conteo) throws IOException {
+        try (LectorXlsxStreaming lector = new LectorXlsxStreaming(file)) {
+            lector.leer((indiceHoja, nombreHoja) -> {
+                String sheetType = getSheetType(file, indiceHoja);
+                if (sheetType == null || sheetType.isBlank()) return null;
+
+                logger.info("Procesando hoja '{}' (tipo: {})", nombreHoja, sheetType);
+                CargaMapperInterfaz<T> mapper = getMapper(sheetType);
+                Consumer<T> destino = destinos.apply(sheetType);
+                return (row, indiceFila) -> indiceFila <= getHeaderRowIndex()
+                        || procesarFila(mapper, destino, row, indiceFila + 1, file.getName(), conteo);
+            });
+        }
+    }
+
+    /**
+     * Mapea una fila y entrega el DTO a su destino.
+     * @return false si el mapper indica el final de los datos de la hoja.
+     */
+    private boolean procesarFila(CargaMapperInterfaz<T> mapper, Consumer<T> destino,
+                                 Row row, int rowNum, String fileName, Conteo conteo) {
+        try {
+            T dto = mapper.map(row, rowNum, fileName);
+            if (dto == null) {
+                logger.info("Final de datos detectado en la fila {}. Se detiene la lectura de la hoja.", rowNum);
+                return false;
+            }
+            destino.accept(dto);
+            conteo.filas++;
+
+        } catch (MappingException e) {
+            conteo.errores++;
+            logger.error("Error de mapeo en la fila {} del archivo {}: {}", rowNum, fileName, e.getMessage());
+        }
+        return true;
+    }
+
+    private static final class Conteo {
+        int filas;
+        int errores;
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,29 @@
 package com.etl.interfaz; // O el paquete que prefieras, ej. com.etl.loader
 
+import com.app.entities.CargaTransaccionEntity;
+import com.etl.util.ClavesCargaExistentes;
+import com.etl.util.EscritorCargaTransacciones;
 import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Clase base abstracta para los procesadores de datos.
  * Reemplaza a CargaProcessorInterfaz y CargaProcessor para simplificar la jerarquía.
  * Define el contrato que todas las implementaciones (como BanChileProcessor) deben seguir.
+ * <p>
+ * Los duplicados se descartan contra un {@link ClavesCargaExistentes} y las filas nuevas van
+ * a un {@link EscritorCargaTransacciones}, que las inserta por JDBC en lote sin pasar por el
+ * contexto de persistencia. Ambos se comparten entre las hojas de un archivo; al terminar hay
+ * que llamar a {@link #finalizar()}.
  */
 public abstract class AbstractCargaProcessor<T> {
 
     protected final EntityManager entityManager;
+    private ClavesCargaExistentes clavesExistentes;
+    private EscritorCargaTransacciones escritor;
+    private int insertados;
+    private int omitidos;
 
     public AbstractCargaProcessor(EntityManager entityManager) {
         this.entityManager = entityManager;
@@ -21,4 +35,84 @@ public abstract class AbstractCargaProcessor<T> {
      * @param dto El objeto DTO a procesar (ej. guardar en la BD).
      */
     public abstract void procesar(T dto);
-}
\ No newline at end of file
+
+    /**
+     * Fecha de transacción del DTO, para precargar las claves existentes de un lote.
+     * @return la fecha, o null si el procesador no la conoce (las claves se consultan por día).
+     */
+    protected LocalDate fechaDe(T dto) {
+        return null;
+    }
+
+    public void setClavesExistentes(ClavesCargaExistentes clavesExistentes) {
+        this.clavesExistentes = clavesExistentes;
+    }
+
+    public void setEscritor(EscritorCargaTransacciones escritor) {
+        this.escritor = escritor;
+    }
+
+    /**
+     * Trae con una sola consulta las claves existentes del rango de fechas de los DTOs.
+     */
+    public void prepararLote(List<T> dtos) {
+        LocalDate desde = null;
+        LocalDate hasta = null;
+        for (T dto : dtos) {
+            LocalDate fecha = fechaDe(dto);
+            if (fecha != null) {
+                desde = desde == null || fecha.isBefore(desde) ? fecha : desde;
+                hasta = hasta == null || fecha.isAfter(hasta) ? fecha : hasta;
+            }
+        }
+        if (desde != null) {
+            claves().precargar(desde, hasta);
+        }
+    }
+
+    /**
+     * Encola la fila para insertarla si su clave no existe todavía.
+     * @return false si era un duplicado y se omitió.
+     */
+    protected boolean insertarSiNoExiste(CargaTransaccionEntity entity) {
+        if (claves().contiene(entity.getId())) {
+            omitidos++;
+            return false;
+        }
+        escritor().agregar(entity);
+        claves().agregar(entity.getId());
+        insertados++;
+        return true;
+    }
+
+    /**
+     * Envía a la base las filas que quedan en el lote actual.
+     */
+    public void finalizar() {
+        if (escritor != null) {
+            escritor.flush();
+        }
+    }
+
+    public int getInsertados() {
+        return insertados;
+    }
+
+    public int getOmitidos() {
+        return omitidos;
+    }
+
+    private ClavesCargaExistentes claves() {
+        if (clavesExistentes == null) {
+            clavesExistentes = new ClavesCargaExistentes(entityManager);
+        }
+        return clavesExistentes;
+    }
+
+    private EscritorCargaTransacciones escritor() {
+        if (escritor == null) {
+            escritor = new EscritorCargaTransacciones(entityManager);
+        }
+        return escritor;
+    }
+}
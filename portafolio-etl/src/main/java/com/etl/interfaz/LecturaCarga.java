@@ -0,0 +1,64 @@
+package com.etl.interfaz;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Resultado de leer y mapear un archivo sin escribirlo: los DTOs de cada hoja, en el orden
+ * del libro, listos para {@link AbstractCarga#escribir(LecturaCarga)}.
+ */
+public class LecturaCarga<T> {
+
+    /**
+     * Filas mapeadas de una hoja reconocida.
+     */
+    public record Hoja<T>(String tipo, List<T> filas) {
+    }
+
+    private final File archivo;
+    private final List<Hoja<T>> hojas;
+    private final int erroresDeMapeo;
+    private final Duration duracionLectura;
+    private final String error;
+
+    public LecturaCarga(File archivo, List<Hoja<T>> hojas, int erroresDeMapeo, Duration duracionLectura, String error) {
+        this.archivo = archivo;
+        this.hojas = hojas;
+        this.erroresDeMapeo = erroresDeMapeo;
+        this.duracionLectura = duracionLectura;
+        this.error = error;
+    }
+
+    public static <T> LecturaCarga<T> fallida(File archivo, String error) {
+        return new LecturaCarga<>(archivo, List.of(), 0, Duration.ZERO, error);
+    }
+
+    public File getArchivo() {
+        return archivo;
+    }
+
+    public List<Hoja<T>> getHojas() {
+        return hojas;
+    }
+
+    public int getErroresDeMapeo() {
+        return erroresDeMapeo;
+    }
+
+    public Duration getDuracionLectura() {
+        return duracionLectura;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isExitosa() {
+        return error == null;
+    }
+
+    public int getFilas() {
+        return hojas.stream().mapToInt(h -> h.filas().size()).sum();
+    }
+}
@@ -0,0 +1,10 @@
+package com.etl.interfaz;
+
+/**
+ * Forma de leer las planillas de una carga.
+ */
+public enum ModoLectura {
+    AUTOMATICO,  // Por eventos para .xlsx; libro completo para los demás formatos
+    COMPLETO,    // Libro completo en memoria (WorkbookFactory); admite .xls y .xlsx
+    STREAMING    // Por eventos (SAX) con memoria constante; solo .xlsx
+}
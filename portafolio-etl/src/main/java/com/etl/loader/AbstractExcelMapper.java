@@ -1,79 +1,41 @@
 package com.etl.loader;
 
 import com.etl.interfaz.CargaMapperInterfaz;
+import com.etl.util.DecodificadorCeldas;
 import org.apache.poi.ss.usermodel.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
 
+/**
+ * Base de los mappers de cartolas. Cada mapper se crea para una hoja, así que su
+ * {@link DecodificadorCeldas} (formateador, formatos de fecha y lo inferido de cada
+ * columna) se reutiliza en todas las filas de esa hoja.
+ */
 public abstract class AbstractExcelMapper<T> implements CargaMapperInterfaz<T> {
 
+    private final DecodificadorCeldas celdas = new DecodificadorCeldas();
+
     protected String getString(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-        return new DataFormatter().formatCellValue(cell).trim();
+        return celdas.texto(cell);
     }
 
+    /**
+     * Valor numérico de la celda; si es texto, se lee en formato chileno ("1.234,56").
+     */
     protected BigDecimal getBigDecimal(Cell cell) {
-        if (cell == null || cell.getCellType() == CellType.BLANK) {
-            return null;
-        }
         try {
-            if (cell.getCellType() == CellType.NUMERIC) {
-                return BigDecimal.valueOf(cell.getNumericCellValue());
-            } else if (cell.getCellType() == CellType.STRING) {
-                String value = cell.getStringCellValue().replace(".", "").replace(",", ".");
-                if (value.matches("[-+]?\\d*\\.?\\d+")) {
-                    return new BigDecimal(value);
-                }
-            }
+            return celdas.decimal(cell);
         } catch (Exception ignored) {
+            return null;
         }
-        return null;
     }
 
+    /**
+     * Fecha de la celda: numérica con formato de fecha, o texto en alguno de los formatos
+     * aceptados (yyyy-MM-dd, dd/MM/yyyy, dd-MM-yyyy).
+     */
     protected LocalDate getLocalDate(Cell cell) {
-        if (cell == null) {
-            return null;
-        }
-
-        // 1. Intenta leer la fecha si Excel la tiene en formato numérico (es más eficiente)
-        try {
-            if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-                return cell.getDateCellValue().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-            }
-        } catch (Exception ignored) {
-            // Si falla, se intentará leer como texto a continuación
-        }
-
-        // 2. Si no es una fecha numérica, la lee como texto
-        String dateStr = getString(cell);
-        if (dateStr == null || dateStr.isBlank()) {
-            return null;
-        }
-
-        // 3. Define una lista con todos los formatos de fecha que quieres aceptar
-        List<DateTimeFormatter> formatters = List.of(
-                DateTimeFormatter.ofPattern("yyyy-MM-dd"), // Formato ISO (2025-08-26)
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"), // Formato con slash (26/08/2025)
-                DateTimeFormatter.ofPattern("dd-MM-yyyy") // Formato con guion (26-08-2025)
-        );
-
-        // 4. Intenta convertir la fecha con cada formato de la lista
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                // Si la conversión es exitosa, devuelve el resultado y termina el método
-                return LocalDate.parse(dateStr, formatter);
-            } catch (Exception ignored) {
-                // Si este formato no funciona, el bucle continuará y probará el siguiente
-            }
-        }
-
-        // 5. Si después de probar todos los formatos ninguno funcionó, devuelve null
-        return null;
+        return celdas.fecha(cell);
     }
 
     /**
@@ -87,4 +49,4 @@ public abstract class AbstractExcelMapper<T> implements CargaMapperInterfaz<T> {
         Cell firstCell = row.getCell(0);
         return firstCell == null || firstCell.getCellType() == CellType.BLANK || getString(firstCell).isBlank();
     }
-}
\ No newline at end of file
+}
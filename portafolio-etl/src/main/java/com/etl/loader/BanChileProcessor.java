@@ -4,6 +4,7 @@ import com.etl.interfaz.AbstractCargaProcessor; // Importa la nueva clase abstra
 import com.app.dto.CartolaBanChile;
 import com.app.entities.CargaTransaccionEntity;
 import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,12 +26,13 @@ public class BanChileProcessor extends AbstractCargaProcessor<CartolaBanChile> {
         }
 
         CargaTransaccionEntity entity = dto.toEntity();
-        CargaTransaccionEntity existente = entityManager.find(CargaTransaccionEntity.class, entity.getId());
-
-        if (existente == null) {
-            entityManager.persist(entity);
-        } else {
-            logger.info("Registro de BanChile ya existe, omitiendo: {}", entity.getId());
+        if (!insertarSiNoExiste(entity)) {
+            logger.debug("Registro de BanChile ya existe, omitiendo: {}", entity.getId());
         }
     }
+
+    @Override
+    protected LocalDate fechaDe(CartolaBanChile dto) {
+        return dto.getId() != null ? dto.getId().getTransactionDate() : null;
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.app.dto.CartolaFynsa;
 import com.app.entities.CargaTransaccionEntity;
 import com.etl.interfaz.AbstractCargaProcessor; // Asegúrate que el import es correcto
 import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,12 +24,13 @@ public class FynsaProcessor extends AbstractCargaProcessor<CartolaFynsa> {
         }
 
         CargaTransaccionEntity entity = dto.toEntity();
-        CargaTransaccionEntity existente = entityManager.find(CargaTransaccionEntity.class, entity.getId());
-
-        if (existente == null) {
-            entityManager.persist(entity);
-        } else {
-            logger.info("Registro de Fynsa ya existe, omitiendo: {}", entity.getId());
+        if (!insertarSiNoExiste(entity)) {
+            logger.debug("Registro de Fynsa ya existe, omitiendo: {}", entity.getId());
         }
     }
+
+    @Override
+    protected LocalDate fechaDe(CartolaFynsa dto) {
+        return dto.getId() != null ? dto.getId().getTransactionDate() : null;
+    }
 }
\ No newline at end of file
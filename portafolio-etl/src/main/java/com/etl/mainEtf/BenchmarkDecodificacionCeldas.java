@@ -0,0 +1,209 @@
+package com.etl.mainEtf;
+
+import com.etl.util.DecodificadorCeldas;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Cliente de prueba que compara la decodificación de celdas anterior de AbstractExcelMapper
+ * (un DataFormatter por celda, fechas por excepciones, regex para los decimales) con
+ * {@link DecodificadorCeldas}, sobre una hoja en memoria con columnas típicas de una cartola.
+ * Reporta nanosegundos y bytes asignados por fila, y cuenta las celdas en que ambos difieren.
+ * Uso: BenchmarkDecodificacionCeldas [filas] [rondas]
+ */
+public class BenchmarkDecodificacionCeldas {
+
+    private static final int COLUMNAS = 6;
+
+    public static void main(String[] args) throws Exception {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int rondas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        try (Workbook libro = crearHoja(filas)) {
+            Sheet hoja = libro.getSheetAt(0);
+            System.out.printf("--- BENCHMARK DECODIFICACIÓN DE CELDAS: %,d filas x %d columnas, %d rondas ---%n",
+                    filas, COLUMNAS, rondas);
+
+            System.out.printf("Celdas con resultado distinto: %,d%n", comparar(hoja));
+
+            for (int r = 1; r <= rondas; r++) {
+                medir("anterior", r, filas, () -> recorrerAnterior(hoja));
+                medir("nuevo", r, filas, () -> recorrerNuevo(hoja));
+            }
+        }
+    }
+
+    private static void medir(String nombre, int ronda, int filas, Runnable recorrido) {
+        long bytesInicio = bytesAsignados();
+        long inicio = System.nanoTime();
+        recorrido.run();
+        long nanos = System.nanoTime() - inicio;
+        long bytes = bytesAsignados() - bytesInicio;
+        System.out.printf("%-8s ronda %d: %.1f ms, %,.0f ns/fila, %,d bytes/fila%n",
+                nombre, ronda, nanos / 1e6, (double) nanos / filas, bytes / filas);
+    }
+
+    private static int recorrerNuevo(Sheet hoja) {
+        DecodificadorCeldas celdas = new DecodificadorCeldas();
+        int noNulos = 0;
+        for (Row row : hoja) {
+            noNulos += celdas.fecha(row.getCell(0)) != null ? 1 : 0;
+            noNulos += celdas.fecha(row.getCell(1)) != null ? 1 : 0;
+            noNulos += celdas.texto(row.getCell(2)) != null ? 1 : 0;
+            noNulos += celdas.decimal(row.getCell(3)) != null ? 1 : 0;
+            noNulos += celdas.decimal(row.getCell(4)) != null ? 1 : 0;
+            noNulos += celdas.texto(row.getCell(5)) != null ? 1 : 0;
+        }
+        return noNulos;
+    }
+
+    private static int recorrerAnterior(Sheet hoja) {
+        int noNulos = 0;
+        for (Row row : hoja) {
+            noNulos += Anterior.getLocalDate(row.getCell(0)) != null ? 1 : 0;
+            noNulos += Anterior.getLocalDate(row.getCell(1)) != null ? 1 : 0;
+            noNulos += Anterior.getString(row.getCell(2)) != null ? 1 : 0;
+            noNulos += Anterior.getBigDecimal(row.getCell(3)) != null ? 1 : 0;
+            noNulos += Anterior.getBigDecimal(row.getCell(4)) != null ? 1 : 0;
+            noNulos += Anterior.getString(row.getCell(5)) != null ? 1 : 0;
+        }
+        return noNulos;
+    }
+
+    private static int comparar(Sheet hoja) {
+        DecodificadorCeldas celdas = new DecodificadorCeldas();
+        int distintas = 0;
+        for (Row row : hoja) {
+            for (int c = 0; c < COLUMNAS; c++) {
+                Cell cell = row.getCell(c);
+                Object anterior;
+                Object nuevo;
+                if (c <= 1) {
+                    anterior = Anterior.getLocalDate(cell);
+                    nuevo = celdas.fecha(cell);
+                } else if (c == 3 || c == 4) {
+                    anterior = Anterior.getBigDecimal(cell);
+                    nuevo = celdas.decimal(cell);
+                } else {
+                    anterior = Anterior.getString(cell);
+                    nuevo = celdas.texto(cell);
+                }
+                if (!Objects.equals(anterior, nuevo)) {
+                    distintas++;
+                }
+            }
+        }
+        return distintas;
+    }
+
+    /**
+     * Fecha numérica, fecha en texto, texto, número, número chileno en texto y número con formato.
+     */
+    private static Workbook crearHoja(int filas) {
+        HSSFWorkbook libro = new HSSFWorkbook();
+        Sheet hoja = libro.createSheet();
+        CellStyle fecha = libro.createCellStyle();
+        fecha.setDataFormat(libro.createDataFormat().getFormat("dd-mm-yyyy"));
+        CellStyle miles = libro.createCellStyle();
+        miles.setDataFormat(libro.createDataFormat().getFormat("#,##0.00"));
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        DateTimeFormatter conSlash = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+        for (int i = 0; i < filas; i++) {
+            Row row = hoja.createRow(i);
+            LocalDate dia = base.plusDays(i % 700);
+            Cell c0 = row.createCell(0);
+            c0.setCellValue(DateUtil.getExcelDate(dia));
+            c0.setCellStyle(fecha);
+            row.createCell(1).setCellValue(dia.format(conSlash));
+            row.createCell(2).setCellValue("NEMO-" + (i % 500));
+            row.createCell(3).setCellValue(i * 13.25);
+            row.createCell(4).setCellValue(String.format(Locale.US, "%,d", i * 1_731L).replace(',', '.') + "," + String.format("%02d", i % 100));
+            Cell c5 = row.createCell(5);
+            c5.setCellValue(i * 1_000.5);
+            c5.setCellStyle(miles);
+        }
+        return libro;
+    }
+
+    private static long bytesAsignados() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean hilos) {
+            return hilos.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * La decodificación tal como estaba en AbstractExcelMapper, como referencia.
+     */
+    private static final class Anterior {
+
+        static String getString(Cell cell) {
+            if (cell == null) {
+                return null;
+            }
+            return new DataFormatter().formatCellValue(cell).trim();
+        }
+
+        static BigDecimal getBigDecimal(Cell cell) {
+            if (cell == null || cell.getCellType() == CellType.BLANK) {
+                return null;
+            }
+            try {
+                if (cell.getCellType() == CellType.NUMERIC) {
+                    return BigDecimal.valueOf(cell.getNumericCellValue());
+                } else if (cell.getCellType() == CellType.STRING) {
+                    String value = cell.getStringCellValue().replace(".", "").replace(",", ".");
+                    if (value.matches("[-+]?\\d*\\.?\\d+")) {
+                        return new BigDecimal(value);
+                    }
+                }
+            } catch (Exception ignored) {
+            }
+            return null;
+        }
+
+        static LocalDate getLocalDate(Cell cell) {
+            if (cell == null) {
+                return null;
+            }
+            try {
+                if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
+                    return cell.getDateCellValue().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+                }
+            } catch (Exception ignored) {
+            }
+            String dateStr = getString(cell);
+            if (dateStr == null || dateStr.isBlank()) {
+                return null;
+            }
+            List<DateTimeFormatter> formatters = List.of(
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+                    DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+                    DateTimeFormatter.ofPattern("dd-MM-yyyy")
+            );
+            for (DateTimeFormatter formatter : formatters) {
+                try {
+                    return LocalDate.parse(dateStr, formatter);
+                } catch (Exception ignored) {
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.etl.mainEtf;
+
+import com.app.dto.CartolaBanChile;
+import com.app.dto.CartolaFynsa;
+import com.app.dto.ResultadoCargaDto;
+import com.app.enums.ListaEnumsCustodios;
+import com.etl.interfaz.AbstractCarga;
+import com.etl.interfaz.AbstractCargaProcessor;
+import com.etl.interfaz.ModoLectura;
+import com.etl.loader.CargaBanChileService;
+import com.etl.loader.CargaFynsaService;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Cliente de prueba que compara la lectura completa (WorkbookFactory) con la lectura por
+ * eventos sobre una cartola real, sin base de datos: recorre el archivo con el mapper del
+ * custodio y descarta los DTOs. Reporta tiempo, filas por segundo y el pico de heap de cada ronda.
+ * Uso: BenchmarkLecturaXlsx archivo.xlsx [BanChile|Fynsa] [rondas]
+ */
+public class BenchmarkLecturaXlsx {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: BenchmarkLecturaXlsx archivo.xlsx [BanChile|Fynsa] [rondas]");
+            return;
+        }
+        File archivo = new File(args[0]);
+        ListaEnumsCustodios custodio = args.length > 1 ? ListaEnumsCustodios.valueOf(args[1]) : ListaEnumsCustodios.Fynsa;
+        int rondas = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        System.out.printf("--- BENCHMARK LECTURA XLSX: %s (%,d KB), %s, %d rondas ---%n",
+                archivo.getName(), archivo.length() / 1024, custodio, rondas);
+
+        for (ModoLectura modo : new ModoLectura[]{ModoLectura.COMPLETO, ModoLectura.STREAMING}) {
+            AbstractCarga<?> carga = crearCargaSinBaseDeDatos(custodio);
+            carga.setModoLectura(modo);
+            for (int r = 1; r <= rondas; r++) {
+                System.gc();
+                reiniciarPicosHeap();
+
+                long inicio = System.nanoTime();
+                ResultadoCargaDto resultado = carga.processFile(archivo);
+                long nanos = System.nanoTime() - inicio;
+
+                System.out.printf("%-9s ronda %d: %,d filas, %.1f ms, %,.0f filas/s, pico heap %,d MB%n",
+                        modo, r, resultado.getRegistrosProcesados(), nanos / 1e6,
+                        resultado.getRegistrosProcesados() / (nanos / 1e9), picoHeap() / (1024 * 1024));
+            }
+        }
+    }
+
+    /**
+     * Servicio de carga del custodio con un procesador que descarta los DTOs.
+     */
+    private static AbstractCarga<?> crearCargaSinBaseDeDatos(ListaEnumsCustodios custodio) {
+        return switch (custodio) {
+            case BanChile -> new CargaBanChileService(null) {
+                @Override
+                protected AbstractCargaProcessor<CartolaBanChile> getProcessor(String hojaTipo) {
+                    return new AbstractCargaProcessor<>(null) {
+                        @Override
+                        public void procesar(CartolaBanChile dto) {
+                        }
+                    };
+                }
+            };
+            case Fynsa -> new CargaFynsaService(null) {
+                @Override
+                protected AbstractCargaProcessor<CartolaFynsa> getProcessor(String sheetType) {
+                    return new AbstractCargaProcessor<>(null) {
+                        @Override
+                        public void procesar(CartolaFynsa dto) {
+                        }
+                    };
+                }
+            };
+        };
+    }
+
+    private static void reiniciarPicosHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Suma de los picos de cada zona del heap desde el último reinicio (cota superior del pico real).
+     */
+    private static long picoHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
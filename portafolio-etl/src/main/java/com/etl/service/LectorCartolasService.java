@@ -1,15 +1,49 @@
 package com.etl.service;
 
-import com.app.dto.ResultadoCargaDto; 
+import com.app.dto.ResultadoCargaDto;
+import com.etl.interfaz.AbstractCarga;
+import com.etl.interfaz.LecturaCarga;
 import com.etl.loader.CargaBanChileService;
 import com.etl.loader.CargaFynsaService;
+import com.etl.util.LectorXlsxStreaming;
 import jakarta.persistence.EntityManager;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import com.app.enums.ListaEnumsCustodios;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class LectorCartolasService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LectorCartolasService.class);
+
+    // Forma de la primera hoja de una cartola de BanChile (ver CargaBanChileService.getHeaderRowIndex)
+    private static final int FILA_ENCABEZADO_BANCHILE = 4;
+    private static final int CELDAS_ENCABEZADO = 5;
+    private static final int FILAS_INSPECCION = 10;
+
     private final CargaBanChileService cargaBanChileService;
     private final CargaFynsaService cargaFynsaService;
 
@@ -39,4 +73,183 @@ public class LectorCartolasService {
                 return ResultadoCargaDto.fallido("El custodio seleccionado no tiene un servicio de carga asociado.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Carga varios archivos, de cualquier custodio, en dos etapas: la lectura y el mapeo de
+     * cada archivo corren en paralelo en un pool acotado, y la escritura la hace el hilo que
+     * llama (dueño del EntityManager), un archivo a la vez y en el orden recibido. Así la base
+     * ve la misma secuencia de inserciones que con {@link #cargar} archivo por archivo.
+     * <p>
+     * Como mucho hay {@code 2 * paralelismo} archivos leídos esperando su escritura, para que la
+     * memoria no crezca con el tamaño del lote.
+     * <p>
+     * Un archivo que no se puede leer queda como fallido y el lote sigue. Un error al escribir
+     * se propaga tal cual, para que la transacción del llamador se revierta.
+     * @param archivos Archivos y su custodio, en el orden de escritura.
+     * @param paralelismo Número de hilos de lectura.
+     * @return el resultado de cada archivo, en el mismo orden.
+     */
+    public Map<File, ResultadoCargaDto> cargarLote(Map<File, ListaEnumsCustodios> archivos, int paralelismo) {
+        Map<File, ResultadoCargaDto> resultados = new LinkedHashMap<>();
+        if (archivos.isEmpty()) {
+            return resultados;
+        }
+        int hilos = Math.max(1, Math.min(paralelismo, archivos.size()));
+        int ventana = hilos * 2;
+        logger.info("Cargando lote de {} archivos con {} hilos de lectura.", archivos.size(), hilos);
+
+        ExecutorService lectores = Executors.newFixedThreadPool(hilos, hilosDeLectura());
+        Deque<Map.Entry<File, Future<Supplier<ResultadoCargaDto>>>> enVuelo = new ArrayDeque<>();
+        Iterator<Map.Entry<File, ListaEnumsCustodios>> pendientes = archivos.entrySet().iterator();
+        try {
+            while (pendientes.hasNext() || !enVuelo.isEmpty()) {
+                while (pendientes.hasNext() && enVuelo.size() < ventana) {
+                    Map.Entry<File, ListaEnumsCustodios> archivo = pendientes.next();
+                    enVuelo.addLast(Map.entry(archivo.getKey(),
+                            lectores.submit(tareaDeLectura(archivo.getValue(), archivo.getKey()))));
+                }
+                Map.Entry<File, Future<Supplier<ResultadoCargaDto>>> siguiente = enVuelo.removeFirst();
+                File file = siguiente.getKey();
+                Supplier<ResultadoCargaDto> escritura;
+                try {
+                    escritura = siguiente.getValue().get();
+                } catch (ExecutionException e) {
+                    logger.error("Error al leer el archivo {} del lote.", file.getName(), e.getCause());
+                    resultados.put(file, ResultadoCargaDto.fallido("Error al leer el archivo: " + e.getCause().getMessage()));
+                    continue;
+                }
+                ResultadoCargaDto resultado = escritura.get();
+                logger.info("Archivo {} del lote: {}", file.getName(), resultado.getMensaje());
+                resultados.put(file, resultado);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            enVuelo.forEach(pendiente -> pendiente.getValue().cancel(true));
+            throw new IllegalStateException("Carga del lote interrumpida tras " + resultados.size() + " archivos.", e);
+        } finally {
+            lectores.shutdownNow();
+        }
+        return resultados;
+    }
+
+    /**
+     * Carga las planillas de un directorio (sin subdirectorios) ordenadas por nombre, con
+     * {@link #cargarLote}. El custodio de cada archivo se deduce de su nombre o de su forma; los que no
+     * se reconocen usan {@code custodioPorDefecto} o, si es null, quedan como fallidos.
+     */
+    public Map<File, ResultadoCargaDto> cargarDirectorio(File directorio, ListaEnumsCustodios custodioPorDefecto, int paralelismo) {
+        File[] planillas = directorio.listFiles(f -> f.isFile() && !f.getName().startsWith("~$")
+                && (f.getName().toLowerCase().endsWith(".xlsx") || f.getName().toLowerCase().endsWith(".xls")));
+        if (planillas == null) {
+            throw new IllegalArgumentException("No se puede leer el directorio " + directorio);
+        }
+        Arrays.sort(planillas, Comparator.comparing(File::getName));
+
+        Map<File, ListaEnumsCustodios> archivos = new LinkedHashMap<>();
+        Map<File, ResultadoCargaDto> sinCustodio = new LinkedHashMap<>();
+        for (File planilla : planillas) {
+            ListaEnumsCustodios custodio = detectarCustodio(planilla);
+            if (custodio == null) {
+                custodio = custodioPorDefecto;
+            }
+            if (custodio != null) {
+                archivos.put(planilla, custodio);
+            } else {
+                sinCustodio.put(planilla, ResultadoCargaDto.fallido("No se reconoce el custodio del archivo " + planilla.getName() + "."));
+            }
+        }
+        Map<File, ResultadoCargaDto> resultados = cargarLote(archivos, paralelismo);
+        resultados.putAll(sinCustodio);
+        return resultados;
+    }
+
+    /**
+     * Custodio según el nombre del archivo (los de Fynsa empiezan con "stock" o "mvto") o, si
+     * el nombre no lo indica, según la forma de la primera hoja: en las cartolas de BanChile el
+     * encabezado está en la fila 5, bajo unas líneas de título.
+     * @return el custodio, o null si no se reconoce.
+     */
+    public static ListaEnumsCustodios detectarCustodio(File file) {
+        String nombre = file.getName().toLowerCase();
+        if (nombre.startsWith("stock") || nombre.startsWith("mvto")) {
+            return ListaEnumsCustodios.Fynsa;
+        }
+        try {
+            if (filaDeEncabezado(file) == FILA_ENCABEZADO_BANCHILE) {
+                return ListaEnumsCustodios.BanChile;
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudo inspeccionar el archivo {} para detectar su custodio: {}", file.getName(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Índice de la primera fila de la primera hoja con al menos {@link #CELDAS_ENCABEZADO} celdas
+     * con contenido, mirando solo las primeras filas.
+     * @return el índice, o -1 si no hay ninguna.
+     */
+    private static int filaDeEncabezado(File file) throws IOException {
+        int[] encontrada = {-1};
+        if (file.getName().toLowerCase().endsWith(".xlsx")) {
+            try (LectorXlsxStreaming lector = new LectorXlsxStreaming(file)) {
+                lector.leer((indiceHoja, nombreHoja) -> indiceHoja != 0 ? null : (row, indiceFila) -> {
+                    if (celdasConContenido(row) >= CELDAS_ENCABEZADO) {
+                        encontrada[0] = indiceFila;
+                        return false;
+                    }
+                    return indiceFila < FILAS_INSPECCION;
+                });
+            }
+            return encontrada[0];
+        }
+        try (Workbook libro = WorkbookFactory.create(file, null, true)) {
+            Sheet hoja = libro.getSheetAt(0);
+            for (int i = 0; i <= FILAS_INSPECCION; i++) {
+                Row row = hoja.getRow(i);
+                if (row != null && celdasConContenido(row) >= CELDAS_ENCABEZADO) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int celdasConContenido(Row row) {
+        int celdas = 0;
+        for (Cell cell : row) {
+            if (cell.getCellType() != CellType.BLANK
+                    && !(cell.getCellType() == CellType.STRING && cell.getStringCellValue().isBlank())) {
+                celdas++;
+            }
+        }
+        return celdas;
+    }
+
+    /**
+     * Lee el archivo en un hilo del pool y devuelve su escritura pendiente, ya tipada con su carga.
+     */
+    private Callable<Supplier<ResultadoCargaDto>> tareaDeLectura(ListaEnumsCustodios custodio, File file) {
+        return switch (custodio) {
+            case BanChile -> tareaDeLectura(cargaBanChileService, file);
+            case Fynsa -> tareaDeLectura(cargaFynsaService, file);
+            default -> () -> () -> ResultadoCargaDto.fallido("El custodio seleccionado no tiene un servicio de carga asociado.");
+        };
+    }
+
+    private static <T> Callable<Supplier<ResultadoCargaDto>> tareaDeLectura(AbstractCarga<T> carga, File file) {
+        return () -> {
+            LecturaCarga<T> lectura = carga.leer(file);
+            return () -> carga.escribir(lectura);
+        };
+    }
+
+    private static ThreadFactory hilosDeLectura() {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, "carga-lector-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
@@ -0,0 +1,271 @@
+package com.etl.util;
+
+import com.app.entities.CargaTransaccionEntity;
+import com.app.utiles.Pk;
+import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Claves de {@code carga_transacciones} que ya existen en la base, para descartar duplicados
+ * sin un {@code find} por fila.
+ * <p>
+ * Las claves de un rango de fechas se traen con una sola consulta y se guardan como {@code long}
+ * (día, tipo de clase y número de fila) en una tabla abierta sin objetos por entrada. Si el rango
+ * tiene más de {@link #LIMITE_EXACTO} claves se usa en cambio un filtro de Bloom, y cada posible
+ * duplicado se confirma con un {@code find}. Las fechas que llegan sin precarga se consultan de a
+ * una la primera vez que aparecen.
+ * <p>
+ * Las claves insertadas durante la carga se agregan al índice, así que también se detectan los
+ * duplicados dentro del mismo archivo. No es thread-safe: pertenece al hilo que escribe.
+ */
+public class ClavesCargaExistentes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClavesCargaExistentes.class);
+
+    private static final int LIMITE_EXACTO = 2_000_000;
+
+    private static final String CONTAR_RANGO = """
+        SELECT COUNT(c) FROM CargaTransaccionEntity c
+        WHERE c.id.transactionDate BETWEEN :desde AND :hasta
+        """;
+
+    private static final String CLAVES_RANGO = """
+        SELECT c.id.transactionDate, c.id.rowNum, c.id.tipoClase FROM CargaTransaccionEntity c
+        WHERE c.id.transactionDate BETWEEN :desde AND :hasta
+        """;
+
+    private final EntityManager entityManager;
+    private final TablaLong exactas = new TablaLong(1024);
+    private FiltroBloom aproximadas;
+    private final Set<Long> diasCargados = new HashSet<>();
+    private final Map<String, Integer> tiposClase = new HashMap<>();
+    private int consultas;
+    private int confirmaciones;
+
+    public ClavesCargaExistentes(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Trae de una vez las claves existentes entre dos fechas (inclusive).
+     */
+    public void precargar(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            return;
+        }
+        if (estaCargado(desde, hasta)) {
+            return;
+        }
+        long cantidad = entityManager.createQuery(CONTAR_RANGO, Long.class)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .getSingleResult();
+        boolean exacto = cantidad <= LIMITE_EXACTO;
+        if (!exacto && aproximadas == null) {
+            aproximadas = new FiltroBloom(cantidad);
+        }
+        try (Stream<Object[]> filas = entityManager.createQuery(CLAVES_RANGO, Object[].class)
+                .setParameter("desde", desde)
+                .setParameter("hasta", hasta)
+                .getResultStream()) {
+            filas.forEach(fila -> {
+                long clave = codificar((LocalDate) fila[0], (Integer) fila[1], (String) fila[2]);
+                if (exacto) {
+                    exactas.agregar(clave);
+                } else {
+                    aproximadas.agregar(clave);
+                }
+            });
+        }
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            diasCargados.add(dia.toEpochDay());
+        }
+        consultas++;
+        logger.debug("Claves existentes entre {} y {}: {} ({}).", desde, hasta, cantidad, exacto ? "exactas" : "filtro de Bloom");
+    }
+
+    /**
+     * @return true si la clave ya está en la base o ya se insertó en esta carga.
+     */
+    public boolean contiene(Pk pk) {
+        if (pk.getTransactionDate() != null && !diasCargados.contains(pk.getTransactionDate().toEpochDay())) {
+            precargar(pk.getTransactionDate(), pk.getTransactionDate());
+        }
+        long clave = codificar(pk.getTransactionDate(), pk.getRowNum(), pk.getTipoClase());
+        if (exactas.contiene(clave)) {
+            return true;
+        }
+        if (aproximadas != null && aproximadas.puedeContener(clave)) {
+            confirmaciones++;
+            return entityManager.find(CargaTransaccionEntity.class, pk) != null;
+        }
+        return false;
+    }
+
+    /**
+     * Registra una clave recién insertada.
+     */
+    public void agregar(Pk pk) {
+        exactas.agregar(codificar(pk.getTransactionDate(), pk.getRowNum(), pk.getTipoClase()));
+    }
+
+    public int getConsultas() {
+        return consultas;
+    }
+
+    public int getConfirmaciones() {
+        return confirmaciones;
+    }
+
+    private boolean estaCargado(LocalDate desde, LocalDate hasta) {
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            if (!diasCargados.contains(dia.toEpochDay())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Día (24 bits altos), tipo de clase (8 bits) y número de fila (32 bits bajos) en un solo long.
+     * Los tipos de clase se numeran a medida que aparecen; en la práctica son pocos ("S", "C", "T").
+     */
+    private long codificar(LocalDate fecha, Integer rowNum, String tipoClase) {
+        long dia = fecha != null ? fecha.toEpochDay() : 0;
+        int tipo = tiposClase.computeIfAbsent(tipoClase != null ? tipoClase : "", t -> tiposClase.size()) & 0xFF;
+        long fila = rowNum != null ? rowNum & 0xFFFFFFFFL : 0;
+        return (dia << 40) | ((long) tipo << 32) | fila;
+    }
+
+    /**
+     * Conjunto de long con direccionamiento abierto (sondeo lineal).
+     */
+    private static final class TablaLong {
+
+        private static final long VACIO = Long.MIN_VALUE;
+
+        private long[] claves;
+        private int tamano;
+        private boolean contieneVacio;
+
+        TablaLong(int capacidadInicial) {
+            claves = nuevaTabla(Integer.highestOneBit(Math.max(capacidadInicial, 16) - 1) << 1);
+        }
+
+        boolean contiene(long clave) {
+            if (clave == VACIO) {
+                return contieneVacio;
+            }
+            int mascara = claves.length - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                long actual = claves[i];
+                if (actual == clave) {
+                    return true;
+                }
+                if (actual == VACIO) {
+                    return false;
+                }
+            }
+        }
+
+        void agregar(long clave) {
+            if (clave == VACIO) {
+                contieneVacio = true;
+                return;
+            }
+            if ((tamano + 1) * 2 > claves.length) {
+                crecer();
+            }
+            if (insertar(claves, clave)) {
+                tamano++;
+            }
+        }
+
+        private void crecer() {
+            long[] nuevas = nuevaTabla(claves.length * 2);
+            for (long clave : claves) {
+                if (clave != VACIO) {
+                    insertar(nuevas, clave);
+                }
+            }
+            claves = nuevas;
+        }
+
+        private static boolean insertar(long[] tabla, long clave) {
+            int mascara = tabla.length - 1;
+            for (int i = indice(clave, mascara); ; i = (i + 1) & mascara) {
+                long actual = tabla[i];
+                if (actual == clave) {
+                    return false;
+                }
+                if (actual == VACIO) {
+                    tabla[i] = clave;
+                    return true;
+                }
+            }
+        }
+
+        private static int indice(long clave, int mascara) {
+            long h = clave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+
+        private static long[] nuevaTabla(int capacidad) {
+            long[] tabla = new long[capacidad];
+            Arrays.fill(tabla, VACIO);
+            return tabla;
+        }
+    }
+
+    /**
+     * Filtro de Bloom de ~10 bits por clave y 7 funciones de hash (≈1% de falsos positivos).
+     */
+    private static final class FiltroBloom {
+
+        private static final int HASHES = 7;
+
+        private final long[] bits;
+        private final long totalBits;
+
+        FiltroBloom(long claves) {
+            long m = Math.max(64, claves * 10);
+            this.bits = new long[(int) Math.min((m + 63) / 64, Integer.MAX_VALUE - 8)];
+            this.totalBits = (long) bits.length * 64;
+        }
+
+        void agregar(long clave) {
+            long h1 = mezclar(clave);
+            long h2 = mezclar(h1) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, totalBits);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean puedeContener(long clave) {
+            long h1 = mezclar(clave);
+            long h2 = mezclar(h1) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, totalBits);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long mezclar(long x) {
+            x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+            x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return x ^ (x >>> 33);
+        }
+    }
+}
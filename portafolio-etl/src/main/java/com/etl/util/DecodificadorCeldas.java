@@ -0,0 +1,270 @@
+package com.etl.util;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+/**
+ * Contexto de decodificación de celdas de una hoja: reúne lo que antes se creaba en cada
+ * celda ({@code DataFormatter}, formatos de fecha) y evita las excepciones y expresiones
+ * regulares en el camino normal.
+ * <p>
+ * Texto y números eligen su camino por el tipo de la celda, que es inmediato. Para las fechas,
+ * lo caro es decidir si un número tiene formato de fecha; por eso las primeras
+ * {@link #FILAS_MUESTRA} lecturas de cada columna se usan para inferir el estilo de sus fechas,
+ * y desde ahí una celda con ese mismo estilo se convierte directamente. Una celda que no calza
+ * con lo inferido vuelve al camino general. Los resultados son los mismos que con la
+ * decodificación anterior.
+ * <p>
+ * No es thread-safe: una instancia por hoja (por mapper).
+ */
+public class DecodificadorCeldas {
+
+    private static final int FILAS_MUESTRA = 20;
+
+    private static final int SIN_DATOS = -1;
+    private static final int MIXTO = -2;
+
+    // Mismos formatos y orden que se aceptaban antes
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter CON_SLASH = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter CON_GUION = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final List<DateTimeFormatter> FORMATOS_FECHA = List.of(ISO, CON_SLASH, CON_GUION);
+
+    private static final int FORMATO_ISO = 0;
+    private static final int FORMATO_CON_SLASH = 1;
+    private static final int FORMATO_CON_GUION = 2;
+
+    private final DataFormatter formateador = new DataFormatter();
+    private Columna[] columnas = new Columna[32];
+
+    /**
+     * Lo observado en una columna durante la muestra.
+     */
+    private static final class Columna {
+        int lecturas;
+        int estiloFecha = SIN_DATOS; // estilo de las fechas numéricas, o MIXTO
+
+        boolean enMuestra() {
+            return lecturas < FILAS_MUESTRA;
+        }
+    }
+
+    // --- Texto ---
+
+    public String texto(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        if (cell.getCellType() == CellType.STRING) {
+            // Es lo que devuelve DataFormatter para una celda de texto, sin pasar por él
+            return cell.getStringCellValue().trim();
+        }
+        return formateador.formatCellValue(cell).trim();
+    }
+
+    // --- Números ---
+
+    public BigDecimal decimal(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        CellType tipo = cell.getCellType();
+        if (tipo == CellType.NUMERIC) {
+            return BigDecimal.valueOf(cell.getNumericCellValue());
+        }
+        if (tipo == CellType.STRING) {
+            return decimalChileno(cell.getStringCellValue());
+        }
+        return null;
+    }
+
+    /**
+     * Convierte un número en formato chileno ("1.234.567,89"): los puntos se ignoran y la coma
+     * es el separador decimal. Acepta lo mismo que la validación anterior por expresión regular:
+     * signo opcional, dígitos, y a lo más una coma seguida de al menos un dígito.
+     * @return el valor, o null si el texto no es un número.
+     */
+    public static BigDecimal decimalChileno(String texto) {
+        int n = texto.length();
+        int i = 0;
+        while (i < n && texto.charAt(i) == '.') {
+            i++;
+        }
+        boolean negativo = false;
+        if (i < n && (texto.charAt(i) == '-' || texto.charAt(i) == '+')) {
+            negativo = texto.charAt(i) == '-';
+            i++;
+        }
+        long sinEscala = 0;
+        int digitos = 0;
+        int decimales = 0;
+        boolean coma = false;
+        for (; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c == '.') {
+                continue;
+            }
+            if (c == ',') {
+                if (coma) {
+                    return null;
+                }
+                coma = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            if (digitos < 18) {
+                sinEscala = sinEscala * 10 + (c - '0');
+            }
+            digitos++;
+            if (coma) {
+                decimales++;
+            }
+        }
+        if (digitos == 0 || (coma && decimales == 0)) {
+            return null;
+        }
+        if (digitos > 18) {
+            // Fuera del rango de long: se arma el texto normalizado (caso raro)
+            return new BigDecimal(texto.replace(".", "").replace(",", "."));
+        }
+        return BigDecimal.valueOf(negativo ? -sinEscala : sinEscala, decimales);
+    }
+
+    // --- Fechas ---
+
+    public LocalDate fecha(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
+        Columna columna = columna(cell.getColumnIndex());
+        boolean muestra = columna.enMuestra();
+        if (muestra) {
+            columna.lecturas++;
+        }
+
+        if (cell.getCellType() == CellType.NUMERIC) {
+            int estilo = cell.getCellStyle() != null ? cell.getCellStyle().getIndex() : -1;
+            // Con el estilo ya reconocido como fecha se evita analizar el formato de nuevo
+            if (!muestra && estilo >= 0 && estilo == columna.estiloFecha
+                    && DateUtil.isValidExcelDate(cell.getNumericCellValue())) {
+                return cell.getLocalDateTimeCellValue().toLocalDate();
+            }
+            try {
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    if (muestra) {
+                        columna.estiloFecha = observar(columna.estiloFecha, estilo);
+                    }
+                    return cell.getLocalDateTimeCellValue().toLocalDate();
+                }
+            } catch (Exception ignored) {
+                // Si falla, se intentará leer como texto a continuación
+            }
+        }
+
+        String texto = texto(cell);
+        if (texto == null || texto.isBlank()) {
+            return null;
+        }
+        int formato = formatoDeFecha(texto);
+        if (formato >= 0) {
+            LocalDate fecha = fechaDeTexto(texto, formato);
+            if (fecha != null) {
+                return fecha;
+            }
+        }
+        // Formas poco comunes: se prueban los formatos completos, en el orden de siempre
+        for (DateTimeFormatter formatter : FORMATOS_FECHA) {
+            try {
+                return LocalDate.parse(texto, formatter);
+            } catch (DateTimeParseException ignored) {
+                // Si este formato no funciona, se prueba el siguiente
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Formato que corresponde a la forma del texto (10 caracteres con los separadores en su lugar).
+     * @return el formato, o -1 si no calza con ninguno.
+     */
+    private static int formatoDeFecha(String texto) {
+        if (texto.length() != 10) {
+            return -1;
+        }
+        char c4 = texto.charAt(4);
+        char c2 = texto.charAt(2);
+        if (c4 == '-' && texto.charAt(7) == '-') {
+            return FORMATO_ISO;
+        }
+        if (c2 == '/' && texto.charAt(5) == '/') {
+            return FORMATO_CON_SLASH;
+        }
+        if (c2 == '-' && texto.charAt(5) == '-') {
+            return FORMATO_CON_GUION;
+        }
+        return -1;
+    }
+
+    /**
+     * Lee la fecha con la misma resolución que {@code LocalDate.parse} en modo SMART:
+     * un día fuera de rango para el mes (hasta 31) se ajusta al último día del mes.
+     * @return la fecha, o null si algún campo no es numérico o está fuera de rango.
+     */
+    private static LocalDate fechaDeTexto(String texto, int formato) {
+        int anio;
+        int mes;
+        int dia;
+        if (formato == FORMATO_ISO) {
+            anio = numero(texto, 0, 4);
+            mes = numero(texto, 5, 7);
+            dia = numero(texto, 8, 10);
+        } else {
+            dia = numero(texto, 0, 2);
+            mes = numero(texto, 3, 5);
+            anio = numero(texto, 6, 10);
+        }
+        if (anio < 1 || mes < 1 || mes > 12 || dia < 1 || dia > 31) {
+            return null;
+        }
+        LocalDate primero = LocalDate.of(anio, mes, 1);
+        return primero.withDayOfMonth(Math.min(dia, primero.lengthOfMonth()));
+    }
+
+    private static int numero(String texto, int desde, int hasta) {
+        int valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    private static int observar(int anterior, int visto) {
+        return anterior == SIN_DATOS || anterior == visto ? visto : MIXTO;
+    }
+
+    private Columna columna(int indice) {
+        if (indice >= columnas.length) {
+            columnas = Arrays.copyOf(columnas, Math.max(indice + 1, columnas.length * 2));
+        }
+        Columna columna = columnas[indice];
+        if (columna == null) {
+            columna = new Columna();
+            columnas[indice] = columna;
+        }
+        return columna;
+    }
+}
@@ -0,0 +1,208 @@
+package com.etl.util;
+
+import com.app.entities.CargaTransaccionEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escritura en lote de {@code carga_transacciones} sin pasar por el contexto de persistencia.
+ * Acumula las filas y las envía con {@code INSERT IGNORE} por {@code executeBatch} sobre la
+ * conexión del EntityManager (con {@code rewriteBatchedStatements=true} el driver de MySQL lo
+ * convierte en INSERT multi-fila). Una clave que ya exista se ignora en la base, aunque lo
+ * normal es que {@link ClavesCargaExistentes} ya la haya descartado antes.
+ * <p>
+ * Por defecto todo queda en la transacción del llamador. Con {@code filasPorCommit > 0} se
+ * confirma la transacción del EntityManager cada tantas filas y se abre otra: si la carga
+ * falla a medias quedan confirmados los lotes anteriores, y como los duplicados se omiten,
+ * volver a cargar el archivo completa lo que faltó.
+ * <p>
+ * No es thread-safe: una instancia por archivo, en el hilo que escribe.
+ */
+public class EscritorCargaTransacciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscritorCargaTransacciones.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Las columnas de la clave (Pk embebida) usan el nombre del atributo, sin @Column
+    private static final String INSERT_CARGA = """
+        INSERT IGNORE INTO carga_transacciones
+            (transactionDate, rowNum, tipoClase, razon_social, rut, cuenta, custodio, folio,
+             tipo_movimiento, movimiento_caja, producto, instrumento_nemo, instrumento_nombre, moneda,
+             cantidad, precio, monto, monto_total, comision, gastos, iva, cuenta_psh,
+             cant_libre, cant_garantia, cant_plazo, cant_vc, cant_total, monto_clp, monto_usd,
+             procesado, fecha_creacion, creado_por, modificado_por)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    /**
+     * Totales de la escritura.
+     * @param insertadas Filas que el driver informó como insertadas (o sin información, que se asumen insertadas).
+     * @param ignoradas Filas que la base ignoró por clave duplicada.
+     */
+    public record Estadisticas(long enviadas, long insertadas, long ignoradas, int lotes, int commits, long nanosEscritura) {
+
+        public double filasPorSegundo() {
+            return nanosEscritura == 0 ? 0 : insertadas / (nanosEscritura / 1_000_000_000.0);
+        }
+    }
+
+    private final EntityManager em;
+    private final int batchSize;
+    private final int filasPorCommit;
+    private final List<CargaTransaccionEntity> pendientes = new ArrayList<>();
+
+    private long enviadas;
+    private long insertadas;
+    private long ignoradas;
+    private int lotes;
+    private int commits;
+    private long nanosEscritura;
+    private long sinConfirmar;
+
+    public EscritorCargaTransacciones(EntityManager em) {
+        this(em, DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * @param batchSize Filas por lote enviado a la base.
+     * @param filasPorCommit Filas entre commits; 0 para no confirmar (se usa la transacción del llamador).
+     */
+    public EscritorCargaTransacciones(EntityManager em, int batchSize, int filasPorCommit) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a cero");
+        }
+        if (filasPorCommit < 0) {
+            throw new IllegalArgumentException("Las filas por commit no pueden ser negativas");
+        }
+        this.em = em;
+        this.batchSize = batchSize;
+        this.filasPorCommit = filasPorCommit;
+    }
+
+    public void agregar(CargaTransaccionEntity fila) {
+        pendientes.add(fila);
+        if (pendientes.size() >= batchSize) {
+            escribir();
+        }
+    }
+
+    /**
+     * Envía las filas pendientes y, si corresponde, confirma.
+     */
+    public void flush() {
+        if (!pendientes.isEmpty()) {
+            escribir();
+        }
+    }
+
+    public Estadisticas getEstadisticas() {
+        return new Estadisticas(enviadas, insertadas, ignoradas, lotes, commits, nanosEscritura);
+    }
+
+    private void escribir() {
+        long inicio = System.nanoTime();
+        em.unwrap(Session.class).doWork(this::insertar);
+        nanosEscritura += System.nanoTime() - inicio;
+        lotes++;
+        sinConfirmar += pendientes.size();
+        pendientes.clear();
+
+        if (filasPorCommit > 0 && sinConfirmar >= filasPorCommit) {
+            confirmar();
+        }
+    }
+
+    private void insertar(Connection connection) throws SQLException {
+        LocalDate hoy = LocalDate.now();
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_CARGA)) {
+            for (CargaTransaccionEntity c : pendientes) {
+                int i = 0;
+                ps.setObject(++i, c.getId().getTransactionDate());
+                setEntero(ps, ++i, c.getId().getRowNum());
+                ps.setString(++i, c.getId().getTipoClase());
+                ps.setString(++i, c.getRazonSocial());
+                ps.setString(++i, c.getRut());
+                ps.setString(++i, c.getCuenta());
+                ps.setString(++i, c.getCustodioNombre());
+                ps.setString(++i, c.getFolio());
+                ps.setString(++i, c.getTipoMovimiento());
+                ps.setString(++i, c.getMovimientoCaja());
+                ps.setString(++i, c.getProducto());
+                ps.setString(++i, c.getInstrumentoNemo());
+                ps.setString(++i, c.getInstrumentoNombre());
+                ps.setString(++i, c.getMoneda());
+                ps.setBigDecimal(++i, c.getCantidad());
+                ps.setBigDecimal(++i, c.getPrecio());
+                ps.setBigDecimal(++i, c.getMonto());
+                ps.setBigDecimal(++i, c.getMontoTotal());
+                ps.setBigDecimal(++i, c.getComisiones());
+                ps.setBigDecimal(++i, c.getGastos());
+                ps.setBigDecimal(++i, c.getIva());
+                ps.setString(++i, c.getCuentaPsh());
+                ps.setBigDecimal(++i, c.getCantLibre());
+                ps.setBigDecimal(++i, c.getCantGarantia());
+                ps.setBigDecimal(++i, c.getCantPlazo());
+                ps.setBigDecimal(++i, c.getCantVc());
+                ps.setBigDecimal(++i, c.getCantTotal());
+                ps.setBigDecimal(++i, c.getMontoClp());
+                ps.setBigDecimal(++i, c.getMontoUsd());
+                ps.setBoolean(++i, c.isProcesado());
+                ps.setObject(++i, hoy);
+                ps.setString(++i, c.getCreadoPor() != null ? c.getCreadoPor() : "sistema");
+                ps.setString(++i, c.getModificadoPor());
+                ps.addBatch();
+            }
+            contar(ps.executeBatch());
+        }
+        enviadas += pendientes.size();
+    }
+
+    /**
+     * Con INSERT IGNORE cada fila informa 1 si se insertó y 0 si se ignoró; el INSERT
+     * reescrito en varias filas puede informar solo {@code SUCCESS_NO_INFO}.
+     */
+    private void contar(int[] resultados) {
+        for (int r : resultados) {
+            if (r == 0) {
+                ignoradas++;
+            } else if (r > 0) {
+                insertadas += r;
+            } else if (r == Statement.SUCCESS_NO_INFO) {
+                insertadas++;
+            }
+        }
+    }
+
+    private void confirmar() {
+        EntityTransaction tx = em.getTransaction();
+        if (!tx.isActive()) {
+            return;
+        }
+        tx.commit();
+        tx.begin();
+        commits++;
+        logger.debug("Carga confirmada parcialmente: {} filas en el commit #{}.", sinConfirmar, commits);
+        sinConfirmar = 0;
+    }
+
+    private static void setEntero(PreparedStatement ps, int indice, Integer valor) throws SQLException {
+        if (valor != null) {
+            ps.setInt(indice, valor);
+        } else {
+            ps.setNull(indice, Types.INTEGER);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.etl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Lector de archivos XLSX por eventos (SAX): recorre el XML de cada hoja sin construir
+ * el modelo completo del libro, así que la memoria usada no crece con el tamaño del archivo.
+ * <p>
+ * Cada fila se entrega como un {@link Row} de POI para que los mappers existentes funcionen
+ * sin cambios. Es siempre la misma fila de trabajo, armada sobre un libro HSSF vacío: solo es
+ * válida durante la llamada, y su número de fila es siempre 0 (el número real se pasa aparte).
+ * Las celdas conservan el tipo y el formato numérico del original, para que las fechas y
+ * {@code DataFormatter} se comporten igual que al leer el libro completo. Las celdas con
+ * fórmula se entregan con su último valor calculado.
+ * <p>
+ * La tabla de textos compartidos y los estilos se cargan recién cuando una celda los necesita.
+ */
+public class LectorXlsxStreaming implements AutoCloseable {
+
+    /**
+     * Recibe cada fila de una hoja.
+     */
+    @FunctionalInterface
+    public interface ManejadorFila {
+        /**
+         * @param fila La fila de trabajo, válida solo durante esta llamada.
+         * @param indiceFila Índice de la fila en la hoja (base 0).
+         * @return false para dejar de leer la hoja.
+         */
+        boolean fila(Row fila, int indiceFila);
+    }
+
+    /**
+     * Decide cómo leer cada hoja, en el orden del libro.
+     */
+    @FunctionalInterface
+    public interface ManejadorHojas {
+        /**
+         * @return el manejador de las filas de la hoja, o null para omitirla.
+         */
+        ManejadorFila hoja(int indiceHoja, String nombreHoja);
+    }
+
+    private final OPCPackage paquete;
+    private final XSSFReader reader;
+    private ReadOnlySharedStringsTable textosCompartidos;
+    private StylesTable estilos;
+
+    // Libro de trabajo donde se arma la fila entregada a los mappers
+    private final HSSFWorkbook libroTrabajo = new HSSFWorkbook();
+    private final Sheet hojaTrabajo = libroTrabajo.createSheet();
+    private final Map<Integer, CellStyle> estilosTrabajo = new HashMap<>();
+
+    public LectorXlsxStreaming(File file) throws IOException {
+        try {
+            this.paquete = OPCPackage.open(file, PackageAccess.READ);
+            this.reader = new XSSFReader(paquete);
+        } catch (Exception e) {
+            libroTrabajo.close();
+            throw new IOException("No se pudo abrir el archivo XLSX " + file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recorre las hojas del libro en orden y entrega sus filas al manejador que corresponda.
+     */
+    public void leer(ManejadorHojas manejadorHojas) throws IOException {
+        try {
+            XSSFReader.SheetIterator hojas = (XSSFReader.SheetIterator) reader.getSheetsData();
+            int indiceHoja = 0;
+            while (hojas.hasNext()) {
+                try (InputStream xml = hojas.next()) {
+                    ManejadorFila manejador = manejadorHojas.hoja(indiceHoja, hojas.getSheetName());
+                    if (manejador != null) {
+                        leerHoja(xml, manejador);
+                    }
+                }
+                indiceHoja++;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Los errores de los manejadores (por ejemplo, al persistir) se propagan tal cual
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error leyendo el archivo XLSX: " + e.getMessage(), e);
+        }
+    }
+
+    private void leerHoja(InputStream xml, ManejadorFila manejador) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new ManejadorHojaXml(manejador));
+        try {
+            parser.parse(new InputSource(xml));
+        } catch (FinDeHoja e) {
+            // El manejador pidió dejar de leer esta hoja
+        }
+    }
+
+    private String textoCompartido(int indice) throws IOException {
+        if (textosCompartidos == null) {
+            try {
+                textosCompartidos = new ReadOnlySharedStringsTable(paquete, false);
+            } catch (SAXException e) {
+                throw new IOException("No se pudo leer la tabla de textos compartidos.", e);
+            }
+        }
+        return textosCompartidos.getItemAt(indice).getString();
+    }
+
+    /**
+     * Estilo del libro de trabajo con el mismo formato numérico que el estilo {@code indice} del archivo.
+     */
+    private CellStyle estiloTrabajo(int indice) throws IOException {
+        CellStyle estilo = estilosTrabajo.get(indice);
+        if (estilo == null) {
+            if (estilos == null) {
+                try {
+                    estilos = reader.getStylesTable();
+                } catch (Exception e) {
+                    throw new IOException("No se pudo leer la tabla de estilos.", e);
+                }
+            }
+            XSSFCellStyle original = estilos != null && indice < estilos.getNumCellStyles() ? estilos.getStyleAt(indice) : null;
+            estilo = libroTrabajo.createCellStyle();
+            if (original != null && original.getDataFormatString() != null) {
+                estilo.setDataFormat(libroTrabajo.createDataFormat().getFormat(original.getDataFormatString()));
+            }
+            estilosTrabajo.put(indice, estilo);
+        }
+        return estilo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            paquete.revert();
+        } finally {
+            libroTrabajo.close();
+        }
+    }
+
+    /**
+     * Corta el recorrido de una hoja cuando el manejador ya no quiere más filas.
+     */
+    private static final class FinDeHoja extends SAXException {
+        FinDeHoja() {
+            super("Fin de la hoja solicitado por el manejador.");
+        }
+    }
+
+    /**
+     * Traduce los elementos {@code row}, {@code c}, {@code v} e {@code is/t} de una hoja a la fila de trabajo.
+     */
+    private final class ManejadorHojaXml extends DefaultHandler {
+
+        private final ManejadorFila manejador;
+        private final StringBuilder texto = new StringBuilder();
+        private Row fila;
+        private int indiceFila = -1;
+        private int siguienteColumna;
+        private int columna;
+        private String tipo;
+        private int estilo;
+        private boolean leyendoTexto;
+        private boolean enTextoEnLinea;
+        private boolean hayValor;
+
+        ManejadorHojaXml(ManejadorFila manejador) {
+            this.manejador = manejador;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atributos) {
+            switch (nombre(localName, qName)) {
+                case "row" -> {
+                    String r = atributos.getValue("r");
+                    indiceFila = r != null ? Integer.parseInt(r) - 1 : indiceFila + 1;
+                    siguienteColumna = 0;
+                    fila = hojaTrabajo.createRow(0);
+                }
+                case "c" -> {
+                    String ref = atributos.getValue("r");
+                    columna = ref != null ? columna(ref) : siguienteColumna;
+                    siguienteColumna = columna + 1;
+                    tipo = atributos.getValue("t");
+                    String s = atributos.getValue("s");
+                    estilo = s != null ? Integer.parseInt(s) : -1;
+                    texto.setLength(0);
+                    hayValor = false;
+                }
+                case "v" -> {
+                    texto.setLength(0);
+                    leyendoTexto = true;
+                }
+                case "is" -> {
+                    texto.setLength(0);
+                    enTextoEnLinea = true;
+                }
+                case "t" -> leyendoTexto = enTextoEnLinea;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (leyendoTexto) {
+                texto.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (nombre(localName, qName)) {
+                case "v", "t" -> {
+                    if (leyendoTexto) {
+                        hayValor = true;
+                    }
+                    leyendoTexto = false;
+                }
+                case "is" -> enTextoEnLinea = false;
+                case "c" -> {
+                    try {
+                        crearCelda();
+                    } catch (IOException e) {
+                        throw new SAXException(e);
+                    }
+                }
+                case "row" -> {
+                    boolean seguir = manejador.fila(fila, indiceFila);
+                    hojaTrabajo.removeRow(fila);
+                    fila = null;
+                    if (!seguir) {
+                        throw new FinDeHoja();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void crearCelda() throws IOException {
+            // El libro de trabajo es HSSF (256 columnas); las cartolas no usan columnas más allá
+            if (fila == null || columna > SpreadsheetVersion.EXCEL97.getLastColumnIndex()) {
+                return;
+            }
+            Cell cell = fila.createCell(columna);
+            if (estilo >= 0) {
+                cell.setCellStyle(estiloTrabajo(estilo));
+            }
+            if (!hayValor || texto.isEmpty()) {
+                return;
+            }
+            String valor = texto.toString();
+            if (tipo == null || "n".equals(tipo)) {
+                cell.setCellValue(Double.parseDouble(valor));
+            } else if ("s".equals(tipo)) {
+                cell.setCellValue(textoCompartido(Integer.parseInt(valor.trim())));
+            } else if ("inlineStr".equals(tipo) || "str".equals(tipo)) {
+                cell.setCellValue(valor);
+            } else if ("b".equals(tipo)) {
+                cell.setCellValue("1".equals(valor) || "true".equalsIgnoreCase(valor));
+            } else if ("e".equals(tipo)) {
+                try {
+                    cell.setCellErrorValue(FormulaError.forString(valor).getCode());
+                } catch (IllegalArgumentException e) {
+                    cell.setCellValue(valor);
+                }
+            } else {
+                cell.setCellValue(valor);
+            }
+        }
+
+        private String nombre(String localName, String qName) {
+            if (localName != null && !localName.isEmpty()) {
+                return localName;
+            }
+            int dosPuntos = qName.indexOf(':');
+            return dosPuntos >= 0 ? qName.substring(dosPuntos + 1) : qName;
+        }
+
+        /**
+         * Columna (base 0) de una referencia como {@code AB12}.
+         */
+        private int columna(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                col = col * 26 + (c - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+}
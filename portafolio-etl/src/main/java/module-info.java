@@ -6,13 +6,18 @@ module com.app.portafolio.etl {
     requires com.app.portafolio.model;
     requires org.slf4j;
     requires jakarta.persistence;
+    requires org.hibernate.orm.core; // Session.doWork para la escritura JDBC en lote
 
     // Declara que este módulo necesita leer las librerías de POI.
     requires org.apache.poi.poi;
     requires org.apache.poi.ooxml;
+    requires java.xml;
+    requires java.management;
+    requires jdk.management;
 
 
     // 2. EXPORTA su paquete de servicios.
     exports com.etl.service;
+    exports com.etl.ingesta;
 }
 
@@ -0,0 +1,121 @@
+package com.etl.ingesta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.app.dto.ResultadoCargaDto;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IngestaCartolasServiceTest {
+
+    private static final Duration PLAZO = Duration.ofSeconds(10);
+
+    @TempDir
+    Path entrada;
+
+    // Archivos que recibió el procesador, en orden
+    private final List<String> procesados = new CopyOnWriteArrayList<>();
+
+    // Los archivos de Fynsa se reconocen por el nombre ("stock..."), sin abrir la planilla
+    private final ProcesadorIngesta procesador = (archivo, custodio) -> {
+        procesados.add(archivo.getName());
+        return ResultadoCargaDto.exitoso(3, Duration.ZERO, "Carga de prueba");
+    };
+
+    @Test
+    void cargaUnArchivoYLoMueveAProcesados() throws Exception {
+        escribir("stock_enero.xlsx", "enero");
+
+        try (IngestaCartolasService ingesta = iniciar()) {
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+            assertEquals(1, ingesta.getCargados());
+            assertEquals(0, ingesta.getFallidos());
+        }
+
+        assertEquals(List.of("stock_enero.xlsx"), procesados);
+        assertTrue(Files.exists(configuracion().procesados().resolve("stock_enero.xlsx")));
+        assertFalse(Files.exists(entrada.resolve("stock_enero.xlsx")));
+        assertTrue(diario().contains("\tCARGADO\tFynsa\t3\t"));
+    }
+
+    @Test
+    void omiteUnArchivoConContenidoYaCargado() throws Exception {
+        try (IngestaCartolasService ingesta = iniciar()) {
+            escribir("stock_enero.xlsx", "enero");
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+            // Mismo contenido con otro nombre
+            escribir("stock_enero_copia.xlsx", "enero");
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+
+            assertEquals(1, ingesta.getCargados());
+            assertEquals(1, ingesta.getOmitidos());
+        }
+
+        assertEquals(List.of("stock_enero.xlsx"), procesados);
+        assertTrue(Files.exists(configuracion().procesados().resolve("stock_enero_copia.xlsx")));
+        assertTrue(diario().contains("\tOMITIDO\t"));
+    }
+
+    @Test
+    void rechazaUnArchivoDeCustodioDesconocido() throws Exception {
+        escribir("cartola.xlsx", "no es una planilla");
+
+        try (IngestaCartolasService ingesta = iniciar()) {
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+            assertEquals(0, ingesta.getCargados());
+            assertEquals(1, ingesta.getFallidos());
+        }
+
+        assertTrue(procesados.isEmpty());
+        assertTrue(Files.exists(configuracion().errores().resolve("cartola.xlsx")));
+        assertTrue(diario().contains("\tSIN_CUSTODIO\t"));
+    }
+
+    @Test
+    void trasReiniciarNoVuelveACargarLoYaCargado() throws Exception {
+        escribir("stock_enero.xlsx", "enero");
+        try (IngestaCartolasService ingesta = iniciar()) {
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+            assertEquals(1, ingesta.getCargados());
+        }
+
+        // El diario de la corrida anterior dice que este contenido ya se cargó
+        escribir("stock_enero_reenviado.xlsx", "enero");
+        escribir("stock_febrero.xlsx", "febrero");
+        try (IngestaCartolasService ingesta = iniciar()) {
+            assertTrue(ingesta.esperarInactividad(PLAZO));
+            assertEquals(1, ingesta.getCargados());
+            assertEquals(1, ingesta.getOmitidos());
+        }
+
+        assertEquals(List.of("stock_enero.xlsx", "stock_febrero.xlsx"), procesados);
+    }
+
+    private ConfiguracionIngesta configuracion() {
+        return new ConfiguracionIngesta(entrada, entrada.resolve(".ingesta").resolve("diario.tsv"),
+                Duration.ZERO, Duration.ofMillis(20), 4, null, true);
+    }
+
+    private IngestaCartolasService iniciar() throws IOException {
+        IngestaCartolasService ingesta = new IngestaCartolasService(configuracion(), procesador);
+        ingesta.iniciar();
+        return ingesta;
+    }
+
+    private void escribir(String nombre, String contenido) throws IOException {
+        Files.writeString(entrada.resolve(nombre), contenido, StandardCharsets.UTF_8);
+    }
+
+    private String diario() throws IOException {
+        return Files.readString(configuracion().diario(), StandardCharsets.UTF_8);
+    }
+}
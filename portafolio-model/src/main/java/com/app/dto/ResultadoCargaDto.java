@@ -8,12 +8,31 @@ public class ResultadoCargaDto {
     private final int erroresEncontrados;
     private final Duration duracion;
     private final String mensaje;
+    private final int duplicadosOmitidos;
+    private final double filasPorSegundo;
+    private final boolean fallido;
 
     public ResultadoCargaDto(int trxs, int errores, Duration duracion, String mensaje) {
+        this(trxs, errores, duracion, mensaje, 0);
+    }
+
+    public ResultadoCargaDto(int trxs, int errores, Duration duracion, String mensaje, int duplicadosOmitidos) {
+        this(trxs, errores, duracion, mensaje, duplicadosOmitidos, 0);
+    }
+
+    public ResultadoCargaDto(int trxs, int errores, Duration duracion, String mensaje, int duplicadosOmitidos, double filasPorSegundo) {
+        this(trxs, errores, duracion, mensaje, duplicadosOmitidos, filasPorSegundo, false);
+    }
+
+    private ResultadoCargaDto(int trxs, int errores, Duration duracion, String mensaje, int duplicadosOmitidos,
+                              double filasPorSegundo, boolean fallido) {
         this.transaccionesCreadas = trxs;
         this.erroresEncontrados = errores;
         this.duracion = duracion;
         this.mensaje = mensaje;
+        this.duplicadosOmitidos = duplicadosOmitidos;
+        this.filasPorSegundo = filasPorSegundo;
+        this.fallido = fallido;
     }
 
     // --- Getters para todos los campos ---
@@ -29,6 +48,20 @@ public class ResultadoCargaDto {
         return mensaje;
     }
 
+    /**
+     * Filas que ya estaban cargadas (misma clave) y no se volvieron a insertar.
+     */
+    public int getDuplicadosOmitidos() {
+        return duplicadosOmitidos;
+    }
+
+    /**
+     * Velocidad de escritura en la tabla de carga (filas insertadas por segundo de escritura).
+     */
+    public double getFilasPorSegundo() {
+        return filasPorSegundo;
+    }
+
     public long getDuracionSegundos() {
         return duracion.toSeconds();
     }
@@ -44,7 +77,7 @@ public class ResultadoCargaDto {
      * Crea una instancia de resultado para operaciones fallidas.
      */
     public static ResultadoCargaDto fallido(String mensajeDeError) {
-        return new ResultadoCargaDto(0, 0, Duration.ZERO, mensajeDeError);
+        return new ResultadoCargaDto(0, 0, Duration.ZERO, mensajeDeError, 0, 0, true);
     }
 
     public int getRegistrosProcesados() {
@@ -54,4 +87,11 @@ public class ResultadoCargaDto {
     public Duration getDuracion() {
         return this.duracion;
     }
+
+    /**
+     * @return true si el resultado se creó con {@link #fallido(String)}.
+     */
+    public boolean isFallido() {
+        return fallido;
+    }
 }
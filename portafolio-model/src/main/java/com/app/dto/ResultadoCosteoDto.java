@@ -0,0 +1,145 @@
+package com.app.dto;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resumen de una ejecución de costeo: el resultado de cada grupo procesado,
+ * el grado de paralelismo utilizado, la duración total y, en el costeo por
+ * bloques, la corrida que registra el avance.
+ */
+public class ResultadoCosteoDto {
+
+    /**
+     * Tiempos y volumen de un grupo costeado, por fase. Las fases no se solapan:
+     * <ul>
+     *   <li>carga: lectura de las transacciones pendientes del grupo;</li>
+     *   <li>inicialización: último cierre, saldo inicial y cola de lotes abiertos;</li>
+     *   <li>cálculo: recorrido de las transacciones, descontadas las escrituras intermedias;</li>
+     *   <li>escritura: kardex, detalles, resultados, lotes, marcas y saldos_kardex;</li>
+     *   <li>saldos diarios: arrastre de los cierres diarios y su upsert en saldos_diarios.</li>
+     * </ul>
+     */
+    public record MetricasGrupo(long nanosCarga, long nanosInicializacion, long nanosCalculo,
+                                long nanosEscritura, long nanosSaldosDiarios,
+                                long lotesConsumidos, long filasEscritas) {
+
+        public long nanosTotal() {
+            return nanosCarga + nanosInicializacion + nanosCalculo + nanosEscritura + nanosSaldosDiarios;
+        }
+    }
+
+    /**
+     * Resultado del costeo de un único grupo (empresa|cuenta|custodio|instrumento).
+     * {@code metricas} es null si el grupo no llegó a procesarse (sin transacciones o
+     * fallo antes de cargarlo) o si el motor no las registra.
+     */
+    public record ResultadoGrupo(String claveAgrupacion, boolean exitoso, int transaccionesProcesadas, String mensaje,
+                                 MetricasGrupo metricas) {
+
+        public static ResultadoGrupo exitoso(String clave, int transacciones) {
+            return new ResultadoGrupo(clave, true, transacciones, "OK", null);
+        }
+
+        public static ResultadoGrupo fallido(String clave, int transacciones, String mensaje) {
+            return new ResultadoGrupo(clave, false, transacciones, mensaje, null);
+        }
+
+        public ResultadoGrupo conMetricas(MetricasGrupo metricas) {
+            return new ResultadoGrupo(claveAgrupacion, exitoso, transaccionesProcesadas, mensaje, metricas);
+        }
+
+        public long nanosTotal() {
+            return metricas != null ? metricas.nanosTotal() : 0;
+        }
+
+        public double transaccionesPorSegundo() {
+            return porSegundo(transaccionesProcesadas, nanosTotal());
+        }
+    }
+
+    private final List<ResultadoGrupo> grupos;
+    private final int paralelismo;
+    private final Duration duracion;
+    private final Long corridaId;
+
+    public ResultadoCosteoDto(List<ResultadoGrupo> grupos, int paralelismo, Duration duracion) {
+        this(grupos, paralelismo, duracion, null);
+    }
+
+    public ResultadoCosteoDto(List<ResultadoGrupo> grupos, int paralelismo, Duration duracion, Long corridaId) {
+        this.grupos = Collections.unmodifiableList(grupos);
+        this.paralelismo = paralelismo;
+        this.duracion = duracion;
+        this.corridaId = corridaId;
+    }
+
+    // --- Getters ---
+    public List<ResultadoGrupo> getGrupos() {
+        return grupos;
+    }
+
+    public int getParalelismo() {
+        return paralelismo;
+    }
+
+    public Duration getDuracion() {
+        return duracion;
+    }
+
+    public Long getCorridaId() {
+        return corridaId;
+    }
+
+    public List<ResultadoGrupo> getGruposExitosos() {
+        return grupos.stream().filter(ResultadoGrupo::exitoso).toList();
+    }
+
+    public List<ResultadoGrupo> getGruposFallidos() {
+        return grupos.stream().filter(g -> !g.exitoso()).toList();
+    }
+
+    public long getTransaccionesProcesadas() {
+        return grupos.stream().mapToLong(ResultadoGrupo::transaccionesProcesadas).sum();
+    }
+
+    public long getFilasEscritas() {
+        return grupos.stream().filter(g -> g.metricas() != null).mapToLong(g -> g.metricas().filasEscritas()).sum();
+    }
+
+    /**
+     * Transacciones por segundo de la corrida completa (tiempo de reloj, no la suma de los grupos).
+     */
+    public double getTransaccionesPorSegundo() {
+        return porSegundo(getTransaccionesProcesadas(), duracion.toNanos());
+    }
+
+    /**
+     * Los {@code n} grupos con métricas que más tardaron, del más lento al más rápido.
+     */
+    public List<ResultadoGrupo> getGruposMasLentos(int n) {
+        return grupos.stream()
+                .filter(g -> g.metricas() != null)
+                .sorted(Comparator.comparingLong(ResultadoGrupo::nanosTotal).reversed())
+                .limit(Math.max(n, 0))
+                .toList();
+    }
+
+    public boolean isExitoso() {
+        return grupos.stream().allMatch(ResultadoGrupo::exitoso);
+    }
+
+    private static double porSegundo(long cantidad, long nanos) {
+        return nanos == 0 ? 0 : cantidad / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Costeo%s: %d grupos (%d exitosos, %d fallidos), %d transacciones (%.1f tx/s), paralelismo=%d, duración=%ds",
+                corridaId != null ? " (corrida " + corridaId + ")" : "",
+                grupos.size(), getGruposExitosos().size(), getGruposFallidos().size(),
+                getTransaccionesProcesadas(), getTransaccionesPorSegundo(), paralelismo, duracion.toSeconds());
+    }
+}
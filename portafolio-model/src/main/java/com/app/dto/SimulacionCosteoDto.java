@@ -0,0 +1,126 @@
+package com.app.dto;
+
+import com.app.enums.MetodoCosteo;
+import com.app.enums.TipoAjuste;
+import com.app.enums.TipoEnumsCosteo;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una simulación de costeo: el kardex, los resultados realizados y el
+ * saldo final que tendría un grupo si se le agregaran movimientos hipotéticos.
+ * Nada de esto se guarda en la base de datos.
+ */
+public class SimulacionCosteoDto {
+
+    /**
+     * Movimiento hipotético a simular. Se ordena con las transacciones del grupo por
+     * fecha y, dentro de un mismo día, después de las transacciones existentes del mismo tipo.
+     */
+    public record MovimientoHipotetico(LocalDate fecha, TipoAjuste tipo, BigDecimal cantidad, BigDecimal precio) {
+
+        public static MovimientoHipotetico ingreso(LocalDate fecha, BigDecimal cantidad, BigDecimal precio) {
+            return new MovimientoHipotetico(fecha, TipoAjuste.INGRESO, cantidad, precio);
+        }
+
+        public static MovimientoHipotetico egreso(LocalDate fecha, BigDecimal cantidad, BigDecimal precio) {
+            return new MovimientoHipotetico(fecha, TipoAjuste.EGRESO, cantidad, precio);
+        }
+    }
+
+    /**
+     * Fila del kardex simulado. {@code transaccionId} es null para los movimientos
+     * hipotéticos (se identifican por su posición en {@code hipotetico}) y para los
+     * ajustes automáticos por tolerancia.
+     */
+    public record FilaKardex(Long transaccionId, Integer hipotetico, boolean ajusteTolerancia, LocalDate fecha,
+                             TipoEnumsCosteo tipoContable, BigDecimal cantidad, BigDecimal costoUnitario,
+                             BigDecimal costoTotal, BigDecimal saldoCantidad, BigDecimal saldoValor) {
+    }
+
+    /**
+     * Resultado realizado de un egreso, sumado sobre todos los lotes que consume.
+     */
+    public record ResultadoEgreso(Long transaccionId, Integer hipotetico, LocalDate fecha, BigDecimal cantidad,
+                                  BigDecimal venta, BigDecimal costo, BigDecimal utilidad) {
+    }
+
+    private final String claveAgrupacion;
+    private final MetodoCosteo metodo;
+    private final List<FilaKardex> kardex;
+    private final List<ResultadoEgreso> resultados;
+    private final BigDecimal saldoCantidad;
+    private final BigDecimal saldoValor;
+    private final BigDecimal utilidadTotal;
+    private final String error;
+    private final Duration duracion;
+
+    public SimulacionCosteoDto(String claveAgrupacion, MetodoCosteo metodo, List<FilaKardex> kardex,
+                               List<ResultadoEgreso> resultados, BigDecimal saldoCantidad, BigDecimal saldoValor,
+                               BigDecimal utilidadTotal, String error, Duration duracion) {
+        this.claveAgrupacion = claveAgrupacion;
+        this.metodo = metodo;
+        this.kardex = Collections.unmodifiableList(kardex);
+        this.resultados = Collections.unmodifiableList(resultados);
+        this.saldoCantidad = saldoCantidad;
+        this.saldoValor = saldoValor;
+        this.utilidadTotal = utilidadTotal;
+        this.error = error;
+        this.duracion = duracion;
+    }
+
+    // --- Getters ---
+    public String getClaveAgrupacion() {
+        return claveAgrupacion;
+    }
+
+    public MetodoCosteo getMetodo() {
+        return metodo;
+    }
+
+    public List<FilaKardex> getKardex() {
+        return kardex;
+    }
+
+    public List<ResultadoEgreso> getResultados() {
+        return resultados;
+    }
+
+    public BigDecimal getSaldoCantidad() {
+        return saldoCantidad;
+    }
+
+    public BigDecimal getSaldoValor() {
+        return saldoValor;
+    }
+
+    public BigDecimal getUtilidadTotal() {
+        return utilidadTotal;
+    }
+
+    /**
+     * Motivo por el que la simulación se detuvo (por ejemplo, un egreso sin saldo), o null si llegó al final.
+     * Como en el costeo real, los movimientos posteriores al fallo no se costean.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isExitoso() {
+        return error == null;
+    }
+
+    public Duration getDuracion() {
+        return duracion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Simulación %s (%s): %d filas de kardex, saldo final qty=%s val=%s, utilidad=%s%s",
+                claveAgrupacion, metodo, kardex.size(), saldoCantidad, saldoValor, utilidadTotal,
+                error != null ? ", detenida: " + error : "");
+    }
+}
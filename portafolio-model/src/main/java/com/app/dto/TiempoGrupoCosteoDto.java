@@ -0,0 +1,64 @@
+package com.app.dto;
+
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila del informe de grupos más lentos: los tiempos por fase de un grupo en una
+ * ejecución de costeo registrada en el historial.
+ */
+@Data
+@NoArgsConstructor
+public class TiempoGrupoCosteoDto {
+
+    private Long historialId;
+    private LocalDateTime inicioCorrida;
+    private String modalidad;
+    private String claveAgrupacion;
+    private boolean exitoso;
+    private int transacciones;
+    private long lotesConsumidos;
+    private long filasEscritas;
+    private long msCarga;
+    private long msInicializacion;
+    private long msCalculo;
+    private long msEscritura;
+    private long msSaldosDiarios;
+    private long msTotal;
+    private double transaccionesPorSegundo;
+
+    // CONSTRUCTOR REQUERIDO POR LA CONSULTA HQL
+    public TiempoGrupoCosteoDto(
+        Long historialId,
+        LocalDateTime inicioCorrida,
+        String modalidad,
+        String claveAgrupacion,
+        boolean exitoso,
+        int transacciones,
+        long lotesConsumidos,
+        long filasEscritas,
+        long msCarga,
+        long msInicializacion,
+        long msCalculo,
+        long msEscritura,
+        long msSaldosDiarios,
+        long msTotal
+    ) {
+        this.historialId = historialId;
+        this.inicioCorrida = inicioCorrida;
+        this.modalidad = modalidad;
+        this.claveAgrupacion = claveAgrupacion;
+        this.exitoso = exitoso;
+        this.transacciones = transacciones;
+        this.lotesConsumidos = lotesConsumidos;
+        this.filasEscritas = filasEscritas;
+        this.msCarga = msCarga;
+        this.msInicializacion = msInicializacion;
+        this.msCalculo = msCalculo;
+        this.msEscritura = msEscritura;
+        this.msSaldosDiarios = msSaldosDiarios;
+        this.msTotal = msTotal;
+        this.transaccionesPorSegundo = msTotal == 0 ? 0 : transacciones * 1000.0 / msTotal;
+    }
+}
@@ -0,0 +1,111 @@
+package com.app.dto;
+
+import com.app.enums.EstadoTrabajoCosteo;
+import com.app.enums.PrioridadCosteo;
+import java.time.LocalDateTime;
+
+/**
+ * Estado de un trabajo de la cola de costeo, tal como lo ve quien lo encoló.
+ * Es una foto: para seguir su avance se vuelve a consultar por el ID.
+ */
+public class TrabajoCosteoDto {
+
+    private final Long id;
+    private final String descripcion;
+    private final String claveGrupo;
+    private final PrioridadCosteo prioridad;
+    private final EstadoTrabajoCosteo estado;
+    private final int solicitudes;
+    private final LocalDateTime encolado;
+    private final LocalDateTime inicio;
+    private final LocalDateTime fin;
+    private final String mensaje;
+    private final ResultadoCosteoDto resultado;
+
+    public TrabajoCosteoDto(Long id, String descripcion, String claveGrupo, PrioridadCosteo prioridad,
+                            EstadoTrabajoCosteo estado, int solicitudes, LocalDateTime encolado,
+                            LocalDateTime inicio, LocalDateTime fin, String mensaje, ResultadoCosteoDto resultado) {
+        this.id = id;
+        this.descripcion = descripcion;
+        this.claveGrupo = claveGrupo;
+        this.prioridad = prioridad;
+        this.estado = estado;
+        this.solicitudes = solicitudes;
+        this.encolado = encolado;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.mensaje = mensaje;
+        this.resultado = resultado;
+    }
+
+    // --- Getters ---
+    public Long getId() {
+        return id;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    /**
+     * Grupo que bloquea el trabajo mientras corre, o null si abarca varios grupos.
+     */
+    public String getClaveGrupo() {
+        return claveGrupo;
+    }
+
+    public PrioridadCosteo getPrioridad() {
+        return prioridad;
+    }
+
+    public EstadoTrabajoCosteo getEstado() {
+        return estado;
+    }
+
+    /**
+     * Número de pedidos atendidos por este trabajo: los pedidos repetidos que llegan
+     * mientras está pendiente se suman a él en vez de encolar otro.
+     */
+    public int getSolicitudes() {
+        return solicitudes;
+    }
+
+    public LocalDateTime getEncolado() {
+        return encolado;
+    }
+
+    public LocalDateTime getInicio() {
+        return inicio;
+    }
+
+    public LocalDateTime getFin() {
+        return fin;
+    }
+
+    /**
+     * Motivo del fallo o de la cancelación, o null.
+     */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    /**
+     * Resumen del costeo, para los trabajos que lo producen (costeo completo y grupos afectados).
+     */
+    public ResultadoCosteoDto getResultado() {
+        return resultado;
+    }
+
+    public boolean isTerminado() {
+        return estado == EstadoTrabajoCosteo.COMPLETADO
+                || estado == EstadoTrabajoCosteo.FALLIDO
+                || estado == EstadoTrabajoCosteo.CANCELADO;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Trabajo #%d %s [%s, %s, %d solicitud(es)]%s",
+                id, descripcion, prioridad, estado, solicitudes,
+                mensaje != null ? ": " + mensaje : "");
+    }
+}
@@ -0,0 +1,73 @@
+package com.app.entities;
+
+import com.app.enums.EstadoArriendoCosteo;
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Arriendo de un grupo de costeo dentro de una corrida distribuida. Un trabajador
+ * toma el grupo por un tiempo acotado y lo renueva con latidos; si deja de hacerlo
+ * el arriendo vence y otro trabajador puede tomar el grupo. Las fechas de latido y
+ * vencimiento las fija el reloj de la base de datos, común a todos los trabajadores.
+ */
+@Entity
+@Table(name = "arriendos_costeo", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"corrida_id", "clave_agrupacion"}, name = "uk_arriendo_costeo_grupo")
+}, indexes = {
+    @Index(name = "idx_arriendos_costeo_estado", columnList = "corrida_id, estado, expira"),
+    @Index(name = "idx_arriendos_costeo_propietario", columnList = "propietario, estado")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ArriendoCosteoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "corrida_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private CorridaCosteoEntity corrida;
+
+    @Column(name = "clave_agrupacion", length = 255, nullable = false)
+    private String claveAgrupacion;
+
+    @Column(name = "empresa_id", nullable = false)
+    private Long empresaId;
+
+    @Column(name = "cuenta", nullable = false)
+    private String cuenta;
+
+    @Column(name = "custodio_id", nullable = false)
+    private Long custodioId;
+
+    @Column(name = "instrumento_id", nullable = false)
+    private Long instrumentoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoArriendoCosteo estado;
+
+    @Column(name = "propietario", length = 120)
+    private String propietario;
+
+    @Column(name = "latido")
+    private LocalDateTime latido;
+
+    @Column(name = "expira")
+    private LocalDateTime expira;
+
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+
+    @Column(name = "transacciones", nullable = false)
+    private int transacciones;
+
+    @Column(name = "mensaje", length = 1000)
+    private String mensaje;
+}
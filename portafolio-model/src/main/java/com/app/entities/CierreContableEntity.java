@@ -5,12 +5,14 @@ import com.app.utiles.BaseEntity;
 import jakarta.persistence.*;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @Entity
 @Table(name = "cierres_contables",
-    uniqueConstraints = @UniqueConstraint(columnNames = {"ejercicio", "empresa_id", "custodio_id", "instrumento_id"}))
+    uniqueConstraints = @UniqueConstraint(columnNames = {"ejercicio", "empresa_id", "cuenta", "custodio_id", "instrumento_id"}),
+    indexes = @Index(name = "idx_cierres_contables_grupo", columnList = "clave_agrupacion, ejercicio"))
 @Data
 @EqualsAndHashCode(callSuper = true)
 public class CierreContableEntity extends BaseEntity implements Serializable {
@@ -18,6 +20,15 @@ public class CierreContableEntity extends BaseEntity implements Serializable {
     @Column(name = "ejercicio", nullable = false)
     private int ejercicio; // El año del cierre, ej: 2024
 
+    @Column(name = "fecha_cierre", nullable = false)
+    private LocalDate fechaCierre;
+
+    @Column(name = "clave_agrupacion", length = 255, nullable = false)
+    private String claveAgrupacion;
+
+    @Column(name = "cuenta", nullable = false)
+    private String cuenta;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "empresa_id", nullable = false)
     private EmpresaEntity empresa;
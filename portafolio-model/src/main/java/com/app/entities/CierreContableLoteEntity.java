@@ -0,0 +1,42 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Lote con cantidad disponible al cierre de un ejercicio, en el orden FIFO del grupo.
+ * Junto con {@link CierreContableEntity} congela el estado del grupo a esa fecha.
+ */
+@Entity
+@Table(name = "cierres_contables_lotes", indexes = {
+    @Index(name = "idx_cierres_lotes_fifo", columnList = "cierre_id, fecha_transaccion, transaccion_id")
+})
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class CierreContableLoteEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "cierre_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private CierreContableEntity cierre;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "transaccion_id", nullable = false)
+    private TransaccionEntity transaccion;
+
+    @Column(name = "fecha_transaccion", nullable = false)
+    private LocalDate fechaTransaccion;
+
+    @Column(name = "cantidad_disponible", precision = 19, scale = 6, nullable = false)
+    private BigDecimal cantidadDisponible;
+
+    @Column(name = "costo_unitario", precision = 19, scale = 6, nullable = false)
+    private BigDecimal costoUnitario;
+}
@@ -0,0 +1,54 @@
+package com.app.entities;
+
+import com.app.enums.EstadoCorridaCosteo;
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado de una corrida de costeo por bloques. Se actualiza en la misma
+ * transacción que confirma cada bloque de grupos, de modo que refleja
+ * exactamente lo que quedó escrito y permite reanudar la corrida.
+ * <p>
+ * Las corridas distribuidas reparten sus grupos mediante {@link ArriendoCosteoEntity}
+ * y sus contadores se consolidan al terminar.
+ */
+@Entity
+@Table(name = "corridas_costeo")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class CorridaCosteoEntity extends BaseEntity implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoCorridaCosteo estado;
+
+    @Column(name = "inicio", nullable = false)
+    private LocalDateTime inicio;
+
+    @Column(name = "fin")
+    private LocalDateTime fin;
+
+    @Column(name = "distribuida", nullable = false)
+    private boolean distribuida;
+
+    @Column(name = "grupos_por_bloque", nullable = false)
+    private int gruposPorBloque;
+
+    @Column(name = "grupos_completados", nullable = false)
+    private int gruposCompletados;
+
+    @Column(name = "grupos_fallidos", nullable = false)
+    private int gruposFallidos;
+
+    @Column(name = "transacciones_procesadas", nullable = false)
+    private long transaccionesProcesadas;
+
+    @Column(name = "mensaje", length = 1000)
+    private String mensaje;
+}
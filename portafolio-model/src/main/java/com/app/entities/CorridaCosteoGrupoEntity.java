@@ -0,0 +1,41 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Grupo ya procesado dentro de una corrida de costeo. Al reanudar la corrida
+ * los grupos registrados aquí se omiten.
+ */
+@Entity
+@Table(name = "corridas_costeo_grupos", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"corrida_id", "clave_agrupacion"}, name = "uk_corrida_grupo")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class CorridaCosteoGrupoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "corrida_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private CorridaCosteoEntity corrida;
+
+    @Column(name = "clave_agrupacion", length = 255, nullable = false)
+    private String claveAgrupacion;
+
+    @Column(name = "exitoso", nullable = false)
+    private boolean exitoso;
+
+    @Column(name = "transacciones", nullable = false)
+    private int transacciones;
+
+    @Column(name = "mensaje", length = 1000)
+    private String mensaje;
+}
@@ -3,6 +3,9 @@ package com.app.entities;
 import com.app.utiles.BaseEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import java.io.Serializable;
@@ -13,15 +16,18 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "detalle_costeos")
+@Table(name = "detalle_costeos", indexes = {
+    @Index(name = "idx_detalle_costeos_grupo", columnList = "grupo_id, egreso_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
 public class DetalleCosteoEntity extends BaseEntity implements Serializable {
 
-    @Column(name = "clave_agrupacion", length = 255)
-    private String claveAgrupacion;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "grupo_id")
+    private GrupoCosteoEntity grupo;
     
     @Column(name = "cantidad_usada")
     private BigDecimal cantidadUsada;
@@ -1,5 +1,6 @@
 package com.app.entities;
 
+import com.app.enums.MetodoCosteo;
 import com.app.utiles.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -40,6 +41,11 @@ public class EmpresaEntity extends BaseEntity implements Serializable {
     @OneToMany(mappedBy = "empresa", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<TransaccionEntity> transacciones = new LinkedList<>();
 
+    // Método de costeo de la empresa; null equivale a FIFO
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metodo_costeo", length = 20)
+    private MetodoCosteo metodoCosteo;
+
     @ManyToOne(optional = true)
     @JoinColumn(name = "grupo_empresa_id")
     private GrupoEmpresaEntity grupoEmpresa;
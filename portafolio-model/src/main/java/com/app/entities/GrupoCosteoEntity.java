@@ -0,0 +1,43 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dimensión de grupos de costeo (empresa, cuenta, custodio, instrumento). Las tablas
+ * de costeo referencian el grupo por su id numérico; la clave de texto
+ * {@code empresaId|cuenta|custodioId|instrumentoId} se conserva aquí para la API y
+ * las pantallas.
+ */
+@Entity
+@Table(name = "grupos_costeo", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"empresa_id", "cuenta", "custodio_id", "instrumento_id"}, name = "uk_grupo_costeo"),
+    @UniqueConstraint(columnNames = {"clave_agrupacion"}, name = "uk_grupo_costeo_clave")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class GrupoCosteoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private EmpresaEntity empresa;
+
+    @Column(name = "cuenta", nullable = false)
+    private String cuenta;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "custodio_id", nullable = false)
+    private CustodioEntity custodio;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "instrumento_id", nullable = false)
+    private InstrumentoEntity instrumento;
+
+    @Column(name = "clave_agrupacion", length = 255, nullable = false)
+    private String claveAgrupacion;
+}
@@ -0,0 +1,54 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de una ejecución de costeo ya terminada, para comparar corridas en el
+ * tiempo. A diferencia de {@link CorridaCosteoEntity} no controla el avance ni la
+ * reanudación: se escribe una vez, al final, y solo es informativo.
+ */
+@Entity
+@Table(name = "historial_costeos", indexes = {
+    @Index(name = "idx_historial_costeos_inicio", columnList = "inicio")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class HistorialCosteoEntity extends BaseEntity implements Serializable {
+
+    @Column(name = "modalidad", nullable = false, length = 30)
+    private String modalidad;
+
+    @Column(name = "corrida_id")
+    private Long corridaId;
+
+    @Column(name = "inicio", nullable = false)
+    private LocalDateTime inicio;
+
+    @Column(name = "duracion_ms", nullable = false)
+    private long duracionMs;
+
+    @Column(name = "paralelismo", nullable = false)
+    private int paralelismo;
+
+    @Column(name = "grupos", nullable = false)
+    private int grupos;
+
+    @Column(name = "grupos_fallidos", nullable = false)
+    private int gruposFallidos;
+
+    @Column(name = "transacciones", nullable = false)
+    private long transacciones;
+
+    @Column(name = "transacciones_por_segundo", nullable = false)
+    private double transaccionesPorSegundo;
+
+    @Column(name = "filas_escritas", nullable = false)
+    private long filasEscritas;
+}
@@ -0,0 +1,65 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Tiempos por fase y volumen de un grupo dentro de una ejecución de costeo registrada
+ * en {@link HistorialCosteoEntity}. Los tiempos se guardan en milisegundos.
+ */
+@Entity
+@Table(name = "historial_costeos_grupo", indexes = {
+    @Index(name = "idx_historial_grupo_total", columnList = "historial_id, ms_total")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class HistorialCosteoGrupoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "historial_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private HistorialCosteoEntity historial;
+
+    @Column(name = "clave_agrupacion", length = 255, nullable = false)
+    private String claveAgrupacion;
+
+    @Column(name = "exitoso", nullable = false)
+    private boolean exitoso;
+
+    @Column(name = "transacciones", nullable = false)
+    private int transacciones;
+
+    @Column(name = "lotes_consumidos", nullable = false)
+    private long lotesConsumidos;
+
+    @Column(name = "filas_escritas", nullable = false)
+    private long filasEscritas;
+
+    @Column(name = "ms_carga", nullable = false)
+    private long msCarga;
+
+    @Column(name = "ms_inicializacion", nullable = false)
+    private long msInicializacion;
+
+    @Column(name = "ms_calculo", nullable = false)
+    private long msCalculo;
+
+    @Column(name = "ms_escritura", nullable = false)
+    private long msEscritura;
+
+    @Column(name = "ms_saldos_diarios", nullable = false)
+    private long msSaldosDiarios;
+
+    @Column(name = "ms_total", nullable = false)
+    private long msTotal;
+
+    @Column(name = "mensaje", length = 1000)
+    private String mensaje;
+}
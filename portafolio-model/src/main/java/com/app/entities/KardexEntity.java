@@ -12,7 +12,9 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "kardex")
+@Table(name = "kardex", indexes = {
+    @Index(name = "idx_kardex_grupo_fecha", columnList = "grupo_id, fecha_transaccion, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,8 +24,9 @@ public class KardexEntity extends BaseEntity implements Serializable {
     @Column(name = "fecha_transaccion", nullable = false)
     LocalDate fechaTransaccion;
         
-    @Column(name = "clave_agrupacion", length = 255)
-    private String claveAgrupacion;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "grupo_id")
+    private GrupoCosteoEntity grupo;
     
     @Column(name = "fecha_costeo", nullable = false)
     private LocalDate fechaCosteo;
@@ -0,0 +1,53 @@
+package com.app.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Lote de ingreso con saldo disponible, en una tabla compacta por grupo de costeo.
+ * El motor de costeo la mantiene al escribir el kardex: un lote entra al registrarse
+ * y sale al agotarse, de modo que la cola FIFO de un grupo se arma con una sola
+ * lectura ordenada por (grupo_id, fecha_transaccion, kardex_id).
+ * Al borrar el kardex el lote se elimina en cascada.
+ */
+@Entity
+@Table(name = "lotes_abiertos", indexes = {
+    @Index(name = "idx_lotes_abiertos_grupo_fifo", columnList = "grupo_id, fecha_transaccion, kardex_id")
+})
+@Data
+@NoArgsConstructor
+public class LoteAbiertoEntity implements Serializable {
+
+    @Id
+    @Column(name = "kardex_id")
+    private Long kardexId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "kardex_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    private KardexEntity kardex;
+
+    @Column(name = "grupo_id")
+    private Long grupoId;
+
+    @Column(name = "fecha_transaccion", nullable = false)
+    private LocalDate fechaTransaccion;
+
+    @Column(name = "transaccion_id", nullable = false)
+    private Long transaccionId;
+
+    @Column(name = "cantidad_disponible", nullable = false)
+    private BigDecimal cantidadDisponible;
+
+    @Column(name = "costo_unitario")
+    private BigDecimal costoUnitario;
+}
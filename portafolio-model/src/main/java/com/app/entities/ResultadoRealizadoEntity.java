@@ -0,0 +1,73 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Libro de resultados realizados: una fila por cada lote consumido por un egreso,
+ * con la venta, el costo FIFO y la utilidad de esa porción. Lo escribe el motor de
+ * costeo en el mismo momento en que consume el lote.
+ */
+@Entity
+@Table(name = "resultados_realizados", indexes = {
+    @Index(name = "idx_resultados_realizados_grupo_fecha", columnList = "grupo_id, fecha"),
+    @Index(name = "idx_resultados_realizados_filtro", columnList = "empresa_id, custodio_id, instrumento_id, cuenta")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ResultadoRealizadoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "grupo_id")
+    private GrupoCosteoEntity grupo;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "egreso_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TransaccionEntity egreso;
+
+    // Lote consumido; null en costeo por promedio ponderado, que no lleva lotes
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ingreso_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TransaccionEntity ingreso;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private EmpresaEntity empresa;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "custodio_id", nullable = false)
+    private CustodioEntity custodio;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "instrumento_id", nullable = false)
+    private InstrumentoEntity instrumento;
+
+    @Column(name = "cuenta")
+    private String cuenta;
+
+    @Column(name = "cantidad", precision = 19, scale = 6, nullable = false)
+    private BigDecimal cantidad;
+
+    @Column(name = "venta", precision = 19, scale = 6, nullable = false)
+    private BigDecimal venta;
+
+    @Column(name = "costo", precision = 19, scale = 6, nullable = false)
+    private BigDecimal costo;
+
+    @Column(name = "utilidad", precision = 19, scale = 6, nullable = false)
+    private BigDecimal utilidad;
+}
@@ -0,0 +1,61 @@
+package com.app.entities;
+
+import com.app.utiles.BaseEntity;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totales acumulados de {@link ResultadoRealizadoEntity} por grupo de costeo.
+ * El motor de costeo los incrementa al escribir el libro, de modo que los
+ * resúmenes leen una fila por grupo en lugar de recorrer el kardex.
+ */
+@Entity
+@Table(name = "resultados_realizados_grupo", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"grupo_id"}, name = "uk_resultado_realizado_grupo_id")
+}, indexes = {
+    @Index(name = "idx_resultados_grupo_filtro", columnList = "empresa_id, custodio_id, cuenta")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ResultadoRealizadoGrupoEntity extends BaseEntity implements Serializable {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "grupo_id")
+    private GrupoCosteoEntity grupo;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "empresa_id", nullable = false)
+    private EmpresaEntity empresa;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "custodio_id", nullable = false)
+    private CustodioEntity custodio;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "instrumento_id", nullable = false)
+    private InstrumentoEntity instrumento;
+
+    @Column(name = "cuenta")
+    private String cuenta;
+
+    @Column(name = "cantidad_vendida", precision = 19, scale = 6, nullable = false)
+    private BigDecimal cantidadVendida = BigDecimal.ZERO;
+
+    @Column(name = "venta_total", precision = 19, scale = 6, nullable = false)
+    private BigDecimal ventaTotal = BigDecimal.ZERO;
+
+    @Column(name = "costo_total", precision = 19, scale = 6, nullable = false)
+    private BigDecimal costoTotal = BigDecimal.ZERO;
+
+    @Column(name = "utilidad_total", precision = 19, scale = 6, nullable = false)
+    private BigDecimal utilidadTotal = BigDecimal.ZERO;
+
+    @Column(name = "fecha_ultima_venta")
+    private LocalDate fechaUltimaVenta;
+}
@@ -0,0 +1,8 @@
+package com.app.enums;
+
+public enum EstadoArriendoCosteo {
+    PENDIENTE,    // Grupo publicado en la corrida, sin trabajador asignado
+    ASIGNADO,     // Tomado por un trabajador mientras su arriendo no venza
+    COMPLETADO,   // Costeado y confirmado por el trabajador que tenía el arriendo
+    FALLIDO       // Costeado con errores o agotó sus reintentos
+}
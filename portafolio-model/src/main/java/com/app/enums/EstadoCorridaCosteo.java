@@ -0,0 +1,7 @@
+package com.app.enums;
+
+public enum EstadoCorridaCosteo {
+    EN_CURSO,     // Corrida iniciada; los bloques confirmados quedan registrados
+    COMPLETADA,   // Todos los grupos pendientes fueron procesados
+    INTERRUMPIDA  // Se detuvo por un error; puede reanudarse
+}
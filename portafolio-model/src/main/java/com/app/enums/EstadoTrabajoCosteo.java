@@ -0,0 +1,9 @@
+package com.app.enums;
+
+public enum EstadoTrabajoCosteo {
+    PENDIENTE,    // En la cola, esperando un trabajador libre o que se libere su grupo
+    EN_CURSO,     // Tomado por un trabajador de la cola
+    COMPLETADO,   // Terminó sin errores
+    FALLIDO,      // Terminó con una excepción; el motivo queda en el mensaje
+    CANCELADO     // Cancelado antes de empezar, o interrumpido entre grupos
+}
@@ -0,0 +1,6 @@
+package com.app.enums;
+
+public enum MetodoCosteo {
+    FIFO,               // Cola de lotes: cada egreso consume los ingresos más antiguos
+    PROMEDIO_PONDERADO  // Costo promedio móvil: sin lotes ni detalle de consumos
+}
@@ -0,0 +1,7 @@
+package com.app.enums;
+
+public enum PrioridadCosteo {
+    INTERACTIVA,  // Pedido desde la interfaz por un usuario que espera el resultado
+    NORMAL,       // Costeo de los grupos tocados por una carga diaria
+    MASIVA        // Costeo completo de todas las transacciones pendientes
+}
@@ -2,10 +2,20 @@ package com.app.interfaces;
 
 import com.app.dto.AjustePropuestoDto;
 import com.app.dto.CostingGroupDTO;
+import com.app.dto.ResultadoCosteoDto;
+import com.app.dto.SimulacionCosteoDto;
+import com.app.dto.TiempoGrupoCosteoDto;
+import com.app.dto.TrabajoCosteoDto;
+import com.app.enums.MetodoCosteo;
+import com.app.enums.PrioridadCosteo;
 import com.app.enums.TipoAjuste;
 import com.app.exception.CostingException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Interfaz pública y único punto de entrada para el módulo de costeo.
@@ -15,17 +25,126 @@ public interface CostingApiInterfaz {
 
     /**
      * Ejecuta el proceso de costeo para todas las transacciones pendientes.
+     * @return un resumen con el resultado, los tiempos por fase y el volumen de cada grupo.
      * @throws CostingException si ocurre un error durante el proceso.
      */
-    void ejecutarCosteoCompleto() throws CostingException;
+    ResultadoCosteoDto ejecutarCosteoCompleto() throws CostingException;
 
     /**
-     * Revierte y re-ejecuta el costeo para un grupo específico.
+     * Ejecuta el costeo de todas las transacciones pendientes con un método forzado para la corrida.
+     * @param metodo Método para todos los grupos; si es null, el método configurado en cada empresa.
+     * @return un resumen con el resultado, los tiempos por fase y el volumen de cada grupo.
+     * @throws CostingException si ocurre un error durante el proceso.
+     */
+    ResultadoCosteoDto ejecutarCosteoCompleto(MetodoCosteo metodo) throws CostingException;
+
+    /**
+     * Asigna el método de costeo de una empresa. Los grupos ya costeados conservan su kardex
+     * hasta que se recostean completos con {@link #recostearGrupo(String)}.
+     * @param empresaId La empresa.
+     * @param metodo El método; null vuelve al método por defecto (FIFO).
+     * @throws CostingException si la empresa no existe o falla la actualización.
+     */
+    void asignarMetodoCosteo(Long empresaId, MetodoCosteo metodo) throws CostingException;
+
+    /**
+     * Ejecuta el costeo de todas las transacciones pendientes confirmando los grupos en
+     * bloques y registrando el avance en una corrida, que puede reanudarse si se interrumpe.
+     * @param gruposPorBloque Grupos confirmados por transacción (0 o menos usa el valor por defecto).
+     * @return un resumen con el resultado de cada grupo y el ID de la corrida.
+     * @throws CostingException si la corrida se interrumpe; el mensaje indica la corrida a reanudar.
+     */
+    ResultadoCosteoDto ejecutarCosteoPorBloques(int gruposPorBloque) throws CostingException;
+
+    /**
+     * Reanuda una corrida de costeo por bloques omitiendo los grupos que ya confirmó.
+     * @param corridaId La corrida a reanudar; si es null, la última que no terminó.
+     * @param gruposPorBloque Grupos confirmados por transacción (0 o menos usa el valor por defecto).
+     * @return un resumen con el resultado de los grupos procesados en esta reanudación.
+     * @throws CostingException si no hay corrida que reanudar o si vuelve a interrumpirse.
+     */
+    ResultadoCosteoDto reanudarCosteo(Long corridaId, int gruposPorBloque) throws CostingException;
+
+    /**
+     * Ejecuta el costeo de todas las transacciones pendientes repartiendo los grupos
+     * entre un número acotado de hilos, cada uno con su propio EntityManager y transacción.
+     * @param paralelismo Número máximo de grupos costeados en simultáneo (0 o menos usa el número de núcleos).
+     * @return un resumen con el resultado de cada grupo.
+     * @throws CostingException si ocurre un error al preparar o ejecutar el proceso.
+     */
+    ResultadoCosteoDto ejecutarCosteoParalelo(int paralelismo) throws CostingException;
+
+    /**
+     * Publica una corrida de costeo distribuida: registra un arriendo pendiente por cada
+     * grupo por costear, para que varios procesos trabajadores se los repartan.
+     * @return el ID de la corrida publicada.
+     * @throws CostingException si no se puede publicar la corrida.
+     */
+    Long publicarCosteoDistribuido() throws CostingException;
+
+    /**
+     * Participa como trabajador en una corrida distribuida: toma grupos por arriendo y los
+     * costea hasta que la corrida no tenga grupos pendientes ni asignados. Los grupos de un
+     * trabajador caído se reasignan cuando vence su arriendo.
+     * @param corridaId La corrida; si es null, la última corrida distribuida en curso.
+     * @param segundosArriendo Duración del arriendo de cada grupo (0 o menos usa el valor por defecto).
+     * @return el resumen consolidado de la corrida, con el resultado de todos los trabajadores.
+     * @throws CostingException si no hay corrida en curso o falla el trabajador.
+     */
+    ResultadoCosteoDto trabajarEnCosteoDistribuido(Long corridaId, int segundosArriendo) throws CostingException;
+
+    /**
+     * Revierte y re-ejecuta el costeo para un grupo específico. Si el grupo tiene un
+     * ejercicio cerrado, solo se recostea desde el día siguiente al último cierre.
      * @param claveGrupo La clave única del grupo a recostear.
      * @throws CostingException si ocurre un error durante el proceso.
      */
     void recostearGrupo(String claveGrupo) throws CostingException;
 
+    /**
+     * Recostea un grupo solo desde una fecha: revierte el kardex, los consumos de lotes y
+     * los saldos diarios desde esa fecha, reconstruye la cola FIFO a esa fecha y vuelve a
+     * costear únicamente la cola de transacciones posteriores.
+     * @param claveGrupo La clave única del grupo a recostear.
+     * @param fechaDesde Primera fecha afectada; si es null se usa la fecha de la primera transacción pendiente del grupo.
+     * @return el resultado del costeo del grupo.
+     * @throws CostingException si ocurre un error durante el proceso.
+     */
+    ResultadoCosteoDto.ResultadoGrupo recostearGrupoDesde(String claveGrupo, LocalDate fechaDesde) throws CostingException;
+
+    /**
+     * Costea solo los grupos tocados por una carga, sin recorrer toda la tabla de transacciones.
+     * Si un grupo recibió transacciones con fecha igual o anterior a lo ya costeado, primero
+     * se revierte su costeo desde esa fecha. Cada grupo se confirma por separado.
+     * @param gruposAfectados Clave de cada grupo tocado y la fecha de su transacción nueva más antigua.
+     * @return un resumen con el resultado de cada grupo.
+     * @throws CostingException si ocurre un error al preparar el proceso.
+     */
+    ResultadoCosteoDto costearGruposAfectados(Map<String, LocalDate> gruposAfectados) throws CostingException;
+
+    /**
+     * Recostea desde cero solo los grupos indicados, repartidos entre un número acotado de
+     * hilos, sin consultar el resto de las transacciones pendientes. Pensado para los grupos
+     * que deja una fusión de instrumentos.
+     * @param clavesGrupo Los grupos a recostear.
+     * @param paralelismo Número máximo de grupos en simultáneo (0 o menos usa el número de núcleos).
+     * @param avance Recibe (grupos terminados, total) a medida que termina cada grupo; puede ser null.
+     * @return un resumen con el resultado de cada grupo.
+     * @throws CostingException si falla la preparación del recosteo.
+     */
+    ResultadoCosteoDto recostearGrupos(Collection<String> clavesGrupo, int paralelismo, BiConsumer<Integer, Integer> avance) throws CostingException;
+
+    /**
+     * Cierra un ejercicio: congela para cada grupo la cantidad, el valor y los lotes abiertos
+     * al 31 de diciembre. El costeo posterior parte del último cierre y los movimientos del
+     * ejercicio cerrado ya no se revierten.
+     * @param ejercicio El año a cerrar; los ejercicios se cierran en orden.
+     * @param archivarKardex Si es true, mueve el kardex del ejercicio (salvo los lotes aún abiertos) a kardex_archivo.
+     * @return el número de grupos cerrados.
+     * @throws CostingException si el ejercicio no se puede cerrar o falla el proceso.
+     */
+    int cerrarEjercicio(int ejercicio, boolean archivarKardex) throws CostingException;
+
     /**
      * Obtiene una lista de todos los grupos de costeo existentes.
      * @return una Lista de DTOs con la información de los grupos.
@@ -58,6 +177,103 @@ public interface CostingApiInterfaz {
      * @throws CostingException si ocurre un error durante la eliminación.
      */
     void eliminarAjuste(Long ajusteId) throws CostingException;
+
+    /**
+     * Simula el costeo de un grupo con movimientos hipotéticos sin escribir nada: recostea
+     * en memoria su historia desde el último cierre junto con los movimientos dados.
+     * La historia del grupo se lee una vez y se reutiliza en las simulaciones siguientes.
+     * @param claveGrupo La clave única del grupo.
+     * @param movimientos Ingresos o egresos hipotéticos; una lista vacía reproduce el costeo actual.
+     * @return el kardex, los resultados realizados y el saldo final simulados.
+     * @throws CostingException si el grupo no es válido o falla la lectura de su historia.
+     */
+    SimulacionCosteoDto simularCosteo(String claveGrupo, List<SimulacionCosteoDto.MovimientoHipotetico> movimientos) throws CostingException;
+
+    /**
+     * Informe de los grupos que más tardaron en una ejecución de costeo registrada en el historial.
+     * @param historialId La ejecución; si es null, la última registrada.
+     * @param limite Número máximo de grupos a devolver.
+     * @return los grupos ordenados del más lento al más rápido, con sus tiempos por fase.
+     * @throws CostingException si falla la consulta del historial.
+     */
+    List<TiempoGrupoCosteoDto> obtenerGruposMasLentos(Long historialId, int limite) throws CostingException;
+
+    /**
+     * Encola un costeo completo de prioridad MASIVA. Si ya hay uno pendiente, el pedido se
+     * suma a ese trabajo. Corre solo cuando ningún otro trabajo de la cola está en curso.
+     * @return el ID del trabajo.
+     * @throws CostingException si no se puede encolar.
+     */
+    Long encolarCosteoCompleto() throws CostingException;
+
+    /**
+     * Encola el recosteo de un grupo. Si el mismo grupo ya tiene un recosteo pendiente, el
+     * pedido se suma a ese trabajo y, si es más urgente, le sube la prioridad.
+     * @param claveGrupo La clave única del grupo.
+     * @param prioridad INTERACTIVA para pedidos desde la interfaz; null equivale a NORMAL.
+     * @return el ID del trabajo.
+     * @throws CostingException si no se puede encolar.
+     */
+    Long encolarRecosteoGrupo(String claveGrupo, PrioridadCosteo prioridad) throws CostingException;
+
+    /**
+     * Encola con prioridad INTERACTIVA el recosteo en paralelo de un conjunto de grupos
+     * (ver {@link #recostearGrupos}). Mientras corre, bloquea esos grupos en la cola.
+     * @param avance Recibe (grupos terminados, total) desde el trabajador; puede ser null.
+     * @return el ID del trabajo.
+     * @throws CostingException si alguna clave no es válida.
+     */
+    Long encolarRecosteoGrupos(Collection<String> clavesGrupo, BiConsumer<Integer, Integer> avance) throws CostingException;
+
+    /**
+     * Encola con prioridad INTERACTIVA la creación de un ajuste manual. El trabajo no corre
+     * mientras haya otro trabajo en curso sobre el mismo grupo.
+     * @return el ID del trabajo.
+     * @throws CostingException si la transacción de referencia no existe.
+     */
+    Long encolarCrearAjuste(Long transaccionId, TipoAjuste tipo, BigDecimal cantidad, BigDecimal precio) throws CostingException;
+
+    /**
+     * Encola con prioridad INTERACTIVA la eliminación de un ajuste manual. El trabajo no corre
+     * mientras haya otro trabajo en curso sobre el mismo grupo.
+     * @return el ID del trabajo.
+     * @throws CostingException si el ajuste no existe.
+     */
+    Long encolarEliminarAjuste(Long ajusteId) throws CostingException;
+
+    /**
+     * Encola con prioridad NORMAL el costeo de los grupos tocados por una carga. Si ya hay
+     * un trabajo igual pendiente, los grupos se suman a él conservando la fecha más antigua.
+     * @param gruposAfectados Clave de cada grupo tocado y la fecha de su transacción nueva más antigua.
+     * @return el ID del trabajo.
+     * @throws CostingException si no se puede encolar.
+     */
+    Long encolarCosteoGruposAfectados(Map<String, LocalDate> gruposAfectados) throws CostingException;
+
+    /**
+     * Estado actual de un trabajo de la cola.
+     * @return el trabajo, o null si no existe o ya salió del historial reciente.
+     */
+    TrabajoCosteoDto consultarTrabajo(Long trabajoId);
+
+    /**
+     * Trabajos pendientes, en curso y los terminados más recientes, en orden de llegada.
+     */
+    List<TrabajoCosteoDto> listarTrabajos();
+
+    /**
+     * Bloquea el hilo actual hasta que el trabajo termine.
+     * @return el estado final del trabajo.
+     * @throws CostingException si el trabajo no existe o se interrumpe la espera.
+     */
+    TrabajoCosteoDto esperarTrabajo(Long trabajoId) throws CostingException;
+
+    /**
+     * Cancela un trabajo. Uno pendiente sale de la cola; un costeo completo en curso se
+     * detiene en el siguiente grupo. Los demás trabajos en curso no se pueden cancelar.
+     * @return true si el trabajo salió de la cola o se pidió detener el costeo completo.
+     */
+    boolean cancelarTrabajo(Long trabajoId);
     
     /**
      * 
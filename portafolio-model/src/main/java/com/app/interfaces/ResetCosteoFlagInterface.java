@@ -1,7 +1,38 @@
-
 package com.app.interfaces;
 
+import java.time.LocalDate;
+
 public interface ResetCosteoFlagInterface {
     
     int resetCosteoFlagsByGrupo(Long empresaId, String cuenta, Long custodioId, Long instrumentoId);
+
+    /**
+     * Revierte el costeo del grupo desde una fecha: devuelve a los lotes anteriores lo
+     * consumido desde esa fecha, elimina el kardex, los detalles, los resultados realizados,
+     * los ajustes automáticos y los saldos diarios posteriores, y deja pendientes solo esas
+     * transacciones.
+     * @return el número de transacciones que quedan pendientes de costeo.
+     * @throws IllegalStateException si la fecha cae en un ejercicio cerrado para el grupo.
+     */
+    int revertirCosteoDesde(Long empresaId, String cuenta, Long custodioId, Long instrumentoId, LocalDate fechaDesde);
+
+    /**
+     * Fecha del último cierre de ejercicio del grupo.
+     * @return la fecha de cierre, o null si el grupo no tiene cierres.
+     */
+    LocalDate fechaUltimoCierre(String claveAgrupacion);
+
+    /**
+     * Elimina el libro de resultados realizados del grupo y su total, antes de recostearlo completo.
+     * @return el número de filas del libro eliminadas.
+     */
+    int eliminarResultadosRealizados(String claveAgrupacion);
+
+    /**
+     * Pobla las tablas que mantiene el costeo (lotes_abiertos desde el kardex y
+     * resultados_realizados desde detalle_costeos) cuando están vacías, es decir, en la
+     * primera ejecución tras incorporarlas.
+     * @return el número de filas registradas.
+     */
+    int inicializarTablasDerivadas();
 }
@@ -32,6 +32,8 @@ public final class LibraryInitializer {
 
                 // Inicialización de datos base (incluye verificación y creación de vistas)
                 DataInitializer.inicializarDatosBase();
+                MigracionGruposCosteo.migrar();
+                MigracionCosteoPromedio.migrar();
 
             } catch (Exception e) {
                 logger.error("Error al inicializar el EntityManagerFactory.", e);
@@ -0,0 +1,48 @@
+package com.app.utiles;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * El costeo por promedio ponderado anota resultados realizados sin lote de ingreso.
+ * Hibernate no relaja columnas existentes, por lo que aquí se deja
+ * {@code resultados_realizados.ingreso_id} como nullable. Es idempotente.
+ */
+public final class MigracionCosteoPromedio {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionCosteoPromedio.class);
+
+    private static final String INGRESO_OBLIGATORIO = """
+        SELECT COUNT(*) FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND TABLE_NAME = 'resultados_realizados'
+          AND COLUMN_NAME = 'ingreso_id'
+          AND IS_NULLABLE = 'NO'
+        """;
+
+    private MigracionCosteoPromedio() {
+    }
+
+    public static void migrar() {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        try {
+            Number obligatorio = (Number) em.createNativeQuery(INGRESO_OBLIGATORIO).getSingleResult();
+            if (obligatorio.intValue() == 0) {
+                return;
+            }
+            em.getTransaction().begin();
+            em.createNativeQuery("ALTER TABLE resultados_realizados MODIFY ingreso_id BIGINT NULL").executeUpdate();
+            em.getTransaction().commit();
+            logger.info("Migración de costeo promedio: resultados_realizados.ingreso_id ahora admite nulos.");
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            logger.error("Error migrando resultados_realizados para el costeo promedio.", e);
+            throw new IllegalStateException("No se pudo migrar resultados_realizados: " + e.getMessage(), e);
+        } finally {
+            em.close();
+        }
+    }
+}
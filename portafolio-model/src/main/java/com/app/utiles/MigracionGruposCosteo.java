@@ -0,0 +1,110 @@
+package com.app.utiles;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Migración de la clave de grupo de texto ({@code clave_agrupacion}) al id numérico de
+ * {@code grupos_costeo} en las tablas de costeo. Es idempotente: solo actúa sobre las
+ * tablas que todavía tienen la columna de texto, la cual se elimina al terminar.
+ * Hibernate ya creó las columnas {@code grupo_id} y sus índices al iniciar.
+ */
+public final class MigracionGruposCosteo {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionGruposCosteo.class);
+
+    private static final String SEMBRAR_GRUPOS = """
+        INSERT IGNORE INTO grupos_costeo
+            (fecha_creacion, creado_por, empresa_id, cuenta, custodio_id, instrumento_id, clave_agrupacion)
+        SELECT CURRENT_DATE, 'sistema', t.empresa_id, t.cuenta, t.custodio_id, t.instrumento_id,
+               CONCAT(t.empresa_id, '|', t.cuenta, '|', t.custodio_id, '|', t.instrumento_id)
+        FROM transacciones t
+        WHERE t.empresa_id IS NOT NULL
+          AND t.cuenta IS NOT NULL
+          AND t.custodio_id IS NOT NULL
+          AND t.instrumento_id IS NOT NULL
+        GROUP BY t.empresa_id, t.cuenta, t.custodio_id, t.instrumento_id
+        """;
+
+    private static final String EXISTE_COLUMNA = """
+        SELECT COUNT(*) FROM information_schema.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND TABLE_NAME = ?1
+          AND COLUMN_NAME = 'clave_agrupacion'
+        """;
+
+    // Tablas cuyo grupo_id se completa desde la clave de texto antes de eliminarla
+    private static final String[] TABLAS_CON_HISTORIA = {
+        "kardex", "detalle_costeos", "resultados_realizados", "resultados_realizados_grupo"
+    };
+
+    private MigracionGruposCosteo() {
+    }
+
+    public static void migrar() {
+        EntityManager em = LibraryInitializer.getEntityManager();
+        try {
+            boolean sembrado = false;
+            for (String tabla : TABLAS_CON_HISTORIA) {
+                if (!tieneClaveTexto(em, tabla)) {
+                    continue;
+                }
+                if (!sembrado) {
+                    int grupos = ejecutar(em, SEMBRAR_GRUPOS);
+                    logger.info("Migración de grupos de costeo: {} grupos registrados en grupos_costeo.", grupos);
+                    sembrado = true;
+                }
+                int filas = ejecutar(em, """
+                    UPDATE %s x
+                    JOIN grupos_costeo g ON g.clave_agrupacion = x.clave_agrupacion
+                    SET x.grupo_id = g.id
+                    WHERE x.grupo_id IS NULL
+                    """.formatted(tabla));
+                ejecutar(em, "ALTER TABLE " + tabla + " DROP COLUMN clave_agrupacion");
+                logger.info("Migración de grupos de costeo: {} filas de {} pasan a grupo_id.", filas, tabla);
+            }
+
+            // kardex_archivo no la administra Hibernate: se le agrega grupo_id antes de completarla
+            if (tieneClaveTexto(em, "kardex_archivo")) {
+                ejecutar(em, "ALTER TABLE kardex_archivo ADD COLUMN grupo_id BIGINT NULL, ADD INDEX idx_kardex_archivo_grupo_fecha (grupo_id, fecha_transaccion, id)");
+                int filas = ejecutar(em, """
+                    UPDATE kardex_archivo x
+                    JOIN grupos_costeo g ON g.clave_agrupacion = x.clave_agrupacion
+                    SET x.grupo_id = g.id
+                    """);
+                ejecutar(em, "ALTER TABLE kardex_archivo DROP COLUMN clave_agrupacion");
+                logger.info("Migración de grupos de costeo: {} filas de kardex_archivo pasan a grupo_id.", filas);
+            }
+
+            // lotes_abiertos es derivada del kardex: se vacía y el costeo la vuelve a poblar
+            if (tieneClaveTexto(em, "lotes_abiertos")) {
+                ejecutar(em, "TRUNCATE TABLE lotes_abiertos");
+                ejecutar(em, "ALTER TABLE lotes_abiertos DROP COLUMN clave_agrupacion");
+                logger.info("Migración de grupos de costeo: lotes_abiertos vaciada para reconstruirse por grupo_id.");
+            }
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            logger.error("Error migrando las tablas de costeo a grupo_id.", e);
+            throw new IllegalStateException("No se pudo migrar la clave de grupo de costeo: " + e.getMessage(), e);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static boolean tieneClaveTexto(EntityManager em, String tabla) {
+        Number columnas = (Number) em.createNativeQuery(EXISTE_COLUMNA)
+                .setParameter(1, tabla)
+                .getSingleResult();
+        return columnas.intValue() > 0;
+    }
+
+    private static int ejecutar(EntityManager em, String sql) {
+        em.getTransaction().begin();
+        int filas = em.createNativeQuery(sql).executeUpdate();
+        em.getTransaction().commit();
+        return filas;
+    }
+}
@@ -4,6 +4,8 @@ import com.app.dao.*;
 import com.app.normalizar.EntidadCacheManager;
 import com.app.normalizar.NormalizarDatos;
 import jakarta.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +32,9 @@ public class NormalizarDataService {
     /**
      * Ejecuta la lógica de normalización.
      * Asume que ya está dentro de una transacción activa.
+     * @return los grupos de costeo que recibieron transacciones nuevas, con la fecha de la más antigua.
      */
-    public void procesar() {
+    public Map<String, LocalDate> procesar() {
         // 1. Se instancian todos los DAOs necesarios.
         CargaTransaccionDao cargaTransaccionDao = new CargaTransaccionDao(em);
         EmpresaDao empresaDao = new EmpresaDao(em);
@@ -52,5 +55,6 @@ public class NormalizarDataService {
 
         normalizador.procesar();
         logger.info("Lógica de normalización ejecutada.");
+        return normalizador.getGruposAfectados();
     }
 }
\ No newline at end of file
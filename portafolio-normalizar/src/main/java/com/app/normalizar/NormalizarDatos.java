@@ -4,7 +4,10 @@ import com.app.dao.*;
 import com.app.entities.*;
 import jakarta.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +19,8 @@ public class NormalizarDatos {
     private final CargaTransaccionDao cargaTransaccionDao;
     private final EntidadCacheManager cacheManager;
     private final boolean esCargaInicial;
+    // Grupos de costeo (empresa|cuenta|custodio|instrumento) tocados y su fecha más antigua
+    private final Map<String, LocalDate> gruposAfectados = new LinkedHashMap<>();
 
     public NormalizarDatos(EntityManager em, CargaTransaccionDao cargaTransaccionDao, EntidadCacheManager cacheManager, boolean esCargaInicial) {
         this.em = em;
@@ -71,6 +76,7 @@ public class NormalizarDatos {
                 transaccion.setMoneda(carga.getMoneda());
 
                 em.persist(transaccion);
+                registrarGrupoAfectado(transaccion);
 
                 carga.setProcesado(true);
                 em.merge(carga);
@@ -82,6 +88,19 @@ public class NormalizarDatos {
                 fallidos++;
             }
         }
-        logger.info("Normalización completada. Registros exitosos: {}, Fallidos: {}.", exitosos, fallidos);
+        logger.info("Normalización completada. Registros exitosos: {}, Fallidos: {}. Grupos de costeo afectados: {}.",
+                exitosos, fallidos, gruposAfectados.size());
+    }
+
+    /**
+     * Grupos de costeo que recibieron transacciones nuevas, con la fecha de la más antigua.
+     */
+    public Map<String, LocalDate> getGruposAfectados() {
+        return gruposAfectados;
+    }
+
+    private void registrarGrupoAfectado(TransaccionEntity tx) {
+        String clave = tx.getEmpresa().getId() + "|" + tx.getCuenta() + "|" + tx.getCustodio().getId() + "|" + tx.getInstrumento().getId();
+        gruposAfectados.merge(clave, tx.getFecha(), (actual, nueva) -> nueva.isBefore(actual) ? nueva : actual);
     }
 }
\ No newline at end of file
@@ -167,6 +167,10 @@ public final class ServiceContainer {
                 getService(SaldoApi.class), 
                 getService(KardexApi.class)));
 
+        // Carga diaria con costeo incremental de los grupos tocados
+        apiDependentServices.put(ProcesoCargaDiariaService.class, () -> new ProcesoCargaDiariaService(
+                getService(CostingApi.class)));
+
         // AGREGAR ProcesoCosteoInicialService (faltaba)
         apiDependentServices.put(ProcesoCosteoInicialService.class, () -> new ProcesoCosteoInicialService(
                 getService(CostingApi.class), 
@@ -187,6 +191,9 @@ public final class ServiceContainer {
 
         registerServiceConditionally(ProcesoCosteoInicialService.class, 
             apiDependentServices.get(ProcesoCosteoInicialService.class));
+
+        registerServiceConditionally(ProcesoCargaDiariaService.class, 
+            apiDependentServices.get(ProcesoCargaDiariaService.class));
     }
 
     private void registerServiceConditionally(Class<?> serviceClass, Supplier<?> factory) {
@@ -71,7 +71,7 @@ public class KardexServiceImpl extends AbstractRepository implements KardexApi {
 
         return executeInTransaction(em -> {
             try {
-                int eliminados = em.createQuery("DELETE FROM KardexEntity k WHERE k.claveAgrupacion = :clave")
+                int eliminados = em.createQuery("DELETE FROM KardexEntity k WHERE k.grupo.id IN (SELECT g.id FROM GrupoCosteoEntity g WHERE g.claveAgrupacion = :clave)")
                         .setParameter("clave", claveAgrupacion.trim())
                         .executeUpdate();
 
@@ -100,7 +100,7 @@ public class KardexServiceImpl extends AbstractRepository implements KardexApi {
 
         return executeInTransaction(em -> {
             try {
-                int eliminados = em.createQuery("DELETE FROM DetalleCosteoEntity d WHERE d.claveAgrupacion = :clave")
+                int eliminados = em.createQuery("DELETE FROM DetalleCosteoEntity d WHERE d.grupo.id IN (SELECT g.id FROM GrupoCosteoEntity g WHERE g.claveAgrupacion = :clave)")
                         .setParameter("clave", claveAgrupacion.trim())
                         .executeUpdate();
 
@@ -349,7 +349,7 @@ public class KardexServiceImpl extends AbstractRepository implements KardexApi {
 
                 TypedQuery<KardexEntity> query = em.createQuery("""
                     SELECT k FROM KardexEntity k 
-                    WHERE k.claveAgrupacion = :clave 
+                    WHERE k.grupo.claveAgrupacion = :clave 
                       AND k.fechaTransaccion <= :fecha 
                       AND k.transaccion.id <> :txId 
                     ORDER BY k.fechaTransaccion DESC, k.id DESC
@@ -1,11 +1,15 @@
 package com.serv.service;
 
+import com.costing.api.GrupoCosteoKey;
 import com.model.entities.InstrumentoEntity;
 import com.model.interfaces.AbstractRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class FusionInstrumentoService extends AbstractRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(FusionInstrumentoService.class);
@@ -19,10 +23,12 @@ public class FusionInstrumentoService extends AbstractRepository {
      * 
      * @param idInstrumentoAntiguo ID del instrumento que será eliminado
      * @param idInstrumentoNuevo ID del instrumento que permanecerá
+     * @return las claves de los grupos de costeo del instrumento que permanece, que son los
+     *         únicos que hay que recostear
      * @throws IllegalArgumentException si los parámetros son inválidos
      * @throws EntityNotFoundException si alguno de los instrumentos no existe
      */
-    public void fusionarYPrepararRecosteo(Long idInstrumentoAntiguo, Long idInstrumentoNuevo) {
+    public Set<String> fusionarYPrepararRecosteo(Long idInstrumentoAntiguo, Long idInstrumentoNuevo) {
         // Validaciones de entrada
         if (idInstrumentoAntiguo == null) {
             throw new IllegalArgumentException("El ID del instrumento antiguo no puede ser null");
@@ -34,7 +40,7 @@ public class FusionInstrumentoService extends AbstractRepository {
             throw new IllegalArgumentException("No se puede fusionar un instrumento consigo mismo");
         }
 
-        executeInTransaction(em -> {
+        return executeInTransaction(em -> {
             logger.info("Iniciando fusión del instrumento ID {} en el instrumento ID {}", 
                        idInstrumentoAntiguo, idInstrumentoNuevo);
 
@@ -57,8 +63,18 @@ public class FusionInstrumentoService extends AbstractRepository {
             logger.info("Limpiando datos calculados para AMBOS instrumentos...");
             limpiarDatosCalculados("DetalleCosteoEntity", "ingreso.instrumento", instrumentoAntiguo, instrumentoNuevo, em);
             limpiarDatosCalculados("DetalleCosteoEntity", "egreso.instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            limpiarDatosCalculados("ResultadoRealizadoEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            limpiarDatosCalculados("ResultadoRealizadoGrupoEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            // Los lotes abiertos se eliminan en cascada con el kardex
             limpiarDatosCalculados("KardexEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            limpiarDatosCalculados("SaldoKardexEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
             limpiarDatosCalculados("SaldosDiariosEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            // Los cierres congelan la historia de cada grupo por separado: el grupo unificado se
+            // recostea desde el inicio, así que se descartan (sus lotes se eliminan en cascada)
+            limpiarDatosCalculados("CierreContableEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
+            limpiarKardexArchivado(idInstrumentoAntiguo, idInstrumentoNuevo, em);
+            // Nada referencia ya a los grupos de ambos instrumentos; el costeo los vuelve a crear
+            limpiarDatosCalculados("GrupoCosteoEntity", "instrumento", instrumentoAntiguo, instrumentoNuevo, em);
 
             // 2. REASIGNAR DATOS FUENTE (NO CALCULADOS)
             reasignarRegistros("TransaccionEntity", "instrumento", instrumentoNuevo, instrumentoAntiguo, em);
@@ -67,16 +83,31 @@ public class FusionInstrumentoService extends AbstractRepository {
             // 3. MARCAR TODAS LAS TRANSACCIONES DEL GRUPO UNIFICADO PARA RECOSTEO
             logger.info("Marcando transacciones del instrumento ID {} para recosteo...", idInstrumentoNuevo);
             int transaccionesParaRecostear = em.createQuery(
-                "UPDATE TransaccionEntity t SET t.costeado = false WHERE t.instrumento = :instrumento")
+                "UPDATE TransaccionEntity t SET t.costeado = false, t.paraRevision = false WHERE t.instrumento = :instrumento")
                 .setParameter("instrumento", instrumentoNuevo)
                 .executeUpdate();
             logger.info("{} transacciones marcadas para ser costeadas de nuevo", transaccionesParaRecostear);
 
+            // Grupos del instrumento unificado: tras la reasignación incluyen los que venían del antiguo
+            Set<String> gruposAfectados = new LinkedHashSet<>();
+            em.createQuery("""
+                SELECT DISTINCT t.empresa.id, t.cuenta, t.custodio.id
+                FROM TransaccionEntity t
+                WHERE t.instrumento = :instrumento
+                ORDER BY t.empresa.id, t.cuenta, t.custodio.id
+                """, Object[].class)
+                .setParameter("instrumento", instrumentoNuevo)
+                .getResultList()
+                .forEach(fila -> gruposAfectados.add(
+                    new GrupoCosteoKey((Long) fila[0], (String) fila[1], (Long) fila[2], idInstrumentoNuevo).clave()));
+            logger.info("{} grupos de costeo afectados por la fusión", gruposAfectados.size());
+
             // 4. ELIMINAR EL INSTRUMENTO ANTIGUO
             logger.info("Eliminando el instrumento antiguo (ID: {})...", idInstrumentoAntiguo);
             em.remove(instrumentoAntiguo);
 
             logger.info("Fusión y preparación para recosteo completada con éxito");
+            return gruposAfectados;
         });
     }
 
@@ -91,6 +122,22 @@ public class FusionInstrumentoService extends AbstractRepository {
         logger.info("{} registros de {} fueron actualizados", actualizados, entityName);
     }
     
+    // kardex_archivo no la administra Hibernate y solo existe tras el primer cierre con archivo
+    private void limpiarKardexArchivado(Long idAntiguo, Long idNuevo, jakarta.persistence.EntityManager em) {
+        Number existe = (Number) em.createNativeQuery("""
+            SELECT COUNT(*) FROM information_schema.TABLES
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'kardex_archivo'
+            """).getSingleResult();
+        if (existe.intValue() == 0) {
+            return;
+        }
+        int eliminados = em.createNativeQuery("DELETE FROM kardex_archivo WHERE instrumento_id IN (?1, ?2)")
+            .setParameter(1, idAntiguo)
+            .setParameter(2, idNuevo)
+            .executeUpdate();
+        logger.info("{} registros de kardex_archivo fueron eliminados", eliminados);
+    }
+
     private void limpiarDatosCalculados(String entityName, String fieldName, InstrumentoEntity antiguo, 
                                       InstrumentoEntity nuevo, jakarta.persistence.EntityManager em) {
         logger.debug("Limpiando datos calculados de {}...", entityName);
@@ -0,0 +1,99 @@
+package com.serv.service;
+
+import com.costing.api.CostingApiFactory;
+import com.etl.ingesta.ConfiguracionIngesta;
+import com.etl.ingesta.IngestaCartolasService;
+import com.etl.ingesta.ProcesadorIngesta;
+import com.model.dto.ResultadoCargaDto;
+import com.model.enums.ListaEnumsCustodios;
+import com.model.utiles.LibraryInitializer;
+import com.serv.factory.ServiceContainer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ingesta automática sin interfaz: vigila un directorio y pasa cada cartola nueva por el
+ * proceso de carga diaria completo (carga, normalización y costeo incremental), el mismo
+ * que se usa al cargar un archivo desde la pantalla.
+ * <p>
+ * La vigilancia, el diario y la contrapresión viven en el módulo ETL
+ * ({@link IngestaCartolasService}); aquí solo se conecta con {@link ProcesoCargaDiariaService},
+ * que el módulo ETL no puede ver.
+ * <p>
+ * Uso: IngestaAutomaticaService directorio [custodioPorDefecto]
+ */
+public class IngestaAutomaticaService implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestaAutomaticaService.class);
+
+    private final IngestaCartolasService ingesta;
+
+    public IngestaAutomaticaService(ConfiguracionIngesta configuracion, ProcesoCargaDiariaService procesoCargaDiaria) {
+        this.ingesta = new IngestaCartolasService(configuracion, procesadorCargaDiaria(procesoCargaDiaria));
+    }
+
+    /**
+     * Adapta la carga diaria al contrato de la ingesta: un resultado fallido se informa como excepción.
+     */
+    public static ProcesadorIngesta procesadorCargaDiaria(ProcesoCargaDiariaService procesoCargaDiaria) {
+        return (archivo, custodio) -> {
+            ResultadoCargaDto resultado = procesoCargaDiaria.ejecutar(custodio, archivo);
+            if (resultado.isFallido()) {
+                throw new IllegalStateException(resultado.getMensaje());
+            }
+            return resultado;
+        };
+    }
+
+    public void iniciar() throws IOException {
+        ingesta.iniciar();
+    }
+
+    public IngestaCartolasService getIngesta() {
+        return ingesta;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ingesta.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: IngestaAutomaticaService directorio [BanChile|Fynsa]");
+            System.exit(1);
+        }
+        ConfiguracionIngesta configuracion = ConfiguracionIngesta.porDefecto(Path.of(args[0]));
+        if (args.length > 1) {
+            configuracion = configuracion.conCustodioPorDefecto(ListaEnumsCustodios.valueOf(args[1]));
+        }
+
+        LibraryInitializer.init();
+        ServiceContainer container = ServiceContainer.getInstance();
+        container.configureExternalApis()
+                .withCostingApi(CostingApiFactory.createService())
+                .register();
+
+        CountDownLatch detenido = new CountDownLatch(1);
+        IngestaAutomaticaService servicio = new IngestaAutomaticaService(configuracion,
+                container.getService(ProcesoCargaDiariaService.class));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                servicio.close();
+            } catch (IOException e) {
+                logger.error("Error al detener la ingesta automática.", e);
+            } finally {
+                container.shutdown();
+                LibraryInitializer.shutdown();
+                detenido.countDown();
+            }
+        }, "ingesta-apagado"));
+
+        servicio.iniciar();
+        logger.info("Ingesta automática en marcha sobre {}. Ctrl+C para detener.", configuracion.entrada());
+        detenido.await();
+    }
+}
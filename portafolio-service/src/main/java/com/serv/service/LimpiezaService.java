@@ -39,9 +39,16 @@ public class LimpiezaService extends AbstractRepository {
                 em.createNativeQuery("SET FOREIGN_KEY_CHECKS = 0;").executeUpdate();
 
                 // Se vacían TODAS las tablas de negocio.
-                logger.debug("Truncando tablas: detalle_costeos, kardex, saldos_kardex, transacciones, saldos_diarios, saldos, carga_transacciones...");
+                logger.debug("Truncando tablas: detalle_costeos, resultados_realizados, lotes_abiertos, cierres_contables, kardex_archivo, kardex, grupos_costeo, saldos_kardex, transacciones, saldos_diarios, saldos, carga_transacciones...");
                 em.createNativeQuery("TRUNCATE TABLE detalle_costeos").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE resultados_realizados").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE resultados_realizados_grupo").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE lotes_abiertos").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE cierres_contables_lotes").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE cierres_contables").executeUpdate();
+                em.createNativeQuery("DROP TABLE IF EXISTS kardex_archivo").executeUpdate();
                 em.createNativeQuery("TRUNCATE TABLE kardex").executeUpdate();
+                em.createNativeQuery("TRUNCATE TABLE grupos_costeo").executeUpdate();
                 em.createNativeQuery("TRUNCATE TABLE saldos_kardex").executeUpdate();
                 em.createNativeQuery("TRUNCATE TABLE transacciones").executeUpdate();
                 em.createNativeQuery("TRUNCATE TABLE saldos_diarios").executeUpdate();
@@ -1,36 +1,54 @@
 package com.serv.service;
 
 import com.model.dto.ResultadoCargaDto;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.dto.TrabajoCosteoDto;
+import com.model.enums.EstadoTrabajoCosteo;
 import com.model.enums.ListaEnumsCustodios;
+import com.model.exception.CostingException;
 import com.model.interfaces.AbstractRepository;
+import com.model.interfaces.CostingApi;
 import com.normalizar.process.NormalizarDataService;
 import com.etl.service.LectorCartolasService;
 import java.io.File;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Orquesta el proceso completo de carga y normalización diaria.
  * Utiliza el patrón AbstractRepository para una gestión transaccional segura.
+ * Si se dispone del servicio de costeo, al final costea solo los grupos que
+ * recibieron transacciones nuevas en la carga.
  */
 public class ProcesoCargaDiariaService extends AbstractRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ProcesoCargaDiariaService.class);
+
+    private final CostingApi costingService;
     
     public ProcesoCargaDiariaService() {
+        this(null);
+    }
+
+    public ProcesoCargaDiariaService(CostingApi costingService) {
         super();
+        this.costingService = costingService;
     }
 
     public ResultadoCargaDto ejecutar(ListaEnumsCustodios custodio, File file) {
         long startTime = System.nanoTime();
+        ResultadoCargaDto[] carga = new ResultadoCargaDto[1];
 
         try {
             logger.info("--- INICIANDO PROCESO DE CARGA DIARIA (Transacción Única y Segura) ---");
             
             // CAMBIO 2: Se usa el helper para manejar la transacción de forma segura.
             // Se elimina todo el bloque try-catch-finally para begin/commit/rollback/close.
-            executeInTransaction(em -> {
+            Map<String, LocalDate> gruposAfectados = executeInTransaction(em -> {
                 // El 'em' que usamos aquí es gestionado por el helper.
 
                 // FASE 1: Limpiar la caché
@@ -39,26 +57,87 @@ public class ProcesoCargaDiariaService extends AbstractRepository {
 
                 // FASE 2: Cargar datos brutos
                 logger.info("FASE 1/2: Cargando datos desde el archivo: {}", file.getName());
-                new LectorCartolasService(em).cargar(custodio, file);
+                carga[0] = new LectorCartolasService(em).cargar(custodio, file);
+                logger.info(carga[0].getMensaje());
+                if (carga[0].isFallido()) {
+                    // Se revierte la transacción y el resultado queda como fallido
+                    throw new IllegalStateException(carga[0].getMensaje());
+                }
 
                 // FASE 3: Normalizar datos
                 logger.info("FASE 2/2: Normalizando datos...");
                 // Se le pasa 'false' para indicar que NO es una Carga Inicial.
-                new NormalizarDataService(em).procesar(false);
+                return new NormalizarDataService(em).procesar(false);
             });
 
+            // FASE 4: Costeo incremental de los grupos tocados (ya confirmada la carga)
+            String mensaje = costearGruposAfectados(gruposAfectados);
+
             long endTime = System.nanoTime();
             Duration duracion = Duration.ofNanos(endTime - startTime);
             logger.info("--- ¡PROCESO DE CARGA DIARIA FINALIZADO CON ÉXITO! ---");
             
-            // NOTA: El conteo de trxs y errores debería implementarse dentro de los servicios.
-            return new ResultadoCargaDto(0, 0, duracion, "Proceso completado.");
+            return new ResultadoCargaDto(carga[0].getRegistrosProcesados(), carga[0].getErroresEncontrados(), duracion,
+                    mensaje, carga[0].getDuplicadosOmitidos(), carga[0].getFilasPorSegundo());
 
         } catch (Exception e) {
             // Este catch ahora solo se preocupa de la lógica de negocio (crear el DTO de error),
             // no de la gestión de la transacción.
             logger.error("Error crítico durante el proceso de carga diaria. La transacción ha sido revertida.", e);
-            return new ResultadoCargaDto(0, 0, Duration.ZERO, "El proceso falló: " + e.getMessage());
+            return ResultadoCargaDto.fallido("El proceso falló: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Igual que {@link #ejecutar}, pero con todas las planillas de un directorio en una sola
+     * transacción: se leen en paralelo, se escriben en orden de nombre y se normaliza y
+     * costea una sola vez al final.
+     * @param directorio Directorio con las cartolas del día.
+     * @param custodioPorDefecto Custodio de los archivos cuyo nombre no lo indica (puede ser null).
+     * @param paralelismo Número de hilos de lectura.
+     * @return el resultado de cada archivo, en orden de carga.
+     */
+    public Map<File, ResultadoCargaDto> ejecutarDirectorio(File directorio, ListaEnumsCustodios custodioPorDefecto, int paralelismo) {
+        logger.info("--- INICIANDO CARGA DIARIA POR LOTE DEL DIRECTORIO {} ---", directorio);
+        Map<File, ResultadoCargaDto> resultados = new LinkedHashMap<>();
+        try {
+            Map<String, LocalDate> gruposAfectados = executeInTransaction(em -> {
+                em.clear();
+                resultados.putAll(new LectorCartolasService(em).cargarDirectorio(directorio, custodioPorDefecto, paralelismo));
+                logger.info("Normalizando datos del lote ({} archivos)...", resultados.size());
+                return new NormalizarDataService(em).procesar(false);
+            });
+            logger.info("Lote cargado. {}", costearGruposAfectados(gruposAfectados));
+        } catch (Exception e) {
+            logger.error("Error crítico durante la carga del lote. La transacción ha sido revertida.", e);
+            resultados.clear();
+            resultados.put(directorio, ResultadoCargaDto.fallido("El proceso falló: " + e.getMessage()));
+        }
+        return resultados;
+    }
+
+    /**
+     * Costea por la cola los grupos que recibieron transacciones nuevas.
+     * @return el mensaje final del proceso.
+     */
+    private String costearGruposAfectados(Map<String, LocalDate> gruposAfectados) {
+        String mensaje = "Proceso completado.";
+        if (costingService != null && !gruposAfectados.isEmpty()) {
+            logger.info("Costeando {} grupos afectados por la carga...", gruposAfectados.size());
+            try {
+                // Por la cola de costeo: no se cruza con un recosteo o costeo completo en curso sobre los mismos grupos
+                TrabajoCosteoDto trabajo = costingService.esperarTrabajo(
+                        costingService.encolarCosteoGruposAfectados(gruposAfectados));
+                if (trabajo.getEstado() != EstadoTrabajoCosteo.COMPLETADO) {
+                    throw new CostingException("Trabajo de costeo " + trabajo.getEstado() + ": " + trabajo.getMensaje(), null);
+                }
+                ResultadoCosteoDto costeo = trabajo.getResultado();
+                mensaje = "Proceso completado. " + costeo;
+            } catch (CostingException e) {
+                logger.error("La carga quedó confirmada pero el costeo incremental falló.", e);
+                mensaje = "Carga completada; el costeo incremental falló: " + e.getMessage();
+            }
         }
+        return mensaje;
     }
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ public class ProcesoCargaInicialService extends AbstractRepository {
     private final CostingApi costingService;
     private final SaldoApi saldoService;
     private final KardexApi kardexService;
+    private int gruposPorBloque;
 
     public ProcesoCargaInicialService(CostingApi costingService, SaldoApi saldoService, KardexApi kardexService) {
         super();
@@ -32,6 +33,21 @@ public class ProcesoCargaInicialService extends AbstractRepository {
         this.kardexService = kardexService;
     }
 
+    public int getGruposPorBloque() {
+        return gruposPorBloque;
+    }
+
+    /**
+     * Grupos de costeo confirmados por transacción en la fase de costeo; 0 (por defecto) usa
+     * el tamaño de bloque del motor.
+     */
+    public void setGruposPorBloque(int gruposPorBloque) {
+        if (gruposPorBloque < 0) {
+            throw new IllegalArgumentException("Los grupos por bloque no pueden ser negativos");
+        }
+        this.gruposPorBloque = gruposPorBloque;
+    }
+
     public ResultadoCargaDto ejecutar(ListaEnumsCustodios custodio, File file) {
         long startTime = System.nanoTime();
 
@@ -99,7 +115,7 @@ public class ProcesoCargaInicialService extends AbstractRepository {
         // --- FASE 5: Costeo de Datos ---
         try {
             logger.info("FASE 5/5: Costeando datos de la carga inicial...");
-            costingService.ejecutarCosteoCompleto();
+            costingService.ejecutarCosteoPorBloques(gruposPorBloque);
         } catch (CostingException e) {
             logger.error("Error crítico en la FASE 5 (Costeo). El proceso se ha detenido.", e);
             return new ResultadoCargaDto(registrosLeidos, 0, Duration.ZERO, "El proceso falló en el costeo final: " + e.getMessage());
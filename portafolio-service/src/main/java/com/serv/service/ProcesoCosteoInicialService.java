@@ -1,5 +1,6 @@
 package com.serv.service;
 
+import com.model.dto.ResultadoCosteoDto;
 import com.model.interfaces.AbstractRepository;
 import com.normalizar.process.NormalizarDataService;
 import org.slf4j.Logger;
@@ -14,9 +15,11 @@ import com.model.interfaces.SaldoApi;
 public class ProcesoCosteoInicialService extends AbstractRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ProcesoCosteoInicialService.class);
+    private static final int GRUPOS_POR_BLOQUE = 50;
 
     private final CostingApi costingService;
     private final SaldoApi saldoService;
+    private int gruposPorBloque = GRUPOS_POR_BLOQUE;
     
     public ProcesoCosteoInicialService(CostingApi costingService, SaldoApi saldoService) {
         super();
@@ -24,6 +27,20 @@ public class ProcesoCosteoInicialService extends AbstractRepository {
         this.saldoService = saldoService;
     }
 
+    public int getGruposPorBloque() {
+        return gruposPorBloque;
+    }
+
+    /**
+     * Grupos de costeo confirmados por transacción en la fase de costeo y al reanudarla.
+     */
+    public void setGruposPorBloque(int gruposPorBloque) {
+        if (gruposPorBloque <= 0) {
+            throw new IllegalArgumentException("Los grupos por bloque deben ser mayores a cero");
+        }
+        this.gruposPorBloque = gruposPorBloque;
+    }
+
     /**
      * Ejecuta el proceso completo de costeo inicial usando transacciones seguras.
      * Cada fase se ejecuta en su propia transacción para mejor control y recuperación.
@@ -140,21 +157,40 @@ public class ProcesoCosteoInicialService extends AbstractRepository {
     }
 
     /**
-     * FASE 4: Ejecución del costeo FIFO usando transacción segura.
+     * FASE 4: Ejecución del costeo FIFO por bloques. Cada bloque de grupos se confirma
+     * por separado; si el proceso se interrumpe puede reanudarse con {@link #reanudarCosteo()}.
      */
     private ProcessResult ejecutarCosteo() {
         logger.info("FASE 4/4: Ejecutando el proceso de costeo FIFO...");
         
         try {
-            // El costeo puede manejar sus propias transacciones internamente
-            costingService.ejecutarCosteoCompleto();
+            ResultadoCosteoDto resultado = costingService.ejecutarCosteoPorBloques(gruposPorBloque);
             
-            logger.info("Costeo FIFO ejecutado exitosamente");
+            logger.info("Costeo FIFO ejecutado exitosamente. {}", resultado);
             return ProcessResult.success("Costeo FIFO completado");
             
         } catch (Exception e) {
             logger.error("Error en la fase de costeo", e);
-            return ProcessResult.failure("Error en costeo: " + e.getMessage());
+            return ProcessResult.failure("Error en costeo: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reanuda la fase de costeo de la última corrida interrumpida, sin repetir
+     * la limpieza ni los grupos ya confirmados.
+     */
+    public ProcessResult reanudarCosteo() {
+        logger.info("Reanudando el costeo FIFO de la última corrida interrumpida...");
+        
+        try {
+            ResultadoCosteoDto resultado = costingService.reanudarCosteo(null, gruposPorBloque);
+            
+            logger.info("Costeo FIFO reanudado y completado. {}", resultado);
+            return ProcessResult.success("Costeo FIFO completado");
+            
+        } catch (Exception e) {
+            logger.error("Error al reanudar el costeo", e);
+            return ProcessResult.failure("Error al reanudar el costeo: " + e.getMessage(), e);
         }
     }
 
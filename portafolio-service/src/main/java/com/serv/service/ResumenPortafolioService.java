@@ -8,7 +8,9 @@ import com.serv.repositorio.AggregatesForInstrument;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import com.model.interfaces.KardexApi;
@@ -30,6 +32,7 @@ public class ResumenPortafolioService extends AbstractRepository {
         List<ResumenInstrumentoDto> resumenCompleto = new ArrayList<>();
         
         List<InventarioCostoDto> inventario = kardexService.obtenerSaldosFinalesPorGrupoYCuenta(empresaId, custodioId, cuenta);
+        Map<Long, BigDecimal> utilidadesRealizadas = obtenerUtilidadesRealizadas(empresaId, custodioId, cuenta);
 
         for (InventarioCostoDto item : inventario) {
             if (item.getSaldoCantidadFinal() == null || item.getSaldoCantidadFinal().compareTo(BigDecimal.ZERO) <= 0) {
@@ -58,11 +61,7 @@ public class ResumenPortafolioService extends AbstractRepository {
                 dto.setTotalGastos((BigDecimal) aggregates[1]);
             }
 
-            /**
-             * Por implementar método calcularUtilidadRealizadaParaInstrumento.
-             */
-            BigDecimal utilidadRealizada = calcularUtilidadRealizadaParaInstrumento(empresaId, custodioId, cuenta, item.getInstrumentoId());
-            dto.setUtilidadRealizada(utilidadRealizada);
+            dto.setUtilidadRealizada(utilidadesRealizadas.getOrDefault(item.getInstrumentoId(), BigDecimal.ZERO));
             
             // --- CÁLCULO DE RENTABILIDAD CORREGIDO (POR INSTRUMENTO) ---
             
@@ -111,7 +110,25 @@ public class ResumenPortafolioService extends AbstractRepository {
         return resumenCompleto;
     }
     
-    private BigDecimal calcularUtilidadRealizadaParaInstrumento(Long empresaId, Long custodioId, String cuenta, Long instrumentoId) {
-        return BigDecimal.ZERO;
+    /**
+     * Utilidad realizada por instrumento, leída de los totales que mantiene el costeo
+     * (una fila por grupo) en vez de recorrer el kardex de cada instrumento.
+     */
+    private Map<Long, BigDecimal> obtenerUtilidadesRealizadas(Long empresaId, Long custodioId, String cuenta) {
+        return executeReadOnly(em -> {
+            Map<Long, BigDecimal> utilidades = new HashMap<>();
+            em.createQuery("""
+                SELECT r.instrumento.id, r.utilidadTotal FROM ResultadoRealizadoGrupoEntity r
+                WHERE r.empresa.id = :empresaId
+                  AND r.custodio.id = :custodioId
+                  AND r.cuenta = :cuenta
+                """, Object[].class)
+                    .setParameter("empresaId", empresaId)
+                    .setParameter("custodioId", custodioId)
+                    .setParameter("cuenta", cuenta)
+                    .getResultList()
+                    .forEach(fila -> utilidades.put((Long) fila[0], (BigDecimal) fila[1]));
+            return utilidades;
+        });
     }
 }
\ No newline at end of file
@@ -287,37 +287,48 @@ public class QueryRepository {
     public enum ResultadoInstrumentoQueries {
         OPERACIONES_QUERY("""
         WITH resultados AS (
-            SELECT 
-                v.id, 
-                v.fecha_tran, 
-                tm.tipo_movimiento, 
-                t.cantidad,
-                CASE WHEN v.tipo_oper = 'INGRESO' THEN COALESCE(t.cantidad, 0) ELSE 0 END AS cant_compras,
-                CASE WHEN v.tipo_oper = 'EGRESO' THEN COALESCE(t.cantidad, 0) ELSE 0 END AS cant_ventas,
-                SUM(v.monto_compra) AS compra, 
-                SUM(v.cant_usada * v.precio_venta) AS venta,
-                SUM(v.costo_oper) AS costo, 
-                SUM(v.utilidad) AS utilidad
-            FROM kardex_view v
-            JOIN transacciones t ON v.id = t.id
-            JOIN tipo_movimientos tm ON t.movimiento_id = tm.id
-            WHERE v.empresa_id = :empresaId AND v.custodio_id = :custodioId AND v.cuenta = :cuenta
-              AND v.nemo_id = :instrumentoId AND v.tipo_oper IN ('INGRESO', 'EGRESO')
-            GROUP BY v.id, v.fecha_tran, tm.tipo_movimiento, t.cantidad
+            SELECT
+                k.transaccion_id AS id,
+                k.fecha_transaccion AS fecha_tran,
+                k.cantidad AS cant_compras,
+                0 AS cant_ventas,
+                k.costo_total AS compra,
+                0 AS venta,
+                0 AS costo,
+                0 AS utilidad
+            FROM kardex k
+            WHERE k.empresa_id = :empresaId AND k.custodio_id = :custodioId AND k.cuenta = :cuenta
+              AND k.instrumento_id = :instrumentoId AND k.tipo_contable = 'INGRESO'
+            UNION ALL
+            SELECT
+                r.egreso_id,
+                r.fecha,
+                0,
+                SUM(r.cantidad),
+                0,
+                SUM(r.venta),
+                SUM(r.costo),
+                SUM(r.utilidad)
+            FROM resultados_realizados r
+            WHERE r.empresa_id = :empresaId AND r.custodio_id = :custodioId AND r.cuenta = :cuenta
+              AND r.instrumento_id = :instrumentoId
+            GROUP BY r.egreso_id, r.fecha
         )
         SELECT 
-            id, 
-            fecha_tran, 
-            tipo_movimiento,
-            cant_compras,
-            cant_ventas,
-            SUM(cant_compras - cant_ventas) OVER (ORDER BY fecha_tran, id) AS saldo,
-            compra, 
-            venta, 
-            costo, 
-            utilidad
-        FROM resultados
-        ORDER BY fecha_tran, id
+            res.id, 
+            res.fecha_tran, 
+            tm.tipo_movimiento,
+            res.cant_compras,
+            res.cant_ventas,
+            SUM(res.cant_compras - res.cant_ventas) OVER (ORDER BY res.fecha_tran, res.id) AS saldo,
+            res.compra, 
+            res.venta, 
+            res.costo, 
+            res.utilidad
+        FROM resultados res
+        JOIN transacciones t ON t.id = res.id
+        JOIN tipo_movimientos tm ON t.movimiento_id = tm.id
+        ORDER BY res.fecha_tran, res.id
                     """),
         DIVIDENDOS_QUERY("""
         SELECT t.id, t.fecha, tm.tipo_movimiento, t.monto
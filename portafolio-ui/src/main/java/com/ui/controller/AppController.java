@@ -1,6 +1,7 @@
 package com.ui.controller;
 
 import com.model.dto.ResultadoCargaDto;
+import com.model.dto.ResultadoCosteoDto;
 import com.model.enums.ListaEnumsCustodios;
 import com.ui.factory.AppFacade;
 import com.ui.factory.BaseController;
@@ -61,6 +62,7 @@ public class AppController extends BaseController {
     @FXML private void handleMostrarResumenHistorico() { navigatorService.cargarVistaResumenHistorico(); }
     @FXML private void handleMostrarTransacciones() { navigatorService.cargarVistaOperacionesTrxs(); }
     @FXML private void handleMostrarTrxsProblemas() { navigatorService.cargarVistaProblemasTrxs(); }
+    @FXML private void handleMostrarGruposLentos() { navigatorService.cargarVistaGruposLentos(); }
     @FXML private void handleMostrarTiposMovimiento() { navigatorService.mostrarVentanaTiposMovimiento(); }
     @FXML private void handleTransaccionManual() { navigatorService.mostrarVistaTransaccionManual(); }
     @FXML private void handleMostrarCierreContable() { navigatorService.cargarVistaCierreContable(); }
@@ -122,9 +124,9 @@ public class AppController extends BaseController {
 
     @FXML
     private void handleEjecutarCosteo(ActionEvent event) {
-        Task<ServiceResult<Void>> costeoTask = new Task<>() {
+        Task<ServiceResult<ResultadoCosteoDto>> costeoTask = new Task<>() {
             @Override
-            protected ServiceResult<Void> call() {
+            protected ServiceResult<ResultadoCosteoDto> call() {
                 updateMessage("Ejecutando proceso de costeo...");
                 return facade.iniciarCosteoCompleto();
             }
@@ -194,9 +196,16 @@ public class AppController extends BaseController {
             ServiceResult<?> resultado = task.getValue();
 
             resultado.ifSuccess(data -> {
-                String mensaje = (data instanceof ResultadoCargaDto)
-                        ? ((ResultadoCargaDto) data).getMensaje()
-                        : nombreProceso + " completado.";
+                String mensaje;
+                if (data instanceof ResultadoCargaDto carga) {
+                    mensaje = carga.getMensaje();
+                } else if (data instanceof ResultadoCosteoDto costeo) {
+                    mensaje = String.format("%s completado: %d grupos (%d con errores), %d transacciones en %d s (%.1f tx/s).",
+                            nombreProceso, costeo.getGrupos().size(), costeo.getGruposFallidos().size(),
+                            costeo.getTransaccionesProcesadas(), costeo.getDuracion().toSeconds(), costeo.getTransaccionesPorSegundo());
+                } else {
+                    mensaje = nombreProceso + " completado.";
+                }
                 showSuccess(mensaje);
             }).ifError(errMsg -> showError("Error en Proceso", errMsg));
         }));
@@ -0,0 +1,134 @@
+package com.ui.controller;
+
+import com.model.dto.TiempoGrupoCosteoDto;
+import com.ui.factory.AppFacade;
+import com.ui.factory.BaseController;
+import com.ui.util.MainPaneAware;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.BorderPane;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.ResourceBundle;
+
+/**
+ * Informe de los grupos que más tardaron en la última ejecución de costeo registrada,
+ * con el tiempo de cada fase para ubicar dónde se fue el tiempo.
+ */
+public class GruposLentosController extends BaseController implements MainPaneAware {
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    private BorderPane mainPane;
+
+    // --- Componentes FXML ---
+    @FXML private ComboBox<Integer> cmbLimite;
+    @FXML private Button btnBuscar;
+    @FXML private ProgressIndicator progressIndicator;
+    @FXML private Label lblCorrida;
+    @FXML private TableView<TiempoGrupoCosteoDto> tablaGrupos;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, String> colClave;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Boolean> colExitoso;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Integer> colTransacciones;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Double> colTps;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colLotes;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colFilas;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colCarga;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colInicializacion;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colCalculo;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colEscritura;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colSaldosDiarios;
+    @FXML private TableColumn<TiempoGrupoCosteoDto, Long> colTotal;
+
+    public GruposLentosController(AppFacade facade, ResourceBundle bundle) {
+        super(facade, bundle);
+    }
+
+    @FXML
+    public void initialize() {
+        setupTableColumns();
+        cmbLimite.setItems(FXCollections.observableArrayList(10, 25, 50, 100));
+        cmbLimite.getSelectionModel().selectFirst();
+        handleBuscar();
+    }
+
+    private void setupTableColumns() {
+        colClave.setCellValueFactory(new PropertyValueFactory<>("claveAgrupacion"));
+        colExitoso.setCellValueFactory(new PropertyValueFactory<>("exitoso"));
+        colTransacciones.setCellValueFactory(new PropertyValueFactory<>("transacciones"));
+        colTps.setCellValueFactory(new PropertyValueFactory<>("transaccionesPorSegundo"));
+        colLotes.setCellValueFactory(new PropertyValueFactory<>("lotesConsumidos"));
+        colFilas.setCellValueFactory(new PropertyValueFactory<>("filasEscritas"));
+        colCarga.setCellValueFactory(new PropertyValueFactory<>("msCarga"));
+        colInicializacion.setCellValueFactory(new PropertyValueFactory<>("msInicializacion"));
+        colCalculo.setCellValueFactory(new PropertyValueFactory<>("msCalculo"));
+        colEscritura.setCellValueFactory(new PropertyValueFactory<>("msEscritura"));
+        colSaldosDiarios.setCellValueFactory(new PropertyValueFactory<>("msSaldosDiarios"));
+        colTotal.setCellValueFactory(new PropertyValueFactory<>("msTotal"));
+
+        colExitoso.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Boolean item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : (item ? "Sí" : "No"));
+            }
+        });
+        colTps.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : String.format("%,.1f", item));
+            }
+        });
+    }
+
+    @FXML
+    void handleBuscar() {
+        final int limite = cmbLimite.getValue() != null ? cmbLimite.getValue() : 10;
+
+        Task<List<TiempoGrupoCosteoDto>> buscarTask = new Task<>() {
+            @Override
+            protected List<TiempoGrupoCosteoDto> call() throws Exception {
+                return facade.obtenerGruposMasLentos(null, limite).getData();
+            }
+        };
+
+        progressIndicator.visibleProperty().bind(buscarTask.runningProperty());
+        btnBuscar.disableProperty().bind(buscarTask.runningProperty());
+        tablaGrupos.getItems().clear();
+
+        buscarTask.setOnSucceeded(e -> {
+            List<TiempoGrupoCosteoDto> grupos = buscarTask.getValue();
+            tablaGrupos.setItems(FXCollections.observableArrayList(grupos));
+            lblCorrida.setText(grupos.isEmpty()
+                    ? "No hay ejecuciones de costeo registradas."
+                    : describirCorrida(grupos.get(0)));
+        });
+
+        buscarTask.setOnFailed(e -> {
+            showError("Error al Consultar", "Ocurrió un error al consultar el historial de costeo.", buscarTask.getException());
+        });
+
+        new Thread(buscarTask).start();
+    }
+
+    private String describirCorrida(TiempoGrupoCosteoDto fila) {
+        LocalDateTime inicio = fila.getInicioCorrida();
+        return "Ejecución #" + fila.getHistorialId() + " (" + fila.getModalidad() + ")"
+                + (inicio != null ? " iniciada el " + inicio.format(FORMATO_FECHA) : "");
+    }
+
+    @Override
+    public void setMainPane(BorderPane mainPane) { this.mainPane = mainPane; }
+
+    @FXML
+    private void handleCerrar(ActionEvent event) {
+        if (mainPane != null) { mainPane.setCenter(null); }
+    }
+}
@@ -179,6 +179,10 @@ public class NavigatorService {
         loadViewIntoMainPane("/fxml/ProblemasTrxsView.fxml");
     }
 
+    public void cargarVistaGruposLentos() {
+        loadViewIntoMainPane("/fxml/GruposLentosView.fxml");
+    }
+
     public void cargarVistaCierreContable() {
         loadViewIntoMainPane("/fxml/CuadraturaSaldosView.fxml");
     }
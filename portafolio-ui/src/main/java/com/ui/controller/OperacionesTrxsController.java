@@ -1,17 +1,20 @@
 package com.ui.controller;
 
 import com.model.dto.OperacionesTrxsDto;
+import com.model.dto.ResultadoCosteoDto;
 import com.model.entities.InstrumentoEntity;
 import com.model.enums.TipoAjuste;
 import com.model.enums.TipoMovimientoEspecial;
 import com.ui.factory.AppFacade;
 import com.ui.factory.BaseController;
+import com.ui.factory.ServiceResult;
 import com.ui.util.Alertas;
 import com.ui.util.MainPaneAware;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
 import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -161,12 +164,32 @@ public class OperacionesTrxsController extends BaseController implements MainPan
 
         Alertas.mostrarConfirmacion("¿Está seguro de fusionar?", String.format("Se moverán todas las transacciones de %s al nuevo instrumento %s. Esta operación es irreversible.", filtroGrupo.nemoValueProperty().get().getInstrumentoNemo(), nuevo.getInstrumentoNemo()))
                 .ifPresent(b -> {
-                    facade.fusionarInstrumentos(idAntiguo, nuevo.getId())
-                            .ifSuccess(v -> {
-                                Alertas.mostrarAlertaExito("Fusión Exitosa", "Fusión completada. Se recomienda ejecutar el costeo general.");
-                                handleBuscar();
-                            })
-                            .ifError(errMsg -> showError("Error de Fusión", errMsg));
+                    Task<ServiceResult<ResultadoCosteoDto>> task = new Task<>() {
+                        @Override
+                        protected ServiceResult<ResultadoCosteoDto> call() throws Exception {
+                            updateMessage("Fusionando instrumentos...");
+                            return facade.fusionarInstrumentos(idAntiguo, nuevo.getId(), (terminados, total) -> {
+                                updateMessage("Recosteando grupos: " + terminados + " de " + total);
+                                updateProgress(terminados, total);
+                            });
+                        }
+                    };
+                    // ejecutarTareaConDialogo usa setOnSucceeded para cerrar el diálogo
+                    task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> {
+                        ServiceResult<ResultadoCosteoDto> servicio = task.getValue();
+                        if (servicio.isError()) {
+                            showError("Error de Fusión", servicio.getMessage());
+                            return;
+                        }
+                        handleBuscar();
+                        ResultadoCosteoDto resultado = servicio.getData();
+                        if (resultado != null && !resultado.isExitoso()) {
+                            Alertas.mostrarAlertaAdvertencia("Fusión con Errores", "Fusión completada, pero algunos grupos no se pudieron recostear. " + resultado);
+                        } else {
+                            Alertas.mostrarAlertaExito("Fusión Exitosa", "Fusión completada y grupos afectados recosteados.");
+                        }
+                    });
+                    ejecutarTareaConDialogo(task, "Fusión de Instrumentos");
                 });
     }
 
@@ -21,12 +21,20 @@ import com.model.dto.ResultadoCargaDto;
 import com.model.dto.ResultadoInstrumentoDto;
 import com.model.dto.ResumenInstrumentoDto;
 import com.model.dto.ResumenSaldoDto;
+import com.model.dto.ResultadoCosteoDto;
+import com.model.dto.SimulacionCosteoDto;
+import com.model.dto.TiempoGrupoCosteoDto;
+import com.model.dto.TrabajoCosteoDto;
 import com.model.entities.CustodioEntity;
 import com.model.entities.EmpresaEntity;
 import com.model.entities.InstrumentoEntity;
 import com.model.entities.TransaccionEntity;
 import com.model.enums.ListaEnumsCustodios;
+import com.model.enums.EstadoTrabajoCosteo;
+import com.model.enums.MetodoCosteo;
+import com.model.enums.PrioridadCosteo;
 import com.model.enums.TipoAjuste;
+import com.model.exception.CostingException;
 import com.serv.factory.ServiceContainer;
 import com.model.interfaces.CostingApi;
 import com.model.interfaces.KardexApi;
@@ -37,6 +45,8 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public class AppFacade {
 
@@ -99,10 +109,48 @@ public class AppFacade {
         return ServiceResult.error("Carga inicial no implementada en la fachada.", null);
     }
 
-    public ServiceResult<Void> iniciarCosteoCompleto() {
+    /**
+     * Encola el costeo completo (prioridad MASIVA) y espera su resultado. Si ya había uno
+     * pendiente en la cola, espera ese mismo trabajo.
+     */
+    public ServiceResult<ResultadoCosteoDto> iniciarCosteoCompleto() {
+        return executeServiceCall(() -> {
+            CostingApi costing = container.getService(CostingApi.class);
+            return esperarTrabajoCosteo(costing, costing.encolarCosteoCompleto()).getResultado();
+        }, "Error al iniciar el costeo completo.");
+    }
+
+    /**
+     * Trabajos de la cola de costeo: pendientes, en curso y los últimos terminados.
+     */
+    public ServiceResult<List<TrabajoCosteoDto>> listarTrabajosCosteo() {
+        return executeServiceCall(
+                () -> container.getService(CostingApi.class).listarTrabajos(),
+                "No se pudo consultar la cola de costeo."
+        );
+    }
+
+    public ServiceResult<TrabajoCosteoDto> consultarTrabajoCosteo(Long trabajoId) {
+        return executeServiceCall(
+                () -> container.getService(CostingApi.class).consultarTrabajo(trabajoId),
+                "No se pudo consultar el trabajo de costeo."
+        );
+    }
+
+    public ServiceResult<Boolean> cancelarTrabajoCosteo(Long trabajoId) {
         return executeServiceCall(
-                () -> container.getService(CostingApi.class).ejecutarCosteoCompleto(),
-                "Error al iniciar el costeo completo."
+                () -> container.getService(CostingApi.class).cancelarTrabajo(trabajoId),
+                "No se pudo cancelar el trabajo de costeo."
+        );
+    }
+
+    /**
+     * Grupos más lentos de una ejecución de costeo del historial (la última si {@code historialId} es null).
+     */
+    public ServiceResult<List<TiempoGrupoCosteoDto>> obtenerGruposMasLentos(Long historialId, int limite) {
+        return executeServiceCall(
+                () -> container.getService(CostingApi.class).obtenerGruposMasLentos(historialId, limite),
+                "No se pudo obtener el informe de grupos más lentos."
         );
     }
 
@@ -168,18 +216,26 @@ public class AppFacade {
         );
     }
 
-    public ServiceResult<Void> fusionarInstrumentos(Long idInstrumentoAntiguo, Long idInstrumentoNuevo) {
-        return executeServiceCall(
-                () -> container.getService(FusionInstrumentoService.class).fusionarYPrepararRecosteo(idInstrumentoAntiguo, idInstrumentoNuevo),
-                "La fusión de instrumentos falló."
-        );
+    /**
+     * Fusiona dos instrumentos y, en la misma operación, recostea en paralelo solo los grupos
+     * del instrumento que permanece.
+     * @param avance Recibe (grupos recosteados, total) a medida que avanza el recosteo; puede ser null.
+     */
+    public ServiceResult<ResultadoCosteoDto> fusionarInstrumentos(Long idInstrumentoAntiguo, Long idInstrumentoNuevo,
+                                                                  BiConsumer<Integer, Integer> avance) {
+        return executeServiceCall(() -> {
+            Set<String> grupos = container.getService(FusionInstrumentoService.class)
+                    .fusionarYPrepararRecosteo(idInstrumentoAntiguo, idInstrumentoNuevo);
+            CostingApi costing = container.getService(CostingApi.class);
+            return esperarTrabajoCosteo(costing, costing.encolarRecosteoGrupos(grupos, avance)).getResultado();
+        }, "La fusión de instrumentos falló.");
     }
 
     public ServiceResult<Void> eliminarAjuste(Long transaccionId) {
-        return executeServiceCall(
-                () -> container.getService(CostingApi.class).eliminarAjuste(transaccionId),
-                "Error al eliminar el ajuste."
-        );
+        return executeServiceCall(() -> {
+            CostingApi costing = container.getService(CostingApi.class);
+            esperarTrabajoCosteo(costing, costing.encolarEliminarAjuste(transaccionId));
+        }, "Error al eliminar el ajuste.");
     }
 
     public ServiceResult<Void> recostearGrupoPorTransaccion(Long transaccionId) {
@@ -189,10 +245,46 @@ public class AppFacade {
                 throw new IllegalArgumentException("No se encontró la transacción con ID: " + transaccionId);
             }
             String claveAgrupacion = tx.getClaveAgrupacion();
-            container.getService(CostingApi.class).recostearGrupo(claveAgrupacion);
+            // Pedido del usuario: pasa delante del costeo masivo y se suma a un recosteo pendiente del mismo grupo
+            CostingApi costing = container.getService(CostingApi.class);
+            esperarTrabajoCosteo(costing, costing.encolarRecosteoGrupo(claveAgrupacion, PrioridadCosteo.INTERACTIVA));
         }, "Error al recostear el grupo.");
     }
 
+    /**
+     * Cierra el ejercicio indicado; el costeo posterior parte de los saldos y lotes congelados.
+     */
+    public ServiceResult<Integer> cerrarEjercicio(int ejercicio, boolean archivarKardex) {
+        return executeServiceCall(
+                () -> container.getService(CostingApi.class).cerrarEjercicio(ejercicio, archivarKardex),
+                "Error al cerrar el ejercicio " + ejercicio + "."
+        );
+    }
+
+    /**
+     * Simula el costeo del grupo de una transacción con movimientos hipotéticos, sin guardar nada.
+     */
+    public ServiceResult<SimulacionCosteoDto> simularCosteoPorTransaccion(Long transaccionId,
+            List<SimulacionCosteoDto.MovimientoHipotetico> movimientos) {
+        return executeServiceCall(() -> {
+            TransaccionEntity tx = container.getService(TransaccionService.class).obtenerTransaccionPorId(transaccionId);
+            if (tx == null) {
+                throw new IllegalArgumentException("No se encontró la transacción con ID: " + transaccionId);
+            }
+            return container.getService(CostingApi.class).simularCosteo(tx.getClaveAgrupacion(), movimientos);
+        }, "Error al simular el costeo del grupo.");
+    }
+
+    /**
+     * Asigna el método de costeo de una empresa; sus grupos ya costeados deben recostearse completos.
+     */
+    public ServiceResult<Void> asignarMetodoCosteo(Long empresaId, MetodoCosteo metodo) {
+        return executeServiceCall(
+                () -> container.getService(CostingApi.class).asignarMetodoCosteo(empresaId, metodo),
+                "Error al asignar el método de costeo de la empresa."
+        );
+    }
+
     public ServiceResult<Void> toggleIgnorarEnCosteo(Long transaccionId) {
         return executeServiceCall(
                 () -> container.getService(TransaccionService.class).toggleIgnorarEnCosteo(transaccionId),
@@ -215,10 +307,10 @@ public class AppFacade {
     }
 
     public ServiceResult<Void> crearAjuste(Long transaccionId, TipoAjuste tipo, BigDecimal cantidad, BigDecimal precio) {
-        return executeServiceCall(
-                () -> container.getService(CostingApi.class).crearAjuste(transaccionId, tipo, cantidad, precio),
-                "Error al crear el ajuste."
-        );
+        return executeServiceCall(() -> {
+            CostingApi costing = container.getService(CostingApi.class);
+            esperarTrabajoCosteo(costing, costing.encolarCrearAjuste(transaccionId, tipo, cantidad, precio));
+        }, "Error al crear el ajuste.");
     }
 
     // --- MÉTODOS PARA LOS CONTROLADORES RESTANTES ---
@@ -310,6 +402,18 @@ public class AppFacade {
     // --------------------------------------------------
     // --- HELPERS PARA EJECUTAR LLAMADAS A SERVICIOS ---
     // --------------------------------------------------
+    /**
+     * Espera un trabajo de la cola de costeo y lanza una excepción si no terminó bien.
+     */
+    private TrabajoCosteoDto esperarTrabajoCosteo(CostingApi costing, Long trabajoId) throws CostingException {
+        TrabajoCosteoDto trabajo = costing.esperarTrabajo(trabajoId);
+        if (trabajo.getEstado() != EstadoTrabajoCosteo.COMPLETADO) {
+            throw new CostingException(trabajo.getDescripcion() + " " + trabajo.getEstado().name().toLowerCase()
+                    + (trabajo.getMensaje() != null ? ": " + trabajo.getMensaje() : "."), null);
+        }
+        return trabajo;
+    }
+
     private <T> ServiceResult<T> executeServiceCall(ServiceCallable<T> serviceCall, String errorMessage) {
         try {
             return ServiceResult.success(serviceCall.call());
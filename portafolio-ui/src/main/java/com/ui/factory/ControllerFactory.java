@@ -8,6 +8,7 @@ import com.ui.controller.OperacionesTrxsController;
 import com.ui.controller.ResumenPortafolioController;
 import com.ui.controller.CrearAdminController;
 import com.ui.controller.KardexController;
+import com.ui.controller.GruposLentosController;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -59,6 +60,7 @@ public class ControllerFactory {
 
         controllerRegistry.put(SaldosController.class, () -> new SaldosController(appFacade, bundle));
         controllerRegistry.put(ResumenPortafolioController.class, () -> new ResumenPortafolioController(appFacade, bundle));
+        controllerRegistry.put(GruposLentosController.class, () -> new GruposLentosController(appFacade, bundle));
 
     }
 